@@ -0,0 +1,368 @@
+package pl.pateman.assetcooker;
+
+import pl.pateman.core.Utils;
+import pl.pateman.core.mesh.KeyframeReducer;
+import pl.pateman.core.mesh.Mesh;
+import pl.pateman.core.mesh.MeshWelder;
+import pl.pateman.importer.ImportedScene;
+import pl.pateman.importer.binary.BinaryMeshFormat;
+import pl.pateman.importer.binary.BinaryMeshWriter;
+import pl.pateman.importer.json.JSONStreamingImporter;
+import pl.pateman.importer.ogrexml.OgreXMLStreamingImporter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Offline asset cooker. Converts a directory of JSON meshes ({@code .json}) and OgreXML meshes ({@code .mesh.xml},
+ * along with the {@code .skeleton.xml} files they link) into binary mesh containers (see {@code BinaryMeshFormat}),
+ * which are loaded at runtime with {@code BinaryMeshImporter} without any parsing.
+ *
+ * Each source is imported, welded (see {@code MeshWelder}), stripped of redundant keyframes (see
+ * {@code KeyframeReducer}), and has its bind matrices and skinning info computed before it's written out. Sources are
+ * cooked in parallel. The output directory holds a manifest with hashes of the sources, so sources which haven't
+ * changed since they were last cooked are skipped.
+ *
+ * Usage: {@code AssetCooker <source directory> <output directory> [--threads <count>] [--force]}
+ *
+ * Created by pateman.
+ */
+public final class AssetCooker {
+    /**
+     * Extension of cooked files.
+     */
+    public static final String COOKED_EXTENSION = ".mesh.bin";
+    /**
+     * Version of the cooking process, to be bumped whenever it changes, so that all sources get cooked again.
+     */
+    public static final int COOKER_VERSION = BinaryMeshFormat.VERSION * 1000 + 1;
+
+    private static final String JSON_EXTENSION = ".json";
+    private static final String OGRE_MESH_EXTENSION = ".mesh.xml";
+    private static final Pattern SKELETON_LINK = Pattern.compile("<skeletonlink\\s+name\\s*=\\s*\"([^\"]+)\"");
+
+    private final Path sourceDirectory;
+    private final Path outputDirectory;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private boolean force;
+    private KeyframeReducer keyframeReducer = new KeyframeReducer();
+
+    private enum Status {
+        COOKED, UNCHANGED, NO_MESH, FAILED
+    }
+
+    private static final class Result {
+        private final String source;
+        private final Status status;
+        private final CookingManifest.Entry entry;
+        private final String message;
+
+        private Result(String source, Status status, CookingManifest.Entry entry, String message) {
+            this.source = source;
+            this.status = status;
+            this.entry = entry;
+            this.message = message;
+        }
+    }
+
+    public AssetCooker(final Path sourceDirectory, final Path outputDirectory) {
+        if (sourceDirectory == null || outputDirectory == null) {
+            throw new IllegalArgumentException("Valid directories need to be provided");
+        }
+        this.sourceDirectory = sourceDirectory.toAbsolutePath().normalize();
+        this.outputDirectory = outputDirectory.toAbsolutePath().normalize();
+    }
+
+    private static String toHex(final byte[] bytes) {
+        final StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (final byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String getOutputName(final String source) {
+        final String extension = source.endsWith(OGRE_MESH_EXTENSION) ? OGRE_MESH_EXTENSION : JSON_EXTENSION;
+        return source.substring(0, source.length() - extension.length()) + COOKED_EXTENSION;
+    }
+
+    private List<Path> findSources() throws IOException {
+        final List<Path> sources = new ArrayList<>();
+        Files.walkFileTree(this.sourceDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                //  Don't cook the output of previous runs, if it's written into the source directory.
+                return dir.equals(outputDirectory) && !dir.equals(sourceDirectory) ? FileVisitResult.SKIP_SUBTREE :
+                        FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                final String name = file.getFileName().toString();
+                if (file.equals(outputDirectory.resolve(CookingManifest.FILE_NAME))) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (name.endsWith(JSON_EXTENSION) || name.endsWith(OGRE_MESH_EXTENSION)) {
+                    sources.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(sources);
+        return sources;
+    }
+
+    private String hashSource(final Path source) throws IOException {
+        final MessageDigest digest = createDigest();
+        final byte[] content = Files.readAllBytes(source);
+        digest.update(content);
+
+        //  OgreXML meshes depend on their skeletons.
+        if (source.getFileName().toString().endsWith(OGRE_MESH_EXTENSION)) {
+            final Matcher matcher = SKELETON_LINK.matcher(new String(content, StandardCharsets.UTF_8));
+            if (matcher.find()) {
+                final Path skeleton = source.resolveSibling(matcher.group(1) + ".xml");
+                if (Files.isRegularFile(skeleton)) {
+                    digest.update(Files.readAllBytes(skeleton));
+                }
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private ImportedScene importSource(final Path source) throws IOException {
+        if (source.getFileName().toString().endsWith(OGRE_MESH_EXTENSION)) {
+            return new ImportedScene(new OgreXMLStreamingImporter().loadMesh(source), null, null, null);
+        }
+        return new JSONStreamingImporter().loadScene(source);
+    }
+
+    private Result cookSource(final Path source, final String name, final CookingManifest.Entry previous)
+            throws IOException {
+        final String sourceHash = this.hashSource(source);
+        if (!this.force && previous != null && sourceHash.equals(previous.sourceHash) && (previous.outputFile == null ||
+                Files.isRegularFile(this.outputDirectory.resolve(previous.outputFile)))) {
+            return new Result(name, Status.UNCHANGED, previous, null);
+        }
+
+        final CookingManifest.Entry entry = new CookingManifest.Entry();
+        entry.sourceHash = sourceHash;
+
+        final long start = System.nanoTime();
+        final ImportedScene scene = this.importSource(source);
+        if (scene == null || scene.getMesh().getVertices().isEmpty()) {
+            return new Result(name, Status.NO_MESH, entry, null);
+        }
+
+        //  Process the mesh. Skinning info is computed once, and reused by the writer.
+        final Mesh mesh = scene.getMesh();
+        final int weldedVertices = MeshWelder.weld(mesh);
+        final int removedKeyframes = this.keyframeReducer.reduce(mesh);
+        mesh.getSkeleton().calculateBindMatrices();
+        mesh.setSkinningInfo(mesh.getSkinningInfo());
+
+        final ByteBuffer container = BinaryMeshWriter.encode(mesh, scene.getTranslation(), scene.getRotation(),
+                scene.getScale());
+        final MessageDigest digest = createDigest();
+        digest.update(container.duplicate());
+        entry.outputFile = getOutputName(name);
+        entry.outputHash = toHex(digest.digest());
+
+        final Path output = this.outputDirectory.resolve(entry.outputFile);
+        Files.createDirectories(output.getParent());
+        Utils.writeAtomically(output, container);
+
+        return new Result(name, Status.COOKED, entry, String.format("%s, %d vertices welded, %d keyframes removed, " +
+                "%.1f ms", entry.outputFile, weldedVertices, removedKeyframes, (System.nanoTime() - start) / 1.0e6));
+    }
+
+    /**
+     * Cooks all sources of the source directory and updates the manifest.
+     *
+     * @return {@code true} if all sources have been cooked successfully.
+     * @throws IOException If the directories or the manifest can't be accessed.
+     * @throws InterruptedException If the thread is interrupted while waiting for the sources to be cooked.
+     */
+    public boolean cook() throws IOException, InterruptedException {
+        if (!Files.isDirectory(this.sourceDirectory)) {
+            throw new IOException("Source directory " + this.sourceDirectory + " does not exist");
+        }
+        Files.createDirectories(this.outputDirectory);
+
+        final CookingManifest manifest = CookingManifest.read(this.outputDirectory, COOKER_VERSION);
+        final Map<String, CookingManifest.Entry> entries = manifest.getEntries();
+        final List<Path> sources = this.findSources();
+
+        //  Cook the sources. The manifest is only read until all of them are done.
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(this.threadCount,
+                sources.size())));
+        final Map<String, Future<Result>> futures = new LinkedHashMap<>();
+        final Set<String> outputNames = new HashSet<>();
+        final List<Result> results = new ArrayList<>();
+        try {
+            for (final Path source : sources) {
+                final String name = this.sourceDirectory.relativize(source).toString().replace('\\', '/');
+                if (!outputNames.add(getOutputName(name))) {
+                    results.add(new Result(name, Status.FAILED, null, "another source is cooked into " +
+                            getOutputName(name)));
+                    continue;
+                }
+
+                final CookingManifest.Entry previous = entries.get(name);
+                futures.put(name, executor.submit(new Callable<Result>() {
+                    @Override
+                    public Result call() throws Exception {
+                        return cookSource(source, name, previous);
+                    }
+                }));
+            }
+
+            for (final Map.Entry<String, Future<Result>> future : futures.entrySet()) {
+                try {
+                    results.add(future.getValue().get());
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause() == null ? e : e.getCause();
+                    results.add(new Result(future.getKey(), Status.FAILED, null, cause.toString()));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //  Update the manifest. Failed sources are removed from it, so that they're cooked again on the next run.
+        final Set<String> existingSources = new HashSet<>();
+        int failed = 0;
+        for (final Result result : results) {
+            existingSources.add(result.source);
+            if (result.status == Status.FAILED) {
+                entries.remove(result.source);
+                failed++;
+            } else {
+                entries.put(result.source, result.entry);
+            }
+
+            switch (result.status) {
+                case COOKED:
+                    System.out.printf("Cooked %s -> %s%n", result.source, result.message);
+                    break;
+                case UNCHANGED:
+                    System.out.printf("Unchanged %s%n", result.source);
+                    break;
+                case NO_MESH:
+                    System.out.printf("Skipped %s, it doesn't contain a mesh%n", result.source);
+                    break;
+                case FAILED:
+                    System.out.printf("Failed to cook %s: %s%n", result.source, result.message);
+                    break;
+            }
+        }
+
+        //  Remove the output of sources which no longer exist.
+        final Iterator<Map.Entry<String, CookingManifest.Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, CookingManifest.Entry> entry = iterator.next();
+            if (existingSources.contains(entry.getKey())) {
+                continue;
+            }
+
+            if (entry.getValue().outputFile != null && !outputNames.contains(entry.getValue().outputFile)) {
+                Files.deleteIfExists(this.outputDirectory.resolve(entry.getValue().outputFile));
+                System.out.printf("Removed %s, its source no longer exists%n", entry.getValue().outputFile);
+            }
+            iterator.remove();
+        }
+
+        manifest.write(this.outputDirectory);
+        return failed == 0;
+    }
+
+    public Path getSourceDirectory() {
+        return sourceDirectory;
+    }
+
+    public Path getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("At least one thread is required");
+        }
+        this.threadCount = threadCount;
+    }
+
+    public boolean isForce() {
+        return force;
+    }
+
+    /**
+     * Makes the cooker cook all sources, including the ones which haven't changed.
+     *
+     * @param force Whether all sources should be cooked.
+     */
+    public void setForce(boolean force) {
+        this.force = force;
+    }
+
+    public KeyframeReducer getKeyframeReducer() {
+        return keyframeReducer;
+    }
+
+    public void setKeyframeReducer(KeyframeReducer keyframeReducer) {
+        if (keyframeReducer == null) {
+            throw new IllegalArgumentException("A valid keyframe reducer needs to be provided");
+        }
+        this.keyframeReducer = keyframeReducer;
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: AssetCooker <source directory> <output directory> [--threads <count>] [--force]");
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            printUsage();
+            System.exit(1);
+        }
+
+        final AssetCooker cooker = new AssetCooker(Paths.get(args[0]), Paths.get(args[1]));
+        for (int i = 2; i < args.length; i++) {
+            if ("--force".equals(args[i])) {
+                cooker.setForce(true);
+            } else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                cooker.setThreadCount(Integer.parseInt(args[++i]));
+            } else {
+                printUsage();
+                System.exit(1);
+            }
+        }
+
+        final long start = System.nanoTime();
+        final boolean success = cooker.cook();
+        System.out.printf("Done in %.1f ms%n", (System.nanoTime() - start) / 1.0e6);
+        if (!success) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package pl.pateman.assetcooker;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import pl.pateman.core.Utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Records what has been cooked into an output directory, so that unchanged sources can be skipped. Sources are
+ * identified by their paths relative to the source directory, with {@code /} as the separator.
+ *
+ * Created by pateman.
+ */
+final class CookingManifest {
+    static final String FILE_NAME = "manifest.json";
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    static final class Entry {
+        /**
+         * SHA-256 of the source and of all files it depends on.
+         */
+        String sourceHash;
+        /**
+         * Path of the cooked file relative to the output directory, or {@code null} if the source has no mesh.
+         */
+        String outputFile;
+        /**
+         * SHA-256 of the cooked file.
+         */
+        String outputHash;
+    }
+
+    private int cookerVersion;
+    private Map<String, Entry> entries = new TreeMap<>();
+
+    CookingManifest(int cookerVersion) {
+        this.cookerVersion = cookerVersion;
+    }
+
+    /**
+     * Reads the manifest of the given output directory. A missing or unreadable manifest, or one written by another
+     * version of the cooker, results in an empty manifest, so that everything is cooked again.
+     *
+     * @param outputDirectory Output directory.
+     * @param cookerVersion Current version of the cooker.
+     * @return Manifest.
+     */
+    static CookingManifest read(final Path outputDirectory, int cookerVersion) {
+        final Path file = outputDirectory.resolve(FILE_NAME);
+        if (!Files.isRegularFile(file)) {
+            return new CookingManifest(cookerVersion);
+        }
+
+        try {
+            final CookingManifest manifest = GSON.fromJson(new String(Files.readAllBytes(file),
+                    StandardCharsets.UTF_8), CookingManifest.class);
+            if (manifest == null || manifest.entries == null || manifest.cookerVersion != cookerVersion) {
+                return new CookingManifest(cookerVersion);
+            }
+            return manifest;
+        } catch (IOException | JsonParseException e) {
+            System.out.printf("Unable to read the manifest, all sources will be cooked: %s%n", e.getMessage());
+            return new CookingManifest(cookerVersion);
+        }
+    }
+
+    /**
+     * Writes the manifest into the given output directory. The previous manifest is replaced atomically.
+     *
+     * @param outputDirectory Output directory.
+     * @throws IOException If the manifest can't be written.
+     */
+    void write(final Path outputDirectory) throws IOException {
+        Utils.writeAtomically(outputDirectory.resolve(FILE_NAME),
+                ByteBuffer.wrap(GSON.toJson(this).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    Map<String, Entry> getEntries() {
+        return entries;
+    }
+}
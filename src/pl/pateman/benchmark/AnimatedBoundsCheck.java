@@ -0,0 +1,189 @@
+package pl.pateman.benchmark;
+
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import pl.pateman.core.Utils;
+import pl.pateman.core.mesh.Animation;
+import pl.pateman.core.mesh.AnimationTrack;
+import pl.pateman.core.mesh.Bone;
+import pl.pateman.core.mesh.Mesh;
+import pl.pateman.core.mesh.MeshBounds;
+import pl.pateman.core.mesh.MeshSkinningInfo;
+import pl.pateman.core.spatial.DynamicAABBTree;
+import pl.pateman.importer.json.JSONStreamingImporter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Headless check of {@code MeshBounds}. Poses the skeleton in its bind pose, in every keyframe of every animation
+ * and in a number of random poses, skins the vertices on the CPU the same way the vertex shader does, and verifies
+ * that the animated bounds contain all of them. The bounds are also kept in a {@code DynamicAABBTree}, like
+ * {@code EntitySpatialIndex} does, to verify that the tree's fat AABB contains the vertices as well. Exits with
+ * a non-zero status if any of them is outside.
+ *
+ * Created by pateman.
+ */
+public final class AnimatedBoundsCheck {
+    private static final String DEFAULT_RESOURCE = "test.json";
+    private static final int RANDOM_POSES = 200;
+    private static final float RANDOM_ROTATION = (float) Math.PI;
+    private static final float TOLERANCE = 1.0e-4f;
+
+    private AnimatedBoundsCheck() {
+
+    }
+
+    static void poseBone(final Bone bone, final Quaternionf[] frameRotations, final Vector3f[] framePositions) {
+        //  Mirrors BoneAnimator: the frame is applied on top of the bind pose and composed with the parent.
+        final Vector3f pos = new Vector3f(bone.getBindPosition()).add(framePositions[bone.getIndex()]);
+        final Quaternionf rot = new Quaternionf(bone.getBindRotation()).mul(frameRotations[bone.getIndex()]);
+        Utils.fromRotationTranslationScale(bone.getOffsetMatrix(), rot, pos, bone.getBindScale());
+        if (bone.getParent() != null) {
+            bone.getParent().getOffsetMatrix().mul(bone.getOffsetMatrix(), bone.getOffsetMatrix());
+        }
+        for (int i = 0; i < bone.getChildren().size(); i++) {
+            poseBone(bone.getChildren().get(i), frameRotations, framePositions);
+        }
+    }
+
+    static Vector3f skinVertex(final Mesh mesh, final MeshSkinningInfo skinningInfo, final int vertex,
+                               final Vector3f out) {
+        final Vector3f position = mesh.getVertices().get(vertex);
+        final Vector3f indices = skinningInfo.getBoneIndices().get(vertex);
+        final Vector3f weights = skinningInfo.getBoneWeights().get(vertex);
+        if (weights.x == 0.0f) {
+            return out.set(position);
+        }
+
+        out.zero();
+        final Matrix4f skinningMatrix = new Matrix4f();
+        final Vector3f skinned = new Vector3f();
+        for (int i = 0; i < MeshSkinningInfo.MAX_BONES_PER_VERTEX; i++) {
+            final float weight = weights.get(i);
+            if (weight == 0.0f) {
+                continue;
+            }
+            final Bone bone = mesh.getSkeleton().getBone((int) indices.get(i));
+            bone.getOffsetMatrix().mul(bone.getInverseBindMatrix(), skinningMatrix);
+            skinningMatrix.transformPosition(position, skinned);
+            out.fma(weight, skinned);
+        }
+        return out;
+    }
+
+    private static boolean isOutside(final Vector3f point, final Vector3f min, final Vector3f max) {
+        return point.x < min.x - TOLERANCE || point.y < min.y - TOLERANCE || point.z < min.z - TOLERANCE ||
+                point.x > max.x + TOLERANCE || point.y > max.y + TOLERANCE || point.z > max.z + TOLERANCE;
+    }
+
+    private static int checkPose(final Mesh mesh, final MeshSkinningInfo skinningInfo, final MeshBounds meshBounds,
+                                 final DynamicAABBTree<Mesh> tree, int proxy, final String name,
+                                 final boolean report) {
+        final List<Matrix4f> boneMatrices = new ArrayList<>(mesh.getSkeleton().getBones().size());
+        for (final Bone bone : mesh.getSkeleton().getBones()) {
+            boneMatrices.add(bone.getOffsetMatrix());
+        }
+        final Vector3f boundsMin = new Vector3f();
+        final Vector3f boundsMax = new Vector3f();
+        meshBounds.computeAnimatedBounds(boneMatrices, boundsMin, boundsMax);
+        tree.updateProxy(proxy, boundsMin, boundsMax);
+        tree.commitUpdates();
+        final Vector3f fatMin = new Vector3f();
+        final Vector3f fatMax = new Vector3f();
+        tree.getFatAABB(proxy, fatMin, fatMax);
+
+        final Vector3f meshMin = new Vector3f(Float.POSITIVE_INFINITY);
+        final Vector3f meshMax = new Vector3f(Float.NEGATIVE_INFINITY);
+        final Vector3f skinned = new Vector3f();
+        int outside = 0;
+        int outsideFat = 0;
+        for (int i = 0; i < mesh.getVertices().size(); i++) {
+            skinVertex(mesh, skinningInfo, i, skinned);
+            meshMin.min(skinned);
+            meshMax.max(skinned);
+            if (isOutside(skinned, boundsMin, boundsMax)) {
+                outside++;
+            }
+            if (isOutside(skinned, fatMin, fatMax)) {
+                outsideFat++;
+            }
+        }
+
+        if (report || outside > 0 || outsideFat > 0) {
+            System.out.printf("  %-24s mesh %s - %s, bounds %s - %s, %d vertices outside, %d outside the fat AABB%n",
+                    name, meshMin, meshMax, boundsMin, boundsMax, outside, outsideFat);
+        }
+        return outside + outsideFat;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final String resource = args.length > 0 ? args[0] : DEFAULT_RESOURCE;
+        final Mesh mesh = new JSONStreamingImporter().loadMesh(resource);
+        final MeshBounds meshBounds = new MeshBounds(mesh);
+        //  The skinning info is rebuilt on every call, so fetch it once.
+        final MeshSkinningInfo skinningInfo = mesh.getSkinningInfo();
+        final DynamicAABBTree<Mesh> tree = new DynamicAABBTree<>();
+        final int proxy = tree.createProxy(meshBounds.getBindMin(), meshBounds.getBindMax(), mesh);
+        final int boneCount = mesh.getSkeleton().getBones().size();
+        final Quaternionf[] frameRotations = new Quaternionf[boneCount];
+        final Vector3f[] framePositions = new Vector3f[boneCount];
+        for (int i = 0; i < boneCount; i++) {
+            frameRotations[i] = new Quaternionf();
+            framePositions[i] = new Vector3f();
+        }
+
+        System.out.printf("%s, %d vertices, %d bones%n", resource, mesh.getVertices().size(), boneCount);
+        int outside = 0;
+        int poses = 0;
+
+        poseBone(mesh.getSkeleton().getRootBone(), frameRotations, framePositions);
+        outside += checkPose(mesh, skinningInfo, meshBounds, tree, proxy, "bind pose", true);
+        poses++;
+
+        //  Every keyframe of every animation. Bones without a track stay in their bind pose.
+        for (final Animation animation : mesh.getAnimations()) {
+            int keyframes = 0;
+            for (final AnimationTrack track : animation.getTracks()) {
+                keyframes = Math.max(keyframes, track.getKeyframeCount());
+            }
+            for (int frame = 0; frame < keyframes; frame++) {
+                for (int i = 0; i < boneCount; i++) {
+                    frameRotations[i].identity();
+                    framePositions[i].zero();
+                }
+                for (final AnimationTrack track : animation.getTracks()) {
+                    final int keyframe = Math.min(frame, track.getKeyframeCount() - 1);
+                    track.getKeyframeRotation(keyframe, frameRotations[track.getBone().getIndex()]);
+                    track.getKeyframeTranslation(keyframe, framePositions[track.getBone().getIndex()]);
+                }
+                poseBone(mesh.getSkeleton().getRootBone(), frameRotations, framePositions);
+                outside += checkPose(mesh, skinningInfo, meshBounds, tree, proxy, animation.getName() + " #" + frame,
+                        frame == 0);
+                poses++;
+            }
+        }
+
+        //  Random poses, far more extreme than the animations, to make sure that the bounds don't just happen to fit.
+        final Random random = new Random(1234L);
+        for (int pose = 0; pose < RANDOM_POSES; pose++) {
+            for (int i = 0; i < boneCount; i++) {
+                frameRotations[i].identity().rotateXYZ((random.nextFloat() - 0.5f) * RANDOM_ROTATION,
+                        (random.nextFloat() - 0.5f) * RANDOM_ROTATION, (random.nextFloat() - 0.5f) * RANDOM_ROTATION);
+                framePositions[i].zero();
+            }
+            poseBone(mesh.getSkeleton().getRootBone(), frameRotations, framePositions);
+            outside += checkPose(mesh, skinningInfo, meshBounds, tree, proxy, "random pose #" + pose, pose == 0);
+            poses++;
+        }
+
+        System.out.printf("%d poses checked, %d vertices outside the animated bounds or the fat AABB%n", poses,
+                outside);
+        if (outside > 0) {
+            System.exit(1);
+        }
+    }
+}
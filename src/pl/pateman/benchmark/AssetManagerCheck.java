@@ -0,0 +1,319 @@
+package pl.pateman.benchmark;
+
+import pl.pateman.core.asset.AssetHandle;
+import pl.pateman.core.asset.AssetLoader;
+import pl.pateman.core.asset.AssetManager;
+import pl.pateman.core.asset.MeshAssetLoader;
+import pl.pateman.core.mesh.Animation;
+import pl.pateman.core.mesh.AnimationClipCache;
+import pl.pateman.core.mesh.AnimationClipSource;
+import pl.pateman.core.mesh.AnimationTrack;
+import pl.pateman.core.mesh.Mesh;
+import pl.pateman.core.mesh.PackedKeyframes;
+import pl.pateman.importer.ImportedScene;
+import pl.pateman.importer.binary.BinaryMeshImporter;
+import pl.pateman.importer.binary.BinaryMeshWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless check of {@code AssetManager}. Drives {@code MeshAssetLoader} and a stub loader, which doesn't need GL,
+ * through deduplication of requests, reference counting, eviction once the budget is exceeded, releasing handles of
+ * failed loads, and shutting down while assets are still being loaded. The main thread plays the context thread.
+ * Exits with a non-zero status if any of the checks fails.
+ *
+ * Created by pateman.
+ */
+public final class AssetManagerCheck {
+    private static final String MESH_RESOURCE = "test.json";
+    private static final long STUB_SIZE = 100L;
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(30L);
+
+    private AssetManagerCheck() {
+
+    }
+
+    private static final class StubAsset {
+        private volatile boolean destroyed;
+    }
+
+    /**
+     * Loads assets which take {@code STUB_SIZE} bytes. Loads of the given paths fail once, and all loads wait for the
+     * gate, if there is one.
+     */
+    private static final class StubLoader implements AssetLoader<String, StubAsset> {
+        private final CountDownLatch gate;
+        private final Set<String> failures = Collections.synchronizedSet(new HashSet<String>());
+        private final AtomicInteger loadCount = new AtomicInteger();
+        private final AtomicInteger createCount = new AtomicInteger();
+        private final AtomicInteger destroyCount = new AtomicInteger();
+
+        private StubLoader(final CountDownLatch gate, final String... failures) {
+            this.gate = gate;
+            Collections.addAll(this.failures, failures);
+        }
+
+        @Override
+        public String loadData(String resourcePath) throws Exception {
+            this.loadCount.incrementAndGet();
+            if (this.gate != null) {
+                this.gate.await();
+            }
+            if (this.failures.remove(resourcePath)) {
+                throw new IOException("Failing '" + resourcePath + "' on purpose");
+            }
+            return resourcePath;
+        }
+
+        @Override
+        public StubAsset createAsset(String data) {
+            this.createCount.incrementAndGet();
+            return new StubAsset();
+        }
+
+        @Override
+        public long getSize(String data, StubAsset asset) {
+            return STUB_SIZE;
+        }
+
+        @Override
+        public void destroyAsset(StubAsset asset) {
+            this.destroyCount.incrementAndGet();
+            asset.destroyed = true;
+        }
+    }
+
+    private static void waitFor(final AssetManager assetManager, final AssetHandle<?> handle) {
+        final long start = System.nanoTime();
+        while (!handle.isDone()) {
+            if (System.nanoTime() - start > TIMEOUT) {
+                throw new IllegalStateException("Timed out while loading '" + handle.getPath() + "'");
+            }
+            assetManager.processContextTasks();
+            Thread.yield();
+        }
+    }
+
+    private static <A> A load(final AssetManager assetManager, final AssetHandle<A> handle) {
+        waitFor(assetManager, handle);
+        return handle.getAsset();
+    }
+
+    private static boolean report(final String name, boolean passed) {
+        System.out.printf("  %-34s %s%n", name + ":", passed ? "OK" : "FAILED");
+        return passed;
+    }
+
+    private static boolean checkDeduplication() {
+        final AssetManager assetManager = new AssetManager(2, Long.MAX_VALUE);
+        try {
+            final AssetHandle<ImportedScene> first = assetManager.acquire(MESH_RESOURCE, new MeshAssetLoader());
+            final AssetHandle<ImportedScene> second = assetManager.acquire(MESH_RESOURCE, new MeshAssetLoader());
+            final boolean shared = load(assetManager, first) == load(assetManager, second) &&
+                    assetManager.getAssetCount() == 1 && assetManager.getReferenceCount(MESH_RESOURCE) == 2;
+
+            boolean rejected = false;
+            try {
+                assetManager.acquire(MESH_RESOURCE, new StubLoader(null));
+            } catch (IllegalArgumentException e) {
+                rejected = true;
+            }
+
+            //  Releasing a handle twice mustn't release the other one's reference.
+            first.release();
+            first.release();
+            final boolean counted = assetManager.getReferenceCount(MESH_RESOURCE) == 1;
+            second.release();
+            final boolean kept = assetManager.getReferenceCount(MESH_RESOURCE) == 0 &&
+                    assetManager.contains(MESH_RESOURCE);
+            return shared && rejected && counted && kept;
+        } finally {
+            assetManager.shutdown();
+        }
+    }
+
+    private static int countKeyframes(final Mesh mesh) {
+        int keyframeCount = 0;
+        for (final Animation animation : mesh.getAnimations()) {
+            for (final AnimationTrack track : animation.getTracks()) {
+                keyframeCount += track.getKeyframeCount();
+            }
+        }
+        return keyframeCount;
+    }
+
+    private static boolean checkPackedSize(final Path binaryFile) throws IOException {
+        //  Packed keyframes take exactly their stride, rather than the estimate for boxed ones.
+        final MeshAssetLoader meshAssetLoader = new MeshAssetLoader();
+        final ImportedScene scene = new BinaryMeshImporter().loadScene(binaryFile);
+        final ImportedScene withoutAnimations = new BinaryMeshImporter().loadScene(binaryFile);
+        withoutAnimations.getMesh().getAnimations().clear();
+
+        final long keyframesSize = meshAssetLoader.getSize(scene, scene) -
+                meshAssetLoader.getSize(withoutAnimations, withoutAnimations);
+        return keyframesSize == PackedKeyframes.getByteSize(countKeyframes(scene.getMesh()));
+    }
+
+    private static boolean checkClipEviction(final Path binaryFile) throws IOException {
+        final BinaryMeshImporter streamingImporter = new BinaryMeshImporter();
+        streamingImporter.setStreamAnimations(true);
+        final AnimationClipSource clipSource = streamingImporter.loadScene(binaryFile).getMesh().getClipSource();
+        final String clip = clipSource.getClipNames().get(0);
+
+        //  No budget, so the mesh is evicted as soon as its handle is released.
+        final AssetManager assetManager = new AssetManager(1, 0L);
+        try {
+            final AssetHandle<ImportedScene> handle = assetManager.acquire(MESH_RESOURCE, new MeshAssetLoader());
+            final Mesh mesh = load(assetManager, handle).getMesh();
+            mesh.getAnimations().clear();
+            mesh.setClipSource(clipSource);
+            mesh.getAnimation(clip);
+            final boolean loaded = AnimationClipCache.getDefault().isLoaded(clipSource, clip);
+
+            handle.release();
+            assetManager.processContextTasks();
+            return loaded && !assetManager.contains(MESH_RESOURCE) &&
+                    !AnimationClipCache.getDefault().isLoaded(clipSource, clip);
+        } finally {
+            assetManager.shutdown();
+        }
+    }
+
+    private static boolean checkEviction() {
+        final StubLoader loader = new StubLoader(null);
+        final AssetManager assetManager = new AssetManager(1, STUB_SIZE * 5L / 2L);
+        try {
+            final AssetHandle<StubAsset> a = assetManager.acquire("a", loader);
+            final AssetHandle<StubAsset> b = assetManager.acquire("b", loader);
+            final AssetHandle<StubAsset> c = assetManager.acquire("c", loader);
+            final StubAsset assetA = load(assetManager, a);
+            final StubAsset assetB = load(assetManager, b);
+            load(assetManager, c);
+
+            //  Assets with handles are never evicted, even if they exceed the budget.
+            final boolean overBudget = assetManager.getUsedMemory() == 3L * STUB_SIZE && !assetA.destroyed;
+
+            //  Releasing 'a' makes it the least recently used asset without handles.
+            a.release();
+            b.release();
+            assetManager.processContextTasks();
+            final boolean evicted = assetA.destroyed && !assetManager.contains("a") && assetManager.contains("b") &&
+                    assetManager.getUsedMemory() == 2L * STUB_SIZE && loader.destroyCount.get() == 1;
+
+            //  'b' stayed loaded without handles, so it's reused.
+            final AssetHandle<StubAsset> reacquired = assetManager.acquire("b", loader);
+            final boolean reused = reacquired.isDone() && load(assetManager, reacquired) == assetB &&
+                    loader.loadCount.get() == 3;
+            reacquired.release();
+            c.release();
+            return overBudget && evicted && reused;
+        } finally {
+            assetManager.shutdown();
+        }
+    }
+
+    private static boolean checkFailedRelease() {
+        final StubLoader loader = new StubLoader(null, "flaky");
+        final AssetManager assetManager = new AssetManager(1, Long.MAX_VALUE);
+        try {
+            final AssetHandle<StubAsset> failed = assetManager.acquire("flaky", loader);
+            waitFor(assetManager, failed);
+            boolean reported = false;
+            try {
+                failed.getAsset();
+            } catch (IllegalStateException e) {
+                reported = true;
+            }
+            final boolean forgotten = !assetManager.contains("flaky");
+
+            //  The failed handle refers to the forgotten entry, so releasing it mustn't touch the new one.
+            final AssetHandle<StubAsset> retried = assetManager.acquire("flaky", loader);
+            final boolean loaded = load(assetManager, retried) != null;
+            failed.release();
+            final boolean counted = assetManager.getReferenceCount("flaky") == 1;
+            retried.release();
+            return reported && forgotten && loaded && counted;
+        } finally {
+            assetManager.shutdown();
+        }
+    }
+
+    private static boolean checkShutdown() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch gate = new CountDownLatch(1);
+        final StubLoader loader = new StubLoader(null);
+        final StubLoader gatedLoader = new StubLoader(gate);
+        final AssetManager assetManager = new AssetManager(executor, Long.MAX_VALUE);
+        try {
+            final AssetHandle<StubAsset> loaded = assetManager.acquire("loaded", loader);
+            final StubAsset loadedAsset = load(assetManager, loaded);
+
+            //  The data of 'queued' is read, but the asset isn't created before the manager is shut down.
+            final AssetHandle<StubAsset> queued = assetManager.acquire("queued", loader);
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+
+                }
+            }).get();
+
+            //  The data of 'pending' is still being read when the manager is shut down.
+            final AssetHandle<StubAsset> pending = assetManager.acquire("pending", gatedLoader);
+            assetManager.shutdown();
+            gate.countDown();
+            executor.shutdown();
+            if (!executor.awaitTermination(TIMEOUT, TimeUnit.NANOSECONDS)) {
+                throw new IllegalStateException("Timed out while loading 'pending'");
+            }
+
+            boolean rejected = false;
+            try {
+                assetManager.acquire("late", loader);
+            } catch (IllegalStateException e) {
+                rejected = true;
+            }
+
+            //  Nothing may be left for the context thread, as no one would ever process it.
+            return loadedAsset.destroyed && queued.getFuture().isCancelled() && pending.getFuture().isCancelled() &&
+                    loader.createCount.get() == 1 && gatedLoader.loadCount.get() == 1 &&
+                    gatedLoader.createCount.get() == 0 && assetManager.processContextTasks() == 0 &&
+                    assetManager.getAssetCount() == 0 && rejected;
+        } finally {
+            gate.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Path binaryFile = Files.createTempFile("asset-manager-check", MeshAssetLoader.BINARY_EXTENSION);
+        boolean passed = true;
+        try {
+            BinaryMeshWriter.write(new MeshAssetLoader().loadData(MESH_RESOURCE).getMesh(), null, null, null,
+                    binaryFile);
+
+            System.out.println("AssetManager");
+            passed &= report("Deduplication and reference counts", checkDeduplication());
+            passed &= report("Size of packed keyframes", checkPackedSize(binaryFile));
+            passed &= report("Streamed clips of evicted meshes", checkClipEviction(binaryFile));
+            passed &= report("Eviction over the budget", checkEviction());
+            passed &= report("Releasing handles of failed loads", checkFailedRelease());
+            passed &= report("Loads in flight during shutdown", checkShutdown());
+        } finally {
+            Files.delete(binaryFile);
+        }
+
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package pl.pateman.benchmark;
+
+import org.joml.Vector3f;
+import pl.pateman.core.Utils;
+import pl.pateman.core.mesh.*;
+import pl.pateman.importer.binary.BinaryMeshImporter;
+import pl.pateman.importer.binary.BinaryMeshWriter;
+import pl.pateman.importer.json.JSONImporter;
+import pl.pateman.importer.json.JSONStreamingImporter;
+import pl.pateman.importer.ogrexml.OgreXMLImporter;
+import pl.pateman.importer.ogrexml.OgreXMLStreamingImporter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+/**
+ * Headless benchmark of the binary mesh container. Converts the given resources into binary containers and compares
+ * the load times of the binary importer against the importers of the source format. Resources ending with
+ * {@code .xml} are imported with the OgreXML importers, all others with the JSON importers.
+ *
+ * Created by pateman.
+ */
+public final class BinaryImportBenchmark {
+    private static final String[] DEFAULT_RESOURCES = {"test.json", "banana.json"};
+    private static final int WARMUP_RUNS = 10;
+    private static final int MEASURED_RUNS = 10;
+    private static final float KEYFRAME_EPSILON = 1.0e-4f;
+
+    private BinaryImportBenchmark() {
+
+    }
+
+    private interface Loader {
+        Mesh load() throws IOException;
+    }
+
+    private static Mesh measure(final String name, final Loader loader) throws IOException {
+        Mesh mesh = null;
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            mesh = loader.load();
+        }
+
+        long time = 0L;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            final long start = System.nanoTime();
+            mesh = loader.load();
+            time += System.nanoTime() - start;
+        }
+
+        System.out.printf("  %-26s %8.2f ms per load%n", name, time / 1.0e6 / MEASURED_RUNS);
+        return mesh;
+    }
+
+    private static boolean sameMesh(final Mesh source, final Mesh binary) {
+        if (!source.getVertices().equals(binary.getVertices()) || !source.getNormals().equals(binary.getNormals()) ||
+                !source.getTexcoords().equals(binary.getTexcoords()) ||
+                !source.getTriangles().equals(binary.getTriangles()) ||
+                source.getSkeleton().getBones().size() != binary.getSkeleton().getBones().size() ||
+                source.getAnimations().size() != binary.getAnimations().size()) {
+            return false;
+        }
+
+        for (int i = 0; i < source.getSkeleton().getBones().size(); i++) {
+            final Bone boneA = source.getSkeleton().getBone(i);
+            final Bone boneB = binary.getSkeleton().getBone(i);
+            if (!boneA.getName().equals(boneB.getName()) ||
+                    !boneA.getWorldBindMatrix().equals(boneB.getWorldBindMatrix()) ||
+                    !boneA.getVertexWeights().equals(boneB.getVertexWeights())) {
+                return false;
+            }
+        }
+
+        //  Rotations of keyframes are quantized, so they're compared with a tolerance.
+        for (int i = 0; i < source.getAnimations().size(); i++) {
+            final Animation animationA = source.getAnimations().get(i);
+            final Animation animationB = binary.getAnimations().get(i);
+            if (!animationA.equals(animationB) || animationA.getTracks().size() != animationB.getTracks().size()) {
+                return false;
+            }
+            for (int j = 0; j < animationA.getTracks().size(); j++) {
+                final AnimationTrack trackA = animationA.getTracks().get(j);
+                final AnimationTrack trackB = animationB.getTracks().get(j);
+                if (!trackA.getBone().getName().equals(trackB.getBone().getName()) ||
+                        trackA.getKeyframeCount() != trackB.getKeyframeCount()) {
+                    return false;
+                }
+                for (int k = 0; k < trackA.getKeyframeCount(); k++) {
+                    final AnimationKeyframe keyA = trackA.getKeyframes().get(k);
+                    final AnimationKeyframe keyB = trackB.getKeyframes().get(k);
+                    if (keyA.getTime() != keyB.getTime() || !keyA.getTranslation().equals(keyB.getTranslation()) ||
+                            Math.abs(Math.abs(keyA.getRotation().dot(keyB.getRotation())) - 1.0f) >
+                                    KEYFRAME_EPSILON) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static String boneName(final Skeleton skeleton, float index, boolean byIndex) {
+        return byIndex ? skeleton.getBoneByIndex((int) index).getName() : skeleton.getBone((int) index).getName();
+    }
+
+    private static boolean sameVertexBones(final Mesh source, final Mesh binary, int vertex, final Vector3f sourceBones,
+                                           final Vector3f sourceWeights, final Vector3f binaryBones) {
+        for (int i = 0; i < MeshSkinningInfo.MAX_BONES_PER_VERTEX; i++) {
+            if (sourceWeights.get(i) != 0.0f && !boneName(source.getSkeleton(), sourceBones.get(i), true).equals(
+                    boneName(binary.getSkeleton(), binaryBones.get(i), false))) {
+                System.out.printf("    Vertex %d refers to the wrong bone%n", vertex);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that a skeleton whose children precede their parents is written in an order that the importer accepts,
+     * with all the references to its bones remapped. Reverses the bones of the given mesh and overwrites the file.
+     */
+    private static boolean checkBoneOrder(final Mesh mesh, final BinaryMeshImporter importer, final Path binaryFile)
+            throws IOException {
+        Collections.reverse(mesh.getSkeleton().getBones());
+        BinaryMeshWriter.write(mesh, null, null, null, binaryFile);
+        final Mesh binary = importer.loadScene(binaryFile).getMesh();
+
+        for (final Bone bone : binary.getSkeleton().getBones()) {
+            final Bone source = mesh.getSkeleton().getBoneByName(bone.getName());
+            if (source == null || (source.getParent() == null) != (bone.getParent() == null) ||
+                    (bone.getParent() != null && !bone.getParent().getName().equals(source.getParent().getName())) ||
+                    !bone.getWorldBindMatrix().equals(source.getWorldBindMatrix()) ||
+                    !bone.getVertexWeights().equals(source.getVertexWeights())) {
+                System.out.printf("    Bone '%s' doesn't match%n", bone.getName());
+                return false;
+            }
+        }
+
+        final MeshSkinningInfo sourceInfo = mesh.getSkinningInfo();
+        final MeshSkinningInfo binaryInfo = binary.getSkinningInfo();
+        final Vector3f compactBones = new Vector3f();
+        for (int i = 0; i < sourceInfo.getBoneIndices().size(); i++) {
+            final Vector3f sourceBones = sourceInfo.getBoneIndices().get(i);
+            final Vector3f sourceWeights = sourceInfo.getBoneWeights().get(i);
+            if (!sameVertexBones(mesh, binary, i, sourceBones, sourceWeights, binaryInfo.getBoneIndices().get(i))) {
+                return false;
+            }
+            if (binary.getCompactMeshData() != null && !sameVertexBones(mesh, binary, i, sourceBones, sourceWeights,
+                    binary.getCompactMeshData().getBoneIndices(i, compactBones))) {
+                return false;
+            }
+        }
+
+        for (int i = 0; i < mesh.getAnimations().size(); i++) {
+            for (int j = 0; j < mesh.getAnimations().get(i).getTracks().size(); j++) {
+                if (!mesh.getAnimations().get(i).getTracks().get(j).getBone().getName().equals(
+                        binary.getAnimations().get(i).getTracks().get(j).getBone().getName())) {
+                    System.out.printf("    Track %d of '%s' animates the wrong bone%n", j,
+                            mesh.getAnimations().get(i).getName());
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static long sourceSize(final String resource) throws IOException {
+        try (InputStream is = Utils.getResourceStream(resource)) {
+            return Utils.readAllBytes(is).length;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final String[] resources = args.length > 0 ? args : DEFAULT_RESOURCES;
+        final JSONImporter jsonImporter = new JSONImporter();
+        final JSONStreamingImporter streamingImporter = new JSONStreamingImporter();
+        final BinaryMeshImporter binaryImporter = new BinaryMeshImporter();
+        final BinaryMeshImporter uncheckedImporter = new BinaryMeshImporter();
+        uncheckedImporter.setVerifyChecksum(false);
+
+        for (final String resource : resources) {
+            System.out.println(resource);
+
+            final Mesh sourceMesh;
+            if (resource.endsWith(".xml")) {
+                final OgreXMLImporter ogreXMLImporter = new OgreXMLImporter();
+                measure("OgreXMLImporter", new Loader() {
+                    @Override
+                    public Mesh load() throws IOException {
+                        return ogreXMLImporter.loadMesh(resource);
+                    }
+                });
+                final OgreXMLStreamingImporter ogreXMLStreamingImporter = new OgreXMLStreamingImporter();
+                sourceMesh = measure("OgreXMLStreamingImporter", new Loader() {
+                    @Override
+                    public Mesh load() throws IOException {
+                        return ogreXMLStreamingImporter.loadMesh(resource);
+                    }
+                });
+            } else {
+                measure("JSONImporter", new Loader() {
+                    @Override
+                    public Mesh load() throws IOException {
+                        return jsonImporter.loadMesh(resource);
+                    }
+                });
+                sourceMesh = measure("JSONStreamingImporter", new Loader() {
+                    @Override
+                    public Mesh load() throws IOException {
+                        return streamingImporter.loadMesh(resource);
+                    }
+                });
+            }
+
+            final Path binaryFile = Files.createTempFile("binary-import-benchmark", ".bin");
+            try {
+                BinaryMeshWriter.write(sourceMesh, null, null, null, binaryFile);
+                final Mesh binaryMesh = measure("BinaryMeshImporter", new Loader() {
+                    @Override
+                    public Mesh load() throws IOException {
+                        return binaryImporter.loadScene(binaryFile).getMesh();
+                    }
+                });
+                measure("  without checksum", new Loader() {
+                    @Override
+                    public Mesh load() throws IOException {
+                        return uncheckedImporter.loadScene(binaryFile).getMesh();
+                    }
+                });
+
+                System.out.printf("  Source: %d bytes, binary: %d bytes, identical meshes: %b%n",
+                        sourceSize(resource), Files.size(binaryFile),
+                        sameMesh(sourceMesh, binaryMesh));
+                System.out.printf("  Children before parents: %b%n", checkBoneOrder(sourceMesh, binaryImporter,
+                        binaryFile));
+            } finally {
+                Files.delete(binaryFile);
+            }
+        }
+    }
+}
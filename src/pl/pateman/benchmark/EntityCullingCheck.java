@@ -0,0 +1,164 @@
+package pl.pateman.benchmark;
+
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import pl.pateman.core.culling.Frustum;
+import pl.pateman.core.culling.FrustumCuller;
+import pl.pateman.core.entity.AbstractEntity;
+import pl.pateman.core.entity.CameraEntity;
+import pl.pateman.core.mesh.Animation;
+import pl.pateman.core.mesh.AnimationTrack;
+import pl.pateman.core.mesh.Bone;
+import pl.pateman.core.mesh.Mesh;
+import pl.pateman.core.mesh.MeshBounds;
+import pl.pateman.core.mesh.MeshSkinningInfo;
+import pl.pateman.importer.json.JSONStreamingImporter;
+import pl.pateman.skeletal.Main;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Headless check of culling the demo's mesh. Places the mesh like {@code Main} does, poses it in keyframes of all
+ * its animations, and culls its animated bounds against cameras scattered around it, the same way
+ * {@code EntityCuller} does. Whenever the mesh gets culled, its skinned vertices are projected with the camera's
+ * matrices to verify that none of them would have been on screen. Exits with a non-zero status if any were.
+ *
+ * Created by pateman.
+ */
+public final class EntityCullingCheck {
+    private static final String DEFAULT_RESOURCE = "test.json";
+    private static final int KEYFRAME_STEP = 4;
+    private static final int CAMERAS_PER_POSE = 100;
+    private static final float MIN_CAMERA_DISTANCE = 0.2f;
+    private static final float MAX_CAMERA_DISTANCE = 2.0f;
+    private static final float MAX_CAMERA_PITCH = 0.8f;
+    private static final float SCREEN_EPSILON = 1.0e-4f;
+
+    private EntityCullingCheck() {
+
+    }
+
+    private static boolean isOnScreen(final Vector3f[] vertices, final Matrix4f modelViewProjection,
+                                      final Vector4f clip) {
+        for (final Vector3f vertex : vertices) {
+            modelViewProjection.transform(clip.set(vertex, 1.0f));
+            final float w = clip.w * (1.0f - SCREEN_EPSILON);
+            if (clip.w > 0.0f && Math.abs(clip.x) <= w && Math.abs(clip.y) <= w && Math.abs(clip.z) <= w) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final String resource = args.length > 0 ? args[0] : DEFAULT_RESOURCE;
+        final Mesh mesh = new JSONStreamingImporter().loadMesh(resource);
+        final MeshBounds meshBounds = new MeshBounds(mesh);
+        final MeshSkinningInfo skinningInfo = mesh.getSkinningInfo();
+        final int boneCount = mesh.getSkeleton().getBones().size();
+        final List<Matrix4f> boneMatrices = new ArrayList<>(boneCount);
+        final Quaternionf[] frameRotations = new Quaternionf[boneCount];
+        final Vector3f[] framePositions = new Vector3f[boneCount];
+        for (int i = 0; i < boneCount; i++) {
+            boneMatrices.add(mesh.getSkeleton().getBone(i).getOffsetMatrix());
+            frameRotations[i] = new Quaternionf();
+            framePositions[i] = new Vector3f();
+        }
+        final Vector3f[] skinned = new Vector3f[mesh.getVertices().size()];
+        for (int i = 0; i < skinned.length; i++) {
+            skinned[i] = new Vector3f();
+        }
+
+        //  Same placement as in the demo.
+        final AbstractEntity entity = new AbstractEntity();
+        entity.translate(0.25f, 0.0f, 0.0f);
+        entity.rotate(0.0f, (float) Math.toRadians(180.0f), 0.0f);
+        final CameraEntity camera = new CameraEntity();
+        camera.getCameraProjection().setViewport(Main.WINDOW_WIDTH, Main.WINDOW_HEIGHT);
+        camera.updateProjectionMatrix();
+
+        final Frustum frustum = new Frustum();
+        final FrustumCuller culler = new FrustumCuller(1);
+        final Vector3f min = new Vector3f();
+        final Vector3f max = new Vector3f();
+        culler.add(min, max);
+
+        final Random random = new Random(1234L);
+        final Vector3f center = new Vector3f(0.25f, 0.2f, 0.0f);
+        final Vector3f cameraPosition = new Vector3f();
+        final Quaternionf cameraRotation = new Quaternionf();
+        final Vector3f cameraScale = new Vector3f(1.0f, 1.0f, 1.0f);
+        final Matrix4f modelViewProjection = new Matrix4f();
+        final Vector4f clip = new Vector4f();
+        int tests = 0;
+        int visible = 0;
+        int culled = 0;
+        int culledOnScreen = 0;
+
+        for (final Animation animation : mesh.getAnimations()) {
+            int keyframes = 0;
+            for (final AnimationTrack track : animation.getTracks()) {
+                keyframes = Math.max(keyframes, track.getKeyframeCount());
+            }
+            for (int frame = 0; frame < keyframes; frame += KEYFRAME_STEP) {
+                for (int i = 0; i < boneCount; i++) {
+                    frameRotations[i].identity();
+                    framePositions[i].zero();
+                }
+                for (final AnimationTrack track : animation.getTracks()) {
+                    final int keyframe = Math.min(frame, track.getKeyframeCount() - 1);
+                    track.getKeyframeRotation(keyframe, frameRotations[track.getBone().getIndex()]);
+                    track.getKeyframeTranslation(keyframe, framePositions[track.getBone().getIndex()]);
+                }
+                AnimatedBoundsCheck.poseBone(mesh.getSkeleton().getRootBone(), frameRotations, framePositions);
+                for (int i = 0; i < skinned.length; i++) {
+                    AnimatedBoundsCheck.skinVertex(mesh, skinningInfo, i, skinned[i]);
+                }
+                //  Like MeshEntity.getWorldBounds.
+                meshBounds.computeAnimatedBounds(boneMatrices, entity.getTransformation(), min, max);
+                culler.set(0, min, max);
+
+                //  Cameras around the mesh, looking in random directions, so that the mesh is often partially
+                //  visible.
+                for (int i = 0; i < CAMERAS_PER_POSE; i++) {
+                    final float distance = MIN_CAMERA_DISTANCE +
+                            random.nextFloat() * (MAX_CAMERA_DISTANCE - MIN_CAMERA_DISTANCE);
+                    final float angle = random.nextFloat() * (float) Math.PI * 2.0f;
+                    cameraPosition.set((float) Math.cos(angle), random.nextFloat() - 0.5f, (float) Math.sin(angle))
+                            .mul(distance).add(center);
+                    cameraRotation.identity().rotateXYZ((random.nextFloat() - 0.5f) * 2.0f * MAX_CAMERA_PITCH,
+                            random.nextFloat() * (float) Math.PI * 2.0f, 0.0f);
+                    camera.setTransformation(cameraRotation, cameraPosition, cameraScale);
+
+                    frustum.update(camera);
+                    culler.cull(frustum);
+                    tests++;
+                    if (culler.isVisible(0)) {
+                        visible++;
+                        continue;
+                    }
+
+                    culled++;
+                    camera.getProjectionMatrix().mul(camera.getViewMatrix(), modelViewProjection)
+                            .mul(entity.getTransformation());
+                    if (isOnScreen(skinned, modelViewProjection, clip)) {
+                        culledOnScreen++;
+                        System.out.printf("  %s #%d: culled while on screen, camera at %s%n", animation.getName(),
+                                frame, cameraPosition);
+                    }
+                }
+            }
+        }
+
+        System.out.printf("%d tests, %d visible, %d culled, %d culled while on screen%n", tests, visible, culled,
+                culledOnScreen);
+        if (culledOnScreen > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package pl.pateman.benchmark;
+
+import pl.pateman.core.entity.AbstractEntity;
+
+/**
+ * Headless benchmark of entity transformations. Every entity is moved a few times per frame and its transformation
+ * is read once, first with lazy updates, and then with the matrix rebuilt after every move, the way it used to be.
+ *
+ * Created by pateman.
+ */
+public final class EntityTransformBenchmark {
+    private static final int DEFAULT_ENTITY_COUNT = 10000;
+    private static final int MOVES_PER_FRAME = 10;
+    private static final int WARMUP_FRAMES = 100;
+    private static final int MEASURED_FRAMES = 500;
+
+    private EntityTransformBenchmark() {
+
+    }
+
+    private static final class CountingEntity extends AbstractEntity {
+        private long builds;
+
+        @Override
+        protected void updateTransformationMatrix() {
+            super.updateTransformationMatrix();
+            this.builds++;
+        }
+    }
+
+    private static float runFrames(final CountingEntity[] entities, int frames, boolean eager) {
+        float checksum = 0.0f;
+        for (int i = 0; i < frames; i++) {
+            for (final CountingEntity entity : entities) {
+                for (int j = 0; j < MOVES_PER_FRAME; j++) {
+                    entity.translate(0.01f, 0.0f, 0.0f);
+                    entity.rotate(0.0f, 0.001f, 0.0f);
+                    if (eager) {
+                        entity.forceTransformationUpdate(false);
+                    }
+                }
+                checksum += entity.getTransformation().m30;
+            }
+        }
+        return checksum;
+    }
+
+    private static long countBuilds(final CountingEntity[] entities) {
+        long builds = 0L;
+        for (final CountingEntity entity : entities) {
+            builds += entity.builds;
+            entity.builds = 0L;
+        }
+        return builds;
+    }
+
+    public static void main(String[] args) {
+        final int entityCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ENTITY_COUNT;
+
+        final CountingEntity[] entities = new CountingEntity[entityCount];
+        for (int i = 0; i < entityCount; i++) {
+            entities[i] = new CountingEntity();
+        }
+
+        float checksum = runFrames(entities, WARMUP_FRAMES, false);
+        countBuilds(entities);
+        long start = System.nanoTime();
+        checksum += runFrames(entities, MEASURED_FRAMES, false);
+        final long lazyTime = System.nanoTime() - start;
+        final long lazyBuilds = countBuilds(entities);
+
+        checksum += runFrames(entities, WARMUP_FRAMES, true);
+        countBuilds(entities);
+        start = System.nanoTime();
+        checksum += runFrames(entities, MEASURED_FRAMES, true);
+        final long eagerTime = System.nanoTime() - start;
+        final long eagerBuilds = countBuilds(entities);
+
+        final long frames = (long) entityCount * MEASURED_FRAMES;
+        System.out.printf("Entities: %d, moves per frame: %d, frames: %d%n", entityCount, MOVES_PER_FRAME * 2,
+                MEASURED_FRAMES);
+        System.out.printf("Lazy: %.3f ms/frame, %.2f builds per entity per frame%n",
+                lazyTime / 1.0e6 / MEASURED_FRAMES, lazyBuilds / (double) frames);
+        System.out.printf("Eager: %.3f ms/frame, %.2f builds per entity per frame%n",
+                eagerTime / 1.0e6 / MEASURED_FRAMES, eagerBuilds / (double) frames);
+        System.out.printf("Checksum: %f%n", checksum);
+    }
+}
@@ -0,0 +1,250 @@
+package pl.pateman.benchmark;
+
+import pl.pateman.core.FloatArrayList;
+import pl.pateman.importer.json.JSONFormat;
+import pl.pateman.my3dsmaxexporterclient.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+import static pl.pateman.my3dsmaxexporterclient.Constants.*;
+
+/**
+ * Headless benchmark of the exporter client's command parsing. Writes a synthetic command stream of a skinned, animated
+ * node to a file and converts it to the binary protocol. Then parses the text the way the client used to
+ * (RandomAccessFile.readLine, String.split and Float.parseFloat) and with {@code CommandTokenizer}, decodes the binary
+ * stream, checks that all of them yield the same numbers, and finally exports both streams and compares the results.
+ *
+ * Created by pateman.
+ */
+public final class ExporterParserBenchmark {
+    private static final int DEFAULT_VERTICES = 50000;
+    private static final int DEFAULT_BONES = 60;
+    private static final int DEFAULT_KEYFRAMES = 100;
+    private static final int MEASURED_RUNS = 5;
+    private static final int RANDOM_FLOATS = 1000000;
+    private static final String[] DOUBLE_ROUNDING_FLOATS = {"1.00000661611557", "1.00001460313797"};
+
+    private ExporterParserBenchmark() {
+
+    }
+
+    private interface Parser {
+        FloatArrayList[] parse(File file) throws IOException;
+    }
+
+    private static FloatArrayList[] createValueLists() {
+        //  Numbers are gathered per command, because the binary emitter reorders independent commands.
+        final FloatArrayList[] values = new FloatArrayList[COMMAND_LAYOUTS.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new FloatArrayList();
+        }
+        return values;
+    }
+
+    private static FloatArrayList[] parseLegacy(final File file) throws IOException {
+        final FloatArrayList[] values = createValueLists();
+        final StringBuilder commandLog = new StringBuilder();
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            String line;
+            while ((line = input.readLine()) != null) {
+                commandLog.append(line).append("\n");
+                final String[] split = line.split(" ");
+                final int commandId = CommandManager.getCommandId(split[0]);
+                final String layout = COMMAND_LAYOUTS[commandId];
+                for (int i = 0; i < layout.length(); i++) {
+                    if (layout.charAt(i) == 'f') {
+                        values[commandId].add(Float.parseFloat(split[i + 1]));
+                    } else if (layout.charAt(i) == 'i') {
+                        values[commandId].add(Integer.parseInt(split[i + 1]));
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    private static FloatArrayList[] parse(final File file, boolean useLog) throws IOException {
+        final FloatArrayList[] values = createValueLists();
+        try (InputStream input = new FileInputStream(file);
+             OutputStream commandLog = useLog ?
+                     new BufferedOutputStream(new FileOutputStream(file.getPath() + ".log")) : null) {
+            final CommandReader commandReader = My3dsMaxExporterClient.createCommandReader(input, commandLog);
+            while (commandReader.next()) {
+                final int commandId = commandReader.getCommandId();
+                final String layout = COMMAND_LAYOUTS[commandId];
+                for (int i = 0; i < layout.length(); i++) {
+                    if (layout.charAt(i) == 'f') {
+                        values[commandId].add(commandReader.getFloat(i + 1));
+                    } else if (layout.charAt(i) == 'i') {
+                        values[commandId].add(commandReader.getInt(i + 1));
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    private static void convertToBinary(final File textFile, final File binaryFile) throws IOException {
+        try (InputStream input = new FileInputStream(textFile);
+             BinaryCommandEmitter emitter = new BinaryCommandEmitter(new BufferedOutputStream(
+                     new FileOutputStream(binaryFile)))) {
+            final CommandTokenizer tokenizer = new CommandTokenizer(input);
+            while (tokenizer.next()) {
+                emitter.writeCommand(tokenizer);
+            }
+        }
+    }
+
+    private static FloatArrayList[] measure(final String name, final File file, final Parser parser)
+            throws IOException {
+        FloatArrayList[] values = parser.parse(file);
+        long time = 0L;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            final long start = System.nanoTime();
+            values = parser.parse(file);
+            time += System.nanoTime() - start;
+        }
+
+        final double seconds = time / 1.0e9 / MEASURED_RUNS;
+        System.out.printf("  %-12s %9.2f ms, %6.1f MB/s%n", name, seconds * 1.0e3,
+                file.length() / (1024.0 * 1024.0) / seconds);
+        return values;
+    }
+
+    private static int countMismatches(final FloatArrayList[] a, final FloatArrayList[] b) {
+        int mismatches = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i].size() != b[i].size()) {
+                mismatches += Math.abs(a[i].size() - b[i].size());
+                continue;
+            }
+            for (int j = 0; j < a[i].size(); j++) {
+                if (Float.floatToIntBits(a[i].get(j)) != Float.floatToIntBits(b[i].get(j))) {
+                    mismatches++;
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    private static int countValues(final FloatArrayList[] values) {
+        int count = 0;
+        for (final FloatArrayList list : values) {
+            count += list.size();
+        }
+        return count;
+    }
+
+    private static File export(final File file, final String name) throws Exception {
+        final File output = new File(file.getParentFile(), name);
+        final long start = System.nanoTime();
+        try (InputStream input = My3dsMaxExporterClient.openCommandStream(file.getPath())) {
+            My3dsMaxExporterClient.export(input, output.getPath(), JSONFormat.LATEST_VERSION);
+        }
+        System.out.printf("  Export of %s: %.2f ms, %.2f MB of JSON%n", file.getName(),
+                (System.nanoTime() - start) / 1.0e6, output.length() / (1024.0 * 1024.0));
+        return output;
+    }
+
+    private static void checkRandomFloats() throws IOException {
+        //  Formats which MaxScript and Java may produce, preceded by values which are rounded differently when they're
+        //  parsed as a double first.
+        final Random random = new Random(7L);
+        final StringBuilder builder = new StringBuilder();
+        final float[] expected = new float[RANDOM_FLOATS];
+        for (int i = 0; i < RANDOM_FLOATS; i++) {
+            final float value = Float.intBitsToFloat(random.nextInt());
+            final String text;
+            switch (i < DOUBLE_ROUNDING_FLOATS.length ? -1 : i % 5) {
+                case -1:
+                    text = DOUBLE_ROUNDING_FLOATS[i];
+                    break;
+                case 0:
+                    text = Float.toString(value);
+                    break;
+                case 1:
+                    text = String.format(Locale.ROOT, "%.6f", random.nextFloat() * 2000.0f - 1000.0f);
+                    break;
+                case 2:
+                    text = String.format(Locale.ROOT, "%.9g", random.nextGaussian());
+                    break;
+                case 3:
+                    text = Double.toString(random.nextDouble() * 1.0e-3);
+                    break;
+                default:
+                    text = String.format(Locale.ROOT, "%.7f", random.nextFloat() * 2.0f);
+                    break;
+            }
+            expected[i] = Float.parseFloat(text);
+            builder.append("KEYFRAME ").append(text).append('\n');
+        }
+
+        final CommandTokenizer tokenizer = new CommandTokenizer(new ByteArrayInputStream(
+                builder.toString().getBytes("ISO-8859-1")), null, 17);
+        int mismatches = 0;
+        for (int i = 0; i < RANDOM_FLOATS; i++) {
+            tokenizer.next();
+            if (Float.floatToIntBits(tokenizer.getFloat(1)) != Float.floatToIntBits(expected[i]) &&
+                    !Float.isNaN(expected[i])) {
+                mismatches++;
+            }
+        }
+        System.out.printf("Random floats: %d mismatches in %d values%n", mismatches, RANDOM_FLOATS);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int vertices = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_VERTICES;
+        final int bones = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BONES;
+        final int keyframes = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_KEYFRAMES;
+
+        checkRandomFloats();
+
+        final File directory = Files.createTempDirectory("exporter").toFile();
+        final File file = new File(directory, "commands.txt");
+        try (OutputStream output = new FileOutputStream(file)) {
+            new SyntheticCommandGenerator(vertices, bones, keyframes).writeText(output);
+        }
+        System.out.printf("%d vertices, %d bones, %d keyframes per track: %.2f MB of commands%n", vertices, bones,
+                keyframes, file.length() / (1024.0 * 1024.0));
+
+        final File binaryFile = new File(directory, "commands.bin");
+        convertToBinary(file, binaryFile);
+        System.out.printf("Binary protocol: %.2f MB of commands%n", binaryFile.length() / (1024.0 * 1024.0));
+
+        final FloatArrayList[] legacyValues = measure("readLine", file, new Parser() {
+            @Override
+            public FloatArrayList[] parse(File file) throws IOException {
+                return parseLegacy(file);
+            }
+        });
+        final FloatArrayList[] tokenizedValues = measure("Tokenizer", file, new Parser() {
+            @Override
+            public FloatArrayList[] parse(File file) throws IOException {
+                return ExporterParserBenchmark.parse(file, true);
+            }
+        });
+        final FloatArrayList[] decodedValues = measure("Binary", binaryFile, new Parser() {
+            @Override
+            public FloatArrayList[] parse(File file) throws IOException {
+                return ExporterParserBenchmark.parse(file, true);
+            }
+        });
+        System.out.printf("  Mismatched numbers: tokenizer %d, binary %d of %d%n",
+                countMismatches(legacyValues, tokenizedValues), countMismatches(legacyValues, decodedValues),
+                countValues(legacyValues));
+
+        final File textOutput = export(file, "text.json");
+        final File binaryOutput = export(binaryFile, "binary.json");
+        System.out.printf("  Identical exports: %b%n", Arrays.equals(Files.readAllBytes(textOutput.toPath()),
+                Files.readAllBytes(binaryOutput.toPath())));
+
+        for (final File createdFile : directory.listFiles()) {
+            Files.delete(createdFile.toPath());
+        }
+        Files.delete(directory.toPath());
+    }
+}
@@ -0,0 +1,144 @@
+package pl.pateman.benchmark;
+
+import pl.pateman.importer.json.JSONFormat;
+import pl.pateman.my3dsmaxexporterclient.CommandReader;
+import pl.pateman.my3dsmaxexporterclient.My3dsMaxExporterClient;
+import pl.pateman.my3dsmaxexporterclient.SyntheticCommandGenerator;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Headless replay of exporter command streams. Feeds a captured session (the ".log" file which the exporter client
+ * writes, in either protocol) or a synthetic stream through the client's command pipeline, and reports the
+ * throughput, the heap's high-water mark and the size of the output.
+ *
+ * Usage:
+ *   ExporterReplay capture-file [runs]
+ *   ExporterReplay synthetic vertices bones keyframes [text|binary] [runs]
+ *
+ * Created by pateman.
+ */
+public final class ExporterReplay {
+    private static final int DEFAULT_RUNS = 3;
+
+    private ExporterReplay() {
+
+    }
+
+    private static void collectGarbage() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+    }
+
+    private static long resetPeakHeapUsage() {
+        long used = 0L;
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    private static long getPeakHeapUsage() {
+        //  Pools reach their peaks at different times, so the sum is an upper bound of the real high-water mark.
+        long peak = 0L;
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static double toMegabytes(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    private static void replay(final File capture, int runs) throws Exception {
+        final File directory = Files.createTempDirectory("replay").toFile();
+        final File output = new File(directory, "replay.json");
+        final File log = new File(output.getPath() + ".log");
+
+        System.out.printf("%s: %.2f MB%n", capture.getName(), toMegabytes(capture.length()));
+        for (int i = 0; i <= runs; i++) {
+            collectGarbage();
+            final long baseline = resetPeakHeapUsage();
+
+            final long start = System.nanoTime();
+            final long commandCount;
+            try (InputStream input = new FileInputStream(capture);
+                 OutputStream commandLog = new BufferedOutputStream(new FileOutputStream(log))) {
+                final CommandReader commandReader = My3dsMaxExporterClient.createCommandReader(input, commandLog);
+                My3dsMaxExporterClient.export(commandReader, output.getPath(), JSONFormat.LATEST_VERSION);
+                commandCount = commandReader.getCommandCount();
+            }
+            final double seconds = (System.nanoTime() - start) / 1.0e9;
+            final long peak = getPeakHeapUsage();
+
+            System.out.printf("  %-9s %8.2f ms, %10.0f commands/s, %6.1f MB/s, heap %7.2f MB (peak %7.2f MB), " +
+                            "output %6.2f MB%n", i == 0 ? "Warmup" : "Run " + i, seconds * 1.0e3,
+                    commandCount / seconds, toMegabytes(capture.length()) / seconds, toMegabytes(peak - baseline),
+                    toMegabytes(peak), toMegabytes(output.length()));
+        }
+
+        //  The log of a replayed session has to be a faithful copy of it, so that it can be replayed again.
+        System.out.printf("  %d commands, log identical to the input: %b%n", countCommands(capture),
+                Arrays.equals(Files.readAllBytes(capture.toPath()), Files.readAllBytes(log.toPath())));
+
+        Files.delete(output.toPath());
+        Files.delete(log.toPath());
+        Files.delete(directory.toPath());
+    }
+
+    private static long countCommands(final File capture) throws IOException {
+        try (InputStream input = new FileInputStream(capture)) {
+            final CommandReader commandReader = My3dsMaxExporterClient.createCommandReader(input, null);
+            while (commandReader.next()) {
+                //  Only counting.
+            }
+            return commandReader.getCommandCount();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("synthetic")) {
+            if (args.length < 4) {
+                throw new IllegalArgumentException("Usage: synthetic vertices bones keyframes [text|binary] [runs]");
+            }
+
+            final SyntheticCommandGenerator generator = new SyntheticCommandGenerator(Integer.parseInt(args[1]),
+                    Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            final boolean binary = args.length > 4 && args[4].equals("binary");
+            final int runs = args.length > 5 ? Integer.parseInt(args[5]) : DEFAULT_RUNS;
+
+            final File capture = File.createTempFile("synthetic", binary ? ".bin" : ".txt");
+            try {
+                try (OutputStream output = new BufferedOutputStream(new FileOutputStream(capture))) {
+                    if (binary) {
+                        generator.writeBinary(output);
+                    } else {
+                        generator.writeText(output);
+                    }
+                }
+                System.out.printf("Synthetic node: %d vertices, %d bones, %d keyframes per track%n",
+                        generator.getVertexCount(), generator.getBoneCount(), generator.getKeyframeCount());
+                replay(capture, runs);
+            } finally {
+                Files.delete(capture.toPath());
+            }
+        } else if (args.length > 0) {
+            replay(new File(args[0]), args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_RUNS);
+        } else {
+            throw new IllegalArgumentException("Usage: capture-file [runs] | synthetic vertices bones keyframes " +
+                    "[text|binary] [runs]");
+        }
+    }
+}
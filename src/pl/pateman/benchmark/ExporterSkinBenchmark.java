@@ -0,0 +1,89 @@
+package pl.pateman.benchmark;
+
+import pl.pateman.core.mesh.Bone;
+import pl.pateman.core.mesh.Mesh;
+import pl.pateman.importer.json.JSONFormat;
+import pl.pateman.importer.json.JSONStreamingImporter;
+import pl.pateman.my3dsmaxexporterclient.My3dsMaxExporterClient;
+import pl.pateman.my3dsmaxexporterclient.SyntheticCommandGenerator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Map;
+
+/**
+ * Headless benchmark of the exporter client's command layer on skinned meshes. Synthetic nodes of various sizes are
+ * encoded in the binary protocol up front, so the measured time is spent mostly in the commands, especially in the
+ * bone lookups and the skinning data. The exported meshes are imported back to check their weights.
+ *
+ * Created by pateman.
+ */
+public final class ExporterSkinBenchmark {
+    private static final int[][] DEFAULT_SIZES = {{10000, 30}, {50000, 60}, {100000, 120}};
+    private static final int KEYFRAMES = 10;
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+    private static final float TOLERANCE = 1.0e-4f;
+
+    private ExporterSkinBenchmark() {
+
+    }
+
+    private static void export(final byte[] commands, final File output) throws Exception {
+        My3dsMaxExporterClient.export(My3dsMaxExporterClient.createCommandReader(new ByteArrayInputStream(commands),
+                null), output.getPath(), JSONFormat.LATEST_VERSION);
+    }
+
+    private static boolean checkWeights(final Mesh mesh, int vertexCount) {
+        final float[] weightSums = new float[vertexCount];
+        for (final Bone bone : mesh.getSkeleton().getBones()) {
+            for (final Map.Entry<Integer, Float> weight : bone.getVertexWeights().entrySet()) {
+                weightSums[weight.getKey()] += weight.getValue();
+            }
+        }
+        for (final float weightSum : weightSums) {
+            if (Math.abs(weightSum - 1.0f) > TOLERANCE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void measure(int vertices, int bones, final File output) throws Exception {
+        final SyntheticCommandGenerator generator = new SyntheticCommandGenerator(vertices, bones, KEYFRAMES);
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        generator.writeBinary(stream);
+        final byte[] commands = stream.toByteArray();
+
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            export(commands, output);
+        }
+        long time = 0L;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            final long start = System.nanoTime();
+            export(commands, output);
+            time += System.nanoTime() - start;
+        }
+
+        final Mesh mesh = new JSONStreamingImporter().loadScene(output.toPath()).getMesh();
+        System.out.printf("%7d vertices, %4d bones: %8.2f ms per export, weights valid: %b%n",
+                generator.getVertexCount(), bones, time / 1.0e6 / MEASURED_RUNS,
+                checkWeights(mesh, generator.getVertexCount()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int[][] sizes = args.length >= 2 ?
+                new int[][]{{Integer.parseInt(args[0]), Integer.parseInt(args[1])}} : DEFAULT_SIZES;
+
+        final File output = File.createTempFile("skin", ".json");
+        try {
+            for (final int[] size : sizes) {
+                measure(size[0], size[1], output);
+            }
+        } finally {
+            Files.delete(output.toPath());
+        }
+    }
+}
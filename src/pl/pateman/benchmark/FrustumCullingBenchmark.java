@@ -0,0 +1,95 @@
+package pl.pateman.benchmark;
+
+import org.joml.Vector3f;
+import pl.pateman.core.culling.CullingStatistics;
+import pl.pateman.core.culling.Frustum;
+import pl.pateman.core.culling.FrustumCuller;
+import pl.pateman.core.entity.CameraEntity;
+
+import java.util.Random;
+
+/**
+ * Headless benchmark of frustum culling. Scatters boxes around a rotating camera and culls them, both through
+ * the bulk {@code FrustumCuller} and box by box.
+ *
+ * Created by pateman.
+ */
+public final class FrustumCullingBenchmark {
+    private static final int DEFAULT_ENTITY_COUNT = 10000;
+    private static final int WARMUP_FRAMES = 200;
+    private static final int MEASURED_FRAMES = 1000;
+    private static final float WORLD_SIZE = 500.0f;
+
+    private FrustumCullingBenchmark() {
+
+    }
+
+    public static void main(String[] args) {
+        final int entityCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ENTITY_COUNT;
+
+        final Random random = new Random(1234L);
+        final FrustumCuller culler = new FrustumCuller(entityCount);
+        final Vector3f[] mins = new Vector3f[entityCount];
+        final Vector3f[] maxs = new Vector3f[entityCount];
+        for (int i = 0; i < entityCount; i++) {
+            final Vector3f center = new Vector3f(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+                    random.nextFloat() - 0.5f).mul(WORLD_SIZE);
+            final float halfSize = 0.5f + random.nextFloat() * 2.0f;
+            mins[i] = new Vector3f(center).sub(halfSize, halfSize, halfSize);
+            maxs[i] = new Vector3f(center).add(halfSize, halfSize, halfSize);
+            culler.add(mins[i], maxs[i]);
+        }
+
+        final CameraEntity camera = new CameraEntity();
+        camera.getCameraProjection().setViewport(1024, 768);
+        camera.updateProjectionMatrix();
+        final Frustum frustum = new Frustum();
+
+        //  Bulk culling, with the camera turning a little every frame.
+        int planeUpdates = 0;
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            camera.rotate(0.0f, 0.01f, 0.0f);
+            frustum.update(camera);
+            culler.cull(frustum);
+        }
+        culler.getStatistics().reset();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_FRAMES; i++) {
+            camera.rotate(0.0f, 0.01f, 0.0f);
+            planeUpdates += frustum.update(camera) ? 1 : 0;
+            //  A second update within the same frame is served from the cache.
+            planeUpdates += frustum.update(camera) ? 1 : 0;
+            culler.cull(frustum);
+        }
+        final long bulkTime = System.nanoTime() - start;
+
+        //  The same work, one box at a time.
+        int visible = 0;
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            camera.rotate(0.0f, 0.01f, 0.0f);
+            frustum.update(camera);
+            for (int j = 0; j < entityCount; j++) {
+                visible += frustum.intersectsAABB(mins[j], maxs[j]) ? 1 : 0;
+            }
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_FRAMES; i++) {
+            camera.rotate(0.0f, 0.01f, 0.0f);
+            frustum.update(camera);
+            for (int j = 0; j < entityCount; j++) {
+                visible += frustum.intersectsAABB(mins[j], maxs[j]) ? 1 : 0;
+            }
+        }
+        final long singleTime = System.nanoTime() - start;
+
+        final CullingStatistics statistics = culler.getStatistics();
+        System.out.printf("Entities: %d, frames: %d%n", entityCount, MEASURED_FRAMES);
+        System.out.printf("Plane updates: %d (of %d requests)%n", planeUpdates, MEASURED_FRAMES * 2);
+        System.out.printf("Tested: %d, visible: %d, culled: %d (totals)%n", statistics.getTotalTested(),
+                statistics.getTotalVisible(), statistics.getTotalCulled());
+        System.out.printf("Bulk culling: %.3f ms/frame%n", bulkTime / 1.0e6 / MEASURED_FRAMES);
+        System.out.printf("Per-box culling: %.3f ms/frame (%d visible)%n", singleTime / 1.0e6 / MEASURED_FRAMES,
+                visible);
+    }
+}
@@ -0,0 +1,653 @@
+package pl.pateman.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import pl.pateman.core.mesh.*;
+import pl.pateman.importer.gltf.GLTFImporter;
+import pl.pateman.importer.json.JSONImporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Headless benchmark of the glTF importer. Converts the given JSON resources into equivalent GLB files, imports them
+ * back, checks that the results match, and compares load times and allocated memory with {@code JSONImporter}. A
+ * small hand-built GLB is imported first, to check the conversion of skins and animation samplers, followed by
+ * ones which check that the bind pose comes from the inverse bind matrices.
+ *
+ * Created by pateman.
+ */
+public final class GLTFImportBenchmark {
+    private static final String[] DEFAULT_RESOURCES = {"test.json", "banana.json"};
+    private static final int WARMUP_RUNS = 10;
+    private static final int MEASURED_RUNS = 10;
+    private static final float TOLERANCE = 1.0e-4f;
+
+    private GLTFImportBenchmark() {
+
+    }
+
+    private interface Loader {
+        Mesh load() throws IOException;
+    }
+
+    /**
+     * Builds GLB files out of raw data. Every accessor gets its own buffer view.
+     */
+    private static final class GLBBuilder {
+        private final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        private final JsonArray bufferViews = new JsonArray();
+        private final JsonArray accessors = new JsonArray();
+
+        private int addAccessor(final ByteBuffer data, int componentType, final String type, int count) {
+            while (this.binary.size() % 4 != 0) {
+                this.binary.write(0);
+            }
+
+            final JsonObject bufferView = new JsonObject();
+            bufferView.addProperty("buffer", 0);
+            bufferView.addProperty("byteOffset", this.binary.size());
+            bufferView.addProperty("byteLength", data.limit());
+            this.bufferViews.add(bufferView);
+            this.binary.write(data.array(), 0, data.limit());
+
+            final JsonObject accessor = new JsonObject();
+            accessor.addProperty("bufferView", this.bufferViews.size() - 1);
+            accessor.addProperty("componentType", componentType);
+            accessor.addProperty("type", type);
+            accessor.addProperty("count", count);
+            this.accessors.add(accessor);
+            return this.accessors.size() - 1;
+        }
+
+        private int addFloats(final String type, int count, float... values) {
+            final ByteBuffer data = ByteBuffer.allocate(values.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+            for (final float value : values) {
+                data.putFloat(value);
+            }
+            data.flip();
+            return this.addAccessor(data, 5126, type, count);
+        }
+
+        private ByteBuffer build(final JsonObject gltf) {
+            final JsonObject buffer = new JsonObject();
+            buffer.addProperty("byteLength", this.binary.size());
+            final JsonArray buffers = new JsonArray();
+            buffers.add(buffer);
+            gltf.add("buffers", buffers);
+            gltf.add("bufferViews", this.bufferViews);
+            gltf.add("accessors", this.accessors);
+            final JsonObject asset = new JsonObject();
+            asset.addProperty("version", "2.0");
+            gltf.add("asset", asset);
+
+            final byte[] json = gltf.toString().getBytes(StandardCharsets.UTF_8);
+            final int jsonLength = (json.length + 3) & ~3;
+            final int binaryLength = (this.binary.size() + 3) & ~3;
+            final ByteBuffer glb = ByteBuffer.allocate(GLTFImporter.GLB_HEADER_SIZE + 8 + jsonLength + 8 +
+                    binaryLength).order(ByteOrder.LITTLE_ENDIAN);
+            glb.putInt(GLTFImporter.GLB_MAGIC).putInt(GLTFImporter.GLB_VERSION).putInt(glb.capacity());
+            glb.putInt(jsonLength).putInt(GLTFImporter.CHUNK_JSON).put(json);
+            while (glb.position() % 4 != 0) {
+                glb.put((byte) ' ');
+            }
+            glb.putInt(binaryLength).putInt(GLTFImporter.CHUNK_BIN).put(this.binary.toByteArray());
+            glb.position(glb.capacity());
+            glb.flip();
+            return glb;
+        }
+    }
+
+    private static JsonArray toArray(float... values) {
+        final JsonArray array = new JsonArray();
+        for (final float value : values) {
+            array.add(value);
+        }
+        return array;
+    }
+
+    private static JsonArray toIndexArray(int... values) {
+        final JsonArray array = new JsonArray();
+        for (final int value : values) {
+            array.add(value);
+        }
+        return array;
+    }
+
+    private static JsonObject attributes(final Object... pairs) {
+        final JsonObject object = new JsonObject();
+        for (int i = 0; i < pairs.length; i += 2) {
+            object.addProperty((String) pairs[i], (Number) pairs[i + 1]);
+        }
+        return object;
+    }
+
+    /**
+     * Converts a mesh into GLB. Keyframes are relative to the bind pose in the engine, so they're made absolute.
+     *
+     * @param mesh Mesh.
+     * @return GLB file.
+     */
+    private static ByteBuffer toGLB(final Mesh mesh) {
+        final GLBBuilder builder = new GLBBuilder();
+        final int vertexCount = mesh.getVertices().size();
+        final float[] positions = new float[vertexCount * 3];
+        final float[] normals = new float[vertexCount * 3];
+        final float[] texcoords = new float[vertexCount * 2];
+        for (int i = 0; i < vertexCount; i++) {
+            positions[i * 3] = mesh.getVertices().get(i).x;
+            positions[i * 3 + 1] = mesh.getVertices().get(i).y;
+            positions[i * 3 + 2] = mesh.getVertices().get(i).z;
+            normals[i * 3] = mesh.getNormals().get(i).x;
+            normals[i * 3 + 1] = mesh.getNormals().get(i).y;
+            normals[i * 3 + 2] = mesh.getNormals().get(i).z;
+            texcoords[i * 2] = mesh.getTexcoords().get(i).x;
+            texcoords[i * 2 + 1] = mesh.getTexcoords().get(i).y;
+        }
+
+        final ByteBuffer indices = ByteBuffer.allocate(mesh.getTriangles().size() * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (final Integer index : mesh.getTriangles()) {
+            indices.putInt(index);
+        }
+        indices.flip();
+
+        //  Up to 4 influences per vertex, taken from the bones' weights.
+        final ByteBuffer joints = ByteBuffer.allocate(vertexCount * 8).order(ByteOrder.LITTLE_ENDIAN);
+        final float[] weights = new float[vertexCount * 4];
+        final int[] influenceCounts = new int[vertexCount];
+        for (final Bone bone : mesh.getSkeleton().getBones()) {
+            for (final Map.Entry<Integer, Float> weight : bone.getVertexWeights().entrySet()) {
+                final int vertex = weight.getKey();
+                final int slot = influenceCounts[vertex]++;
+                joints.putShort(vertex * 8 + slot * 2, (short) bone.getIndex());
+                weights[vertex * 4 + slot] = weight.getValue();
+            }
+        }
+
+        final JsonObject primitive = new JsonObject();
+        primitive.add("attributes", attributes(
+                "POSITION", builder.addFloats("VEC3", vertexCount, positions),
+                "NORMAL", builder.addFloats("VEC3", vertexCount, normals),
+                "TEXCOORD_0", builder.addFloats("VEC2", vertexCount, texcoords),
+                "JOINTS_0", builder.addAccessor(joints, 5123, "VEC4", vertexCount),
+                "WEIGHTS_0", builder.addFloats("VEC4", vertexCount, weights)));
+        primitive.addProperty("indices", builder.addAccessor(indices, 5125, "SCALAR", mesh.getTriangles().size()));
+        final JsonArray primitives = new JsonArray();
+        primitives.add(primitive);
+        final JsonObject gltfMesh = new JsonObject();
+        gltfMesh.add("primitives", primitives);
+        final JsonArray meshes = new JsonArray();
+        meshes.add(gltfMesh);
+
+        //  Node 0 holds the mesh, the bones follow.
+        final JsonArray nodes = new JsonArray();
+        final JsonObject meshNode = new JsonObject();
+        meshNode.addProperty("mesh", 0);
+        meshNode.addProperty("skin", 0);
+        nodes.add(meshNode);
+        final JsonArray jointArray = new JsonArray();
+        final JsonArray sceneNodes = new JsonArray();
+        sceneNodes.add(0);
+        for (final Bone bone : mesh.getSkeleton().getBones()) {
+            final JsonObject node = new JsonObject();
+            node.addProperty("name", bone.getName());
+            final Vector3f t = bone.getBindPosition();
+            final Quaternionf r = bone.getBindRotation();
+            final Vector3f s = bone.getBindScale();
+            node.add("translation", toArray(t.x, t.y, t.z));
+            node.add("rotation", toArray(r.x, r.y, r.z, r.w));
+            node.add("scale", toArray(s.x, s.y, s.z));
+            if (!bone.getChildren().isEmpty()) {
+                final JsonArray children = new JsonArray();
+                for (final Bone child : bone.getChildren()) {
+                    children.add(child.getIndex() + 1);
+                }
+                node.add("children", children);
+            }
+            nodes.add(node);
+            jointArray.add(bone.getIndex() + 1);
+            if (bone.getParent() == null) {
+                sceneNodes.add(bone.getIndex() + 1);
+            }
+        }
+        final JsonObject skin = new JsonObject();
+        skin.add("joints", jointArray);
+        final JsonArray skins = new JsonArray();
+        skins.add(skin);
+
+        final JsonArray animations = new JsonArray();
+        for (final Animation animation : mesh.getAnimations()) {
+            final JsonArray samplers = new JsonArray();
+            final JsonArray channels = new JsonArray();
+            for (final AnimationTrack track : animation.getTracks()) {
+                final Bone bone = track.getBone();
+                final List<AnimationKeyframe> keyframes = track.getKeyframes();
+                final float[] times = new float[keyframes.size()];
+                final float[] translations = new float[keyframes.size() * 3];
+                final float[] rotations = new float[keyframes.size() * 4];
+                for (int i = 0; i < keyframes.size(); i++) {
+                    final AnimationKeyframe keyframe = keyframes.get(i);
+                    final Vector3f t = new Vector3f(bone.getBindPosition()).add(keyframe.getTranslation());
+                    final Quaternionf r = new Quaternionf(bone.getBindRotation()).mul(keyframe.getRotation());
+                    times[i] = keyframe.getTime();
+                    translations[i * 3] = t.x;
+                    translations[i * 3 + 1] = t.y;
+                    translations[i * 3 + 2] = t.z;
+                    rotations[i * 4] = r.x;
+                    rotations[i * 4 + 1] = r.y;
+                    rotations[i * 4 + 2] = r.z;
+                    rotations[i * 4 + 3] = r.w;
+                }
+
+                final int input = builder.addFloats("SCALAR", times.length, times);
+                final int[] outputs = {builder.addFloats("VEC3", times.length, translations),
+                        builder.addFloats("VEC4", times.length, rotations)};
+                final String[] paths = {"translation", "rotation"};
+                for (int i = 0; i < outputs.length; i++) {
+                    final JsonObject sampler = new JsonObject();
+                    sampler.addProperty("input", input);
+                    sampler.addProperty("output", outputs[i]);
+                    samplers.add(sampler);
+
+                    final JsonObject target = new JsonObject();
+                    target.addProperty("node", bone.getIndex() + 1);
+                    target.addProperty("path", paths[i]);
+                    final JsonObject channel = new JsonObject();
+                    channel.addProperty("sampler", samplers.size() - 1);
+                    channel.add("target", target);
+                    channels.add(channel);
+                }
+            }
+
+            final JsonObject gltfAnimation = new JsonObject();
+            gltfAnimation.addProperty("name", animation.getName());
+            gltfAnimation.add("samplers", samplers);
+            gltfAnimation.add("channels", channels);
+            animations.add(gltfAnimation);
+        }
+
+        final JsonObject scene = new JsonObject();
+        scene.add("nodes", sceneNodes);
+        final JsonArray scenes = new JsonArray();
+        scenes.add(scene);
+
+        final JsonObject gltf = new JsonObject();
+        gltf.addProperty("scene", 0);
+        gltf.add("scenes", scenes);
+        gltf.add("nodes", nodes);
+        gltf.add("meshes", meshes);
+        gltf.add("skins", skins);
+        gltf.add("animations", animations);
+        return builder.build(gltf);
+    }
+
+    private static boolean close(final Vector3f a, final Vector3f b) {
+        return Math.abs(a.x - b.x) <= TOLERANCE && Math.abs(a.y - b.y) <= TOLERANCE && Math.abs(a.z - b.z) <= TOLERANCE;
+    }
+
+    private static boolean close(final Quaternionf a, final Quaternionf b) {
+        //  q and -q are the same rotation.
+        return Math.abs(Math.abs(a.dot(b)) - 1.0f) <= TOLERANCE;
+    }
+
+    private static boolean sameMesh(final Mesh source, final Mesh imported) {
+        if (!source.getVertices().equals(imported.getVertices()) ||
+                !source.getNormals().equals(imported.getNormals()) ||
+                !source.getTexcoords().equals(imported.getTexcoords()) ||
+                !source.getTriangles().equals(imported.getTriangles())) {
+            return false;
+        }
+
+        final Skeleton skeletonA = source.getSkeleton();
+        final Skeleton skeletonB = imported.getSkeleton();
+        if (skeletonA.getBones().size() != skeletonB.getBones().size()) {
+            return false;
+        }
+        for (int i = 0; i < skeletonA.getBones().size(); i++) {
+            final Bone boneA = skeletonA.getBone(i);
+            final Bone boneB = skeletonB.getBone(i);
+            if (!boneA.getName().equals(boneB.getName()) ||
+                    !boneA.getWorldBindMatrix().equals(boneB.getWorldBindMatrix()) ||
+                    !boneA.getVertexWeights().equals(boneB.getVertexWeights())) {
+                return false;
+            }
+        }
+
+        if (source.getAnimations().size() != imported.getAnimations().size()) {
+            return false;
+        }
+        for (int i = 0; i < source.getAnimations().size(); i++) {
+            final Animation animationA = source.getAnimations().get(i);
+            final Animation animationB = imported.getAnimations().get(i);
+            if (!animationA.getName().equals(animationB.getName())) {
+                return false;
+            }
+            for (final AnimationTrack trackA : animationA.getTracks()) {
+                final AnimationTrack trackB = animationB.getTrackForBone(skeletonB.getBone(trackA.getBone().
+                        getIndex()));
+                if (trackB == null || trackA.getKeyframeCount() != trackB.getKeyframeCount()) {
+                    return false;
+                }
+                for (int k = 0; k < trackA.getKeyframeCount(); k++) {
+                    final AnimationKeyframe keyA = trackA.getKeyframes().get(k);
+                    final AnimationKeyframe keyB = trackB.getKeyframes().get(k);
+                    if (keyA.getTime() != keyB.getTime() || !close(keyA.getTranslation(), keyB.getTranslation()) ||
+                            !close(keyA.getRotation(), keyB.getRotation())) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that the compact data written by the importer is the same as what the encoder makes out of the mesh.
+     */
+    private static boolean sameCompactData(final Mesh mesh) {
+        final CompactMeshData imported = mesh.getCompactMeshData();
+        final CompactMeshData encoded = CompactVertexFormat.encode(mesh);
+        return imported != null && imported.getVertexCount() == encoded.getVertexCount() &&
+                imported.getIndexCount() == encoded.getIndexCount() &&
+                imported.hasShortIndices() == encoded.hasShortIndices() &&
+                imported.getVertexData().equals(encoded.getVertexData()) &&
+                imported.getIndexData().equals(encoded.getIndexData());
+    }
+
+    /**
+     * Imports a hand-built GLB - a triangle skinned to two joints under a translated armature node, with a stepped
+     * translation and a linear rotation keyed at different times - and checks the result.
+     *
+     * @return {@code true} if the import is correct.
+     * @throws IOException If the fixture can't be imported.
+     */
+    private static boolean checkFixture(final Path directory) throws IOException {
+        final GLBBuilder builder = new GLBBuilder();
+        final ByteBuffer joints = ByteBuffer.allocate(3 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        joints.put(new byte[]{0, 1, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0});
+        joints.flip();
+        final JsonObject primitive = new JsonObject();
+        primitive.add("attributes", attributes(
+                "POSITION", builder.addFloats("VEC3", 3, 0, 0, 0, 1, 0, 0, 0, 1, 0),
+                "JOINTS_0", builder.addAccessor(joints, 5121, "VEC4", 3),
+                "WEIGHTS_0", builder.addFloats("VEC4", 3, 0.5f, 0.5f, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0)));
+        final JsonArray primitives = new JsonArray();
+        primitives.add(primitive);
+        final JsonObject gltfMesh = new JsonObject();
+        gltfMesh.add("primitives", primitives);
+        final JsonArray meshes = new JsonArray();
+        meshes.add(gltfMesh);
+
+        //  Armature (0) -> root joint (1) -> child joint (2), mesh (3).
+        final JsonArray nodes = new JsonArray();
+        final JsonObject armature = new JsonObject();
+        armature.add("translation", toArray(0, 0, 5));
+        armature.add("children", toIndexArray(1));
+        nodes.add(armature);
+        final JsonObject root = new JsonObject();
+        root.addProperty("name", "Root");
+        root.add("children", toIndexArray(2));
+        nodes.add(root);
+        final JsonObject child = new JsonObject();
+        child.addProperty("name", "Child");
+        child.add("translation", toArray(0, 1, 0));
+        nodes.add(child);
+        final JsonObject meshNode = new JsonObject();
+        meshNode.addProperty("mesh", 0);
+        meshNode.addProperty("skin", 0);
+        nodes.add(meshNode);
+        final JsonObject skin = new JsonObject();
+        skin.add("joints", toIndexArray(1, 2));
+        final JsonArray skins = new JsonArray();
+        skins.add(skin);
+
+        final JsonArray samplers = new JsonArray();
+        final JsonObject stepSampler = new JsonObject();
+        stepSampler.addProperty("input", builder.addFloats("SCALAR", 2, 0.0f, 1.0f));
+        stepSampler.addProperty("output", builder.addFloats("VEC3", 2, 0, 1, 0, 0, 3, 0));
+        stepSampler.addProperty("interpolation", "STEP");
+        samplers.add(stepSampler);
+        final float halfTurn = (float) Math.sqrt(0.5);
+        final JsonObject linearSampler = new JsonObject();
+        linearSampler.addProperty("input", builder.addFloats("SCALAR", 2, 0.5f, 1.0f));
+        linearSampler.addProperty("output", builder.addFloats("VEC4", 2, 0, 0, 0, 1, 0, 0, halfTurn, halfTurn));
+        samplers.add(linearSampler);
+        final JsonArray channels = new JsonArray();
+        final String[] paths = {"translation", "rotation"};
+        for (int i = 0; i < paths.length; i++) {
+            final JsonObject target = new JsonObject();
+            target.addProperty("node", 2);
+            target.addProperty("path", paths[i]);
+            final JsonObject channel = new JsonObject();
+            channel.addProperty("sampler", i);
+            channel.add("target", target);
+            channels.add(channel);
+        }
+        final JsonObject animation = new JsonObject();
+        animation.addProperty("name", "Wave");
+        animation.add("samplers", samplers);
+        animation.add("channels", channels);
+        final JsonArray animations = new JsonArray();
+        animations.add(animation);
+
+        final JsonObject gltf = new JsonObject();
+        gltf.add("nodes", nodes);
+        gltf.add("meshes", meshes);
+        gltf.add("skins", skins);
+        gltf.add("animations", animations);
+        final Path file = directory.resolve("fixture.glb");
+        Files.write(file, toBytes(builder.build(gltf)));
+
+        final Mesh mesh = new GLTFImporter().loadScene(file).getMesh();
+        final Bone rootBone = mesh.getSkeleton().getBone(0);
+        final Bone childBone = mesh.getSkeleton().getBone(1);
+        final Animation wave = mesh.getAnimation("Wave");
+        if (mesh.getVertices().size() != 3 || mesh.getTriangles().size() != 3 || wave == null ||
+                !"Root".equals(rootBone.getName()) || childBone.getParent() != rootBone ||
+                !close(rootBone.getBindPosition(), new Vector3f(0, 0, 5)) ||
+                rootBone.getVertexWeights().get(0) != 0.5f || childBone.getVertexWeights().get(1) != 1.0f ||
+                wave.getLength() != 1.0f || wave.getFrameCount() != 3) {
+            return false;
+        }
+
+        //  The child's keyframes are at 0, 0.5 and 1, relative to its bind translation of (0, 1, 0).
+        final AnimationTrack track = wave.getTrackForBone(childBone);
+        final float[] expectedY = {0.0f, 0.0f, 2.0f};
+        final float[] expectedAngle = {0.0f, 0.0f, (float) Math.PI * 0.5f};
+        for (int i = 0; i < 3; i++) {
+            final AnimationKeyframe keyframe = track.getKeyframes().get(i);
+            if (keyframe.getTime() != i * 0.5f ||
+                    !close(keyframe.getTranslation(), new Vector3f(0, expectedY[i], 0)) ||
+                    !close(keyframe.getRotation(), new Quaternionf().rotateZ(expectedAngle[i]))) {
+                return false;
+            }
+        }
+        return wave.getTrackForBone(rootBone).getKeyframeCount() == 1 && sameCompactData(mesh);
+    }
+
+    /**
+     * Writes a GLB with a triangle skinned to two joints, whose rest pose differs from the pose given by the inverse
+     * bind matrices.
+     *
+     * @param file Target file.
+     * @param childInverseBind Inverse bind matrix of the child joint.
+     * @throws IOException If the file can't be written.
+     */
+    private static void writeBindPoseFixture(final Path file, final Matrix4f childInverseBind) throws IOException {
+        final GLBBuilder builder = new GLBBuilder();
+        final ByteBuffer joints = ByteBuffer.allocate(3 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        joints.put(new byte[]{0, 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0});
+        joints.flip();
+        final JsonObject primitive = new JsonObject();
+        primitive.add("attributes", attributes(
+                "POSITION", builder.addFloats("VEC3", 3, 0, 0, 0, 1, 2, 0, 0, 2, 1),
+                "JOINTS_0", builder.addAccessor(joints, 5121, "VEC4", 3),
+                "WEIGHTS_0", builder.addFloats("VEC4", 3, 1, 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0)));
+        final JsonArray primitives = new JsonArray();
+        primitives.add(primitive);
+        final JsonObject gltfMesh = new JsonObject();
+        gltfMesh.add("primitives", primitives);
+        final JsonArray meshes = new JsonArray();
+        meshes.add(gltfMesh);
+
+        //  Root joint (0) -> child joint (1), mesh (2). The child rests at (0, 1, 0).
+        final JsonArray nodes = new JsonArray();
+        final JsonObject root = new JsonObject();
+        root.addProperty("name", "Root");
+        root.add("children", toIndexArray(1));
+        nodes.add(root);
+        final JsonObject child = new JsonObject();
+        child.addProperty("name", "Child");
+        child.add("translation", toArray(0, 1, 0));
+        nodes.add(child);
+        final JsonObject meshNode = new JsonObject();
+        meshNode.addProperty("mesh", 0);
+        meshNode.addProperty("skin", 0);
+        nodes.add(meshNode);
+
+        final float[] inverseBindMatrices = new float[32];
+        new Matrix4f().get(inverseBindMatrices, 0);
+        childInverseBind.get(inverseBindMatrices, 16);
+        final JsonObject skin = new JsonObject();
+        skin.add("joints", toIndexArray(0, 1));
+        skin.addProperty("inverseBindMatrices", builder.addFloats("MAT4", 2, inverseBindMatrices));
+        final JsonArray skins = new JsonArray();
+        skins.add(skin);
+
+        final JsonObject gltf = new JsonObject();
+        gltf.add("nodes", nodes);
+        gltf.add("meshes", meshes);
+        gltf.add("skins", skins);
+        Files.write(file, toBytes(builder.build(gltf)));
+    }
+
+    /**
+     * Imports hand-built GLBs whose inverse bind matrices don't match the rest pose of the joints. The bind pose
+     * needs to follow the matrices, and matrices which bones can't represent need to be rejected.
+     *
+     * @return {@code true} if the imports are correct.
+     * @throws IOException If a valid fixture can't be imported.
+     */
+    private static boolean checkBindPoseFixtures(final Path directory) throws IOException {
+        //  The mesh has been bound with the child joint at (0, 2, 0), rotated around Z.
+        final Matrix4f childBind = new Matrix4f().translation(0, 2, 0).rotateZ((float) Math.PI * 0.25f);
+        final Path file = directory.resolve("bind-pose.glb");
+        writeBindPoseFixture(file, childBind.invert(new Matrix4f()));
+        final Mesh mesh = new GLTFImporter().loadScene(file).getMesh();
+        final Bone childBone = mesh.getSkeleton().getBone(1);
+        if (!close(childBone.getBindPosition(), new Vector3f(0, 2, 0)) ||
+                !close(childBone.getBindRotation(), new Quaternionf().rotateZ((float) Math.PI * 0.25f))) {
+            return false;
+        }
+        final Vector3f bindPoint = childBone.getWorldBindMatrix().transformPosition(new Vector3f(0, 1, 0));
+        if (!close(bindPoint, childBind.transformPosition(new Vector3f(0, 1, 0)))) {
+            return false;
+        }
+
+        //  Shearing can't be represented by bones.
+        final Path shearedFile = directory.resolve("sheared.glb");
+        final Matrix4f shear = new Matrix4f();
+        shear.m10 = 0.5f;
+        writeBindPoseFixture(shearedFile, new Matrix4f().translation(0, -2, 0).mul(shear));
+        try {
+            new GLTFImporter().loadScene(shearedFile);
+            return false;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private static byte[] toBytes(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static long allocatedBytes() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1L;
+    }
+
+    private static Mesh measure(final String name, final Loader loader) throws IOException {
+        Mesh mesh = null;
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            mesh = loader.load();
+        }
+
+        long time = 0L;
+        long allocated = 0L;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            final long allocatedBefore = allocatedBytes();
+            final long start = System.nanoTime();
+            mesh = loader.load();
+            time += System.nanoTime() - start;
+            allocated += allocatedBytes() - allocatedBefore;
+        }
+
+        System.out.printf("  %-10s %8.2f ms, %8.2f MB allocated per load%n", name, time / 1.0e6 / MEASURED_RUNS,
+                allocated / (1024.0 * 1024.0) / MEASURED_RUNS);
+        return mesh;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final String[] resources = args.length > 0 ? args : DEFAULT_RESOURCES;
+        final JSONImporter jsonImporter = new JSONImporter();
+        final GLTFImporter gltfImporter = new GLTFImporter();
+        final Path directory = Files.createTempDirectory("gltf-benchmark");
+
+        try {
+            System.out.printf("Hand-built fixture: %s%n", checkFixture(directory) ? "OK" : "FAILED");
+            System.out.printf("Inverse bind matrices: %s%n", checkBindPoseFixtures(directory) ? "OK" : "FAILED");
+
+            for (final String resource : resources) {
+                final Mesh source = jsonImporter.loadMesh(resource);
+                final Path glbFile = directory.resolve(resource + ".glb");
+                Files.write(glbFile, toBytes(toGLB(source)));
+                System.out.printf("%s (%d KB as JSON, %d KB as GLB)%n", resource,
+                        GLTFImportBenchmark.class.getClassLoader().getResource(resource).openConnection().
+                                getContentLength() / 1024, Files.size(glbFile) / 1024);
+
+                measure("JSON", new Loader() {
+                    @Override
+                    public Mesh load() throws IOException {
+                        return jsonImporter.loadMesh(resource);
+                    }
+                });
+                final Mesh imported = measure("GLB", new Loader() {
+                    @Override
+                    public Mesh load() throws IOException {
+                        return gltfImporter.loadScene(glbFile).getMesh();
+                    }
+                });
+                System.out.printf("  Equivalent meshes: %b, compact data: %b%n", sameMesh(source, imported),
+                        sameCompactData(imported));
+            }
+        } finally {
+            final List<Path> files = new ArrayList<>();
+            try (java.nio.file.DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (final Path file : stream) {
+                    files.add(file);
+                }
+            }
+            for (final Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package pl.pateman.benchmark;
+
+import pl.pateman.core.mesh.*;
+import pl.pateman.importer.json.JSONImporter;
+import pl.pateman.importer.json.JSONStreamingImporter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Headless benchmark of JSON importers. Loads the given resources with the tree-based and the streaming importer,
+ * compares the results and reports load times and allocated memory.
+ *
+ * Created by pateman.
+ */
+public final class JSONImportBenchmark {
+    private static final String[] DEFAULT_RESOURCES = {"test.json", "banana.json"};
+    private static final int WARMUP_RUNS = 10;
+    private static final int MEASURED_RUNS = 10;
+
+    private JSONImportBenchmark() {
+
+    }
+
+    private interface Loader {
+        Mesh load(String resource) throws IOException;
+    }
+
+    private static long allocatedBytes() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1L;
+    }
+
+    private static Mesh measure(final String name, final String resource, final Loader loader) throws IOException {
+        Mesh mesh = null;
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            mesh = loader.load(resource);
+        }
+
+        long time = 0L;
+        long allocated = 0L;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            final long allocatedBefore = allocatedBytes();
+            final long start = System.nanoTime();
+            mesh = loader.load(resource);
+            time += System.nanoTime() - start;
+            allocated += allocatedBytes() - allocatedBefore;
+        }
+
+        System.out.printf("  %-10s %8.2f ms, %8.2f MB allocated per load%n", name, time / 1.0e6 / MEASURED_RUNS,
+                allocated / (1024.0 * 1024.0) / MEASURED_RUNS);
+        return mesh;
+    }
+
+    private static boolean sameMesh(final Mesh a, final Mesh b) {
+        if (!a.getVertices().equals(b.getVertices()) || !a.getNormals().equals(b.getNormals()) ||
+                !a.getTexcoords().equals(b.getTexcoords()) || !a.getTriangles().equals(b.getTriangles())) {
+            return false;
+        }
+
+        final Skeleton skeletonA = a.getSkeleton();
+        final Skeleton skeletonB = b.getSkeleton();
+        if (skeletonA.getBones().size() != skeletonB.getBones().size()) {
+            return false;
+        }
+        for (int i = 0; i < skeletonA.getBones().size(); i++) {
+            final Bone boneA = skeletonA.getBone(i);
+            final Bone boneB = skeletonB.getBone(i);
+            if (!boneA.getName().equals(boneB.getName()) || boneA.getIndex() != boneB.getIndex() ||
+                    !boneA.getWorldBindMatrix().equals(boneB.getWorldBindMatrix()) ||
+                    !boneA.getVertexWeights().equals(boneB.getVertexWeights())) {
+                return false;
+            }
+        }
+
+        if (a.getAnimations().size() != b.getAnimations().size()) {
+            return false;
+        }
+        for (int i = 0; i < a.getAnimations().size(); i++) {
+            final Animation animationA = a.getAnimations().get(i);
+            final Animation animationB = b.getAnimations().get(i);
+            if (!animationA.getName().equals(animationB.getName()) ||
+                    animationA.getLength() != animationB.getLength() ||
+                    animationA.getFrameCount() != animationB.getFrameCount() ||
+                    animationA.getTracks().size() != animationB.getTracks().size()) {
+                return false;
+            }
+            for (int j = 0; j < animationA.getTracks().size(); j++) {
+                final AnimationTrack trackA = animationA.getTracks().get(j);
+                final AnimationTrack trackB = animationB.getTracks().get(j);
+                if (!trackA.getBone().getName().equals(trackB.getBone().getName()) ||
+                        trackA.getKeyframes().size() != trackB.getKeyframes().size()) {
+                    return false;
+                }
+                for (int k = 0; k < trackA.getKeyframes().size(); k++) {
+                    final AnimationKeyframe keyA = trackA.getKeyframes().get(k);
+                    final AnimationKeyframe keyB = trackB.getKeyframes().get(k);
+                    if (keyA.getTime() != keyB.getTime() || !keyA.getTranslation().equals(keyB.getTranslation()) ||
+                            !keyA.getRotation().equals(keyB.getRotation())) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final String[] resources = args.length > 0 ? args : DEFAULT_RESOURCES;
+        final JSONImporter treeImporter = new JSONImporter();
+        final JSONStreamingImporter streamingImporter = new JSONStreamingImporter();
+
+        for (final String resource : resources) {
+            System.out.println(resource);
+            final Mesh treeMesh = measure("Gson tree", resource, new Loader() {
+                @Override
+                public Mesh load(String resource) throws IOException {
+                    return treeImporter.loadMesh(resource);
+                }
+            });
+            final Mesh streamedMesh = measure("Streaming", resource, new Loader() {
+                @Override
+                public Mesh load(String resource) throws IOException {
+                    return streamingImporter.loadMesh(resource);
+                }
+            });
+            System.out.printf("  Identical meshes: %b%n", sameMesh(treeMesh, streamedMesh));
+        }
+    }
+}
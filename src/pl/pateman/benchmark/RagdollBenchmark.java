@@ -0,0 +1,146 @@
+package pl.pateman.benchmark;
+
+import com.bulletphysics.collision.broadphase.DbvtBroadphase;
+import com.bulletphysics.collision.dispatch.CollisionDispatcher;
+import com.bulletphysics.collision.dispatch.DefaultCollisionConfiguration;
+import com.bulletphysics.collision.shapes.StaticPlaneShape;
+import com.bulletphysics.dynamics.DiscreteDynamicsWorld;
+import com.bulletphysics.dynamics.RigidBody;
+import com.bulletphysics.dynamics.RigidBodyConstructionInfo;
+import com.bulletphysics.dynamics.constraintsolver.SequentialImpulseConstraintSolver;
+import com.bulletphysics.linearmath.DefaultMotionState;
+import com.bulletphysics.linearmath.Transform;
+import org.joml.Matrix4f;
+import pl.pateman.core.entity.AbstractEntity;
+import pl.pateman.core.mesh.Bone;
+import pl.pateman.core.mesh.Mesh;
+import pl.pateman.core.physics.ragdoll.Ragdoll;
+import pl.pateman.core.physics.ragdoll.RagdollStructure;
+import pl.pateman.importer.json.JSONStreamingImporter;
+
+import java.io.IOException;
+
+/**
+ * Headless benchmark of ragdolls. Lets a number of ragdolls, each in its own physics world, collapse onto the ground
+ * and measures the time spent in the simulation and in writing their poses back to the bones, separately for the
+ * frames in which the ragdolls are falling and the ones in which they're settling down and falling asleep. The pose
+ * checksum allows comparing the results of different implementations. An alternative ragdoll structure (e.g. one with
+ * other collider types) can be given as a resource name.
+ *
+ * Created by pateman.
+ */
+public final class RagdollBenchmark {
+    private static final String MESH_RESOURCE = "test.json";
+    private static final String RAGDOLL_RESOURCE = "test_ragdoll.json";
+    private static final int DEFAULT_RAGDOLL_COUNT = 50;
+    private static final float TIME_STEP = 1.0f / 60.0f;
+    private static final float GROUND_HEIGHT = -0.2f;
+    private static final int ANIMATED_FRAMES = 60;
+    private static final int FALLING_FRAMES = 60;
+    private static final int SETTLING_FRAMES = 600;
+
+    private RagdollBenchmark() {
+
+    }
+
+    private static DiscreteDynamicsWorld createWorld() {
+        final DefaultCollisionConfiguration collisionConfiguration = new DefaultCollisionConfiguration();
+        final DiscreteDynamicsWorld dynamicsWorld = new DiscreteDynamicsWorld(
+                new CollisionDispatcher(collisionConfiguration), new DbvtBroadphase(),
+                new SequentialImpulseConstraintSolver(), collisionConfiguration);
+        dynamicsWorld.setGravity(new javax.vecmath.Vector3f(0.0f, -9.81f, 0.0f));
+
+        final Transform transform = new Transform();
+        transform.setIdentity();
+        final StaticPlaneShape ground = new StaticPlaneShape(new javax.vecmath.Vector3f(0.0f, 1.0f, 0.0f),
+                GROUND_HEIGHT);
+        dynamicsWorld.addRigidBody(new RigidBody(new RigidBodyConstructionInfo(0.0f,
+                new DefaultMotionState(transform), ground)));
+        return dynamicsWorld;
+    }
+
+    private static void runFrames(final String name, final DiscreteDynamicsWorld[] worlds, final Ragdoll[] ragdolls,
+                                  int frames) {
+        long simulationTime = 0L;
+        long updateTime = 0L;
+        for (int i = 0; i < frames; i++) {
+            final long start = System.nanoTime();
+            for (final DiscreteDynamicsWorld world : worlds) {
+                world.stepSimulation(TIME_STEP);
+            }
+            final long simulated = System.nanoTime();
+            for (final Ragdoll ragdoll : ragdolls) {
+                ragdoll.updateRagdoll();
+            }
+            simulationTime += simulated - start;
+            updateTime += System.nanoTime() - simulated;
+        }
+
+        System.out.printf("  %-9s simulation %9.2f us, pose writeback %8.2f us per frame%n", name,
+                simulationTime / 1.0e3 / frames, updateTime / 1.0e3 / frames);
+    }
+
+    private static int countSleepingBodies(final DiscreteDynamicsWorld[] worlds) {
+        int sleeping = 0;
+        for (final DiscreteDynamicsWorld world : worlds) {
+            for (int i = 0; i < world.getCollisionObjectArray().size(); i++) {
+                final RigidBody body = RigidBody.upcast(world.getCollisionObjectArray().getQuick(i));
+                if (body != null && !body.isStaticObject() && !body.isActive()) {
+                    sleeping++;
+                }
+            }
+        }
+        return sleeping;
+    }
+
+    private static double poseChecksum(final Mesh[] meshes) {
+        double checksum = 0.0;
+        for (final Mesh mesh : meshes) {
+            for (final Bone bone : mesh.getSkeleton().getBones()) {
+                final Matrix4f matrix = bone.getOffsetMatrix();
+                checksum += matrix.m00 + matrix.m11 + matrix.m22 + matrix.m30 + matrix.m31 + matrix.m32;
+            }
+        }
+        return checksum;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final int ragdollCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RAGDOLL_COUNT;
+        final String ragdollResource = args.length > 1 ? args[1] : RAGDOLL_RESOURCE;
+
+        final JSONStreamingImporter importer = new JSONStreamingImporter();
+        final Mesh[] meshes = new Mesh[ragdollCount];
+        final DiscreteDynamicsWorld[] worlds = new DiscreteDynamicsWorld[ragdollCount];
+        final Ragdoll[] ragdolls = new Ragdoll[ragdollCount];
+        for (int i = 0; i < ragdollCount; i++) {
+            meshes[i] = importer.loadMesh(MESH_RESOURCE);
+            worlds[i] = createWorld();
+
+            //  The mesh stands in its bind pose, slightly above the ground.
+            for (final Bone bone : meshes[i].getSkeleton().getBones()) {
+                bone.getOffsetMatrix().set(bone.getWorldBindMatrix());
+            }
+            ragdolls[i] = new Ragdoll(meshes[i], new AbstractEntity());
+            ragdolls[i].setDynamicsWorld(worlds[i]);
+            ragdolls[i].setRagdollStructure(RagdollStructure.importJSON(ragdollResource, meshes[i]));
+            ragdolls[i].buildRagdoll();
+        }
+
+        //  Like in the application, the ragdolls follow the animated model for a while before they're enabled.
+        for (int i = 0; i < ANIMATED_FRAMES; i++) {
+            for (int j = 0; j < ragdollCount; j++) {
+                ragdolls[j].alignRagdollToModel();
+                worlds[j].stepSimulation(TIME_STEP);
+            }
+        }
+        for (final Ragdoll ragdoll : ragdolls) {
+            ragdoll.setEnabled(true);
+        }
+
+        System.out.printf("%d ragdolls (%s)%n", ragdollCount, ragdollResource);
+        runFrames("Falling:", worlds, ragdolls, FALLING_FRAMES);
+        runFrames("Settling:", worlds, ragdolls, SETTLING_FRAMES);
+        System.out.printf("  %d bodies asleep at the end, pose checksum: %.6f%n", countSleepingBodies(worlds),
+                poseChecksum(meshes));
+    }
+}
@@ -0,0 +1,105 @@
+package pl.pateman.benchmark;
+
+import org.joml.Matrix4f;
+import pl.pateman.core.entity.AbstractEntity;
+import pl.pateman.core.scene.SceneGraph;
+
+/**
+ * Headless benchmark of scene graph updates, for a deep hierarchy (many long chains) and a wide one (a single root
+ * with many children). Every case is measured with the root moving, with a single leaf moving and with nothing
+ * moving at all.
+ *
+ * Created by pateman.
+ */
+public final class SceneGraphBenchmark {
+    private static final int DEFAULT_NODE_COUNT = 10000;
+    private static final int CHAIN_LENGTH = 100;
+    private static final int WARMUP_FRAMES = 200;
+    private static final int MEASURED_FRAMES = 1000;
+
+    private SceneGraphBenchmark() {
+
+    }
+
+    private interface Mover {
+        void move(int frame);
+    }
+
+    private static void measure(final String name, final SceneGraph sceneGraph, final Mover mover) {
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            mover.move(i);
+            sceneGraph.update();
+        }
+
+        long updated = 0L;
+        final long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_FRAMES; i++) {
+            mover.move(i);
+            updated += sceneGraph.update();
+        }
+        final long time = System.nanoTime() - start;
+
+        System.out.printf("  %-12s %.4f ms/frame, %d matrices per frame%n", name, time / 1.0e6 / MEASURED_FRAMES,
+                updated / MEASURED_FRAMES);
+    }
+
+    private static void measureAll(final String name, final SceneGraph sceneGraph, final AbstractEntity root,
+                                   final AbstractEntity leaf) {
+        System.out.printf("%s (%d nodes)%n", name, sceneGraph.getNodeCount());
+        measure("root moving", sceneGraph, new Mover() {
+            @Override
+            public void move(int frame) {
+                root.rotate(0.0f, 0.001f, 0.0f);
+            }
+        });
+        measure("leaf moving", sceneGraph, new Mover() {
+            @Override
+            public void move(int frame) {
+                leaf.translate(0.0f, 0.001f, 0.0f);
+            }
+        });
+        measure("static", sceneGraph, new Mover() {
+            @Override
+            public void move(int frame) {
+
+            }
+        });
+    }
+
+    public static void main(String[] args) {
+        final int nodeCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_NODE_COUNT;
+
+        //  Deep: chains hanging off a common root.
+        final SceneGraph deep = new SceneGraph();
+        final AbstractEntity deepRoot = new AbstractEntity();
+        deep.addEntity(deepRoot);
+        AbstractEntity deepLeaf = deepRoot;
+        for (int i = 0; i < nodeCount / CHAIN_LENGTH; i++) {
+            AbstractEntity parent = deepRoot;
+            for (int j = 0; j < CHAIN_LENGTH; j++) {
+                final AbstractEntity child = new AbstractEntity();
+                child.translate(0.0f, 1.0f, 0.0f);
+                deep.attach(child, parent);
+                parent = child;
+            }
+            deepLeaf = parent;
+        }
+        deep.update();
+        measureAll("Deep", deep, deepRoot, deepLeaf);
+
+        //  Wide: a single level of children.
+        final SceneGraph wide = new SceneGraph();
+        final AbstractEntity wideRoot = new AbstractEntity();
+        AbstractEntity wideLeaf = wideRoot;
+        for (int i = 0; i < nodeCount; i++) {
+            wideLeaf = new AbstractEntity();
+            wideLeaf.translate(i, 0.0f, 0.0f);
+            wide.attach(wideLeaf, wideRoot);
+        }
+        wide.update();
+        measureAll("Wide", wide, wideRoot, wideLeaf);
+
+        final Matrix4f world = deep.getWorldTransformation(deepLeaf, new Matrix4f());
+        System.out.printf("Deepest leaf at height %.1f%n", world.m31);
+    }
+}
@@ -0,0 +1,183 @@
+package pl.pateman.benchmark;
+
+import org.joml.Vector3f;
+import pl.pateman.core.culling.Frustum;
+import pl.pateman.core.entity.CameraEntity;
+import pl.pateman.core.spatial.DynamicAABBTree;
+import pl.pateman.core.spatial.RaycastCallback;
+import pl.pateman.core.spatial.SpatialQueryCallback;
+
+import java.util.Random;
+
+/**
+ * Headless benchmark of the dynamic AABB tree. Moves many boxes around every frame, applies the movement as a batch
+ * and runs frustum, sphere, box and ray queries, comparing the results of the box queries against a brute-force
+ * scan.
+ *
+ * Created by pateman.
+ */
+public final class SpatialIndexBenchmark {
+    private static final int DEFAULT_ENTITY_COUNT = 50000;
+    private static final int WARMUP_FRAMES = 50;
+    private static final int MEASURED_FRAMES = 200;
+    private static final int QUERIES_PER_FRAME = 100;
+    private static final float WORLD_SIZE = 1000.0f;
+    private static final float SPEED = 0.05f;
+    private static final float QUERY_RADIUS = 20.0f;
+
+    private SpatialIndexBenchmark() {
+
+    }
+
+    private static final class Counter implements SpatialQueryCallback<Integer>, RaycastCallback<Integer> {
+        private long count;
+
+        @Override
+        public boolean onProxy(int proxy, Integer userData) {
+            this.count++;
+            return true;
+        }
+
+        @Override
+        public float onRayHit(int proxy, Integer userData, float distance) {
+            this.count++;
+            return Float.MAX_VALUE;
+        }
+    }
+
+    public static void main(String[] args) {
+        final int entityCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ENTITY_COUNT;
+
+        final Random random = new Random(1234L);
+        final float[] positions = new float[entityCount * 3];
+        final float[] velocities = new float[entityCount * 3];
+        final float[] halfSizes = new float[entityCount];
+        final int[] proxies = new int[entityCount];
+        final DynamicAABBTree<Integer> tree = new DynamicAABBTree<>(0.5f);
+        final Vector3f min = new Vector3f();
+        final Vector3f max = new Vector3f();
+        for (int i = 0; i < entityCount; i++) {
+            for (int j = 0; j < 3; j++) {
+                positions[i * 3 + j] = (random.nextFloat() - 0.5f) * WORLD_SIZE;
+                velocities[i * 3 + j] = (random.nextFloat() - 0.5f) * SPEED;
+            }
+            halfSizes[i] = 0.5f + random.nextFloat() * 2.0f;
+            min.set(positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2]).sub(halfSizes[i], halfSizes[i],
+                    halfSizes[i]);
+            max.set(min).add(halfSizes[i] * 2.0f, halfSizes[i] * 2.0f, halfSizes[i] * 2.0f);
+            proxies[i] = tree.createProxy(min, max, i);
+        }
+
+        final CameraEntity camera = new CameraEntity();
+        camera.getCameraProjection().setViewport(1024, 768);
+        camera.getCameraProjection().setFarPlane(300.0f);
+        camera.updateProjectionMatrix();
+        final Frustum frustum = new Frustum();
+
+        final Vector3f[] queryPoints = new Vector3f[QUERIES_PER_FRAME];
+        final Vector3f[] rayDirections = new Vector3f[QUERIES_PER_FRAME];
+        for (int i = 0; i < QUERIES_PER_FRAME; i++) {
+            queryPoints[i] = new Vector3f(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+                    random.nextFloat() - 0.5f).mul(WORLD_SIZE);
+            rayDirections[i] = new Vector3f(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+                    random.nextFloat() - 0.5f).normalize();
+        }
+
+        final Counter frustumHits = new Counter();
+        final Counter sphereHits = new Counter();
+        final Counter boxHits = new Counter();
+        final Counter rayHits = new Counter();
+        long updateTime = 0L, frustumTime = 0L, sphereTime = 0L, boxTime = 0L, rayTime = 0L;
+        long reinserted = 0L;
+        long bruteBoxHits = 0L;
+        long bruteTime = 0L;
+
+        for (int frame = 0; frame < WARMUP_FRAMES + MEASURED_FRAMES; frame++) {
+            final boolean measured = frame >= WARMUP_FRAMES;
+            if (frame == WARMUP_FRAMES) {
+                frustumHits.count = sphereHits.count = boxHits.count = rayHits.count = 0L;
+            }
+
+            //  Move everything, as a batch.
+            long start = System.nanoTime();
+            for (int i = 0; i < entityCount; i++) {
+                positions[i * 3] += velocities[i * 3];
+                positions[i * 3 + 1] += velocities[i * 3 + 1];
+                positions[i * 3 + 2] += velocities[i * 3 + 2];
+                final float h = halfSizes[i];
+                min.set(positions[i * 3] - h, positions[i * 3 + 1] - h, positions[i * 3 + 2] - h);
+                max.set(positions[i * 3] + h, positions[i * 3 + 1] + h, positions[i * 3 + 2] + h);
+                tree.updateProxy(proxies[i], min, max);
+            }
+            final int moved = tree.commitUpdates();
+            if (measured) {
+                updateTime += System.nanoTime() - start;
+                reinserted += moved;
+            }
+
+            camera.rotate(0.0f, 0.01f, 0.0f);
+            frustum.update(camera);
+            start = System.nanoTime();
+            tree.queryFrustum(frustum, frustumHits);
+            if (measured) {
+                frustumTime += System.nanoTime() - start;
+            }
+
+            start = System.nanoTime();
+            for (final Vector3f point : queryPoints) {
+                tree.querySphere(point, QUERY_RADIUS, sphereHits);
+            }
+            if (measured) {
+                sphereTime += System.nanoTime() - start;
+            }
+
+            start = System.nanoTime();
+            for (final Vector3f point : queryPoints) {
+                min.set(point).sub(QUERY_RADIUS, QUERY_RADIUS, QUERY_RADIUS);
+                max.set(point).add(QUERY_RADIUS, QUERY_RADIUS, QUERY_RADIUS);
+                tree.queryAABB(min, max, boxHits);
+            }
+            if (measured) {
+                boxTime += System.nanoTime() - start;
+            }
+
+            start = System.nanoTime();
+            for (int i = 0; i < QUERIES_PER_FRAME; i++) {
+                tree.raycast(queryPoints[i], rayDirections[i], 200.0f, rayHits);
+            }
+            if (measured) {
+                rayTime += System.nanoTime() - start;
+            }
+
+            //  The same box queries, by brute force, against the exact boxes. The tree tests fat boxes, so it reports
+            //  a few more hits.
+            if (measured) {
+                start = System.nanoTime();
+                for (final Vector3f point : queryPoints) {
+                    for (int i = 0; i < entityCount; i++) {
+                        final float reach = QUERY_RADIUS + halfSizes[i];
+                        if (Math.abs(positions[i * 3] - point.x) <= reach &&
+                                Math.abs(positions[i * 3 + 1] - point.y) <= reach &&
+                                Math.abs(positions[i * 3 + 2] - point.z) <= reach) {
+                            bruteBoxHits++;
+                        }
+                    }
+                }
+                bruteTime += System.nanoTime() - start;
+            }
+        }
+
+        final double toMs = 1.0e-6 / MEASURED_FRAMES;
+        System.out.printf("Entities: %d, frames: %d, tree height: %d%n", entityCount, MEASURED_FRAMES,
+                tree.getHeight());
+        System.out.printf("Batched update: %.3f ms/frame, %d re-inserted per frame%n", updateTime * toMs,
+                reinserted / MEASURED_FRAMES);
+        System.out.printf("Frustum query: %.3f ms/frame%n", frustumTime * toMs);
+        System.out.printf("%d sphere queries: %.3f ms/frame%n", QUERIES_PER_FRAME, sphereTime * toMs);
+        System.out.printf("%d box queries: %.3f ms/frame (brute force: %.3f ms/frame)%n", QUERIES_PER_FRAME,
+                boxTime * toMs, bruteTime * toMs);
+        System.out.printf("%d ray casts: %.3f ms/frame%n", QUERIES_PER_FRAME, rayTime * toMs);
+        System.out.printf("Hits: frustum %d, sphere %d, box %d (brute force: %d, over measured frames), ray %d%n",
+                frustumHits.count, sphereHits.count, boxHits.count, bruteBoxHits, rayHits.count);
+    }
+}
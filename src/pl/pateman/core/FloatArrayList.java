@@ -0,0 +1,82 @@
+package pl.pateman.core;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of primitive floats, which avoids boxing when the number of values is not known in advance.
+ *
+ * Created by pateman.
+ */
+public final class FloatArrayList {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private float[] values;
+    private int size;
+
+    public FloatArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public FloatArrayList(int initialCapacity) {
+        this.values = new float[Math.max(initialCapacity, 1)];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(capacity, this.values.length * 2));
+        }
+    }
+
+    public void add(float value) {
+        this.ensureCapacity(this.size + 1);
+        this.values[this.size++] = value;
+    }
+
+    public void add(float x, float y) {
+        this.ensureCapacity(this.size + 2);
+        this.values[this.size++] = x;
+        this.values[this.size++] = y;
+    }
+
+    public void add(float x, float y, float z) {
+        this.ensureCapacity(this.size + 3);
+        this.values[this.size++] = x;
+        this.values[this.size++] = y;
+        this.values[this.size++] = z;
+    }
+
+    public float get(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Invalid index " + index);
+        }
+        return this.values[index];
+    }
+
+    public void set(int index, float value) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Invalid index " + index);
+        }
+        this.values[index] = value;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * Returns the backing array. Only the first {@code size()} values are valid.
+     *
+     * @return Backing array.
+     */
+    public float[] getArray() {
+        return values;
+    }
+
+    public float[] toArray() {
+        return Arrays.copyOf(this.values, this.size);
+    }
+}
@@ -0,0 +1,69 @@
+package pl.pateman.core;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of primitive ints, which avoids boxing when the number of values is not known in advance.
+ *
+ * Created by pateman.
+ */
+public final class IntArrayList {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] values;
+    private int size;
+
+    public IntArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntArrayList(int initialCapacity) {
+        this.values = new int[Math.max(initialCapacity, 1)];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(capacity, this.values.length * 2));
+        }
+    }
+
+    public void add(int value) {
+        this.ensureCapacity(this.size + 1);
+        this.values[this.size++] = value;
+    }
+
+    public int get(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Invalid index " + index);
+        }
+        return this.values[index];
+    }
+
+    public void set(int index, int value) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Invalid index " + index);
+        }
+        this.values[index] = value;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * Returns the backing array. Only the first {@code size()} values are valid.
+     *
+     * @return Backing array.
+     */
+    public int[] getArray() {
+        return values;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(this.values, this.size);
+    }
+}
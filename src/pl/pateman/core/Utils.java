@@ -5,9 +5,15 @@ import org.joml.*;
 import org.lwjgl.BufferUtils;
 
 import javax.vecmath.Quat4f;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -66,6 +72,90 @@ public final class Utils {
         return is;
     }
 
+    public static byte[] readAllBytes(final InputStream is) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(is.available(), 8192));
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Maps a file into memory. The mapping stays valid after the file is closed.
+     *
+     * @param path Path to the file.
+     * @return Read-only mapping of the whole file.
+     * @throws IOException If the file can't be mapped.
+     */
+    public static ByteBuffer mapFile(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Maps a resource into memory. Resources which aren't plain files (e.g. ones packed in a JAR) are read into a
+     * direct buffer instead.
+     *
+     * @param resourceName Path to the resource.
+     * @return Content of the resource.
+     * @throws IOException If the resource can't be read.
+     */
+    public static ByteBuffer mapResource(final String resourceName) throws IOException {
+        final URL url = Utils.class.getClassLoader().getResource(resourceName);
+        if (url == null) {
+            throw new IOException("Unable to locate resource");
+        }
+
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return mapFile(Paths.get(url.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+
+        try (InputStream is = url.openStream()) {
+            final byte[] bytes = readAllBytes(is);
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Writes a file by writing a temporary file next to it first and moving it over the target, so that readers never
+     * see a partially written file. Concurrent writers of the same file don't interfere with each other - the last
+     * one wins.
+     *
+     * @param path Path to the file.
+     * @param data Content of the file. Its remaining bytes are written.
+     * @throws IOException If the file can't be written.
+     */
+    public static void writeAtomically(final Path path, final ByteBuffer data) throws IOException {
+        final Path temporaryFile = path.resolveSibling(path.getFileName() + "." + Thread.currentThread().getId() +
+                "." + Long.toHexString(System.nanoTime()) + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                channel.force(true);
+            }
+
+            try {
+                Files.move(temporaryFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
     public static FloatBuffer vertices2fToBuffer(final List<Vector2f> vertices) {
         if (vertices == null || vertices.isEmpty()) {
             throw new IllegalArgumentException();
@@ -182,14 +272,8 @@ public final class Utils {
 
     public static void fromRotationTranslationScale(final Matrix4f out, final Quaternionf rotation,
                                                     final Vector3f translation, final Vector3f scale) {
-        final TempVars tempVars = TempVars.get();
-
-        final Matrix4f S = tempVars.tempMat4x41.scaling(scale);
-        final Matrix4f R = tempVars.tempMat4x42.rotation(rotation);
-        final Matrix4f T = tempVars.tempMat4x43.translation(translation);
-
-        out.set(T.mul(R).mul(S));
-        tempVars.release();
+        //  Equivalent to T * R * S, but without the matrix products.
+        out.translationRotateScale(translation, rotation, scale);
     }
 
     public static void matrixToTransform(final Transform out, final Matrix4f transformMatrix) {
@@ -0,0 +1,81 @@
+package pl.pateman.core.asset;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Reference to an asset requested from {@code AssetManager}. Every handle holds the asset until it's released.
+ *
+ * Created by pateman.
+ */
+public final class AssetHandle<A> {
+    private final AssetManager assetManager;
+    private final AssetManager.Entry<?, A> entry;
+    private final String path;
+    private final Future<A> future;
+    private boolean released;
+
+    AssetHandle(final AssetManager assetManager, final AssetManager.Entry<?, A> entry, final String path,
+                final Future<A> future) {
+        this.assetManager = assetManager;
+        this.entry = entry;
+        this.path = path;
+        this.future = future;
+    }
+
+    /**
+     * Returns the asset, if it has been loaded.
+     *
+     * @return Asset, or {@code null} if it's still being loaded.
+     * @throws IllegalStateException If the handle has been released, or the asset couldn't be loaded.
+     */
+    public synchronized A getAsset() {
+        if (this.released) {
+            throw new IllegalStateException("The handle of '" + this.path + "' has been released");
+        }
+        if (!this.future.isDone()) {
+            return null;
+        }
+
+        try {
+            return this.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to load '" + this.path + "'", e.getCause());
+        }
+    }
+
+    /**
+     * Releases the asset. Releasing a handle more than once has no effect.
+     */
+    public synchronized void release() {
+        if (this.released) {
+            return;
+        }
+        this.released = true;
+        this.assetManager.release(this.entry);
+    }
+
+    public boolean isDone() {
+        return this.future.isDone();
+    }
+
+    public synchronized boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * Returns the future of the asset. Don't block on it on the context thread, as the asset is created there.
+     *
+     * @return Future of the asset.
+     */
+    public Future<A> getFuture() {
+        return future;
+    }
+
+    public String getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,46 @@
+package pl.pateman.core.asset;
+
+/**
+ * Loads assets of a particular type for {@code AssetManager}. Loading is split into two stages - reading and decoding
+ * the data, which runs on a worker thread and must not touch GL, and creating the asset out of the data, which runs
+ * on the thread that owns the GL context.
+ *
+ * Created by pateman.
+ *
+ * @param <D> Type of the decoded data.
+ * @param <A> Type of the asset.
+ */
+public interface AssetLoader<D, A> {
+    /**
+     * Reads and decodes the data of an asset. Called on a worker thread.
+     *
+     * @param resourcePath Path to the resource.
+     * @return Decoded data.
+     * @throws Exception If the resource can't be read or decoded.
+     */
+    D loadData(final String resourcePath) throws Exception;
+
+    /**
+     * Creates the asset out of the decoded data, e.g. uploads it to the GPU. Called on the context thread.
+     *
+     * @param data Decoded data.
+     * @return Asset.
+     */
+    A createAsset(final D data);
+
+    /**
+     * Estimates the memory that the asset takes, in bytes. Used to keep the assets within the memory budget.
+     *
+     * @param data Decoded data.
+     * @param asset Asset created out of the data.
+     * @return Estimated size in bytes.
+     */
+    long getSize(final D data, final A asset);
+
+    /**
+     * Releases the resources of an evicted asset. Called on the context thread.
+     *
+     * @param asset Asset.
+     */
+    void destroyAsset(final A asset);
+}
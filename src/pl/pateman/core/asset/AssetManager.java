@@ -0,0 +1,335 @@
+package pl.pateman.core.asset;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Loads assets asynchronously and shares them between their users.
+ *
+ * Assets are identified by their resource paths. Requests for an asset which is already loaded, or being loaded,
+ * share the same instance. The data of assets is read on a pool of worker threads, while creating the assets out of
+ * the data (e.g. uploading textures) is queued for the thread which owns the GL context. That thread needs to call
+ * {@code processContextTasks} regularly, e.g. once a frame, and must never block on a future of an asset that hasn't
+ * been created yet.
+ *
+ * Every request returns a handle, which needs to be released once the asset is no longer needed. Assets without any
+ * handles stay loaded, so that they can be reused, until the memory taken by all assets exceeds the budget. Then the
+ * least recently used of them are evicted.
+ *
+ * Created by pateman.
+ */
+public final class AssetManager {
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final long memoryBudget;
+    private final Map<String, Entry<?, ?>> entries = new HashMap<>();
+    private final Queue<Runnable> contextTasks = new ConcurrentLinkedQueue<>();
+    private long usedMemory;
+    private long useCounter;
+    private boolean shutdown;
+
+    final class Entry<D, A> {
+        private final String path;
+        private final AssetLoader<D, A> loader;
+        private final CompletableFuture<A> future = new CompletableFuture<>();
+        private int referenceCount;
+        private long lastUse;
+        private long size;
+        private A asset;
+
+        private Entry(String path, AssetLoader<D, A> loader) {
+            this.path = path;
+            this.loader = loader;
+        }
+
+        private void load() {
+            final D data;
+            try {
+                data = this.loader.loadData(this.path);
+            } catch (Throwable e) {
+                failed(this, e);
+                return;
+            }
+
+            //  Once the manager has been shut down, nothing processes the context tasks anymore, so the asset would
+            //  never be created, or never be destroyed. The check and the queueing are atomic with respect to
+            //  shutdown, which drains the tasks queued before it.
+            synchronized (AssetManager.this) {
+                if (!shutdown) {
+                    contextTasks.add(new Runnable() {
+                        @Override
+                        public void run() {
+                            create(data);
+                        }
+                    });
+                    return;
+                }
+            }
+            this.future.cancel(false);
+        }
+
+        private void create(final D data) {
+            if (isShutdown()) {
+                this.future.cancel(false);
+                return;
+            }
+
+            final A createdAsset;
+            final long createdSize;
+            try {
+                createdAsset = this.loader.createAsset(data);
+                createdSize = Math.max(0L, this.loader.getSize(data, createdAsset));
+            } catch (Throwable e) {
+                failed(this, e);
+                return;
+            }
+            created(this, createdAsset, createdSize);
+        }
+
+        private void destroy() {
+            this.loader.destroyAsset(this.asset);
+        }
+    }
+
+    /**
+     * Creates a manager with its own pool of worker threads.
+     *
+     * @param threadCount Number of worker threads.
+     * @param memoryBudget Memory that unused assets can take before they're evicted, in bytes.
+     */
+    public AssetManager(int threadCount, long memoryBudget) {
+        this(createExecutor(threadCount), true, memoryBudget);
+    }
+
+    /**
+     * Creates a manager which loads assets with the given executor. The executor is not shut down by the manager.
+     *
+     * @param executor Executor.
+     * @param memoryBudget Memory that unused assets can take before they're evicted, in bytes.
+     */
+    public AssetManager(final ExecutorService executor, long memoryBudget) {
+        this(executor, false, memoryBudget);
+    }
+
+    private AssetManager(final ExecutorService executor, boolean ownsExecutor, long memoryBudget) {
+        if (executor == null) {
+            throw new IllegalArgumentException("A valid executor needs to be provided");
+        }
+        if (memoryBudget < 0L) {
+            throw new IllegalArgumentException("Memory budget cannot be negative");
+        }
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.memoryBudget = memoryBudget;
+    }
+
+    private static ExecutorService createExecutor(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("At least one thread is required");
+        }
+        return Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            private int threadNumber;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "AssetManager-" + this.threadNumber++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Requests an asset. If the asset isn't loaded, or being loaded, yet, it's loaded with the given loader.
+     *
+     * @param resourcePath Path to the resource.
+     * @param loader Loader of the asset.
+     * @param <A> Type of the asset.
+     * @return Handle of the asset, which needs to be released once the asset is no longer needed.
+     */
+    public synchronized <A> AssetHandle<A> acquire(final String resourcePath, final AssetLoader<?, A> loader) {
+        if (resourcePath == null || loader == null) {
+            throw new IllegalArgumentException("A valid resource path and loader need to be provided");
+        }
+        if (this.shutdown) {
+            throw new IllegalStateException("The asset manager has been shut down");
+        }
+
+        @SuppressWarnings("unchecked")
+        Entry<?, A> entry = (Entry<?, A>) this.entries.get(resourcePath);
+        if (entry == null) {
+            entry = this.createEntry(resourcePath, loader);
+            this.entries.put(resourcePath, entry);
+
+            final Entry<?, A> loadedEntry = entry;
+            this.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    loadedEntry.load();
+                }
+            });
+        } else if (entry.loader.getClass() != loader.getClass()) {
+            throw new IllegalArgumentException("Resource '" + resourcePath + "' is already loaded as " +
+                    entry.loader.getClass().getSimpleName());
+        }
+
+        entry.referenceCount++;
+        entry.lastUse = ++this.useCounter;
+        return new AssetHandle<>(this, entry, resourcePath, entry.future);
+    }
+
+    private <D, A> Entry<D, A> createEntry(final String resourcePath, final AssetLoader<D, A> loader) {
+        return new Entry<>(resourcePath, loader);
+    }
+
+    /**
+     * Releases a reference to the given entry. The entry is the one that the handle has been created for, rather than
+     * the one currently registered for its path, which might have been evicted and loaded again since then.
+     *
+     * @param entry Entry.
+     */
+    synchronized void release(final Entry<?, ?> entry) {
+        if (entry.referenceCount == 0) {
+            return;
+        }
+
+        entry.referenceCount--;
+        entry.lastUse = ++this.useCounter;
+        this.evict();
+    }
+
+    private void failed(final Entry<?, ?> entry, final Throwable cause) {
+        //  Forget the entry, so that the asset can be requested again.
+        synchronized (this) {
+            if (this.entries.get(entry.path) == entry) {
+                this.entries.remove(entry.path);
+            }
+        }
+        entry.future.completeExceptionally(cause);
+    }
+
+    private <A> void created(final Entry<?, A> entry, final A asset, long size) {
+        synchronized (this) {
+            entry.asset = asset;
+            entry.size = size;
+            this.usedMemory += size;
+            this.evict();
+        }
+        entry.future.complete(asset);
+    }
+
+    private void evict() {
+        while (this.usedMemory > this.memoryBudget) {
+            //  Find the least recently used asset without any handles.
+            Entry<?, ?> evicted = null;
+            for (final Entry<?, ?> entry : this.entries.values()) {
+                if (entry.referenceCount == 0 && entry.future.isDone() && entry.asset != null &&
+                        (evicted == null || entry.lastUse < evicted.lastUse)) {
+                    evicted = entry;
+                }
+            }
+            if (evicted == null) {
+                return;
+            }
+
+            this.entries.remove(evicted.path);
+            this.usedMemory -= evicted.size;
+            final Entry<?, ?> destroyed = evicted;
+            this.contextTasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    destroyed.destroy();
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs the tasks queued for the context thread - creation of loaded assets and destruction of evicted ones.
+     *
+     * @return Number of tasks run.
+     */
+    public int processContextTasks() {
+        return this.processContextTasks(Long.MAX_VALUE);
+    }
+
+    /**
+     * Runs the tasks queued for the context thread, until the time limit is exceeded. The remaining tasks are left for
+     * the next call.
+     *
+     * @param maxNanos Time limit, in nanoseconds.
+     * @return Number of tasks run.
+     */
+    public int processContextTasks(long maxNanos) {
+        final long start = System.nanoTime();
+        int taskCount = 0;
+        Runnable task;
+        while (System.nanoTime() - start < maxNanos && (task = this.contextTasks.poll()) != null) {
+            task.run();
+            taskCount++;
+        }
+        return taskCount;
+    }
+
+    /**
+     * Stops loading assets and destroys all loaded ones. Needs to be called on the context thread. Assets whose data
+     * is still being read when the manager is shut down are never created, and their futures are cancelled.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            this.shutdown = true;
+        }
+        if (this.ownsExecutor) {
+            this.executor.shutdownNow();
+        }
+
+        //  Finish the pending work first, so that no asset is left behind. Evicted assets get destroyed, while the
+        //  ones waiting to be created are rejected.
+        this.processContextTasks();
+
+        final List<Entry<?, ?>> destroyed;
+        synchronized (this) {
+            destroyed = new ArrayList<>(this.entries.values());
+            this.entries.clear();
+            this.usedMemory = 0L;
+        }
+        for (final Entry<?, ?> entry : destroyed) {
+            if (entry.asset != null) {
+                entry.destroy();
+            } else {
+                entry.future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the asset is loaded, or being loaded.
+     *
+     * @param resourcePath Path to the resource.
+     * @return {@code true} if there's an entry for the asset.
+     */
+    public synchronized boolean contains(final String resourcePath) {
+        return this.entries.containsKey(resourcePath);
+    }
+
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    public synchronized int getReferenceCount(final String resourcePath) {
+        final Entry<?, ?> entry = this.entries.get(resourcePath);
+        return entry == null ? 0 : entry.referenceCount;
+    }
+
+    public synchronized int getAssetCount() {
+        return this.entries.size();
+    }
+
+    public synchronized long getUsedMemory() {
+        return usedMemory;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+}
@@ -0,0 +1,96 @@
+package pl.pateman.core.asset;
+
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import pl.pateman.core.mesh.Animation;
+import pl.pateman.core.mesh.AnimationClipCache;
+import pl.pateman.core.mesh.AnimationClipSource;
+import pl.pateman.core.mesh.AnimationTrack;
+import pl.pateman.core.mesh.Mesh;
+import pl.pateman.core.mesh.PackedKeyframes;
+import pl.pateman.importer.ImportedScene;
+import pl.pateman.importer.binary.BinaryMeshFormat;
+import pl.pateman.importer.binary.BinaryMeshImporter;
+import pl.pateman.importer.gltf.GLTFImporter;
+import pl.pateman.importer.json.JSONStreamingImporter;
+import pl.pateman.importer.ogrexml.OgreXMLStreamingImporter;
+
+import java.io.IOException;
+
+/**
+ * Loads meshes, choosing the importer by the extension of the resource - binary containers ({@code .mesh.bin}),
+ * OgreXML meshes ({@code .mesh.xml}), glTF assets ({@code .glb} or {@code .gltf}) or JSON files ({@code .json}).
+ * Importing doesn't touch GL, so it's done entirely on a worker thread. GPU buffers are created later, by the
+ * entities which render the mesh. Destroying a mesh drops its streamed animations from {@code AnimationClipCache}.
+ *
+ * Keep in mind that the bones of a skeleton hold the pose of the mesh, so entities which share a mesh share its pose
+ * as well.
+ *
+ * Created by pateman.
+ */
+public final class MeshAssetLoader implements AssetLoader<ImportedScene, ImportedScene> {
+    public static final String BINARY_EXTENSION = ".mesh.bin";
+    public static final String OGRE_XML_EXTENSION = ".mesh.xml";
+    public static final String JSON_EXTENSION = ".json";
+    public static final String GLB_EXTENSION = ".glb";
+    public static final String GLTF_EXTENSION = ".gltf";
+
+    //  Rough sizes of a vertex (position, normal, texcoord, skinning info), a bone and a keyframe which isn't packed
+    //  (time, boxed translation and rotation).
+    private static final int VERTEX_SIZE = 56;
+    private static final int BONE_SIZE = BinaryMeshFormat.BIND_MATRICES_STRIDE;
+    private static final int KEYFRAME_SIZE = 48;
+
+    @Override
+    public ImportedScene loadData(String resourcePath) throws Exception {
+        final String lowerCasePath = resourcePath.toLowerCase();
+        if (lowerCasePath.endsWith(BINARY_EXTENSION)) {
+            return new BinaryMeshImporter().loadScene(resourcePath);
+        }
+        if (lowerCasePath.endsWith(OGRE_XML_EXTENSION)) {
+            return new ImportedScene(new OgreXMLStreamingImporter().loadMesh(resourcePath), new Vector3f(),
+                    new Quaternionf(), new Vector3f(1.0f));
+        }
+        if (lowerCasePath.endsWith(GLB_EXTENSION) || lowerCasePath.endsWith(GLTF_EXTENSION)) {
+            return new GLTFImporter().loadScene(resourcePath);
+        }
+        if (lowerCasePath.endsWith(JSON_EXTENSION)) {
+            final ImportedScene scene = new JSONStreamingImporter().loadScene(resourcePath);
+            if (scene == null) {
+                throw new IOException("'" + resourcePath + "' doesn't contain any mesh");
+            }
+            return scene;
+        }
+        throw new IllegalArgumentException("Unsupported mesh format '" + resourcePath + "'");
+    }
+
+    @Override
+    public ImportedScene createAsset(ImportedScene data) {
+        return data;
+    }
+
+    @Override
+    public long getSize(ImportedScene data, ImportedScene asset) {
+        final Mesh mesh = data.getMesh();
+        long size = (long) mesh.getVertices().size() * VERTEX_SIZE + (long) mesh.getTriangles().size() * 4L +
+                (long) mesh.getSkeleton().getBones().size() * BONE_SIZE;
+        for (final Animation animation : mesh.getAnimations()) {
+            for (final AnimationTrack track : animation.getTracks()) {
+                //  getKeyframes would decode packed keyframes for good, so only their count is used.
+                size += track.getPackedKeyframes() != null ? PackedKeyframes.getByteSize(track.getKeyframeCount()) :
+                        (long) track.getKeyframeCount() * KEYFRAME_SIZE;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void destroyAsset(ImportedScene asset) {
+        //  Meshes don't hold any GL resources, but the shared clip cache holds the streamed clips of the mesh, keyed
+        //  by its clip source, which in turn holds the mapped container.
+        final AnimationClipSource clipSource = asset.getMesh().getClipSource();
+        if (clipSource != null) {
+            AnimationClipCache.getDefault().evictSource(clipSource);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package pl.pateman.core.asset;
+
+import pl.pateman.core.texture.Texture;
+import pl.pateman.core.texture.TextureInformation;
+import pl.pateman.core.texture.TextureLoader;
+
+/**
+ * Loads textures. Images are decoded on a worker thread and uploaded on the context thread.
+ *
+ * Created by pateman.
+ */
+public final class TextureAssetLoader implements AssetLoader<TextureInformation, Texture> {
+    private final TextureLoader textureLoader = new TextureLoader();
+    private final int textureUnit;
+
+    public TextureAssetLoader() {
+        this(0);
+    }
+
+    public TextureAssetLoader(int textureUnit) {
+        if (textureUnit < 0) {
+            throw new IllegalArgumentException("Texture unit cannot be negative");
+        }
+        this.textureUnit = textureUnit;
+    }
+
+    @Override
+    public TextureInformation loadData(String resourcePath) throws Exception {
+        return this.textureLoader.decode(resourcePath);
+    }
+
+    @Override
+    public Texture createAsset(TextureInformation data) {
+        return this.textureLoader.load(data, this.textureUnit);
+    }
+
+    @Override
+    public long getSize(TextureInformation data, Texture asset) {
+        return data.getTextureSize();
+    }
+
+    @Override
+    public void destroyAsset(Texture asset) {
+        asset.clearAndDestroy();
+    }
+}
@@ -0,0 +1,69 @@
+package pl.pateman.core.culling;
+
+/**
+ * Counters of culling passes. The "last" counters describe the most recent pass, while the totals accumulate until
+ * {@code reset()} is called.
+ *
+ * Created by pateman.
+ */
+public final class CullingStatistics {
+    private int lastTested;
+    private int lastVisible;
+    private long totalTested;
+    private long totalVisible;
+    private long passes;
+
+    void record(int tested, int visible) {
+        this.lastTested = tested;
+        this.lastVisible = visible;
+        this.totalTested += tested;
+        this.totalVisible += visible;
+        this.passes++;
+    }
+
+    public void reset() {
+        this.lastTested = 0;
+        this.lastVisible = 0;
+        this.totalTested = 0L;
+        this.totalVisible = 0L;
+        this.passes = 0L;
+    }
+
+    public int getTested() {
+        return lastTested;
+    }
+
+    public int getVisible() {
+        return lastVisible;
+    }
+
+    public int getCulled() {
+        return this.lastTested - this.lastVisible;
+    }
+
+    public long getTotalTested() {
+        return totalTested;
+    }
+
+    public long getTotalVisible() {
+        return totalVisible;
+    }
+
+    public long getTotalCulled() {
+        return this.totalTested - this.totalVisible;
+    }
+
+    public long getPasses() {
+        return passes;
+    }
+
+    @Override
+    public String toString() {
+        return "CullingStatistics{" +
+                "tested=" + lastTested +
+                ", visible=" + lastVisible +
+                ", culled=" + this.getCulled() +
+                ", passes=" + passes +
+                '}';
+    }
+}
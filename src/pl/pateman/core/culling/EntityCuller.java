@@ -0,0 +1,154 @@
+package pl.pateman.core.culling;
+
+import pl.pateman.core.TempVars;
+import pl.pateman.core.entity.CameraEntity;
+import pl.pateman.core.entity.MeshEntity;
+
+import java.util.*;
+
+/**
+ * Culls mesh entities against the camera's frustum, using their animated world bounds. Optionally, animations of
+ * entities that weren't visible during the last pass are not stepped. The time that they missed is accumulated and
+ * applied once they become visible again, so that they don't fall behind.
+ *
+ * {@code stepAnimations} should be called before {@code cull} in every frame. That way, entities are culled with the
+ * bounds of the pose that they're drawn in, and an entity that has just come into view is drawn in the pose that it
+ * was frozen in, and catches up during the next frame.
+ *
+ * Created by pateman.
+ */
+public final class EntityCuller {
+    private final Frustum frustum;
+    private final FrustumCuller culler;
+    private final List<MeshEntity> entities;
+    private final Map<MeshEntity, Integer> entityIndices;
+    private float[] skippedTime;
+    private boolean skipInvisibleAnimations;
+
+    public EntityCuller() {
+        this.frustum = new Frustum();
+        this.culler = new FrustumCuller();
+        this.entities = new ArrayList<>();
+        this.entityIndices = new IdentityHashMap<>();
+        this.skippedTime = new float[16];
+    }
+
+    public void addEntity(final MeshEntity entity) {
+        if (entity == null) {
+            throw new IllegalArgumentException("A valid entity needs to be provided");
+        }
+        if (this.entityIndices.containsKey(entity)) {
+            return;
+        }
+
+        final TempVars vars = TempVars.get();
+        this.entityIndices.put(entity, this.culler.add(vars.vect3d1.zero(), vars.vect3d2.zero()));
+        vars.release();
+
+        this.entities.add(entity);
+        if (this.skippedTime.length < this.entities.size()) {
+            this.skippedTime = Arrays.copyOf(this.skippedTime, this.skippedTime.length * 2);
+        }
+        this.skippedTime[this.entities.size() - 1] = 0.0f;
+    }
+
+    public void removeEntity(final MeshEntity entity) {
+        final Integer index = this.entityIndices.remove(entity);
+        if (index == null) {
+            return;
+        }
+
+        //  Mirror the culler's swap-remove.
+        final int movedFrom = this.culler.remove(index);
+        final int last = this.entities.size() - 1;
+        if (movedFrom != -1) {
+            final MeshEntity moved = this.entities.get(last);
+            this.entities.set(index, moved);
+            this.skippedTime[index] = this.skippedTime[last];
+            this.entityIndices.put(moved, index);
+        }
+        this.entities.remove(last);
+    }
+
+    public void clear() {
+        this.entities.clear();
+        this.entityIndices.clear();
+        this.culler.clear();
+    }
+
+    /**
+     * Refreshes the bounds of all entities and culls them against the camera's frustum.
+     *
+     * @param camera Camera.
+     * @return Number of visible entities.
+     */
+    public int cull(final CameraEntity camera) {
+        this.frustum.update(camera);
+
+        final TempVars vars = TempVars.get();
+        for (int i = 0; i < this.entities.size(); i++) {
+            if (this.entities.get(i).getWorldBounds(vars.vect3d1, vars.vect3d2)) {
+                this.culler.set(i, vars.vect3d1, vars.vect3d2);
+            } else {
+                //  Entities without vertices get an empty box, which is never visible.
+                this.culler.set(i, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+                        Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+            }
+        }
+        vars.release();
+
+        return this.culler.cull(this.frustum);
+    }
+
+    /**
+     * Steps animations of the entities. If {@code skipInvisibleAnimations} is enabled, only the entities that were
+     * visible during the last culling pass are animated.
+     *
+     * @param deltaTime Time step.
+     */
+    public void stepAnimations(float deltaTime) {
+        for (int i = 0; i < this.entities.size(); i++) {
+            if (this.skipInvisibleAnimations && !this.culler.isVisible(i)) {
+                this.skippedTime[i] += deltaTime;
+                continue;
+            }
+
+            this.entities.get(i).getAnimationController().stepAnimation(deltaTime + this.skippedTime[i]);
+            this.skippedTime[i] = 0.0f;
+        }
+    }
+
+    public boolean isVisible(final MeshEntity entity) {
+        final Integer index = this.entityIndices.get(entity);
+        if (index == null) {
+            throw new IllegalArgumentException("The entity is not managed by this culler");
+        }
+        return this.culler.isVisible(index);
+    }
+
+    public List<MeshEntity> getVisibleEntities(final List<MeshEntity> out) {
+        out.clear();
+        for (int i = 0; i < this.entities.size(); i++) {
+            if (this.culler.isVisible(i)) {
+                out.add(this.entities.get(i));
+            }
+        }
+        return out;
+    }
+
+    public boolean isSkipInvisibleAnimations() {
+        return skipInvisibleAnimations;
+    }
+
+    public void setSkipInvisibleAnimations(boolean skipInvisibleAnimations) {
+        this.skipInvisibleAnimations = skipInvisibleAnimations;
+    }
+
+    public Frustum getFrustum() {
+        return frustum;
+    }
+
+    public CullingStatistics getStatistics() {
+        return this.culler.getStatistics();
+    }
+}
@@ -0,0 +1,153 @@
+package pl.pateman.core.culling;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import pl.pateman.core.TempVars;
+import pl.pateman.core.entity.CameraEntity;
+
+/**
+ * View frustum, stored as six normalized planes. The planes are extracted from the camera's projection and view
+ * matrices and are only recomputed when the camera's matrices change.
+ *
+ * Created by pateman.
+ */
+public final class Frustum {
+    public static final int PLANE_COUNT = 6;
+
+    private final float[] planes;
+    private CameraEntity camera;
+    private long cameraVersion;
+
+    public Frustum() {
+        this.planes = new float[PLANE_COUNT * 4];
+    }
+
+    /**
+     * Updates the planes using the given camera. Nothing is recomputed if the camera hasn't changed since the last
+     * call.
+     *
+     * @param camera Camera.
+     * @return {@code true} if the planes have been recomputed, {@code false} otherwise.
+     */
+    public boolean update(final CameraEntity camera) {
+        if (camera == null) {
+            throw new IllegalArgumentException("A valid camera needs to be provided");
+        }
+
+        if (this.camera == camera && this.cameraVersion == camera.getMatricesVersion()) {
+            return false;
+        }
+
+        final TempVars vars = TempVars.get();
+        this.set(camera.getProjectionMatrix().mul(camera.getViewMatrix(), vars.tempMat4x41));
+        vars.release();
+
+        this.camera = camera;
+        this.cameraVersion = camera.getMatricesVersion();
+        return true;
+    }
+
+    /**
+     * Extracts the planes from the given view-projection matrix.
+     *
+     * @param viewProjection View-projection matrix.
+     */
+    public void set(final Matrix4f viewProjection) {
+        final Matrix4f m = viewProjection;
+
+        //  Left, right, bottom, top, near, far.
+        this.setPlane(0, m.m03 + m.m00, m.m13 + m.m10, m.m23 + m.m20, m.m33 + m.m30);
+        this.setPlane(1, m.m03 - m.m00, m.m13 - m.m10, m.m23 - m.m20, m.m33 - m.m30);
+        this.setPlane(2, m.m03 + m.m01, m.m13 + m.m11, m.m23 + m.m21, m.m33 + m.m31);
+        this.setPlane(3, m.m03 - m.m01, m.m13 - m.m11, m.m23 - m.m21, m.m33 - m.m31);
+        this.setPlane(4, m.m03 + m.m02, m.m13 + m.m12, m.m23 + m.m22, m.m33 + m.m32);
+        this.setPlane(5, m.m03 - m.m02, m.m13 - m.m12, m.m23 - m.m22, m.m33 - m.m32);
+
+        //  Forget the camera, so that the next update() recomputes the planes.
+        this.camera = null;
+    }
+
+    private void setPlane(int plane, float a, float b, float c, float d) {
+        final float length = (float) Math.sqrt(a * a + b * b + c * c);
+        final float invLength = length > 0.0f ? 1.0f / length : 0.0f;
+
+        final int base = plane * 4;
+        this.planes[base] = a * invLength;
+        this.planes[base + 1] = b * invLength;
+        this.planes[base + 2] = c * invLength;
+        this.planes[base + 3] = d * invLength;
+    }
+
+    /**
+     * Tests an AABB against the frustum. The test is conservative, i.e. some boxes which lie outside of the frustum,
+     * close to its corners, are reported as intersecting.
+     *
+     * @param minX Minimum X.
+     * @param minY Minimum Y.
+     * @param minZ Minimum Z.
+     * @param maxX Maximum X.
+     * @param maxY Maximum Y.
+     * @param maxZ Maximum Z.
+     * @return {@code true} if the box is (possibly) visible, {@code false} otherwise.
+     */
+    public boolean intersectsAABB(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        final float[] p = this.planes;
+        for (int i = 0; i < PLANE_COUNT * 4; i += 4) {
+            //  Take the box's corner that lies the furthest along the plane's normal.
+            final float distance = p[i] * (p[i] > 0.0f ? maxX : minX) + p[i + 1] * (p[i + 1] > 0.0f ? maxY : minY) +
+                    p[i + 2] * (p[i + 2] > 0.0f ? maxZ : minZ) + p[i + 3];
+            if (!(distance >= 0.0f)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether an AABB lies entirely inside the frustum.
+     *
+     * @param minX Minimum X.
+     * @param minY Minimum Y.
+     * @param minZ Minimum Z.
+     * @param maxX Maximum X.
+     * @param maxY Maximum Y.
+     * @param maxZ Maximum Z.
+     * @return {@code true} if the whole box is inside, {@code false} otherwise.
+     */
+    public boolean containsAABB(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        final float[] p = this.planes;
+        for (int i = 0; i < PLANE_COUNT * 4; i += 4) {
+            //  This time, take the corner that lies the furthest against the plane's normal.
+            final float distance = p[i] * (p[i] > 0.0f ? minX : maxX) + p[i + 1] * (p[i + 1] > 0.0f ? minY : maxY) +
+                    p[i + 2] * (p[i + 2] > 0.0f ? minZ : maxZ) + p[i + 3];
+            if (!(distance >= 0.0f)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean intersectsAABB(final Vector3f min, final Vector3f max) {
+        return this.intersectsAABB(min.x, min.y, min.z, max.x, max.y, max.z);
+    }
+
+    public boolean intersectsSphere(final Vector3f center, float radius) {
+        final float[] p = this.planes;
+        for (int i = 0; i < PLANE_COUNT * 4; i += 4) {
+            if (p[i] * center.x + p[i + 1] * center.y + p[i + 2] * center.z + p[i + 3] < -radius) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the planes, as {@code (a, b, c, d)} quadruples, in the following order: left, right, bottom, top, near
+     * and far. Normals point inside the frustum.
+     *
+     * @return Planes.
+     */
+    public float[] getPlanes() {
+        return planes;
+    }
+}
@@ -0,0 +1,155 @@
+package pl.pateman.core.culling;
+
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+
+/**
+ * Tests many AABBs against a frustum at once. The boxes are kept in a flat array (six floats per box), so that
+ * a culling pass is a single linear sweep over memory.
+ *
+ * Created by pateman.
+ */
+public final class FrustumCuller {
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final int FLOATS_PER_BOX = 6;
+
+    private float[] boxes;
+    private boolean[] visibility;
+    private int size;
+    private final CullingStatistics statistics;
+
+    public FrustumCuller() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public FrustumCuller(int initialCapacity) {
+        final int capacity = Math.max(initialCapacity, 1);
+        this.boxes = new float[capacity * FLOATS_PER_BOX];
+        this.visibility = new boolean[capacity];
+        this.statistics = new CullingStatistics();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.visibility.length) {
+            final int newCapacity = Math.max(capacity, this.visibility.length * 2);
+            this.boxes = Arrays.copyOf(this.boxes, newCapacity * FLOATS_PER_BOX);
+            this.visibility = Arrays.copyOf(this.visibility, newCapacity);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Invalid box " + index);
+        }
+    }
+
+    /**
+     * Adds a box.
+     *
+     * @param min Minimum of the box.
+     * @param max Maximum of the box.
+     * @return Index of the box.
+     */
+    public int add(final Vector3f min, final Vector3f max) {
+        this.ensureCapacity(this.size + 1);
+        this.size++;
+        this.set(this.size - 1, min.x, min.y, min.z, max.x, max.y, max.z);
+        return this.size - 1;
+    }
+
+    public void set(int index, final Vector3f min, final Vector3f max) {
+        this.set(index, min.x, min.y, min.z, max.x, max.y, max.z);
+    }
+
+    public void set(int index, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        this.checkIndex(index);
+
+        final int base = index * FLOATS_PER_BOX;
+        this.boxes[base] = minX;
+        this.boxes[base + 1] = minY;
+        this.boxes[base + 2] = minZ;
+        this.boxes[base + 3] = maxX;
+        this.boxes[base + 4] = maxY;
+        this.boxes[base + 5] = maxZ;
+    }
+
+    /**
+     * Removes a box by moving the last box in its place.
+     *
+     * @param index Index of the box to remove.
+     * @return Previous index of the box that has been moved to {@code index}, or -1 if no box has been moved.
+     */
+    public int remove(int index) {
+        this.checkIndex(index);
+
+        final int last = this.size - 1;
+        this.size--;
+        if (index == last) {
+            return -1;
+        }
+
+        System.arraycopy(this.boxes, last * FLOATS_PER_BOX, this.boxes, index * FLOATS_PER_BOX, FLOATS_PER_BOX);
+        this.visibility[index] = this.visibility[last];
+        return last;
+    }
+
+    public void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * Tests all boxes against the given frustum.
+     *
+     * @param frustum Frustum.
+     * @return Number of visible boxes.
+     */
+    public int cull(final Frustum frustum) {
+        final float[] p = frustum.getPlanes();
+        final float[] b = this.boxes;
+        int visibleCount = 0;
+
+        for (int i = 0; i < this.size; i++) {
+            final int base = i * FLOATS_PER_BOX;
+            boolean inside = true;
+            for (int j = 0; j < Frustum.PLANE_COUNT * 4; j += 4) {
+                final float a = p[j], bb = p[j + 1], c = p[j + 2];
+                final float distance = a * (a > 0.0f ? b[base + 3] : b[base]) +
+                        bb * (bb > 0.0f ? b[base + 4] : b[base + 1]) +
+                        c * (c > 0.0f ? b[base + 5] : b[base + 2]) + p[j + 3];
+                //  Empty boxes (min > max) end up with NaN or a negative distance.
+                if (!(distance >= 0.0f)) {
+                    inside = false;
+                    break;
+                }
+            }
+
+            this.visibility[i] = inside;
+            if (inside) {
+                visibleCount++;
+            }
+        }
+
+        this.statistics.record(this.size, visibleCount);
+        return visibleCount;
+    }
+
+    /**
+     * Returns the visibility of the given box, as of the last culling pass.
+     *
+     * @param index Index of the box.
+     * @return {@code true} if the box is visible, {@code false} otherwise.
+     */
+    public boolean isVisible(int index) {
+        this.checkIndex(index);
+        return this.visibility[index];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public CullingStatistics getStatistics() {
+        return statistics;
+    }
+}
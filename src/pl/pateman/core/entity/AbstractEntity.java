@@ -9,6 +9,8 @@ import org.joml.Vector3f;
 import pl.pateman.core.Clearable;
 import pl.pateman.core.TempVars;
 import pl.pateman.core.Utils;
+import pl.pateman.core.entity.store.EntityStore;
+import pl.pateman.core.entity.store.PhysicsSyncSystem;
 
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -46,6 +48,13 @@ public class AbstractEntity implements Clearable {
     private final Matrix4f transformWithoutScaling;
 
     private RigidBody rigidBody;
+    private boolean transformationDirty;
+    private boolean rigidBodyDirty;
+    private long transformationVersion;
+
+    private EntityStore store;
+    private int storeHandle = EntityStore.INVALID_HANDLE;
+    private long storeVersion;
 
     public AbstractEntity() {
         this(null);
@@ -64,8 +73,60 @@ public class AbstractEntity implements Clearable {
         this.updateDirection();
     }
 
-    protected void updateTransformationMatrix() {
-        this.updateTransformationMatrix(true);
+    /**
+     * Marks the transformation as changed. The matrix is rebuilt when it's requested for the first time, and the
+     * rigid body is updated when {@code synchronizeRigidBody} is called, so that any number of changes made between
+     * these calls costs a single update.
+     */
+    protected void invalidateTransformation() {
+        this.invalidateTransformation(true);
+    }
+
+    protected void invalidateTransformation(boolean updateRigidBody) {
+        this.transformationDirty = true;
+
+        //  If the rigid body is not meant to be updated, the entity mirrors the body now, so any pending change is
+        //  dropped.
+        if (this.store != null) {
+            this.store.setTransformation(this.storeHandle, this.rotation, this.translation, this.scale,
+                    updateRigidBody);
+            this.storeVersion = this.store.getVersion(this.storeHandle);
+        } else {
+            this.rigidBodyDirty = updateRigidBody;
+        }
+    }
+
+    /**
+     * Copies the transformation from the store, if the entity is bound to one and the transformation has been
+     * modified there (e.g. by a system).
+     */
+    private void pullFromStore() {
+        if (this.store == null) {
+            return;
+        }
+
+        final long version = this.store.getVersion(this.storeHandle);
+        if (version != this.storeVersion) {
+            this.store.getTranslation(this.storeHandle, this.translation);
+            this.store.getRotation(this.storeHandle, this.rotation);
+            this.store.getScale(this.storeHandle, this.scale);
+            this.storeVersion = version;
+            this.transformationDirty = true;
+        }
+    }
+
+    protected final boolean isTransformationDirty() {
+        return this.transformationDirty;
+    }
+
+    /**
+     * Rebuilds the transformation matrix if it has been invalidated since the last time it was built.
+     */
+    protected final void ensureTransformationUpdated() {
+        this.pullFromStore();
+        if (this.transformationDirty) {
+            this.updateTransformationMatrix();
+        }
     }
 
     private void checkRigidBodyExists() throws IllegalStateException {
@@ -74,25 +135,61 @@ public class AbstractEntity implements Clearable {
         }
     }
 
-    private void updateTransformationMatrix(boolean updateRigidBody) {
-        Utils.fromRotationTranslationScale(this.transformation, this.rotation, this.translation, this.scale);
+    /**
+     * Builds the transformation matrix and the direction vector. Subclasses which derive data from the
+     * transformation should override this method, as it's called only when the transformation has actually changed.
+     */
+    protected void updateTransformationMatrix() {
+        //  Clear the flag first, so that getters called from overriding methods don't trigger another update.
+        this.transformationDirty = false;
+        this.transformationVersion++;
+        if (this.store != null) {
+            this.store.getWorldMatrix(this.storeHandle, this.transformation);
+        } else {
+            Utils.fromRotationTranslationScale(this.transformation, this.rotation, this.translation, this.scale);
+        }
         this.updateDirection();
+    }
+
+    protected void updateTransformationMatrix(boolean updateRigidBody) {
+        this.updateTransformationMatrix();
 
         //  Update the rigid body's transformation if requested so.
-        if (updateRigidBody && this.rigidBody != null) {
-            final TempVars vars = TempVars.get();
+        if (updateRigidBody) {
+            if (this.store != null) {
+                this.store.markRigidBodyDirty(this.storeHandle);
+            } else {
+                this.rigidBodyDirty = true;
+            }
+            this.synchronizeRigidBody();
+        }
+    }
 
-            //  Re-compute the transformation matrix again, but this time don't apply any scaling to it, as Bullet
-            //  doesn't like it.
-            Utils.fromRotationTranslationScale(this.transformWithoutScaling, this.rotation, this.translation,
-                    Utils.IDENTITY_VECTOR);
-            Utils.matrixToTransform(vars.vecmathTransform, this.transformWithoutScaling);
+    /**
+     * Pushes the entity's transformation to its rigid body, if it has changed since the last push. Call this once per
+     * frame, before stepping the physics simulation.
+     */
+    public final void synchronizeRigidBody() {
+        if (this.store != null) {
+            PhysicsSyncSystem.pushTransform(this.store, this.storeHandle);
+            return;
+        }
+        if (!this.rigidBodyDirty || this.rigidBody == null) {
+            return;
+        }
+        this.rigidBodyDirty = false;
 
-            this.rigidBody.setCenterOfMassTransform(vars.vecmathTransform);
-            this.rigidBody.getMotionState().setWorldTransform(vars.vecmathTransform);
+        final TempVars vars = TempVars.get();
 
-            vars.release();
-        }
+        //  Compute the transformation matrix without any scaling applied to it, as Bullet doesn't like it.
+        Utils.fromRotationTranslationScale(this.transformWithoutScaling, this.rotation, this.translation,
+                Utils.IDENTITY_VECTOR);
+        Utils.matrixToTransform(vars.vecmathTransform, this.transformWithoutScaling);
+
+        this.rigidBody.setCenterOfMassTransform(vars.vecmathTransform);
+        this.rigidBody.getMotionState().setWorldTransform(vars.vecmathTransform);
+
+        vars.release();
     }
 
     protected void updateDirection() {
@@ -105,40 +202,47 @@ public class AbstractEntity implements Clearable {
     }
 
     public final void translate(final Vector3f offset) {
+        this.pullFromStore();
         this.translation.add(offset);
-        this.updateTransformationMatrix();
+        this.invalidateTransformation();
     }
 
     public final void translate(float x, float y, float z) {
+        this.pullFromStore();
         this.translation.add(x, y, z);
-        this.updateTransformationMatrix();
+        this.invalidateTransformation();
     }
 
     public final void rotate(final Quaternionf offset) {
+        this.pullFromStore();
         this.rotation.mul(offset);
-        this.updateTransformationMatrix();
+        this.invalidateTransformation();
     }
 
     public final void rotate(float x, float y, float z) {
+        this.pullFromStore();
         this.rotation.rotate(x, y, z);
-        this.updateTransformationMatrix();
+        this.invalidateTransformation();
     }
 
     public final void scale(final Vector3f offset) {
+        this.pullFromStore();
         this.scale.add(offset);
-        this.updateTransformationMatrix();
+        this.invalidateTransformation();
     }
 
     public final void scale(float x, float y, float z) {
+        this.pullFromStore();
         this.scale.add(x, y, z);
-        this.updateTransformationMatrix();
+        this.invalidateTransformation();
     }
 
     public final void transform(final Quaternionf rotation, final Vector3f translation, final Vector3f scale) {
+        this.pullFromStore();
         this.rotation.mul(rotation);
         this.translation.add(translation);
         this.scale(scale);
-        this.updateTransformationMatrix();
+        this.invalidateTransformation();
     }
 
     public final void forceTransformationUpdate() {
@@ -150,36 +254,54 @@ public class AbstractEntity implements Clearable {
     }
 
     public Vector3f getTranslation() {
+        this.pullFromStore();
         return translation;
     }
 
     public void setTranslation(final Vector3f translation) {
+        this.pullFromStore();
         this.translation.set(translation);
-        this.updateTransformationMatrix();
+        this.invalidateTransformation();
     }
 
     public Quaternionf getRotation() {
+        this.pullFromStore();
         return rotation;
     }
 
     public void setRotation(final Quaternionf rotation) {
+        this.pullFromStore();
         this.rotation.set(rotation);
-        this.updateTransformationMatrix();
+        this.invalidateTransformation();
     }
 
     public Vector3f getScale() {
+        this.pullFromStore();
         return scale;
     }
 
     public void setScale(final Vector3f scale) {
+        this.pullFromStore();
         this.scale.set(scale);
-        this.updateTransformationMatrix();
+        this.invalidateTransformation();
     }
 
     public Matrix4f getTransformation() {
+        this.ensureTransformationUpdated();
         return transformation;
     }
 
+    /**
+     * Returns a number that changes every time the transformation matrix is rebuilt. It allows caching data derived
+     * from the entity's transformation.
+     *
+     * @return Version of the transformation matrix.
+     */
+    public long getTransformationVersion() {
+        this.ensureTransformationUpdated();
+        return transformationVersion;
+    }
+
     public void setTransformation(final Quaternionf rotation, final Vector3f translation, final Vector3f scale) {
         this.setTransformation(rotation, translation, scale, true);
     }
@@ -193,10 +315,11 @@ public class AbstractEntity implements Clearable {
         this.rotation.set(rotation);
         this.translation.set(translation);
         this.scale.set(scale);
-        this.updateTransformationMatrix(updateRigidBody);
+        this.invalidateTransformation(updateRigidBody);
     }
 
     public Vector3f getDirection() {
+        this.ensureTransformationUpdated();
         return this.direction;
     }
 
@@ -226,8 +349,11 @@ public class AbstractEntity implements Clearable {
         collisionShape.calculateLocalInertia(mass, vars.vecmathVect3d1);
 
         //  Make sure the transformation matrix is up-to-date and convert it to a format that JBullet understands.
-        this.updateTransformationMatrix(false);
+        this.ensureTransformationUpdated();
+        Utils.fromRotationTranslationScale(this.transformWithoutScaling, this.rotation, this.translation,
+                Utils.IDENTITY_VECTOR);
         Utils.matrixToTransform(vars.vecmathTransform, this.transformWithoutScaling);
+        this.rigidBodyDirty = false;
 
         //  Construct the rigid body.
         this.rigidBody = new RigidBody(mass, new DefaultMotionState(vars.vecmathTransform), collisionShape,
@@ -235,10 +361,61 @@ public class AbstractEntity implements Clearable {
         this.rigidBody.setCenterOfMassTransform(vars.vecmathTransform);
         final EntityData entityData = new EntityData(this.entityId, this.name, this);
         this.rigidBody.setUserPointer(entityData);
+        if (this.store != null) {
+            this.store.setRigidBody(this.storeHandle, this.rigidBody);
+        }
 
         vars.release();
     }
 
+    /**
+     * Moves the entity's transformation to the given store. From now on, the store holds the transformation, and the
+     * entity acts as a facade over it, so systems processing the store (e.g. {@code PhysicsSyncSystem}) affect the
+     * entity as well.
+     *
+     * @param store Entity store.
+     */
+    public void bindToStore(final EntityStore store) {
+        if (store == null) {
+            throw new IllegalArgumentException("A valid entity store needs to be provided");
+        }
+        if (this.store != null) {
+            throw new IllegalStateException("The entity is already bound to a store");
+        }
+
+        this.storeHandle = store.create();
+        this.store = store;
+        store.setRigidBody(this.storeHandle, this.rigidBody);
+        store.setTransformation(this.storeHandle, this.rotation, this.translation, this.scale, this.rigidBodyDirty);
+        this.storeVersion = store.getVersion(this.storeHandle);
+        this.rigidBodyDirty = false;
+    }
+
+    /**
+     * Moves the entity's transformation back from the store and removes the entity from it.
+     */
+    public void unbindFromStore() {
+        if (this.store == null) {
+            return;
+        }
+
+        //  Don't lose the changes that haven't been pushed to the rigid body yet.
+        this.synchronizeRigidBody();
+        this.pullFromStore();
+        this.store.destroy(this.storeHandle);
+        this.store = null;
+        this.storeHandle = EntityStore.INVALID_HANDLE;
+        this.transformationDirty = true;
+    }
+
+    public EntityStore getStore() {
+        return store;
+    }
+
+    public int getStoreHandle() {
+        return storeHandle;
+    }
+
     public RigidBody getRigidBody() {
         this.checkRigidBodyExists();
         return rigidBody;
@@ -13,6 +13,7 @@ public class CameraEntity extends AbstractEntity {
     private final CameraProjection cameraProjection;
     private final Matrix4f viewMatrix;
     private final Matrix4f projectionMatrix;
+    private long matricesVersion;
 
     public CameraEntity() {
         this(null);
@@ -33,9 +34,11 @@ public class CameraEntity extends AbstractEntity {
     protected void updateTransformationMatrix() {
         super.updateTransformationMatrix();
         this.updateViewMatrix();
+        this.matricesVersion++;
     }
 
     public void updateProjectionMatrix() {
+        this.matricesVersion++;
         if (this.cameraProjection.getViewportWidth() <= 0 || this.cameraProjection.getViewportHeight() <= 0) {
             this.projectionMatrix.zero();
             return;
@@ -89,6 +92,7 @@ public class CameraEntity extends AbstractEntity {
     }
 
     public Matrix4f getViewMatrix() {
+        this.ensureTransformationUpdated();
         return this.viewMatrix;
     }
 
@@ -96,6 +100,17 @@ public class CameraEntity extends AbstractEntity {
         return this.projectionMatrix;
     }
 
+    /**
+     * Returns a number that changes every time the view or the projection matrix is updated. It allows caching data
+     * derived from the camera's matrices.
+     *
+     * @return Version of the camera's matrices.
+     */
+    public long getMatricesVersion() {
+        this.ensureTransformationUpdated();
+        return matricesVersion;
+    }
+
     public CameraProjection getCameraProjection() {
         return cameraProjection;
     }
@@ -1,11 +1,19 @@
 package pl.pateman.core.entity;
 
+import org.joml.Vector3f;
 import pl.pateman.core.entity.mesh.animation.AnimationController;
 import pl.pateman.core.entity.mesh.MeshFilter;
 import pl.pateman.core.entity.mesh.MeshRenderer;
+import pl.pateman.core.entity.store.EntityStore;
 import pl.pateman.core.mesh.Mesh;
+import pl.pateman.core.mesh.MeshPartition;
+import pl.pateman.core.mesh.MeshPartitioning;
+import pl.pateman.core.mesh.SkeletonPartitioner;
 import pl.pateman.core.shader.Program;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Created by pateman.
  */
@@ -13,6 +21,7 @@ public class MeshEntity extends AbstractEntity {
     private Mesh mesh;
     private Program shaderProgram;
     private final MeshFilter meshFilter;
+    private final List<MeshFilter> partitionFilters;
     private MeshRenderer meshRenderer;
     private AnimationController animationController;
 
@@ -23,6 +32,7 @@ public class MeshEntity extends AbstractEntity {
     public MeshEntity(final String name) {
         super(name);
         this.meshFilter = new MeshFilter();
+        this.partitionFilters = new ArrayList<>();
     }
 
     public Mesh getMesh() {
@@ -41,13 +51,71 @@ public class MeshEntity extends AbstractEntity {
         this.shaderProgram = shaderProgram;
     }
 
+    public boolean isCompactVertexFormat() {
+        return this.meshFilter.isCompactVertexFormat();
+    }
+
+    public void setCompactVertexFormat(boolean compactVertexFormat) {
+        this.meshFilter.setCompactVertexFormat(compactVertexFormat);
+    }
+
+    private void destroyPartitionFilters() {
+        for (final MeshFilter partitionFilter : this.partitionFilters) {
+            partitionFilter.clearAndDestroy();
+        }
+        this.partitionFilters.clear();
+    }
+
     public void buildMesh() {
+        this.destroyPartitionFilters();
+
         this.meshFilter.setMeshData(this.mesh);
         this.meshFilter.setShaderProgram(this.shaderProgram);
-        this.meshFilter.buildMeshFilter();
+
+        //  Skeletons that don't fit in the shader's palette are drawn in parts.
+        MeshPartitioning partitioning = null;
+        if (SkeletonPartitioner.needsPartitioning(this.mesh)) {
+            partitioning = new SkeletonPartitioner().partition(this.mesh);
+            for (final MeshPartition partition : partitioning.getPartitions()) {
+                final MeshFilter partitionFilter = new MeshFilter();
+                partitionFilter.setMeshData(partition.getMesh());
+                partitionFilter.setShaderProgram(this.shaderProgram);
+                partitionFilter.setCompactVertexFormat(this.meshFilter.isCompactVertexFormat());
+                partitionFilter.buildMeshFilter();
+                this.partitionFilters.add(partitionFilter);
+            }
+        } else {
+            this.meshFilter.buildMeshFilter();
+        }
 
         this.animationController = new AnimationController(this.mesh, this);
         this.meshRenderer = new MeshRenderer(this.meshFilter, this.shaderProgram, this.animationController);
+        this.meshRenderer.setPartitioning(partitioning, new ArrayList<>(this.partitionFilters));
+        if (this.getStore() != null) {
+            this.getStore().setAnimationController(this.getStoreHandle(), this.animationController);
+        }
+    }
+
+    @Override
+    public void bindToStore(final EntityStore store) {
+        super.bindToStore(store);
+        store.setAnimationController(this.getStoreHandle(), this.animationController);
+    }
+
+    /**
+     * Computes a conservative world space AABB of the entity in its current pose. The mesh needs to be built first.
+     *
+     * @param outMin Minimum of the result.
+     * @param outMax Maximum of the result.
+     * @return {@code true} if the mesh has any vertices, {@code false} otherwise.
+     */
+    public boolean getWorldBounds(final Vector3f outMin, final Vector3f outMax) {
+        if (this.animationController == null) {
+            throw new IllegalStateException("The mesh needs to be built first");
+        }
+
+        return this.animationController.getMeshBounds().computeAnimatedBounds(
+                this.animationController.getAnimationMatrices(), this.getTransformation(), outMin, outMax);
     }
 
     public MeshRenderer getMeshRenderer() {
@@ -60,6 +128,7 @@ public class MeshEntity extends AbstractEntity {
 
     @Override
     public void clearAndDestroy() {
+        this.destroyPartitionFilters();
         this.meshFilter.clearAndDestroy();
     }
 }
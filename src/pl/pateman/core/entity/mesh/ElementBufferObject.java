@@ -2,8 +2,11 @@ package pl.pateman.core.entity.mesh;
 
 import pl.pateman.core.Clearable;
 
+import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_INT;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_SHORT;
 import static org.lwjgl.opengl.GL15.*;
 
 /**
@@ -11,9 +14,11 @@ import static org.lwjgl.opengl.GL15.*;
  */
 public final class ElementBufferObject implements Clearable {
     private final int handle;
+    private int indexType;
 
     public ElementBufferObject() {
         this.handle = glGenBuffers();
+        this.indexType = GL_UNSIGNED_INT;
     }
 
     public void bind() {
@@ -28,6 +33,18 @@ public final class ElementBufferObject implements Clearable {
         this.bind();
         glBufferData(GL_ELEMENT_ARRAY_BUFFER, intBuffer, GL_STATIC_DRAW);
         this.unbind();
+        this.indexType = GL_UNSIGNED_INT;
+    }
+
+    public void update(final ByteBuffer byteBuffer, boolean shortIndices) {
+        this.bind();
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, byteBuffer, GL_STATIC_DRAW);
+        this.unbind();
+        this.indexType = shortIndices ? GL_UNSIGNED_SHORT : GL_UNSIGNED_INT;
+    }
+
+    public int getIndexType() {
+        return indexType;
     }
 
     @Override
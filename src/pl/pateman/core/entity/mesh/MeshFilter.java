@@ -3,6 +3,8 @@ package pl.pateman.core.entity.mesh;
 import org.lwjgl.BufferUtils;
 import pl.pateman.core.Clearable;
 import pl.pateman.core.Utils;
+import pl.pateman.core.mesh.CompactMeshData;
+import pl.pateman.core.mesh.CompactVertexFormat;
 import pl.pateman.core.mesh.Mesh;
 import pl.pateman.core.mesh.MeshSkinningInfo;
 import pl.pateman.core.shader.Program;
@@ -13,18 +15,22 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL30.*;
 
 /**
  * Created by pateman.
  */
 public final class MeshFilter implements Clearable {
+    private static final String INTERLEAVED_BUFFER = "Interleaved";
+
     private final int vao;
     private final Map<String, VertexBufferObject> vbos;
 
     private final ElementBufferObject ebo;
     private Mesh meshData;
     private Program shaderProgram;
+    private boolean compactVertexFormat;
 
     public MeshFilter() {
         this.vbos = new HashMap<>();
@@ -110,6 +116,46 @@ public final class MeshFilter implements Clearable {
         this.shaderProgram = shaderProgram;
     }
 
+    public boolean isCompactVertexFormat() {
+        return compactVertexFormat;
+    }
+
+    /**
+     * Enables the interleaved {@code CompactVertexFormat}. The shader program needs to decode octahedron-encoded
+     * normals then (see {@code helloworld_compact.vert}).
+     *
+     * @param compactVertexFormat Whether to use the compact format.
+     */
+    public void setCompactVertexFormat(boolean compactVertexFormat) {
+        this.compactVertexFormat = compactVertexFormat;
+    }
+
+    private void buildCompactBuffers() {
+        //  Meshes coming from binary assets carry the encoded data already.
+        final CompactMeshData compactData = this.meshData.getCompactMeshData() != null ?
+                this.meshData.getCompactMeshData() : CompactVertexFormat.encode(this.meshData);
+        this.ebo.update(compactData.getIndexData(), compactData.hasShortIndices());
+
+        this.addBuffer(INTERLEAVED_BUFFER, -1, 0);
+        final VertexBufferObject vbo = this.vbos.get(INTERLEAVED_BUFFER);
+        vbo.update(compactData.getVertexData());
+
+        final int stride = CompactVertexFormat.STRIDE;
+        vbo.setInterleavedAttribute(this.shaderProgram.getAttributeLocation(Utils.POSITION_ATTRIBUTE), 3, GL_FLOAT,
+                false, stride, CompactVertexFormat.POSITION_OFFSET);
+        vbo.setInterleavedAttribute(this.shaderProgram.getAttributeLocation(Utils.NORMAL_ATTRIBUTE), 2, GL_SHORT,
+                true, stride, CompactVertexFormat.NORMAL_OFFSET);
+        vbo.setInterleavedAttribute(this.shaderProgram.getAttributeLocation(Utils.TEXCOORD_ATTRIBUTE), 2,
+                GL_HALF_FLOAT, false, stride, CompactVertexFormat.TEXCOORD_OFFSET);
+
+        //  Bone indices are passed as unnormalized bytes, so the shader still receives them as floats. Unskinned
+        //  meshes have all weights set to zero.
+        vbo.setInterleavedAttribute(this.shaderProgram.getAttributeLocation(Utils.INDICES_ATTRIBUTE), 3,
+                GL_UNSIGNED_BYTE, false, stride, CompactVertexFormat.BONE_INDICES_OFFSET);
+        vbo.setInterleavedAttribute(this.shaderProgram.getAttributeLocation(Utils.WEIGHTS_ATTRIBUTE), 3,
+                GL_UNSIGNED_BYTE, true, stride, CompactVertexFormat.BONE_WEIGHTS_OFFSET);
+    }
+
     public void buildMeshFilter() {
         if (this.meshData == null || this.shaderProgram == null) {
             return;
@@ -121,6 +167,12 @@ public final class MeshFilter implements Clearable {
 
         this.bind();
 
+        if (this.compactVertexFormat) {
+            this.buildCompactBuffers();
+            this.unbind();
+            return;
+        }
+
         //  Create the EBO and pass data to it.
         final IntBuffer eboBuffer = BufferUtils.createIntBuffer(this.meshData.getTriangles().size());
         for (int i = 0; i < this.meshData.getTriangles().size(); i++) {
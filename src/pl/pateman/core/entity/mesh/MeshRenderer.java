@@ -1,7 +1,10 @@
 package pl.pateman.core.entity.mesh;
 
 import org.joml.Matrix4f;
+import pl.pateman.core.Utils;
 import pl.pateman.core.entity.mesh.animation.AnimationController;
+import pl.pateman.core.mesh.MeshPartition;
+import pl.pateman.core.mesh.MeshPartitioning;
 import pl.pateman.core.shader.Program;
 
 import java.util.ArrayList;
@@ -17,6 +20,9 @@ public final class MeshRenderer {
     private final Program shaderProgram;
     private final AnimationController animationController;
     private final List<Matrix4f> rendererBoneMatrices;
+    private MeshPartitioning partitioning;
+    private List<MeshFilter> partitionFilters;
+    private final List<Matrix4f> paletteMatrices;
 
     public MeshRenderer(MeshFilter meshFilter, Program shaderProgram, AnimationController animationController) {
         this.meshFilter = meshFilter;
@@ -29,6 +35,46 @@ public final class MeshRenderer {
         for (int i = 0; i < numberOfBones; i++) {
             this.rendererBoneMatrices.add(new Matrix4f());
         }
+        this.paletteMatrices = new ArrayList<>();
+    }
+
+    /**
+     * Makes the renderer draw the mesh partition by partition. Before each draw, only the bones referenced by the
+     * partition are passed to the shader, taken from the renderer's bone matrices.
+     *
+     * @param partitioning Partitioning of the mesh.
+     * @param partitionFilters Built mesh filters, one per partition.
+     */
+    public void setPartitioning(final MeshPartitioning partitioning, final List<MeshFilter> partitionFilters) {
+        if (partitioning != null && (partitionFilters == null ||
+                partitionFilters.size() != partitioning.getDrawCallCount())) {
+            throw new IllegalArgumentException("Each partition requires a mesh filter");
+        }
+        this.partitioning = partitioning;
+        this.partitionFilters = partitionFilters;
+    }
+
+    public MeshPartitioning getPartitioning() {
+        return partitioning;
+    }
+
+    private void renderPartitions() {
+        final List<MeshPartition> partitions = this.partitioning.getPartitions();
+        for (int i = 0; i < partitions.size(); i++) {
+            final MeshPartition partition = partitions.get(i);
+            final MeshFilter partitionFilter = this.partitionFilters.get(i);
+
+            partition.gatherPaletteMatrices(this.rendererBoneMatrices, this.paletteMatrices);
+            this.shaderProgram.setUniformMatrix4Array(Utils.BONES_UNIFORM, this.paletteMatrices.size(),
+                    this.paletteMatrices);
+
+            partitionFilter.bind();
+            partitionFilter.getEbo().bind();
+            glDrawElements(GL_TRIANGLES, partition.getMesh().getTriangles().size(),
+                    partitionFilter.getEbo().getIndexType(), 0);
+            partitionFilter.getEbo().unbind();
+        }
+        this.meshFilter.bind();
     }
 
     public void initializeRendering() {
@@ -41,8 +87,14 @@ public final class MeshRenderer {
     }
 
     public void renderMesh() {
+        if (this.partitioning != null) {
+            this.renderPartitions();
+            return;
+        }
+
         this.meshFilter.getEbo().bind();
-        glDrawElements(GL_TRIANGLES, this.meshFilter.getMeshData().getTriangles().size(), GL_UNSIGNED_INT, 0);
+        glDrawElements(GL_TRIANGLES, this.meshFilter.getMeshData().getTriangles().size(),
+                this.meshFilter.getEbo().getIndexType(), 0);
         this.meshFilter.getEbo().unbind();
     }
 
@@ -3,8 +3,11 @@ package pl.pateman.core.entity.mesh;
 import org.lwjgl.opengl.GL11;
 import pl.pateman.core.Clearable;
 
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.opengl.GL20.*;
@@ -18,6 +21,7 @@ public final class VertexBufferObject implements Clearable {
     private final int shaderAttributeLocation;
     private final int componentSize;
     private final int handle;
+    private final List<Integer> interleavedAttributeLocations;
 
     public VertexBufferObject() {
         this(-1, 0);
@@ -26,6 +30,7 @@ public final class VertexBufferObject implements Clearable {
     public VertexBufferObject(int attribLocation, int componentSize) {
         this.shaderAttributeLocation = attribLocation;
         this.componentSize = componentSize;
+        this.interleavedAttributeLocations = new ArrayList<>();
 
         this.handle = glGenBuffers();
     }
@@ -46,11 +51,41 @@ public final class VertexBufferObject implements Clearable {
         glBindBuffer(GL_ARRAY_BUFFER, 0);
     }
 
+    /**
+     * Uploads interleaved data. Attributes need to be described with {@code setInterleavedAttribute}.
+     *
+     * @param bb Interleaved vertex data.
+     */
+    public void update(final ByteBuffer bb) {
+        glBindBuffer(GL_ARRAY_BUFFER, this.handle);
+        glBufferData(GL_ARRAY_BUFFER, bb, GL_STATIC_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    public void setInterleavedAttribute(int attribLocation, int size, int type, boolean normalized, int stride,
+                                        long offset) {
+        if (attribLocation < 0) {
+            return;
+        }
+
+        glBindBuffer(GL_ARRAY_BUFFER, this.handle);
+        glEnableVertexAttribArray(attribLocation);
+        glVertexAttribPointer(attribLocation, size, type, normalized, stride, offset);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        this.interleavedAttributeLocations.add(attribLocation);
+    }
+
     @Override
     public void clear() {
         glBindBuffer(GL_ARRAY_BUFFER, this.handle);
         glBufferData(GL_ARRAY_BUFFER, 0, null, GL_STATIC_DRAW);
-        glDisableVertexAttribArray(this.shaderAttributeLocation);
+        if (this.shaderAttributeLocation >= 0) {
+            glDisableVertexAttribArray(this.shaderAttributeLocation);
+        }
+        for (final Integer attribLocation : this.interleavedAttributeLocations) {
+            glDisableVertexAttribArray(attribLocation);
+        }
+        this.interleavedAttributeLocations.clear();
         glBindBuffer(GL_ARRAY_BUFFER, 0);
     }
 
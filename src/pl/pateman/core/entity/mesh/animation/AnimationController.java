@@ -1,8 +1,10 @@
 package pl.pateman.core.entity.mesh.animation;
 
 import org.joml.Matrix4f;
+import org.joml.Vector3f;
 import pl.pateman.core.entity.MeshEntity;
 import pl.pateman.core.mesh.Mesh;
+import pl.pateman.core.mesh.MeshBounds;
 import pl.pateman.core.physics.ragdoll.Ragdoll;
 
 import java.util.ArrayList;
@@ -16,6 +18,7 @@ import static pl.pateman.core.entity.mesh.animation.BoneAnimationChannel.DEFAULT
  */
 public final class AnimationController {
     private final Mesh mesh;
+    private final MeshBounds meshBounds;
 
     private final List<Matrix4f> animationMatrices;
     private final List<BoneAnimationChannel> animationChannels;
@@ -34,7 +37,8 @@ public final class AnimationController {
         }
 
         this.animationChannels = new ArrayList<>();
-        this.ragdoll = new Ragdoll(this.mesh, this.meshEntity);
+        this.meshBounds = new MeshBounds(this.mesh);
+        this.ragdoll = new Ragdoll(this.mesh, this.meshEntity, this.meshBounds);
     }
 
     private void checkChannelNameValid(final String channelName) throws IllegalArgumentException {
@@ -112,6 +116,16 @@ public final class AnimationController {
         }
     }
 
+    /**
+     * Hints that the given animation will be played soon, so that it can be loaded in the background if it's
+     * streamed.
+     *
+     * @param animation Name of the animation.
+     */
+    public void prefetchAnimation(final String animation) {
+        this.mesh.prefetchAnimation(animation);
+    }
+
     public Ragdoll getRagdoll() {
         return ragdoll;
     }
@@ -119,4 +133,19 @@ public final class AnimationController {
     public List<Matrix4f> getAnimationMatrices() {
         return this.animationMatrices;
     }
+
+    public MeshBounds getMeshBounds() {
+        return meshBounds;
+    }
+
+    /**
+     * Computes a conservative model space AABB of the mesh in its current pose.
+     *
+     * @param outMin Minimum of the result.
+     * @param outMax Maximum of the result.
+     * @return {@code true} if the mesh has any vertices, {@code false} otherwise.
+     */
+    public boolean getAnimatedBounds(final Vector3f outMin, final Vector3f outMax) {
+        return this.meshBounds.computeAnimatedBounds(this.animationMatrices, outMin, outMax);
+    }
 }
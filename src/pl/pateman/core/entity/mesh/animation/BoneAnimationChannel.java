@@ -19,8 +19,7 @@ public final class BoneAnimationChannel {
     private final String channelName;
     private final Mesh mesh;
 
-    private final Map<String, Animation> animationMap;
-    private final Map<Animation, BoneAnimator> boneAnimatorMap;
+    private final Map<String, BoneAnimator> boneAnimatorMap;
 
     private BoneAnimator currentAnimation;
     private BoneAnimator blendingAnimation;
@@ -33,15 +32,14 @@ public final class BoneAnimationChannel {
 
         this.controlledBones = new AnimationChannelBoneMask(this.mesh.getSkeleton().getBones().size());
 
-        //  Initialize the animation map and for each animation, create an animator.
-        this.animationMap = new HashMap<>(this.mesh.getAnimations().size());
-        this.boneAnimatorMap = new HashMap<>(this.mesh.getAnimations().size());
-        for (Animation animation : this.mesh.getAnimations()) {
-            this.animationMap.put(animation.getName(), animation);
+        //  Animators are created when their animations are played for the first time.
+        this.boneAnimatorMap = new HashMap<>();
+    }
 
-            final BoneAnimator boneAnimator = new BoneAnimator(animation, DEFAULT_ANIMATION_PLAYBACK_MODE,
-                    DEFAULT_ANIMATION_SPEED);
-            this.boneAnimatorMap.put(animation, boneAnimator);
+    private static void releaseAnimation(final BoneAnimator boneAnimator) {
+        //  Let go of the clip, so that it can be evicted from the clip cache. It's looked up again on the next switch.
+        if (boneAnimator != null) {
+            boneAnimator.setAnimation(null);
         }
     }
 
@@ -73,15 +71,24 @@ public final class BoneAnimationChannel {
 
     public void switchToAnimation(final String animation, float blendingTime) {
         //  This mesh doesn't have any animations, so just bail out.
-        if (this.animationMap.isEmpty()) {
+        if (!this.mesh.hasAnimations()) {
             return;
         }
-        final Animation destAnim = this.animationMap.get(animation);
+        final Animation destAnim = this.mesh.getAnimation(animation);
         if (destAnim == null) {
             throw new IllegalArgumentException("Unknown animation " + animation);
         }
 
+        BoneAnimator destAnimator = this.boneAnimatorMap.get(animation);
+        if (destAnimator == null) {
+            destAnimator = new BoneAnimator(destAnim, DEFAULT_ANIMATION_PLAYBACK_MODE, DEFAULT_ANIMATION_SPEED);
+            this.boneAnimatorMap.put(animation, destAnimator);
+        }
+
         //  If an animation is currently set, we need to blend from it.
+        if (this.blendingAnimation != destAnimator && this.blendingAnimation != this.currentAnimation) {
+            releaseAnimation(this.blendingAnimation);
+        }
         this.blendingAnimation = null;
         if (this.currentAnimation != null) {
             //  If the animation that is being played right now is the same as the destination animation, bail out.
@@ -97,10 +104,21 @@ public final class BoneAnimationChannel {
             this.animBlendRate = 1.0f / blendingTime;
         }
 
-        this.currentAnimation = this.boneAnimatorMap.get(destAnim);
+        this.currentAnimation = destAnimator;
+        this.currentAnimation.setAnimation(destAnim);
         this.currentAnimation.resetAnimator();
     }
 
+    /**
+     * Hints that the given animation will be played soon, so that it can be loaded in the background if it's
+     * streamed.
+     *
+     * @param animation Name of the animation.
+     */
+    public void prefetchAnimation(final String animation) {
+        this.mesh.prefetchAnimation(animation);
+    }
+
     public void stepAnimation(float deltaTime) {
         if (this.currentAnimation == null) {
             return;
@@ -112,6 +130,9 @@ public final class BoneAnimationChannel {
             this.animBlendAmount += deltaTime * this.animBlendRate;
             if (this.animBlendAmount > 1.0f) {
                 this.animBlendAmount = 1.0f;
+                if (this.blendingAnimation != this.currentAnimation) {
+                    releaseAnimation(this.blendingAnimation);
+                }
                 this.blendingAnimation = null;
             }
         }
@@ -14,7 +14,7 @@ import pl.pateman.core.mesh.BoneManualControlType;
 final class BoneAnimator {
     private float speed;
     private AnimationPlaybackMode playbackMode;
-    private final Animation animation;
+    private Animation animation;
     private float animTime;
 
     public BoneAnimator(final Animation animation, AnimationPlaybackMode playbackMode, float speed) {
@@ -99,6 +99,16 @@ final class BoneAnimator {
         return animation;
     }
 
+    /**
+     * Replaces the animated clip, e.g. with one reloaded after it's been evicted from the cache, or with {@code null}
+     * to let go of the clip while the animator isn't playing. The playback settings are kept.
+     *
+     * @param animation Clip.
+     */
+    void setAnimation(Animation animation) {
+        this.animation = animation;
+    }
+
     public float getSpeed() {
         return speed;
     }
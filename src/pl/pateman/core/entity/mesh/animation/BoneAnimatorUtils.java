@@ -2,7 +2,7 @@ package pl.pateman.core.entity.mesh.animation;
 
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
-import pl.pateman.core.mesh.AnimationKeyframe;
+import pl.pateman.core.TempVars;
 import pl.pateman.core.mesh.AnimationTrack;
 import pl.pateman.core.mesh.Bone;
 
@@ -42,16 +42,16 @@ final class BoneAnimatorUtils {
         //  Basing on the animation's current time, calculate the frames for interpolation.
 //        final AnimationTrack track = animator.getAnimation().getTracks().get(bone.getIndex());
         final AnimationTrack track = animator.getAnimation().getTrackForBone(bone);
-        final int lastFrame = track.getKeyframes().size() - 1;
+        final int lastFrame = track.getKeyframeCount() - 1;
         int startFrame = 0;
         int endFrame;
         if (animator.getAnimTime() >= 0.0f && lastFrame != 0) {
             //  We're on the last frame.
-            if (animator.getAnimTime() >= track.getKeyframes().get(lastFrame).getTime()) {
+            if (animator.getAnimTime() >= track.getKeyframeTime(lastFrame)) {
                 startFrame = endFrame = lastFrame;
             } else {
                 //  Any frame between the start and the end.
-                for (int i = 0; i < lastFrame && track.getKeyframes().get(i).getTime() < animator.getAnimTime(); i++) {
+                for (int i = 0; i < lastFrame && track.getKeyframeTime(i) < animator.getAnimTime(); i++) {
                     startFrame = i;
                 }
                 endFrame = startFrame + 1;
@@ -61,12 +61,14 @@ final class BoneAnimatorUtils {
             startFrame = endFrame = 0;
         }
 
-        //  Get the respective keyframes.
-        final AnimationKeyframe keyframe = track.getKeyframes().get(startFrame);
-        final AnimationKeyframe keyframe1 = track.getKeyframes().get(endFrame);
+        //  Get the respective keyframes. Tracks may be backed by packed data, so they're read through the track.
+        final TempVars tempVars = TempVars.get();
+        final Quaternionf endRotation = track.getKeyframeRotation(endFrame, tempVars.quat1);
+        final Vector3f endTranslation = track.getKeyframeTranslation(endFrame, tempVars.vect3d1);
 
         //  Interpolate between the start and the end frame and set the results in the output parameters.
-        keyframe.getRotation().slerp(keyframe1.getRotation(), lerpFactor, outRotation);
-        keyframe.getTranslation().lerp(keyframe1.getTranslation(), lerpFactor, outTranslation);
+        track.getKeyframeRotation(startFrame, outRotation).slerp(endRotation, lerpFactor, outRotation);
+        track.getKeyframeTranslation(startFrame, outTranslation).lerp(endTranslation, lerpFactor, outTranslation);
+        tempVars.release();
     }
 }
@@ -0,0 +1,33 @@
+package pl.pateman.core.entity.store;
+
+import pl.pateman.core.entity.mesh.animation.AnimationController;
+
+/**
+ * Steps animations of all entities kept in an {@code EntityStore}, in a single sweep over the store.
+ *
+ * Created by pateman.
+ */
+public final class AnimationSystem {
+    private AnimationSystem() {
+
+    }
+
+    /**
+     * Steps animations of all entities that have an animation controller.
+     *
+     * @param store Entity store.
+     * @param deltaTime Time step.
+     * @return Number of stepped controllers.
+     */
+    public static int stepAnimations(final EntityStore store, float deltaTime) {
+        final AnimationController[] controllers = store.getAnimationControllers();
+        int stepped = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if (controllers[i] != null) {
+                controllers[i].stepAnimation(deltaTime);
+                stepped++;
+            }
+        }
+        return stepped;
+    }
+}
@@ -0,0 +1,385 @@
+package pl.pateman.core.entity.store;
+
+import com.bulletphysics.dynamics.RigidBody;
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import pl.pateman.core.TempVars;
+import pl.pateman.core.entity.mesh.animation.AnimationController;
+
+import java.util.Arrays;
+
+/**
+ * Dense storage of entity transformations. Translations, rotations, scales and world matrices of all entities are
+ * kept in flat arrays (structure of arrays), packed without holes, so that systems can process them in a single
+ * linear sweep.
+ *
+ * Entities are referenced by handles, which combine a slot index with a generation. Once an entity is destroyed, the
+ * generation of its slot changes, so stale handles are detected instead of silently referencing a new entity.
+ *
+ * Created by pateman.
+ */
+public final class EntityStore {
+    public static final int INVALID_HANDLE = -1;
+
+    private static final int INDEX_BITS = 20;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int GENERATION_MASK = (1 << (31 - INDEX_BITS)) - 1;
+    public static final int MAX_ENTITIES = INDEX_MASK + 1;
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    //  Sparse part, indexed by slots.
+    private int[] generations;
+    private int[] slotToDense;
+    private int freeSlot;
+    private int slotCount;
+
+    //  Dense part.
+    private int[] denseToSlot;
+    private float[] translations;
+    private float[] rotations;
+    private float[] scales;
+    private float[] worldMatrices;
+    private long[] versions;
+    private boolean[] worldDirty;
+    private boolean[] rigidBodyDirty;
+    private RigidBody[] rigidBodies;
+    private AnimationController[] animationControllers;
+    private int size;
+
+    public EntityStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public EntityStore(int initialCapacity) {
+        final int capacity = Math.max(initialCapacity, 1);
+        this.generations = new int[capacity];
+        this.slotToDense = new int[capacity];
+        this.freeSlot = -1;
+
+        this.denseToSlot = new int[capacity];
+        this.translations = new float[capacity * 3];
+        this.rotations = new float[capacity * 4];
+        this.scales = new float[capacity * 3];
+        this.worldMatrices = new float[capacity * 16];
+        this.versions = new long[capacity];
+        this.worldDirty = new boolean[capacity];
+        this.rigidBodyDirty = new boolean[capacity];
+        this.rigidBodies = new RigidBody[capacity];
+        this.animationControllers = new AnimationController[capacity];
+    }
+
+    private static int makeHandle(int slot, int generation) {
+        return (generation << INDEX_BITS) | slot;
+    }
+
+    private void ensureSlotCapacity(int capacity) {
+        if (capacity > this.generations.length) {
+            final int newCapacity = Math.min(Math.max(capacity, this.generations.length * 2), MAX_ENTITIES);
+            this.generations = Arrays.copyOf(this.generations, newCapacity);
+            this.slotToDense = Arrays.copyOf(this.slotToDense, newCapacity);
+        }
+    }
+
+    private void ensureDenseCapacity(int capacity) {
+        if (capacity > this.denseToSlot.length) {
+            final int newCapacity = Math.max(capacity, this.denseToSlot.length * 2);
+            this.denseToSlot = Arrays.copyOf(this.denseToSlot, newCapacity);
+            this.translations = Arrays.copyOf(this.translations, newCapacity * 3);
+            this.rotations = Arrays.copyOf(this.rotations, newCapacity * 4);
+            this.scales = Arrays.copyOf(this.scales, newCapacity * 3);
+            this.worldMatrices = Arrays.copyOf(this.worldMatrices, newCapacity * 16);
+            this.versions = Arrays.copyOf(this.versions, newCapacity);
+            this.worldDirty = Arrays.copyOf(this.worldDirty, newCapacity);
+            this.rigidBodyDirty = Arrays.copyOf(this.rigidBodyDirty, newCapacity);
+            this.rigidBodies = Arrays.copyOf(this.rigidBodies, newCapacity);
+            this.animationControllers = Arrays.copyOf(this.animationControllers, newCapacity);
+        }
+    }
+
+    /**
+     * Creates a new entity with an identity transformation.
+     *
+     * @return Handle of the entity.
+     */
+    public int create() {
+        int slot;
+        if (this.freeSlot != -1) {
+            slot = this.freeSlot;
+            //  Free slots are chained through the slot-to-dense mapping.
+            this.freeSlot = this.slotToDense[slot];
+        } else {
+            if (this.slotCount == MAX_ENTITIES) {
+                throw new IllegalStateException("The store cannot hold more than " + MAX_ENTITIES + " entities");
+            }
+            slot = this.slotCount++;
+            this.ensureSlotCapacity(this.slotCount);
+        }
+
+        this.ensureDenseCapacity(this.size + 1);
+        final int index = this.size++;
+        this.slotToDense[slot] = index;
+        this.denseToSlot[index] = slot;
+
+        this.setLocal(index, 0.0f, 0.0f, 0.0f, 0.0f, 0.0f, 0.0f, 1.0f, 1.0f, 1.0f, 1.0f);
+        this.versions[index] = 0L;
+        this.rigidBodyDirty[index] = false;
+        this.rigidBodies[index] = null;
+        this.animationControllers[index] = null;
+
+        return makeHandle(slot, this.generations[slot]);
+    }
+
+    /**
+     * Destroys the entity. The last entity in the dense arrays is moved in its place.
+     *
+     * @param handle Handle of the entity.
+     */
+    public void destroy(int handle) {
+        final int index = this.indexOf(handle);
+        final int slot = handle & INDEX_MASK;
+        final int last = this.size - 1;
+
+        if (index != last) {
+            System.arraycopy(this.translations, last * 3, this.translations, index * 3, 3);
+            System.arraycopy(this.rotations, last * 4, this.rotations, index * 4, 4);
+            System.arraycopy(this.scales, last * 3, this.scales, index * 3, 3);
+            System.arraycopy(this.worldMatrices, last * 16, this.worldMatrices, index * 16, 16);
+            this.versions[index] = this.versions[last];
+            this.worldDirty[index] = this.worldDirty[last];
+            this.rigidBodyDirty[index] = this.rigidBodyDirty[last];
+            this.rigidBodies[index] = this.rigidBodies[last];
+            this.animationControllers[index] = this.animationControllers[last];
+
+            final int movedSlot = this.denseToSlot[last];
+            this.denseToSlot[index] = movedSlot;
+            this.slotToDense[movedSlot] = index;
+        }
+        this.rigidBodies[last] = null;
+        this.animationControllers[last] = null;
+        this.size--;
+
+        this.generations[slot] = (this.generations[slot] + 1) & GENERATION_MASK;
+        this.slotToDense[slot] = this.freeSlot;
+        this.freeSlot = slot;
+    }
+
+    public boolean isAlive(int handle) {
+        if (handle < 0) {
+            return false;
+        }
+        final int slot = handle & INDEX_MASK;
+        if (slot >= this.slotCount || this.generations[slot] != (handle >>> INDEX_BITS)) {
+            return false;
+        }
+        final int index = this.slotToDense[slot];
+        return index >= 0 && index < this.size && this.denseToSlot[index] == slot;
+    }
+
+    /**
+     * Returns the position of the entity in the dense arrays. The position changes when other entities are destroyed,
+     * so it should not be stored.
+     *
+     * @param handle Handle of the entity.
+     * @return Index in the dense arrays.
+     */
+    public int indexOf(int handle) {
+        if (!this.isAlive(handle)) {
+            throw new IllegalArgumentException("Invalid or stale entity handle " + handle);
+        }
+        return this.slotToDense[handle & INDEX_MASK];
+    }
+
+    public int getHandle(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Invalid entity index " + index);
+        }
+        final int slot = this.denseToSlot[index];
+        return makeHandle(slot, this.generations[slot]);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    void setLocal(int index, float tx, float ty, float tz, float rx, float ry, float rz, float rw, float sx,
+                  float sy, float sz) {
+        final int t = index * 3;
+        final int r = index * 4;
+        this.translations[t] = tx;
+        this.translations[t + 1] = ty;
+        this.translations[t + 2] = tz;
+        this.rotations[r] = rx;
+        this.rotations[r + 1] = ry;
+        this.rotations[r + 2] = rz;
+        this.rotations[r + 3] = rw;
+        this.scales[t] = sx;
+        this.scales[t + 1] = sy;
+        this.scales[t + 2] = sz;
+        this.markChanged(index);
+    }
+
+    void markChanged(int index) {
+        this.versions[index]++;
+        this.worldDirty[index] = true;
+    }
+
+    /**
+     * Sets the transformation of the entity.
+     *
+     * @param handle Handle of the entity.
+     * @param rotation Rotation.
+     * @param translation Translation.
+     * @param scale Scale.
+     * @param updateRigidBody If {@code true}, the entity's rigid body is updated during the next physics sync.
+     */
+    public void setTransformation(int handle, final Quaternionf rotation, final Vector3f translation,
+                                  final Vector3f scale, boolean updateRigidBody) {
+        final int index = this.indexOf(handle);
+        this.setLocal(index, translation.x, translation.y, translation.z, rotation.x, rotation.y, rotation.z,
+                rotation.w, scale.x, scale.y, scale.z);
+        this.rigidBodyDirty[index] = updateRigidBody;
+    }
+
+    public void setTranslation(int handle, float x, float y, float z) {
+        final int index = this.indexOf(handle);
+        this.translations[index * 3] = x;
+        this.translations[index * 3 + 1] = y;
+        this.translations[index * 3 + 2] = z;
+        this.markChanged(index);
+        this.rigidBodyDirty[index] = true;
+    }
+
+    public void setRotation(int handle, final Quaternionf rotation) {
+        final int index = this.indexOf(handle);
+        this.rotations[index * 4] = rotation.x;
+        this.rotations[index * 4 + 1] = rotation.y;
+        this.rotations[index * 4 + 2] = rotation.z;
+        this.rotations[index * 4 + 3] = rotation.w;
+        this.markChanged(index);
+        this.rigidBodyDirty[index] = true;
+    }
+
+    public void setScale(int handle, float x, float y, float z) {
+        final int index = this.indexOf(handle);
+        this.scales[index * 3] = x;
+        this.scales[index * 3 + 1] = y;
+        this.scales[index * 3 + 2] = z;
+        this.markChanged(index);
+        this.rigidBodyDirty[index] = true;
+    }
+
+    public Vector3f getTranslation(int handle, final Vector3f out) {
+        final int t = this.indexOf(handle) * 3;
+        return out.set(this.translations[t], this.translations[t + 1], this.translations[t + 2]);
+    }
+
+    public Quaternionf getRotation(int handle, final Quaternionf out) {
+        final int r = this.indexOf(handle) * 4;
+        return out.set(this.rotations[r], this.rotations[r + 1], this.rotations[r + 2], this.rotations[r + 3]);
+    }
+
+    public Vector3f getScale(int handle, final Vector3f out) {
+        final int t = this.indexOf(handle) * 3;
+        return out.set(this.scales[t], this.scales[t + 1], this.scales[t + 2]);
+    }
+
+    /**
+     * Returns a number that changes every time the entity's transformation is modified.
+     *
+     * @param handle Handle of the entity.
+     * @return Version of the transformation.
+     */
+    public long getVersion(int handle) {
+        return this.versions[this.indexOf(handle)];
+    }
+
+    private void updateWorldMatrix(int index, final Matrix4f temp) {
+        final int t = index * 3;
+        final int r = index * 4;
+        temp.translationRotateScale(this.translations[t], this.translations[t + 1], this.translations[t + 2],
+                this.rotations[r], this.rotations[r + 1], this.rotations[r + 2], this.rotations[r + 3],
+                this.scales[t], this.scales[t + 1], this.scales[t + 2]);
+        temp.get(this.worldMatrices, index * 16);
+        this.worldDirty[index] = false;
+    }
+
+    /**
+     * Returns the world matrix of the entity, computing it first if the entity has changed.
+     *
+     * @param handle Handle of the entity.
+     * @param out Matrix that receives the world matrix.
+     * @return {@code out}.
+     */
+    public Matrix4f getWorldMatrix(int handle, final Matrix4f out) {
+        final int index = this.indexOf(handle);
+        if (this.worldDirty[index]) {
+            this.updateWorldMatrix(index, out);
+            return out;
+        }
+        return out.set(this.worldMatrices, index * 16);
+    }
+
+    /**
+     * Recomputes the world matrices of all entities that have changed.
+     *
+     * @return Number of recomputed matrices.
+     */
+    public int updateWorldMatrices() {
+        final TempVars vars = TempVars.get();
+        int updated = 0;
+        for (int i = 0; i < this.size; i++) {
+            if (this.worldDirty[i]) {
+                this.updateWorldMatrix(i, vars.tempMat4x41);
+                updated++;
+            }
+        }
+        vars.release();
+        return updated;
+    }
+
+    public RigidBody getRigidBody(int handle) {
+        return this.rigidBodies[this.indexOf(handle)];
+    }
+
+    public void setRigidBody(int handle, final RigidBody rigidBody) {
+        final int index = this.indexOf(handle);
+        this.rigidBodies[index] = rigidBody;
+        this.rigidBodyDirty[index] = false;
+    }
+
+    public void markRigidBodyDirty(int handle) {
+        this.rigidBodyDirty[this.indexOf(handle)] = true;
+    }
+
+    public AnimationController getAnimationController(int handle) {
+        return this.animationControllers[this.indexOf(handle)];
+    }
+
+    public void setAnimationController(int handle, final AnimationController animationController) {
+        this.animationControllers[this.indexOf(handle)] = animationController;
+    }
+
+    //  Raw access for the systems.
+
+    float[] getTranslations() {
+        return translations;
+    }
+
+    float[] getRotations() {
+        return rotations;
+    }
+
+    boolean[] getRigidBodyDirty() {
+        return rigidBodyDirty;
+    }
+
+    RigidBody[] getRigidBodies() {
+        return rigidBodies;
+    }
+
+    AnimationController[] getAnimationControllers() {
+        return animationControllers;
+    }
+}
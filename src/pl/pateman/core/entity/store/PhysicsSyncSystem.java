@@ -0,0 +1,112 @@
+package pl.pateman.core.entity.store;
+
+import com.bulletphysics.dynamics.RigidBody;
+import com.bulletphysics.linearmath.Transform;
+import pl.pateman.core.TempVars;
+
+/**
+ * Synchronizes transformations kept in an {@code EntityStore} with the entities' rigid bodies, in a single sweep over
+ * the store.
+ *
+ * Created by pateman.
+ */
+public final class PhysicsSyncSystem {
+    private PhysicsSyncSystem() {
+
+    }
+
+    private static void pushTransform(final EntityStore store, int index, final TempVars vars) {
+        final float[] t = store.getTranslations();
+        final float[] r = store.getRotations();
+        final Transform transform = vars.vecmathTransform;
+
+        //  Bullet doesn't like scaling, so only the translation and the rotation are passed.
+        transform.setIdentity();
+        transform.origin.set(t[index * 3], t[index * 3 + 1], t[index * 3 + 2]);
+        vars.vecmathQuat.set(r[index * 4], r[index * 4 + 1], r[index * 4 + 2], r[index * 4 + 3]);
+        transform.setRotation(vars.vecmathQuat);
+
+        final RigidBody rigidBody = store.getRigidBodies()[index];
+        rigidBody.setCenterOfMassTransform(transform);
+        rigidBody.getMotionState().setWorldTransform(transform);
+        store.getRigidBodyDirty()[index] = false;
+    }
+
+    /**
+     * Pushes the transformation of a single entity to its rigid body, if it has changed since the last push.
+     *
+     * @param store Entity store.
+     * @param handle Handle of the entity.
+     */
+    public static void pushTransform(final EntityStore store, int handle) {
+        final int index = store.indexOf(handle);
+        if (store.getRigidBodies()[index] == null || !store.getRigidBodyDirty()[index]) {
+            return;
+        }
+
+        final TempVars vars = TempVars.get();
+        pushTransform(store, index, vars);
+        vars.release();
+    }
+
+    /**
+     * Pushes transformations of all entities that have changed to their rigid bodies. Call this before stepping the
+     * physics simulation.
+     *
+     * @param store Entity store.
+     * @return Number of updated rigid bodies.
+     */
+    public static int pushTransforms(final EntityStore store) {
+        final RigidBody[] rigidBodies = store.getRigidBodies();
+        final boolean[] dirty = store.getRigidBodyDirty();
+        final TempVars vars = TempVars.get();
+        int pushed = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if (rigidBodies[i] != null && dirty[i]) {
+                pushTransform(store, i, vars);
+                pushed++;
+            }
+        }
+        vars.release();
+        return pushed;
+    }
+
+    /**
+     * Copies transformations computed by the physics simulation to the store. Sleeping bodies are skipped, as their
+     * transformations don't change. Call this after stepping the physics simulation.
+     *
+     * @param store Entity store.
+     * @return Number of updated entities.
+     */
+    public static int pullTransforms(final EntityStore store) {
+        final RigidBody[] rigidBodies = store.getRigidBodies();
+        final float[] t = store.getTranslations();
+        final float[] r = store.getRotations();
+        final TempVars vars = TempVars.get();
+        final Transform transform = vars.vecmathTransform;
+        int pulled = 0;
+        for (int i = 0; i < store.size(); i++) {
+            final RigidBody rigidBody = rigidBodies[i];
+            if (rigidBody == null || !rigidBody.isActive()) {
+                continue;
+            }
+
+            rigidBody.getMotionState().getWorldTransform(transform);
+            transform.getRotation(vars.vecmathQuat);
+            t[i * 3] = transform.origin.x;
+            t[i * 3 + 1] = transform.origin.y;
+            t[i * 3 + 2] = transform.origin.z;
+            r[i * 4] = vars.vecmathQuat.x;
+            r[i * 4 + 1] = vars.vecmathQuat.y;
+            r[i * 4 + 2] = vars.vecmathQuat.z;
+            r[i * 4 + 3] = vars.vecmathQuat.w;
+
+            //  The body is the source of this transformation, so there's nothing to push back.
+            store.markChanged(i);
+            store.getRigidBodyDirty()[i] = false;
+            pulled++;
+        }
+        vars.release();
+        return pulled;
+    }
+}
@@ -0,0 +1,271 @@
+package pl.pateman.core.mesh;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Process-wide cache of animation clips loaded from {@code AnimationClipSource}s. Clips are loaded on the first
+ * request, or in the background when they're prefetched, and concurrent requests for a clip share a single load. Once
+ * the loaded clips take more memory than the budget, the least recently used ones are evicted.
+ *
+ * Evicting a clip only drops the cache's reference to it. Animators which are playing the clip keep it alive, and the
+ * next request loads it again.
+ *
+ * The cache holds its sources until all of their clips are evicted, so whoever discards a mesh with a clip source
+ * needs to call {@code evictSource} ({@code MeshAssetLoader} does that when a mesh is destroyed).
+ *
+ * Created by pateman.
+ */
+public final class AnimationClipCache {
+    public static final long DEFAULT_BUDGET = 64L * 1024L * 1024L;
+
+    private static final AnimationClipCache DEFAULT = new AnimationClipCache(DEFAULT_BUDGET);
+
+    private final Map<ClipKey, ClipEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private ExecutorService prefetchExecutor;
+    private long budget;
+    private long usedMemory;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    private static final class ClipKey {
+        private final AnimationClipSource source;
+        private final String name;
+
+        private ClipKey(AnimationClipSource source, String name) {
+            this.source = source;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            ClipKey clipKey = (ClipKey) o;
+
+            return source == clipKey.source && name.equals(clipKey.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(source) + name.hashCode();
+        }
+    }
+
+    private static final class ClipEntry {
+        private final CompletableFuture<Animation> future = new CompletableFuture<>();
+        private long size;
+    }
+
+    public AnimationClipCache(long budget) {
+        this.setBudget(budget);
+    }
+
+    /**
+     * Returns the cache shared by all meshes.
+     *
+     * @return Default cache.
+     */
+    public static AnimationClipCache getDefault() {
+        return DEFAULT;
+    }
+
+    private void load(final ClipKey key, final ClipEntry entry) {
+        final Animation animation;
+        final long size;
+        try {
+            animation = key.source.loadClip(key.name);
+            animation.createBoneTracks();
+            size = Math.max(0L, key.source.getClipSize(key.name));
+        } catch (Throwable e) {
+            synchronized (this) {
+                if (this.entries.get(key) == entry) {
+                    this.entries.remove(key);
+                }
+            }
+            entry.future.completeExceptionally(e);
+            return;
+        }
+
+        synchronized (this) {
+            if (this.entries.get(key) == entry) {
+                entry.size = size;
+                this.usedMemory += size;
+                this.evict(entry);
+            }
+        }
+        entry.future.complete(animation);
+    }
+
+    private void evict(final ClipEntry keptEntry) {
+        final Iterator<ClipEntry> iterator = this.entries.values().iterator();
+        while (this.usedMemory > this.budget && iterator.hasNext()) {
+            final ClipEntry entry = iterator.next();
+            if (entry == keptEntry || entry.size == 0L) {
+                continue;
+            }
+
+            iterator.remove();
+            this.usedMemory -= entry.size;
+            this.evictionCount++;
+        }
+    }
+
+    /**
+     * Returns the given clip, loading it if it isn't in the cache. If the clip is being prefetched, waits for it.
+     *
+     * @param source Source of the clip.
+     * @param name Name of the clip.
+     * @return Clip.
+     * @throws IllegalStateException If the clip can't be loaded.
+     */
+    public Animation getClip(final AnimationClipSource source, final String name) {
+        if (source == null || name == null) {
+            throw new IllegalArgumentException();
+        }
+
+        final ClipKey key = new ClipKey(source, name);
+        final ClipEntry entry;
+        boolean load = false;
+        synchronized (this) {
+            ClipEntry cachedEntry = this.entries.get(key);
+            if (cachedEntry == null) {
+                cachedEntry = new ClipEntry();
+                this.entries.put(key, cachedEntry);
+                this.missCount++;
+                load = true;
+            } else {
+                this.hitCount++;
+            }
+            entry = cachedEntry;
+        }
+        if (load) {
+            this.load(key, entry);
+        }
+
+        try {
+            return entry.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading animation '" + name + "'", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to load animation '" + name + "'", e.getCause());
+        }
+    }
+
+    /**
+     * Starts loading the given clip in the background, unless it's already in the cache.
+     *
+     * @param source Source of the clip.
+     * @param name Name of the clip.
+     */
+    public void prefetch(final AnimationClipSource source, final String name) {
+        if (source == null || name == null) {
+            throw new IllegalArgumentException();
+        }
+
+        final ClipKey key = new ClipKey(source, name);
+        final ClipEntry entry;
+        synchronized (this) {
+            if (this.entries.containsKey(key)) {
+                return;
+            }
+            entry = new ClipEntry();
+            this.entries.put(key, entry);
+            this.missCount++;
+
+            if (this.prefetchExecutor == null) {
+                this.prefetchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        final Thread thread = new Thread(r, "AnimationClipCache-prefetch");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+        }
+
+        this.prefetchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                load(key, entry);
+            }
+        });
+    }
+
+    /**
+     * Checks whether the given clip has been loaded into the cache.
+     *
+     * @param source Source of the clip.
+     * @param name Name of the clip.
+     * @return {@code true} if the clip is loaded.
+     */
+    public synchronized boolean isLoaded(final AnimationClipSource source, final String name) {
+        final ClipEntry entry = this.entries.get(new ClipKey(source, name));
+        return entry != null && entry.future.isDone() && !entry.future.isCompletedExceptionally();
+    }
+
+    /**
+     * Drops all loaded clips of the given source, e.g. before the source is closed.
+     *
+     * @param source Source.
+     */
+    public synchronized void evictSource(final AnimationClipSource source) {
+        final Iterator<Map.Entry<ClipKey, ClipEntry>> iterator = this.entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<ClipKey, ClipEntry> entry = iterator.next();
+            if (entry.getKey().source == source) {
+                iterator.remove();
+                this.usedMemory -= entry.getValue().size;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        this.entries.clear();
+        this.usedMemory = 0L;
+    }
+
+    public synchronized long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the memory budget of the cache. Clips are evicted immediately if they exceed the new budget.
+     *
+     * @param budget Budget in bytes.
+     */
+    public synchronized void setBudget(long budget) {
+        if (budget < 0L) {
+            throw new IllegalArgumentException("Budget cannot be negative");
+        }
+        this.budget = budget;
+        this.evict(null);
+    }
+
+    public synchronized long getUsedMemory() {
+        return usedMemory;
+    }
+
+    public synchronized int getClipCount() {
+        return this.entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+}
@@ -0,0 +1,40 @@
+package pl.pateman.core.mesh;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Indexed storage of animation clips, which are loaded on demand rather than with the mesh. Clips are bound to the
+ * skeleton of the mesh that the source has been created for. Loaded clips are kept by {@code AnimationClipCache}.
+ *
+ * Implementations need to be thread-safe, as clips may be prefetched in the background.
+ *
+ * Created by pateman.
+ */
+public interface AnimationClipSource {
+    /**
+     * Returns the names of all clips in the source. Reading the index must not load the clips.
+     *
+     * @return Names of the clips.
+     */
+    List<String> getClipNames();
+
+    boolean hasClip(final String name);
+
+    /**
+     * Returns the memory that the given clip takes when it's loaded.
+     *
+     * @param name Name of the clip.
+     * @return Size in bytes.
+     */
+    long getClipSize(final String name);
+
+    /**
+     * Loads the given clip. Bone tracks of the returned animation don't need to be created.
+     *
+     * @param name Name of the clip.
+     * @return Loaded clip.
+     * @throws IOException If the clip can't be read.
+     */
+    Animation loadClip(final String name) throws IOException;
+}
@@ -1,6 +1,10 @@
 package pl.pateman.core.mesh;
 
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -8,18 +12,72 @@ import java.util.List;
  */
 public final class AnimationTrack {
     private final Bone bone;
-    private final List<AnimationKeyframe> keyframes;
+    private List<AnimationKeyframe> keyframes;
+    private final PackedKeyframes packedKeyframes;
 
     public AnimationTrack(Bone bone) {
         this.bone = bone;
         this.keyframes = new ArrayList<>();
+        this.packedKeyframes = null;
+    }
+
+    /**
+     * Creates a read-only track, backed by packed keyframes. The keyframes are sampled straight from the packed data.
+     *
+     * @param bone Animated bone.
+     * @param packedKeyframes Keyframes.
+     */
+    public AnimationTrack(Bone bone, final PackedKeyframes packedKeyframes) {
+        if (packedKeyframes == null) {
+            throw new IllegalArgumentException("Valid keyframes need to be provided");
+        }
+        this.bone = bone;
+        this.packedKeyframes = packedKeyframes;
     }
 
     public Bone getBone() {
         return bone;
     }
 
+    /**
+     * Returns the keyframes of the track. For tracks backed by packed keyframes, the list is decoded on the first
+     * call and can't be modified.
+     *
+     * @return List of keyframes.
+     */
     public List<AnimationKeyframe> getKeyframes() {
+        if (this.keyframes == null) {
+            final List<AnimationKeyframe> decoded = new ArrayList<>(this.packedKeyframes.getKeyframeCount());
+            for (int i = 0; i < this.packedKeyframes.getKeyframeCount(); i++) {
+                decoded.add(new AnimationKeyframe(this.packedKeyframes.getTime(i),
+                        this.packedKeyframes.getTranslation(i, new Vector3f()),
+                        this.packedKeyframes.getRotation(i, new Quaternionf())));
+            }
+            this.keyframes = Collections.unmodifiableList(decoded);
+        }
         return keyframes;
     }
+
+    public PackedKeyframes getPackedKeyframes() {
+        return packedKeyframes;
+    }
+
+    public int getKeyframeCount() {
+        return this.packedKeyframes != null ? this.packedKeyframes.getKeyframeCount() : this.keyframes.size();
+    }
+
+    public float getKeyframeTime(int keyframe) {
+        return this.packedKeyframes != null ? this.packedKeyframes.getTime(keyframe) :
+                this.keyframes.get(keyframe).getTime();
+    }
+
+    public Vector3f getKeyframeTranslation(int keyframe, final Vector3f out) {
+        return this.packedKeyframes != null ? this.packedKeyframes.getTranslation(keyframe, out) :
+                out.set(this.keyframes.get(keyframe).getTranslation());
+    }
+
+    public Quaternionf getKeyframeRotation(int keyframe, final Quaternionf out) {
+        return this.packedKeyframes != null ? this.packedKeyframes.getRotation(keyframe, out) :
+                out.set(this.keyframes.get(keyframe).getRotation());
+    }
 }
@@ -0,0 +1,118 @@
+package pl.pateman.core.mesh;
+
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Mesh data encoded with {@code CompactVertexFormat}, ready to be uploaded to the GPU. The accessors decode single
+ * vertices back, without modifying the positions of the buffers.
+ *
+ * Created by pateman.
+ */
+public final class CompactMeshData {
+    private final ByteBuffer vertexData;
+    private final int vertexCount;
+    private final ByteBuffer indexData;
+    private final int indexCount;
+    private final boolean shortIndices;
+
+    CompactMeshData(ByteBuffer vertexData, int vertexCount, ByteBuffer indexData, int indexCount,
+                    boolean shortIndices) {
+        this.vertexData = vertexData;
+        this.vertexCount = vertexCount;
+        this.indexData = indexData;
+        this.indexCount = indexCount;
+        this.shortIndices = shortIndices;
+    }
+
+    /**
+     * Wraps already encoded data, e.g. sections of a memory-mapped file. The data, between the positions and the
+     * limits of the buffers, needs to be encoded in the native byte order. It's used as it is, without copying.
+     *
+     * @param vertexData Interleaved vertex data.
+     * @param vertexCount Number of vertices.
+     * @param indexData Index data.
+     * @param indexCount Number of indices.
+     * @param shortIndices Whether indices are unsigned shorts rather than unsigned ints.
+     * @return {@code CompactMeshData}.
+     */
+    public static CompactMeshData wrap(final ByteBuffer vertexData, int vertexCount, final ByteBuffer indexData,
+                                       int indexCount, boolean shortIndices) {
+        if (vertexData == null || indexData == null || vertexCount < 0 || indexCount < 0) {
+            throw new IllegalArgumentException();
+        }
+        if (vertexData.remaining() != vertexCount * CompactVertexFormat.STRIDE ||
+                indexData.remaining() != indexCount * (shortIndices ? 2 : 4)) {
+            throw new IllegalArgumentException("The size of the data doesn't match the number of elements");
+        }
+        return new CompactMeshData(vertexData.slice().order(ByteOrder.nativeOrder()), vertexCount,
+                indexData.slice().order(ByteOrder.nativeOrder()), indexCount, shortIndices);
+    }
+
+    private int getVertexOffset(int vertex) {
+        if (vertex < 0 || vertex >= this.vertexCount) {
+            throw new IndexOutOfBoundsException("Invalid vertex " + vertex);
+        }
+        return vertex * CompactVertexFormat.STRIDE;
+    }
+
+    public Vector3f getPosition(int vertex, final Vector3f out) {
+        final int base = this.getVertexOffset(vertex) + CompactVertexFormat.POSITION_OFFSET;
+        return out.set(this.vertexData.getFloat(base), this.vertexData.getFloat(base + 4),
+                this.vertexData.getFloat(base + 8));
+    }
+
+    public Vector3f getNormal(int vertex, final Vector3f out) {
+        final int base = this.getVertexOffset(vertex) + CompactVertexFormat.NORMAL_OFFSET;
+        return CompactVertexFormat.decodeOctahedron(this.vertexData.getShort(base),
+                this.vertexData.getShort(base + 2), out);
+    }
+
+    public Vector2f getTexcoord(int vertex, final Vector2f out) {
+        final int base = this.getVertexOffset(vertex) + CompactVertexFormat.TEXCOORD_OFFSET;
+        return out.set(CompactVertexFormat.halfToFloat(this.vertexData.getShort(base)),
+                CompactVertexFormat.halfToFloat(this.vertexData.getShort(base + 2)));
+    }
+
+    public Vector3f getBoneIndices(int vertex, final Vector3f out) {
+        final int base = this.getVertexOffset(vertex) + CompactVertexFormat.BONE_INDICES_OFFSET;
+        return out.set(this.vertexData.get(base) & 0xFF, this.vertexData.get(base + 1) & 0xFF,
+                this.vertexData.get(base + 2) & 0xFF);
+    }
+
+    public Vector3f getBoneWeights(int vertex, final Vector3f out) {
+        final int base = this.getVertexOffset(vertex) + CompactVertexFormat.BONE_WEIGHTS_OFFSET;
+        return out.set(this.vertexData.get(base) & 0xFF, this.vertexData.get(base + 1) & 0xFF,
+                this.vertexData.get(base + 2) & 0xFF).mul(1.0f / 255.0f);
+    }
+
+    public int getIndex(int index) {
+        if (index < 0 || index >= this.indexCount) {
+            throw new IndexOutOfBoundsException("Invalid index " + index);
+        }
+        return this.shortIndices ? this.indexData.getShort(index * 2) & 0xFFFF : this.indexData.getInt(index * 4);
+    }
+
+    public ByteBuffer getVertexData() {
+        return vertexData;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public ByteBuffer getIndexData() {
+        return indexData;
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    public boolean hasShortIndices() {
+        return shortIndices;
+    }
+}
@@ -0,0 +1,291 @@
+package pl.pateman.core.mesh;
+
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Interleaved, compressed vertex layout. Every vertex takes {@code STRIDE} bytes:
+ *
+ * <ul>
+ *     <li>position - 3 floats,</li>
+ *     <li>normal - octahedron-encoded, 2 signed normalized shorts,</li>
+ *     <li>texture coordinate - 2 half floats,</li>
+ *     <li>bone indices - 3 unsigned bytes (plus one byte of padding),</li>
+ *     <li>bone weights - 3 unsigned normalized bytes (plus one byte of padding).</li>
+ * </ul>
+ *
+ * Indices are stored as unsigned shorts if all of them fit, and as unsigned ints otherwise. The encoder and the
+ * decoder don't use OpenGL, so the data can be prepared (and verified) without a GL context.
+ *
+ * Created by pateman.
+ */
+public final class CompactVertexFormat {
+    public static final int POSITION_OFFSET = 0;
+    public static final int NORMAL_OFFSET = 12;
+    public static final int TEXCOORD_OFFSET = 16;
+    public static final int BONE_INDICES_OFFSET = 20;
+    public static final int BONE_WEIGHTS_OFFSET = 24;
+    public static final int STRIDE = 28;
+
+    public static final int MAX_SHORT_INDEX = 0xFFFF;
+    public static final int MAX_BONE_INDEX = 0xFF;
+
+    private CompactVertexFormat() {
+
+    }
+
+    /**
+     * Encodes the given mesh.
+     *
+     * @param mesh Mesh to encode.
+     * @return {@code CompactMeshData}.
+     */
+    public static CompactMeshData encode(final Mesh mesh) {
+        if (mesh == null) {
+            throw new IllegalArgumentException("A valid mesh needs to be provided");
+        }
+
+        final int vertexCount = mesh.getVertices().size();
+        final boolean hasNormals = mesh.getNormals().size() == vertexCount;
+        final boolean hasTexcoords = mesh.getTexcoords().size() == vertexCount;
+        final MeshSkinningInfo skinningInfo = mesh.getSkinningInfo();
+        final int skinnedVertices = skinningInfo.hasSkinningInfo() ? Math.min(vertexCount,
+                skinningInfo.getBoneIndices().size()) : 0;
+
+        final ByteBuffer vertexData = ByteBuffer.allocateDirect(vertexCount * STRIDE).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < vertexCount; i++) {
+            final Vector3f position = mesh.getVertices().get(i);
+            putPosition(vertexData, i, position.x, position.y, position.z);
+            if (hasNormals) {
+                final Vector3f normal = mesh.getNormals().get(i);
+                putNormal(vertexData, i, normal.x, normal.y, normal.z);
+            }
+            if (hasTexcoords) {
+                final Vector2f texcoord = mesh.getTexcoords().get(i);
+                putTexcoord(vertexData, i, texcoord.x, texcoord.y);
+            }
+            if (i < skinnedVertices) {
+                putSkinning(vertexData, i, skinningInfo.getBoneIndices().get(i), skinningInfo.getBoneWeights().get(i));
+            }
+        }
+
+        //  Pick the smallest index type that can address all vertices.
+        final int indexCount = mesh.getTriangles().size();
+        int maxIndex = 0;
+        for (int i = 0; i < indexCount; i++) {
+            maxIndex = Math.max(maxIndex, mesh.getTriangles().get(i));
+        }
+        final boolean shortIndices = maxIndex <= MAX_SHORT_INDEX;
+
+        final ByteBuffer indexData = ByteBuffer.allocateDirect(indexCount * (shortIndices ? 2 : 4)).
+                order(ByteOrder.nativeOrder());
+        for (int i = 0; i < indexCount; i++) {
+            if (shortIndices) {
+                indexData.putShort(i * 2, (short) mesh.getTriangles().get(i).intValue());
+            } else {
+                indexData.putInt(i * 4, mesh.getTriangles().get(i));
+            }
+        }
+
+        return new CompactMeshData(vertexData, vertexCount, indexData, indexCount, shortIndices);
+    }
+
+    /**
+     * Writes the position of a vertex. Together with {@code putNormal}, {@code putTexcoord} and {@code putSkinning},
+     * it allows importers to encode vertices as they read them. Attributes which aren't written stay zero, which is
+     * what {@code encode} writes for missing attributes as well.
+     *
+     * @param vertexData Vertex data, in the native order.
+     * @param vertex Index of the vertex.
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param z Z coordinate.
+     */
+    public static void putPosition(final ByteBuffer vertexData, int vertex, float x, float y, float z) {
+        final int base = vertex * STRIDE + POSITION_OFFSET;
+        vertexData.putFloat(base, x);
+        vertexData.putFloat(base + 4, y);
+        vertexData.putFloat(base + 8, z);
+    }
+
+    public static void putNormal(final ByteBuffer vertexData, int vertex, float x, float y, float z) {
+        final int base = vertex * STRIDE + NORMAL_OFFSET;
+        final int encoded = encodeOctahedron(x, y, z);
+        vertexData.putShort(base, (short) (encoded >> 16));
+        vertexData.putShort(base + 2, (short) encoded);
+    }
+
+    public static void putTexcoord(final ByteBuffer vertexData, int vertex, float u, float v) {
+        final int base = vertex * STRIDE + TEXCOORD_OFFSET;
+        vertexData.putShort(base, floatToHalf(u));
+        vertexData.putShort(base + 2, floatToHalf(v));
+    }
+
+    /**
+     * Writes the bone indices and weights of a vertex. The weights are quantized, so that they sum up to exactly 255.
+     *
+     * @param vertexData Vertex data, in the native order.
+     * @param vertex Index of the vertex.
+     * @param boneIndices Bone indices.
+     * @param boneWeights Bone weights.
+     * @throws IllegalStateException If a bone index doesn't fit in a byte.
+     */
+    public static void putSkinning(final ByteBuffer vertexData, int vertex, final Vector3f boneIndices,
+                                   final Vector3f boneWeights) {
+        final int base = vertex * STRIDE;
+        final int[] weights = quantizeWeights(boneWeights);
+        for (int j = 0; j < MeshSkinningInfo.MAX_BONES_PER_VERTEX; j++) {
+            final int boneIndex = (int) boneIndices.get(j);
+            if (boneIndex < 0 || boneIndex > MAX_BONE_INDEX) {
+                throw new IllegalStateException("Bone index " + boneIndex + " doesn't fit in a byte");
+            }
+
+            vertexData.put(base + BONE_INDICES_OFFSET + j, (byte) boneIndex);
+            vertexData.put(base + BONE_WEIGHTS_OFFSET + j, (byte) weights[j]);
+        }
+    }
+
+    /**
+     * Quantizes the weights to unsigned bytes in such a way that they sum up to exactly 255.
+     */
+    private static int[] quantizeWeights(final Vector3f weights) {
+        final int[] quantized = new int[MeshSkinningInfo.MAX_BONES_PER_VERTEX];
+        final float sum = weights.x + weights.y + weights.z;
+        if (sum <= 0.0f) {
+            return quantized;
+        }
+
+        int total = 0;
+        int largest = 0;
+        for (int i = 0; i < quantized.length; i++) {
+            quantized[i] = Math.round(Math.max(weights.get(i), 0.0f) / sum * 255.0f);
+            total += quantized[i];
+            if (quantized[i] > quantized[largest]) {
+                largest = i;
+            }
+        }
+        quantized[largest] += 255 - total;
+        return quantized;
+    }
+
+    /**
+     * Encodes a unit vector using the octahedron mapping.
+     *
+     * @param x X component.
+     * @param y Y component.
+     * @param z Z component.
+     * @return Two signed normalized shorts, packed into an int (the first one in the upper half).
+     */
+    public static int encodeOctahedron(float x, float y, float z) {
+        final float length = Math.abs(x) + Math.abs(y) + Math.abs(z);
+        if (length == 0.0f) {
+            return 0;
+        }
+
+        float u = x / length;
+        float v = y / length;
+        if (z < 0.0f) {
+            final float tu = (1.0f - Math.abs(v)) * (u >= 0.0f ? 1.0f : -1.0f);
+            final float tv = (1.0f - Math.abs(u)) * (v >= 0.0f ? 1.0f : -1.0f);
+            u = tu;
+            v = tv;
+        }
+
+        final int su = Math.round(Math.max(-1.0f, Math.min(1.0f, u)) * Short.MAX_VALUE);
+        final int sv = Math.round(Math.max(-1.0f, Math.min(1.0f, v)) * Short.MAX_VALUE);
+        return (su << 16) | (sv & 0xFFFF);
+    }
+
+    /**
+     * Decodes an octahedron-encoded unit vector.
+     *
+     * @param u First signed normalized short.
+     * @param v Second signed normalized short.
+     * @param out Vector that will receive the result.
+     * @return {@code out}.
+     */
+    public static Vector3f decodeOctahedron(short u, short v, final Vector3f out) {
+        final float x = Math.max(u / (float) Short.MAX_VALUE, -1.0f);
+        final float y = Math.max(v / (float) Short.MAX_VALUE, -1.0f);
+        final float z = 1.0f - Math.abs(x) - Math.abs(y);
+        final float t = Math.max(-z, 0.0f);
+
+        out.set(x >= 0.0f ? x - t : x + t, y >= 0.0f ? y - t : y + t, z);
+        if (out.lengthSquared() > 0.0f) {
+            out.normalize();
+        }
+        return out;
+    }
+
+    /**
+     * Converts a float to a half float, rounding to the nearest even value.
+     *
+     * @param value Value to convert.
+     * @return Half float bits.
+     */
+    public static short floatToHalf(float value) {
+        final int bits = Float.floatToIntBits(value);
+        final int sign = (bits >>> 16) & 0x8000;
+        final int exponent = (bits >>> 23) & 0xFF;
+        int mantissa = bits & 0x7FFFFF;
+
+        //  NaN and infinity.
+        if (exponent == 0xFF) {
+            return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+        }
+
+        final int halfExponent = exponent - 127 + 15;
+        if (halfExponent >= 0x1F) {
+            return (short) (sign | 0x7C00);
+        }
+
+        if (halfExponent <= 0) {
+            //  Subnormal half or zero.
+            if (halfExponent < -10) {
+                return (short) sign;
+            }
+            mantissa |= 0x800000;
+            final int shift = 14 - halfExponent;
+            int half = mantissa >> shift;
+            final int remainder = mantissa & ((1 << shift) - 1);
+            final int halfway = 1 << (shift - 1);
+            if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+
+        int half = (halfExponent << 10) | (mantissa >> 13);
+        final int remainder = mantissa & 0x1FFF;
+        if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) {
+            //  Carrying into the exponent is fine, as it rounds up to the next power of two (or infinity).
+            half++;
+        }
+        return (short) (sign | half);
+    }
+
+    /**
+     * Converts a half float to a float.
+     *
+     * @param half Half float bits.
+     * @return Float value.
+     */
+    public static float halfToFloat(short half) {
+        final int bits = half & 0xFFFF;
+        final int sign = (bits & 0x8000) << 16;
+        final int exponent = (bits >>> 10) & 0x1F;
+        final int mantissa = bits & 0x3FF;
+
+        if (exponent == 0) {
+            final float value = mantissa / 1024.0f / 16384.0f;
+            return sign != 0 ? -value : value;
+        }
+        if (exponent == 0x1F) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        }
+        return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+    }
+}
@@ -0,0 +1,125 @@
+package pl.pateman.core.mesh;
+
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Removes redundant keyframes from animation tracks.
+ *
+ * Animators don't interpolate between keyframes by time - they sample the keyframe which follows the current time
+ * (see {@code BoneAnimatorUtils.getFrame}). Removing a keyframe which merely lies on a curve would therefore change
+ * the playback, so only keyframes inside runs of equal keyframes are removed. The first and the last keyframe of
+ * every run are kept, which makes the reduced track sample the same values at all times. Tracks whose keyframes are
+ * all equal are reduced to a single keyframe.
+ *
+ * Created by pateman.
+ */
+public final class KeyframeReducer {
+    /**
+     * Keyframes whose components don't differ by more than this are considered equal.
+     */
+    public static final float DEFAULT_TOLERANCE = 1.0e-6f;
+
+    private final float tolerance;
+
+    public KeyframeReducer() {
+        this(DEFAULT_TOLERANCE);
+    }
+
+    public KeyframeReducer(float tolerance) {
+        if (tolerance < 0.0f) {
+            throw new IllegalArgumentException("Tolerance cannot be negative");
+        }
+        this.tolerance = tolerance;
+    }
+
+    private boolean equal(float a, float b) {
+        return Math.abs(a - b) <= this.tolerance;
+    }
+
+    private boolean equal(final AnimationKeyframe a, final AnimationKeyframe b) {
+        final Vector3f translationA = a.getTranslation();
+        final Vector3f translationB = b.getTranslation();
+        final Quaternionf rotationA = a.getRotation();
+        final Quaternionf rotationB = b.getRotation();
+        return this.equal(translationA.x, translationB.x) && this.equal(translationA.y, translationB.y) &&
+                this.equal(translationA.z, translationB.z) && this.equal(rotationA.x, rotationB.x) &&
+                this.equal(rotationA.y, rotationB.y) && this.equal(rotationA.z, rotationB.z) &&
+                this.equal(rotationA.w, rotationB.w);
+    }
+
+    /**
+     * Reduces the given keyframes.
+     *
+     * @param keyframes Keyframes, sorted by time.
+     * @return Reduced keyframes.
+     */
+    public List<AnimationKeyframe> reduce(final List<AnimationKeyframe> keyframes) {
+        final List<AnimationKeyframe> reduced = new ArrayList<>();
+        if (keyframes.isEmpty()) {
+            return reduced;
+        }
+
+        //  Every keyframe of a run is compared against the first one, so the error can't accumulate.
+        int runStart = 0;
+        reduced.add(keyframes.get(0));
+        for (int i = 1; i < keyframes.size(); i++) {
+            if (this.equal(keyframes.get(runStart), keyframes.get(i))) {
+                continue;
+            }
+
+            if (i - 1 > runStart) {
+                reduced.add(keyframes.get(i - 1));
+            }
+            reduced.add(keyframes.get(i));
+            runStart = i;
+        }
+
+        //  Close the last run, unless the whole track is a single run.
+        final int last = keyframes.size() - 1;
+        if (last > runStart && runStart > 0) {
+            reduced.add(keyframes.get(last));
+        }
+        return reduced;
+    }
+
+    /**
+     * Reduces all tracks of the given mesh's animations. Tracks backed by packed keyframes are replaced with regular
+     * ones.
+     *
+     * @param mesh Mesh.
+     * @return Number of removed keyframes.
+     */
+    public int reduce(final Mesh mesh) {
+        if (mesh == null) {
+            throw new IllegalArgumentException("A valid mesh needs to be provided");
+        }
+
+        int removed = 0;
+        for (final Animation animation : mesh.getAnimations()) {
+            final List<AnimationTrack> tracks = animation.getTracks();
+            for (int i = 0; i < tracks.size(); i++) {
+                final AnimationTrack track = tracks.get(i);
+                final List<AnimationKeyframe> reduced = this.reduce(track.getKeyframes());
+                if (reduced.size() == track.getKeyframeCount()) {
+                    continue;
+                }
+
+                removed += track.getKeyframeCount() - reduced.size();
+                final AnimationTrack reducedTrack = new AnimationTrack(track.getBone());
+                reducedTrack.getKeyframes().addAll(reduced);
+                tracks.set(i, reducedTrack);
+            }
+        }
+
+        mesh.createBoneTracks();
+        return removed;
+    }
+
+    public float getTolerance() {
+        return tolerance;
+    }
+}
@@ -15,6 +15,9 @@ public class Mesh {
     private final List<Integer> triangles;
     private final Skeleton skeleton;
     private final List<Animation> animations;
+    private transient CompactMeshData compactMeshData;
+    private transient MeshSkinningInfo skinningInfo;
+    private transient AnimationClipSource clipSource;
 
     public Mesh() {
         this.vertices = new ArrayList<>();
@@ -26,6 +29,10 @@ public class Mesh {
     }
 
     public MeshSkinningInfo getSkinningInfo() {
+        if (this.skinningInfo != null) {
+            return this.skinningInfo;
+        }
+
         final MeshSkinningInfo skinningInfo = new MeshSkinningInfo();
 
         final Map<Integer, Set<VertexInfo>> vertexMap = new TreeMap<>(new Comparator<Integer>() {
@@ -106,6 +113,106 @@ public class Mesh {
         return animations;
     }
 
+    /**
+     * Returns the animation with the given name. Animations of the mesh are searched first, then the clip source,
+     * whose clips are loaded through {@code AnimationClipCache} on the first request.
+     *
+     * @param name Name of the animation.
+     * @return Animation, or {@code null} if there's no such animation.
+     */
+    public Animation getAnimation(final String name) {
+        for (int i = 0; i < this.animations.size(); i++) {
+            final Animation animation = this.animations.get(i);
+            if (animation.getName().equals(name)) {
+                return animation;
+            }
+        }
+
+        if (this.clipSource != null && this.clipSource.hasClip(name)) {
+            return AnimationClipCache.getDefault().getClip(this.clipSource, name);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the names of all animations, including the ones which haven't been loaded from the clip source yet.
+     *
+     * @return Names of the animations.
+     */
+    public List<String> getAnimationNames() {
+        final List<String> names = new ArrayList<>(this.animations.size());
+        for (int i = 0; i < this.animations.size(); i++) {
+            names.add(this.animations.get(i).getName());
+        }
+        if (this.clipSource != null) {
+            for (final String name : this.clipSource.getClipNames()) {
+                if (!names.contains(name)) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+
+    public boolean hasAnimations() {
+        return !this.animations.isEmpty() || (this.clipSource != null && !this.clipSource.getClipNames().isEmpty());
+    }
+
+    /**
+     * Hints that the given animation will be needed soon, so that it's loaded from the clip source in the background.
+     * Does nothing for animations which aren't streamed.
+     *
+     * @param name Name of the animation.
+     */
+    public void prefetchAnimation(final String name) {
+        if (this.clipSource == null || !this.clipSource.hasClip(name)) {
+            return;
+        }
+        for (int i = 0; i < this.animations.size(); i++) {
+            if (this.animations.get(i).getName().equals(name)) {
+                return;
+            }
+        }
+        AnimationClipCache.getDefault().prefetch(this.clipSource, name);
+    }
+
+    public AnimationClipSource getClipSource() {
+        return clipSource;
+    }
+
+    /**
+     * Sets the source of animations which are loaded on demand, in addition to the ones in {@code getAnimations}.
+     *
+     * @param clipSource Clip source, or {@code null} if all animations are loaded with the mesh.
+     */
+    public void setClipSource(AnimationClipSource clipSource) {
+        this.clipSource = clipSource;
+    }
+
+    public CompactMeshData getCompactMeshData() {
+        return compactMeshData;
+    }
+
+    /**
+     * Sets pre-encoded data for the compact vertex format, e.g. sections of a memory-mapped asset. Mesh filters
+     * upload it as is instead of encoding the mesh. The data needs to match the mesh's content.
+     *
+     * @param compactMeshData Encoded data, or {@code null} to encode the mesh when it's uploaded.
+     */
+    public void setCompactMeshData(CompactMeshData compactMeshData) {
+        this.compactMeshData = compactMeshData;
+    }
+
+    /**
+     * Sets precomputed skinning info, e.g. read from a cooked asset. {@code getSkinningInfo} returns it instead of
+     * computing it from the bones' weights, so it needs to match them.
+     *
+     * @param skinningInfo Skinning info, or {@code null} to compute it on each call.
+     */
+    public void setSkinningInfo(MeshSkinningInfo skinningInfo) {
+        this.skinningInfo = skinningInfo;
+    }
+
     private class VertexInfo {
         final int bone;
         final float weight;
@@ -0,0 +1,248 @@
+package pl.pateman.core.mesh;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bind space bounds of a mesh. For every bone, an AABB of the vertices that it influences is stored, both in bind
+ * space and in the bone's space (i.e. transformed by the bone's inverse bind matrix). Vertices that aren't influenced
+ * by any bone are enclosed in a separate, static AABB.
+ *
+ * A skinned vertex is a weighted average of its positions transformed by the influencing bones' skinning matrices,
+ * which are the bones' animation matrices multiplied by their inverse bind matrices. Thus, as long as the weights of
+ * every vertex sum up to 1, an AABB of the bone space boxes transformed by the animation matrices always encloses the
+ * animated mesh. Computing it is O(bones) instead of O(vertices).
+ *
+ * Created by pateman.
+ */
+public final class MeshBounds {
+    private final Skeleton skeleton;
+    private final float[] boneMin;
+    private final float[] boneMax;
+    private final float[] boneLocalMin;
+    private final float[] boneLocalMax;
+    private final boolean[] boneHasBounds;
+    private final Vector3f staticMin;
+    private final Vector3f staticMax;
+    private final Vector3f bindMin;
+    private final Vector3f bindMax;
+    private final boolean hasStaticVertices;
+
+    public MeshBounds(final Mesh mesh) {
+        if (mesh == null) {
+            throw new IllegalArgumentException("A valid mesh needs to be provided");
+        }
+
+        this.skeleton = mesh.getSkeleton();
+
+        int boneSlots = 0;
+        for (final Bone bone : this.skeleton.getBones()) {
+            boneSlots = Math.max(boneSlots, bone.getIndex() + 1);
+        }
+        this.boneMin = new float[boneSlots * 3];
+        this.boneMax = new float[boneSlots * 3];
+        this.boneLocalMin = new float[boneSlots * 3];
+        this.boneLocalMax = new float[boneSlots * 3];
+        this.boneHasBounds = new boolean[boneSlots];
+        Arrays.fill(this.boneMin, Float.POSITIVE_INFINITY);
+        Arrays.fill(this.boneMax, Float.NEGATIVE_INFINITY);
+        Arrays.fill(this.boneLocalMin, Float.POSITIVE_INFINITY);
+        Arrays.fill(this.boneLocalMax, Float.NEGATIVE_INFINITY);
+
+        //  Expand the boxes of bones by the vertices that they influence.
+        final List<Vector3f> vertices = mesh.getVertices();
+        final boolean[] skinned = new boolean[vertices.size()];
+        final Vector3f local = new Vector3f();
+        for (final Bone bone : this.skeleton.getBones()) {
+            final int base = bone.getIndex() * 3;
+            for (final Map.Entry<Integer, Float> vertexWeight : bone.getVertexWeights().entrySet()) {
+                final int vertexIndex = vertexWeight.getKey();
+                if (vertexWeight.getValue() == 0.0f || vertexIndex < 0 || vertexIndex >= vertices.size()) {
+                    continue;
+                }
+
+                final Vector3f vertex = vertices.get(vertexIndex);
+                this.boneMin[base] = Math.min(this.boneMin[base], vertex.x);
+                this.boneMin[base + 1] = Math.min(this.boneMin[base + 1], vertex.y);
+                this.boneMin[base + 2] = Math.min(this.boneMin[base + 2], vertex.z);
+                this.boneMax[base] = Math.max(this.boneMax[base], vertex.x);
+                this.boneMax[base + 1] = Math.max(this.boneMax[base + 1], vertex.y);
+                this.boneMax[base + 2] = Math.max(this.boneMax[base + 2], vertex.z);
+
+                bone.getInverseBindMatrix().transformPosition(vertex, local);
+                this.boneLocalMin[base] = Math.min(this.boneLocalMin[base], local.x);
+                this.boneLocalMin[base + 1] = Math.min(this.boneLocalMin[base + 1], local.y);
+                this.boneLocalMin[base + 2] = Math.min(this.boneLocalMin[base + 2], local.z);
+                this.boneLocalMax[base] = Math.max(this.boneLocalMax[base], local.x);
+                this.boneLocalMax[base + 1] = Math.max(this.boneLocalMax[base + 1], local.y);
+                this.boneLocalMax[base + 2] = Math.max(this.boneLocalMax[base + 2], local.z);
+                this.boneHasBounds[bone.getIndex()] = true;
+                skinned[vertexIndex] = true;
+            }
+        }
+
+        //  Whatever isn't skinned stays where it is.
+        this.staticMin = new Vector3f(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+        this.staticMax = new Vector3f(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+        this.bindMin = new Vector3f(this.staticMin);
+        this.bindMax = new Vector3f(this.staticMax);
+        boolean anyStatic = false;
+        for (int i = 0; i < vertices.size(); i++) {
+            final Vector3f vertex = vertices.get(i);
+            this.bindMin.min(vertex);
+            this.bindMax.max(vertex);
+            if (!skinned[i]) {
+                this.staticMin.min(vertex);
+                this.staticMax.max(vertex);
+                anyStatic = true;
+            }
+        }
+        this.hasStaticVertices = anyStatic;
+    }
+
+    /**
+     * Computes an AABB that encloses the given box transformed by the given matrix.
+     *
+     * @param matrix Transformation matrix.
+     * @param min Minimum of the box.
+     * @param max Maximum of the box.
+     * @param outMin Minimum of the result. May be the same instance as {@code min}.
+     * @param outMax Maximum of the result. May be the same instance as {@code max}.
+     */
+    public static void transformAABB(final Matrix4f matrix, final Vector3f min, final Vector3f max,
+                                     final Vector3f outMin, final Vector3f outMax) {
+        transformAABB(matrix, min.x, min.y, min.z, max.x, max.y, max.z, outMin, outMax);
+    }
+
+    private static void transformAABB(final Matrix4f m, float minX, float minY, float minZ, float maxX, float maxY,
+                                      float maxZ, final Vector3f outMin, final Vector3f outMax) {
+        //  For every axis, pick the smaller and the bigger product of each matrix column with the box's bounds.
+        float nx = m.m30, ny = m.m31, nz = m.m32;
+        float xx = m.m30, xy = m.m31, xz = m.m32;
+
+        float a = m.m00 * minX, b = m.m00 * maxX;
+        nx += Math.min(a, b); xx += Math.max(a, b);
+        a = m.m01 * minX; b = m.m01 * maxX;
+        ny += Math.min(a, b); xy += Math.max(a, b);
+        a = m.m02 * minX; b = m.m02 * maxX;
+        nz += Math.min(a, b); xz += Math.max(a, b);
+
+        a = m.m10 * minY; b = m.m10 * maxY;
+        nx += Math.min(a, b); xx += Math.max(a, b);
+        a = m.m11 * minY; b = m.m11 * maxY;
+        ny += Math.min(a, b); xy += Math.max(a, b);
+        a = m.m12 * minY; b = m.m12 * maxY;
+        nz += Math.min(a, b); xz += Math.max(a, b);
+
+        a = m.m20 * minZ; b = m.m20 * maxZ;
+        nx += Math.min(a, b); xx += Math.max(a, b);
+        a = m.m21 * minZ; b = m.m21 * maxZ;
+        ny += Math.min(a, b); xy += Math.max(a, b);
+        a = m.m22 * minZ; b = m.m22 * maxZ;
+        nz += Math.min(a, b); xz += Math.max(a, b);
+
+        outMin.set(nx, ny, nz);
+        outMax.set(xx, xy, xz);
+    }
+
+    /**
+     * Computes a conservative AABB of the animated mesh, in model space.
+     *
+     * @param boneMatrices Animation matrices, without the inverse bind transform applied, in the order of the
+     *                     skeleton's bones (as returned by {@code AnimationController.getAnimationMatrices()}).
+     * @param outMin Minimum of the result.
+     * @param outMax Maximum of the result.
+     * @return {@code true} if the mesh has any vertices, {@code false} otherwise.
+     */
+    public boolean computeAnimatedBounds(final List<Matrix4f> boneMatrices, final Vector3f outMin,
+                                         final Vector3f outMax) {
+        float minX = this.staticMin.x, minY = this.staticMin.y, minZ = this.staticMin.z;
+        float maxX = this.staticMax.x, maxY = this.staticMax.y, maxZ = this.staticMax.z;
+
+        final int boneCount = Math.min(boneMatrices.size(), this.skeleton.getBones().size());
+        for (int i = 0; i < boneCount; i++) {
+            final int boneIndex = this.skeleton.getBone(i).getIndex();
+            if (!this.boneHasBounds[boneIndex]) {
+                continue;
+            }
+
+            final int base = boneIndex * 3;
+            //  The boxes are in bone space, so the animation matrices take them straight to the animated pose.
+            transformAABB(boneMatrices.get(i), this.boneLocalMin[base], this.boneLocalMin[base + 1],
+                    this.boneLocalMin[base + 2], this.boneLocalMax[base], this.boneLocalMax[base + 1],
+                    this.boneLocalMax[base + 2], outMin, outMax);
+            minX = Math.min(minX, outMin.x);
+            minY = Math.min(minY, outMin.y);
+            minZ = Math.min(minZ, outMin.z);
+            maxX = Math.max(maxX, outMax.x);
+            maxY = Math.max(maxY, outMax.y);
+            maxZ = Math.max(maxZ, outMax.z);
+        }
+
+        outMin.set(minX, minY, minZ);
+        outMax.set(maxX, maxY, maxZ);
+        return minX <= maxX;
+    }
+
+    /**
+     * Computes a conservative AABB of the animated mesh, transformed by the given (world) matrix.
+     *
+     * @param boneMatrices Animation matrices.
+     * @param transformation Transformation matrix.
+     * @param outMin Minimum of the result.
+     * @param outMax Maximum of the result.
+     * @return {@code true} if the mesh has any vertices, {@code false} otherwise.
+     */
+    public boolean computeAnimatedBounds(final List<Matrix4f> boneMatrices, final Matrix4f transformation,
+                                         final Vector3f outMin, final Vector3f outMax) {
+        if (!this.computeAnimatedBounds(boneMatrices, outMin, outMax)) {
+            return false;
+        }
+        transformAABB(transformation, outMin, outMax, outMin, outMax);
+        return true;
+    }
+
+    /**
+     * Returns the bind space AABB of vertices influenced by the given bone.
+     *
+     * @param bone Bone.
+     * @param outMin Minimum of the result.
+     * @param outMax Maximum of the result.
+     * @return {@code true} if the bone influences at least one vertex, {@code false} otherwise.
+     */
+    public boolean getBoneBounds(final Bone bone, final Vector3f outMin, final Vector3f outMax) {
+        final int boneIndex = bone.getIndex();
+        if (boneIndex < 0 || boneIndex >= this.boneHasBounds.length || !this.boneHasBounds[boneIndex]) {
+            return false;
+        }
+
+        final int base = boneIndex * 3;
+        outMin.set(this.boneMin[base], this.boneMin[base + 1], this.boneMin[base + 2]);
+        outMax.set(this.boneMax[base], this.boneMax[base + 1], this.boneMax[base + 2]);
+        return true;
+    }
+
+    public boolean hasStaticVertices() {
+        return hasStaticVertices;
+    }
+
+    public Vector3f getStaticMin() {
+        return staticMin;
+    }
+
+    public Vector3f getStaticMax() {
+        return staticMax;
+    }
+
+    public Vector3f getBindMin() {
+        return bindMin;
+    }
+
+    public Vector3f getBindMax() {
+        return bindMax;
+    }
+}
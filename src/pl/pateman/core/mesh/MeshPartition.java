@@ -0,0 +1,55 @@
+package pl.pateman.core.mesh;
+
+import java.util.List;
+
+/**
+ * A part of a mesh that references a limited number of bones. The part's mesh has its own skeleton, whose bones are
+ * indexed locally (from 0 to the palette's size) and only carry the vertex weights. The palette maps these local
+ * indices back to the indices of the original skeleton's bones, so that the animation matrices of the original mesh
+ * can be used for skinning.
+ *
+ * Created by pateman.
+ */
+public final class MeshPartition {
+    private final Mesh mesh;
+    private final int[] palette;
+
+    MeshPartition(Mesh mesh, int[] palette) {
+        this.mesh = mesh;
+        this.palette = palette;
+    }
+
+    public Mesh getMesh() {
+        return mesh;
+    }
+
+    /**
+     * Returns the palette. Element {@code i} is the index (in the original skeleton's list of bones) of the bone that
+     * the partition refers to as {@code i}.
+     *
+     * @return Palette.
+     */
+    public int[] getPalette() {
+        return palette;
+    }
+
+    public int getPaletteSize() {
+        return this.palette.length;
+    }
+
+    /**
+     * Gathers the matrices of the bones that the partition references.
+     *
+     * @param skeletonMatrices Matrices of all bones, in the order of the original skeleton's bones.
+     * @param out List that the partition's matrices are put into. Its elements are replaced.
+     * @param <T> Type of the matrices.
+     * @return {@code out}.
+     */
+    public <T> List<T> gatherPaletteMatrices(final List<T> skeletonMatrices, final List<T> out) {
+        out.clear();
+        for (int i = 0; i < this.palette.length; i++) {
+            out.add(skeletonMatrices.get(this.palette[i]));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,74 @@
+package pl.pateman.core.mesh;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of partitioning a mesh with {@code SkeletonPartitioner}.
+ *
+ * Created by pateman.
+ */
+public final class MeshPartitioning {
+    private final int maxBonesPerPartition;
+    private final List<MeshPartition> partitions;
+    private final int duplicatedVertexCount;
+
+    MeshPartitioning(int maxBonesPerPartition, List<MeshPartition> partitions, int duplicatedVertexCount) {
+        this.maxBonesPerPartition = maxBonesPerPartition;
+        this.partitions = Collections.unmodifiableList(partitions);
+        this.duplicatedVertexCount = duplicatedVertexCount;
+    }
+
+    public int getMaxBonesPerPartition() {
+        return maxBonesPerPartition;
+    }
+
+    public List<MeshPartition> getPartitions() {
+        return partitions;
+    }
+
+    public int getDrawCallCount() {
+        return this.partitions.size();
+    }
+
+    public int getLargestPaletteSize() {
+        int largest = 0;
+        for (int i = 0; i < this.partitions.size(); i++) {
+            largest = Math.max(largest, this.partitions.get(i).getPaletteSize());
+        }
+        return largest;
+    }
+
+    /**
+     * Returns the number of bone matrices uploaded per frame, i.e. the sum of sizes of all palettes.
+     *
+     * @return Number of uploaded matrices.
+     */
+    public int getUploadedMatrixCount() {
+        int count = 0;
+        for (int i = 0; i < this.partitions.size(); i++) {
+            count += this.partitions.get(i).getPaletteSize();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of vertices that had to be duplicated, because they're shared by multiple partitions.
+     *
+     * @return Number of duplicated vertices.
+     */
+    public int getDuplicatedVertexCount() {
+        return duplicatedVertexCount;
+    }
+
+    @Override
+    public String toString() {
+        return "MeshPartitioning{" +
+                "maxBonesPerPartition=" + maxBonesPerPartition +
+                ", drawCalls=" + this.getDrawCallCount() +
+                ", largestPalette=" + this.getLargestPaletteSize() +
+                ", uploadedMatrices=" + this.getUploadedMatrixCount() +
+                ", duplicatedVertices=" + this.getDuplicatedVertexCount() +
+                '}';
+    }
+}
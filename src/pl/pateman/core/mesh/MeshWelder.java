@@ -0,0 +1,177 @@
+package pl.pateman.core.mesh;
+
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+
+import java.util.*;
+
+/**
+ * Merges vertices which are exact duplicates of each other. Exporters usually split vertices per face, so a mesh can
+ * contain many copies of the same vertex. Two vertices are merged only if their positions, normals, texture
+ * coordinates and bone weights are bitwise equal, so welding never changes how the mesh looks or deforms.
+ *
+ * Created by pateman.
+ */
+public final class MeshWelder {
+    private MeshWelder() {
+
+    }
+
+    private static final class VertexKey {
+        private final float[] values;
+        private final int hash;
+
+        private VertexKey(float[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            return Arrays.equals(this.values, ((VertexKey) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static float[][] getSkinPairs(final Mesh mesh, int vertexCount) {
+        //  Pairs of bone indices and weights of each vertex. Bones are visited in order, so the pairs are sorted.
+        final List<Bone> bones = mesh.getSkeleton().getBones();
+        final float[][] skin = new float[vertexCount][];
+        for (int i = 0; i < bones.size(); i++) {
+            for (final Map.Entry<Integer, Float> weight : bones.get(i).getVertexWeights().entrySet()) {
+                final int vertex = weight.getKey();
+                if (vertex < 0 || vertex >= vertexCount) {
+                    continue;
+                }
+
+                final float[] previous = skin[vertex];
+                final float[] pairs = previous == null ? new float[2] : Arrays.copyOf(previous, previous.length + 2);
+                pairs[pairs.length - 2] = i;
+                pairs[pairs.length - 1] = weight.getValue();
+                skin[vertex] = pairs;
+            }
+        }
+
+        return skin;
+    }
+
+    /**
+     * Welds the vertices of the given mesh in place. Indices and bone weights are remapped, and pre-encoded compact
+     * data and skinning info are dropped, as they no longer match the mesh.
+     *
+     * @param mesh Mesh to weld.
+     * @return Number of removed vertices.
+     */
+    public static int weld(final Mesh mesh) {
+        if (mesh == null) {
+            throw new IllegalArgumentException("A valid mesh needs to be provided");
+        }
+
+        final List<Vector3f> vertices = mesh.getVertices();
+        final List<Vector3f> normals = mesh.getNormals();
+        final List<Vector2f> texcoords = mesh.getTexcoords();
+        final int vertexCount = vertices.size();
+        final boolean hasNormals = normals.size() == vertexCount;
+        final boolean hasTexcoords = texcoords.size() == vertexCount;
+        final float[][] skin = getSkinPairs(mesh, vertexCount);
+
+        //  Find the first occurrence of every distinct vertex.
+        final Map<VertexKey, Integer> uniqueVertices = new HashMap<>(vertexCount * 2);
+        final int[] remap = new int[vertexCount];
+        final List<Integer> kept = new ArrayList<>(vertexCount);
+        for (int i = 0; i < vertexCount; i++) {
+            final float[] pairs = skin[i] == null ? new float[0] : skin[i];
+            final float[] values = new float[8 + pairs.length];
+            final Vector3f vertex = vertices.get(i);
+            values[0] = vertex.x;
+            values[1] = vertex.y;
+            values[2] = vertex.z;
+            if (hasNormals) {
+                final Vector3f normal = normals.get(i);
+                values[3] = normal.x;
+                values[4] = normal.y;
+                values[5] = normal.z;
+            }
+            if (hasTexcoords) {
+                final Vector2f texcoord = texcoords.get(i);
+                values[6] = texcoord.x;
+                values[7] = texcoord.y;
+            }
+            System.arraycopy(pairs, 0, values, 8, pairs.length);
+
+            final VertexKey key = new VertexKey(values);
+            final Integer existing = uniqueVertices.get(key);
+            if (existing == null) {
+                remap[i] = kept.size();
+                uniqueVertices.put(key, kept.size());
+                kept.add(i);
+            } else {
+                remap[i] = existing;
+            }
+        }
+
+        final int removed = vertexCount - kept.size();
+        if (removed == 0) {
+            return 0;
+        }
+
+        //  Compact the vertex streams.
+        final List<Vector3f> newVertices = new ArrayList<>(kept.size());
+        final List<Vector3f> newNormals = new ArrayList<>(hasNormals ? kept.size() : 0);
+        final List<Vector2f> newTexcoords = new ArrayList<>(hasTexcoords ? kept.size() : 0);
+        for (final Integer vertex : kept) {
+            newVertices.add(vertices.get(vertex));
+            if (hasNormals) {
+                newNormals.add(normals.get(vertex));
+            }
+            if (hasTexcoords) {
+                newTexcoords.add(texcoords.get(vertex));
+            }
+        }
+        vertices.clear();
+        vertices.addAll(newVertices);
+        if (hasNormals) {
+            normals.clear();
+            normals.addAll(newNormals);
+        }
+        if (hasTexcoords) {
+            texcoords.clear();
+            texcoords.addAll(newTexcoords);
+        }
+
+        //  Remap the indices.
+        final List<Integer> triangles = mesh.getTriangles();
+        for (int i = 0; i < triangles.size(); i++) {
+            final int index = triangles.get(i);
+            if (index >= 0 && index < vertexCount) {
+                triangles.set(i, remap[index]);
+            }
+        }
+
+        //  Merged vertices have the same weights, so only the weights of the kept ones are moved.
+        for (final Bone bone : mesh.getSkeleton().getBones()) {
+            final Map<Integer, Float> weights = new HashMap<>(bone.getVertexWeights());
+            bone.getVertexWeights().clear();
+            for (final Map.Entry<Integer, Float> weight : weights.entrySet()) {
+                final int vertex = weight.getKey();
+                if (vertex < 0 || vertex >= vertexCount) {
+                    continue;
+                }
+                if (kept.get(remap[vertex]) == vertex) {
+                    bone.addVertexWeight(remap[vertex], weight.getValue());
+                }
+            }
+        }
+
+        mesh.setCompactMeshData(null);
+        mesh.setSkinningInfo(null);
+        return removed;
+    }
+}
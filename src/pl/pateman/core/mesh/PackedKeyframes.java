@@ -0,0 +1,118 @@
+package pl.pateman.core.mesh;
+
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Read-only keyframes of a single track, packed in a byte buffer. Every keyframe takes {@code STRIDE} bytes:
+ *
+ * <ul>
+ *     <li>time - 1 float,</li>
+ *     <li>translation - 3 floats,</li>
+ *     <li>rotation - 4 signed normalized shorts.</li>
+ * </ul>
+ *
+ * The data is little-endian. The buffer may be a slice of a memory-mapped file, in which case keyframes are sampled
+ * straight from the mapping.
+ *
+ * Created by pateman.
+ */
+public final class PackedKeyframes {
+    public static final int TIME_OFFSET = 0;
+    public static final int TRANSLATION_OFFSET = 4;
+    public static final int ROTATION_OFFSET = 16;
+    public static final int STRIDE = 24;
+
+    private final ByteBuffer data;
+    private final int keyframeCount;
+
+    /**
+     * Wraps the given data. The buffer's position and limit aren't modified.
+     *
+     * @param data Packed keyframes, starting at the buffer's position.
+     * @param keyframeCount Number of keyframes.
+     */
+    public PackedKeyframes(final ByteBuffer data, int keyframeCount) {
+        if (data == null || keyframeCount < 0) {
+            throw new IllegalArgumentException();
+        }
+        if (data.remaining() < keyframeCount * STRIDE) {
+            throw new IllegalArgumentException("The buffer is too small for " + keyframeCount + " keyframes");
+        }
+
+        this.data = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.keyframeCount = keyframeCount;
+    }
+
+    /**
+     * Packs the given keyframes into the buffer, starting at its position, which is then advanced.
+     *
+     * @param keyframes Keyframes to pack.
+     * @param out Buffer that will receive the data. It needs to be little-endian.
+     */
+    public static void encode(final List<AnimationKeyframe> keyframes, final ByteBuffer out) {
+        if (out.order() != ByteOrder.LITTLE_ENDIAN) {
+            throw new IllegalArgumentException("The buffer needs to be little-endian");
+        }
+
+        for (int i = 0; i < keyframes.size(); i++) {
+            final AnimationKeyframe keyframe = keyframes.get(i);
+            final Vector3f translation = keyframe.getTranslation();
+            final Quaternionf rotation = keyframe.getRotation();
+
+            out.putFloat(keyframe.getTime());
+            out.putFloat(translation.x).putFloat(translation.y).putFloat(translation.z);
+            out.putShort(quantize(rotation.x)).putShort(quantize(rotation.y)).putShort(quantize(rotation.z)).
+                    putShort(quantize(rotation.w));
+        }
+    }
+
+    private static short quantize(float value) {
+        return (short) Math.round(Math.max(-1.0f, Math.min(1.0f, value)) * Short.MAX_VALUE);
+    }
+
+    private static float dequantize(short value) {
+        return Math.max(value / (float) Short.MAX_VALUE, -1.0f);
+    }
+
+    private int getOffset(int keyframe) {
+        if (keyframe < 0 || keyframe >= this.keyframeCount) {
+            throw new IndexOutOfBoundsException("Invalid keyframe " + keyframe);
+        }
+        return keyframe * STRIDE;
+    }
+
+    public float getTime(int keyframe) {
+        return this.data.getFloat(this.getOffset(keyframe) + TIME_OFFSET);
+    }
+
+    public Vector3f getTranslation(int keyframe, final Vector3f out) {
+        final int base = this.getOffset(keyframe) + TRANSLATION_OFFSET;
+        return out.set(this.data.getFloat(base), this.data.getFloat(base + 4), this.data.getFloat(base + 8));
+    }
+
+    public Quaternionf getRotation(int keyframe, final Quaternionf out) {
+        final int base = this.getOffset(keyframe) + ROTATION_OFFSET;
+        out.set(dequantize(this.data.getShort(base)), dequantize(this.data.getShort(base + 2)),
+                dequantize(this.data.getShort(base + 4)), dequantize(this.data.getShort(base + 6)));
+        return out.normalize();
+    }
+
+    public int getKeyframeCount() {
+        return keyframeCount;
+    }
+
+    /**
+     * Returns the size of packed data for the given number of keyframes.
+     *
+     * @param keyframeCount Number of keyframes.
+     * @return Size in bytes.
+     */
+    public static int getByteSize(int keyframeCount) {
+        return keyframeCount * STRIDE;
+    }
+}
@@ -0,0 +1,224 @@
+package pl.pateman.core.mesh;
+
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+
+import java.util.*;
+
+/**
+ * Splits a skinned mesh into partitions that reference at most a given number of bones each, so that every
+ * partition can be drawn with a bone palette that fits in the shader.
+ *
+ * Triangles are assigned greedily, in the order of the bones that they reference, to the partition which needs the
+ * fewest new bones to accommodate them. Vertices shared by multiple partitions are duplicated. Fewer bones per
+ * partition mean smaller uploads per draw call, but more draw calls and more duplicated vertices - use
+ * {@code evaluate} to see the trade-off for a particular mesh.
+ *
+ * Created by pateman.
+ */
+public final class SkeletonPartitioner {
+    /**
+     * A single triangle can reference that many bones, so no partition can be smaller.
+     */
+    public static final int MIN_BONES_PER_PARTITION = MeshSkinningInfo.MAX_BONES_PER_VERTEX * 3;
+
+    private final int maxBonesPerPartition;
+
+    public SkeletonPartitioner() {
+        this(MeshSkinningInfo.MAX_BONES);
+    }
+
+    public SkeletonPartitioner(int maxBonesPerPartition) {
+        if (maxBonesPerPartition < MIN_BONES_PER_PARTITION) {
+            throw new IllegalArgumentException("A partition needs to hold at least " + MIN_BONES_PER_PARTITION +
+                    " bones");
+        }
+        this.maxBonesPerPartition = maxBonesPerPartition;
+    }
+
+    /**
+     * Checks whether the given mesh needs to be partitioned in order to be rendered.
+     *
+     * @param mesh Mesh.
+     * @return {@code true} if the mesh's skeleton has more bones than a single palette can hold.
+     */
+    public static boolean needsPartitioning(final Mesh mesh) {
+        return mesh.getSkeleton().getBones().size() > MeshSkinningInfo.MAX_BONES;
+    }
+
+    /**
+     * Partitions the given mesh with each of the given palette sizes, so that the number of draw calls can be compared
+     * against the size of palettes.
+     *
+     * @param mesh Mesh to partition.
+     * @param paletteSizes Palette sizes to check.
+     * @return List of results, in the order of {@code paletteSizes}.
+     */
+    public static List<MeshPartitioning> evaluate(final Mesh mesh, final int... paletteSizes) {
+        final List<MeshPartitioning> results = new ArrayList<>(paletteSizes.length);
+        for (final int paletteSize : paletteSizes) {
+            results.add(new SkeletonPartitioner(paletteSize).partition(mesh));
+        }
+        return results;
+    }
+
+    public MeshPartitioning partition(final Mesh mesh) {
+        if (mesh == null) {
+            throw new IllegalArgumentException("A valid mesh needs to be provided");
+        }
+
+        final List<Bone> bones = mesh.getSkeleton().getBones();
+        final int vertexCount = mesh.getVertices().size();
+
+        //  Gather bones (as positions in the skeleton's list) and weights for every vertex.
+        final List<List<Integer>> vertexBones = new ArrayList<>(vertexCount);
+        final List<List<Float>> vertexWeights = new ArrayList<>(vertexCount);
+        for (int i = 0; i < vertexCount; i++) {
+            vertexBones.add(new ArrayList<>(MeshSkinningInfo.MAX_BONES_PER_VERTEX));
+            vertexWeights.add(new ArrayList<>(MeshSkinningInfo.MAX_BONES_PER_VERTEX));
+        }
+        for (int i = 0; i < bones.size(); i++) {
+            for (final Map.Entry<Integer, Float> entry : bones.get(i).getVertexWeights().entrySet()) {
+                final int vertex = entry.getKey();
+                if (vertex >= 0 && vertex < vertexCount) {
+                    vertexBones.get(vertex).add(i);
+                    vertexWeights.get(vertex).add(entry.getValue());
+                }
+            }
+        }
+
+        //  Compute the set of bones for each triangle and sort the triangles, so that the ones referencing the same
+        //  bones end up next to each other.
+        final int triangleCount = mesh.getTriangles().size() / 3;
+        final int[][] triangleBones = new int[triangleCount][];
+        final Integer[] order = new Integer[triangleCount];
+        final TreeSet<Integer> boneSet = new TreeSet<>();
+        for (int t = 0; t < triangleCount; t++) {
+            boneSet.clear();
+            for (int c = 0; c < 3; c++) {
+                boneSet.addAll(vertexBones.get(mesh.getTriangles().get(t * 3 + c)));
+            }
+            if (boneSet.size() > this.maxBonesPerPartition) {
+                throw new IllegalStateException("Triangle " + t + " references more bones (" + boneSet.size() +
+                        ") than a partition can hold (" + this.maxBonesPerPartition + ")");
+            }
+
+            triangleBones[t] = new int[boneSet.size()];
+            int i = 0;
+            for (final Integer bone : boneSet) {
+                triangleBones[t][i++] = bone;
+            }
+            order[t] = t;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                final int[] a = triangleBones[o1];
+                final int[] b = triangleBones[o2];
+                for (int i = 0; i < Math.min(a.length, b.length); i++) {
+                    if (a[i] != b[i]) {
+                        return a[i] - b[i];
+                    }
+                }
+                return a.length != b.length ? a.length - b.length : o1 - o2;
+            }
+        });
+
+        //  Assign triangles to partitions.
+        final List<Set<Integer>> partitionBones = new ArrayList<>();
+        final List<List<Integer>> partitionTriangles = new ArrayList<>();
+        for (final Integer triangle : order) {
+            int best = -1;
+            int bestNewBones = Integer.MAX_VALUE;
+            for (int p = 0; p < partitionBones.size(); p++) {
+                final Set<Integer> palette = partitionBones.get(p);
+                int newBones = 0;
+                for (final int bone : triangleBones[triangle]) {
+                    if (!palette.contains(bone)) {
+                        newBones++;
+                    }
+                }
+                if (palette.size() + newBones <= this.maxBonesPerPartition && newBones < bestNewBones) {
+                    best = p;
+                    bestNewBones = newBones;
+                    if (newBones == 0) {
+                        break;
+                    }
+                }
+            }
+
+            if (best == -1) {
+                best = partitionBones.size();
+                partitionBones.add(new TreeSet<Integer>());
+                partitionTriangles.add(new ArrayList<Integer>());
+            }
+            for (final int bone : triangleBones[triangle]) {
+                partitionBones.get(best).add(bone);
+            }
+            partitionTriangles.get(best).add(triangle);
+        }
+
+        //  Build the partitions' meshes.
+        final List<MeshPartition> partitions = new ArrayList<>(partitionBones.size());
+        final boolean[] vertexUsed = new boolean[vertexCount];
+        int emittedVertices = 0;
+        for (int p = 0; p < partitionBones.size(); p++) {
+            final int[] palette = new int[partitionBones.get(p).size()];
+            final Map<Integer, Integer> localBoneIndices = new HashMap<>();
+            final Mesh partitionMesh = new Mesh();
+            int i = 0;
+            for (final Integer bone : partitionBones.get(p)) {
+                palette[i] = bone;
+                localBoneIndices.put(bone, i);
+                partitionMesh.getSkeleton().getBones().add(new Bone(bones.get(bone).getName(), i));
+                i++;
+            }
+
+            final Map<Integer, Integer> localVertexIndices = new HashMap<>();
+            for (final Integer triangle : partitionTriangles.get(p)) {
+                for (int c = 0; c < 3; c++) {
+                    final int vertex = mesh.getTriangles().get(triangle * 3 + c);
+                    Integer localVertex = localVertexIndices.get(vertex);
+                    if (localVertex == null) {
+                        localVertex = partitionMesh.getVertices().size();
+                        localVertexIndices.put(vertex, localVertex);
+                        vertexUsed[vertex] = true;
+                        this.copyVertex(mesh, vertex, partitionMesh);
+
+                        final List<Integer> influences = vertexBones.get(vertex);
+                        for (int j = 0; j < influences.size(); j++) {
+                            final int localBone = localBoneIndices.get(influences.get(j));
+                            partitionMesh.getSkeleton().getBone(localBone).addVertexWeight(localVertex,
+                                    vertexWeights.get(vertex).get(j));
+                        }
+                    }
+                    partitionMesh.getTriangles().add(localVertex);
+                }
+            }
+
+            emittedVertices += partitionMesh.getVertices().size();
+            partitions.add(new MeshPartition(partitionMesh, palette));
+        }
+
+        int usedVertices = 0;
+        for (final boolean used : vertexUsed) {
+            usedVertices += used ? 1 : 0;
+        }
+
+        return new MeshPartitioning(this.maxBonesPerPartition, partitions, emittedVertices - usedVertices);
+    }
+
+    private void copyVertex(final Mesh source, int vertex, final Mesh target) {
+        target.getVertices().add(new Vector3f(source.getVertices().get(vertex)));
+        if (source.getNormals().size() > vertex) {
+            target.getNormals().add(new Vector3f(source.getNormals().get(vertex)));
+        }
+        if (source.getTexcoords().size() > vertex) {
+            target.getTexcoords().add(new Vector2f(source.getTexcoords().get(vertex)));
+        }
+    }
+
+    public int getMaxBonesPerPartition() {
+        return maxBonesPerPartition;
+    }
+}
@@ -0,0 +1,132 @@
+package pl.pateman.core.mesh.lod;
+
+import org.joml.Vector3f;
+import pl.pateman.core.TempVars;
+import pl.pateman.core.entity.AbstractEntity;
+import pl.pateman.core.entity.CameraEntity;
+import pl.pateman.core.mesh.Mesh;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Holds the levels of detail of a mesh and selects the level that should be rendered basing on how big the mesh
+ * appears on the screen. Level 0 is always the original mesh.
+ *
+ * Skinned levels keep the bone indices of the original mesh, so they are meant to be animated with the animation
+ * matrices of the original mesh's {@code AnimationController}.
+ *
+ * Created by pateman.
+ */
+public final class MeshLOD {
+    private final List<MeshLODLevel> levels;
+    private final Vector3f boundingSphereCenter;
+    private final float boundingSphereRadius;
+
+    MeshLOD(final Mesh baseMesh) {
+        this.levels = new ArrayList<>();
+        this.boundingSphereCenter = new Vector3f();
+
+        //  Compute a bounding sphere of the original mesh. It's used for estimating the projected size.
+        final Vector3f min = new Vector3f(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+        final Vector3f max = new Vector3f(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < baseMesh.getVertices().size(); i++) {
+            final Vector3f vertex = baseMesh.getVertices().get(i);
+            min.min(vertex);
+            max.max(vertex);
+        }
+
+        float radius = 0.0f;
+        if (!baseMesh.getVertices().isEmpty()) {
+            min.add(max, this.boundingSphereCenter).mul(0.5f);
+            for (int i = 0; i < baseMesh.getVertices().size(); i++) {
+                radius = Math.max(radius, baseMesh.getVertices().get(i).distance(this.boundingSphereCenter));
+            }
+        }
+        this.boundingSphereRadius = radius;
+    }
+
+    void addLevel(final MeshLODLevel level) {
+        this.levels.add(level);
+    }
+
+    /**
+     * Estimates the size of the given entity on the screen: the diameter of the mesh's bounding sphere, expressed as a
+     * fraction of the viewport's full height at the sphere's distance. This is the same as the sphere's radius divided
+     * by half of the viewport's height.
+     *
+     * @param camera Camera that the entity is viewed through.
+     * @param entity Entity that uses this LOD.
+     * @return Projected size. Values greater or equal to 1 mean that the bounding sphere is at least as tall as the
+     * viewport.
+     */
+    public float getProjectedSize(final CameraEntity camera, final AbstractEntity entity) {
+        if (camera == null || entity == null) {
+            throw new IllegalArgumentException("Valid camera and entity need to be provided");
+        }
+
+        final TempVars vars = TempVars.get();
+
+        final Vector3f worldCenter = entity.getTransformation().transformPosition(this.boundingSphereCenter,
+                vars.vect3d1);
+        final Vector3f scale = entity.getScale();
+        final float radius = this.boundingSphereRadius * Math.max(Math.abs(scale.x), Math.max(Math.abs(scale.y),
+                Math.abs(scale.z)));
+        final float distance = camera.getTranslation().distance(worldCenter);
+
+        vars.release();
+
+        if (distance <= radius) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        final float halfFov = (float) Math.toRadians(camera.getCameraProjection().getFieldOfView()) * 0.5f;
+        //  The viewport is 2 * distance * tan(fov / 2) tall at the given distance, and the sphere is 2 * radius tall.
+        return radius / (distance * (float) Math.tan(halfFov));
+    }
+
+    /**
+     * Selects a level for the given projected size.
+     *
+     * @param projectedSize Projected size, as returned by {@code getProjectedSize}.
+     * @return Index of the level.
+     */
+    public int selectLevel(float projectedSize) {
+        int selected = 0;
+        for (int i = 1; i < this.levels.size(); i++) {
+            if (projectedSize < this.levels.get(i).getScreenSizeThreshold()) {
+                selected = i;
+            }
+        }
+        return selected;
+    }
+
+    public int selectLevel(final CameraEntity camera, final AbstractEntity entity) {
+        return this.selectLevel(this.getProjectedSize(camera, entity));
+    }
+
+    public MeshLODLevel selectLevelData(final CameraEntity camera, final AbstractEntity entity) {
+        return this.levels.get(this.selectLevel(camera, entity));
+    }
+
+    public MeshLODLevel getLevel(int level) {
+        return this.levels.get(level);
+    }
+
+    public int getLevelCount() {
+        return this.levels.size();
+    }
+
+    public List<MeshLODLevel> getLevels() {
+        return Collections.unmodifiableList(this.levels);
+    }
+
+    public Vector3f getBoundingSphereCenter() {
+        return boundingSphereCenter;
+    }
+
+    public float getBoundingSphereRadius() {
+        return boundingSphereRadius;
+    }
+}
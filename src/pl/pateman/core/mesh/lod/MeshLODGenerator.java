@@ -0,0 +1,965 @@
+package pl.pateman.core.mesh.lod;
+
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import pl.pateman.core.mesh.Bone;
+import pl.pateman.core.mesh.Mesh;
+import pl.pateman.core.mesh.MeshSkinningInfo;
+import pl.pateman.core.mesh.Skeleton;
+
+import java.util.*;
+
+/**
+ * Generates levels of detail of a {@code Mesh} by using quadric error simplification. Apart from the geometric error,
+ * the cost of every edge collapse takes texture coordinate seams and bone influence boundaries into account, so that
+ * simplified meshes keep their UV layout and still skin correctly. Skin weights of collapsed vertices are merged into
+ * the vertices that they collapse into.
+ *
+ * The generator doesn't touch OpenGL and always produces the same result for the same input.
+ *
+ * Created by pateman.
+ */
+public final class MeshLODGenerator {
+    public static final int DEFAULT_LEVEL_COUNT = 4;
+    public static final float DEFAULT_REDUCTION = 0.5f;
+    public static final float DEFAULT_SEAM_WEIGHT = 1.0f;
+    public static final float DEFAULT_BONE_BOUNDARY_WEIGHT = 1.0f;
+    public static final float DEFAULT_BORDER_WEIGHT = 10.0f;
+
+    /**
+     * Penalty units, relative to the "average face area * mesh diagonal^2" unit.
+     */
+    private static final double SEAM_PENALTY = 0.05;
+    private static final double BONE_BOUNDARY_PENALTY = 0.01;
+
+    private int levelCount;
+    private float reduction;
+    private float seamWeight;
+    private float boneBoundaryWeight;
+    private float borderWeight;
+
+    public MeshLODGenerator() {
+        this(DEFAULT_LEVEL_COUNT, DEFAULT_REDUCTION);
+    }
+
+    public MeshLODGenerator(int levelCount, float reduction) {
+        this.setLevelCount(levelCount);
+        this.setReduction(reduction);
+        this.seamWeight = DEFAULT_SEAM_WEIGHT;
+        this.boneBoundaryWeight = DEFAULT_BONE_BOUNDARY_WEIGHT;
+        this.borderWeight = DEFAULT_BORDER_WEIGHT;
+    }
+
+    /**
+     * Generates levels of detail of the given mesh. Level 0 is the mesh itself and every next level has roughly
+     * {@code reduction} times the triangles of the previous one. Generation stops early if the mesh cannot be
+     * simplified any further.
+     *
+     * @param mesh Mesh to simplify.
+     * @return {@code MeshLOD}.
+     */
+    public MeshLOD generate(final Mesh mesh) {
+        if (mesh == null) {
+            throw new IllegalArgumentException("A valid mesh needs to be provided");
+        }
+
+        final MeshLOD meshLOD = new MeshLOD(mesh);
+        meshLOD.addLevel(new MeshLODLevel(mesh, 0.0, Float.POSITIVE_INFINITY));
+
+        if (mesh.getTriangles().isEmpty()) {
+            return meshLOD;
+        }
+
+        final Simplifier simplifier = new Simplifier(mesh);
+        int targetTriangles = mesh.getTriangles().size() / 3;
+        float threshold = 1.0f;
+        for (int i = 1; i < this.levelCount; i++) {
+            targetTriangles = Math.max(1, (int) (targetTriangles * this.reduction));
+            threshold *= this.reduction;
+
+            final int before = simplifier.liveTriangles;
+            simplifier.simplify(targetTriangles);
+            if (simplifier.liveTriangles == before) {
+                break;
+            }
+
+            meshLOD.addLevel(new MeshLODLevel(simplifier.buildMesh(), simplifier.maxError, threshold));
+        }
+
+        return meshLOD;
+    }
+
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    public void setLevelCount(int levelCount) {
+        if (levelCount < 1) {
+            throw new IllegalArgumentException("At least one level is required");
+        }
+        this.levelCount = levelCount;
+    }
+
+    public float getReduction() {
+        return reduction;
+    }
+
+    public void setReduction(float reduction) {
+        if (reduction <= 0.0f || reduction >= 1.0f) {
+            throw new IllegalArgumentException("Reduction must be in the (0, 1) range");
+        }
+        this.reduction = reduction;
+    }
+
+    public float getSeamWeight() {
+        return seamWeight;
+    }
+
+    public void setSeamWeight(float seamWeight) {
+        this.seamWeight = seamWeight;
+    }
+
+    public float getBoneBoundaryWeight() {
+        return boneBoundaryWeight;
+    }
+
+    public void setBoneBoundaryWeight(float boneBoundaryWeight) {
+        this.boneBoundaryWeight = boneBoundaryWeight;
+    }
+
+    public float getBorderWeight() {
+        return borderWeight;
+    }
+
+    public void setBorderWeight(float borderWeight) {
+        this.borderWeight = borderWeight;
+    }
+
+    private static final class VertexKey {
+        private final int[] bits;
+        private final int hash;
+
+        VertexKey(int[] bits) {
+            this.bits = bits;
+            this.hash = Arrays.hashCode(bits);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            return Arrays.equals(bits, ((VertexKey) o).bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Collapse implements Comparable<Collapse> {
+        final double cost;
+        final int from;
+        final int to;
+        final int fromStamp;
+        final int toStamp;
+
+        Collapse(double cost, int from, int to, int fromStamp, int toStamp) {
+            this.cost = cost;
+            this.from = from;
+            this.to = to;
+            this.fromStamp = fromStamp;
+            this.toStamp = toStamp;
+        }
+
+        @Override
+        public int compareTo(Collapse o) {
+            final int c = Double.compare(this.cost, o.cost);
+            if (c != 0) {
+                return c;
+            }
+            if (this.from != o.from) {
+                return this.from < o.from ? -1 : 1;
+            }
+            return this.to < o.to ? -1 : (this.to == o.to ? 0 : 1);
+        }
+    }
+
+    /**
+     * Simplification state. The mesh is welded by position, so that triangle soups and texture seams form a connected
+     * surface. Every triangle corner references a wedge, i.e. a unique combination of a position, a normal and a
+     * texture coordinate. Positions are what gets collapsed, while wedges carry the attributes.
+     */
+    private final class Simplifier {
+        private static final int MAX_INFLUENCES = MeshSkinningInfo.MAX_BONES_PER_VERTEX;
+
+        private final Mesh source;
+        private final boolean hasNormals;
+        private final boolean hasTexcoords;
+
+        //  Positions.
+        private final float[] positions;
+        private final double[] quadrics;
+        private final int[] stamps;
+        private final boolean[] removed;
+        private final int[][] positionTriangles;
+        private final int[] positionTriangleCounts;
+        private final int[][] positionWedges;
+        private final int[] positionWedgeCounts;
+
+        //  Skinning, per position.
+        private final int[] skinBones;
+        private final float[] skinWeights;
+        private final float[] skinMass;
+
+        //  Wedges.
+        private final int[] wedgePosition;
+        private final int[] wedgeSource;
+
+        //  Triangles.
+        private final int[] corners;
+        private final boolean[] deadTriangles;
+        private int liveTriangles;
+
+        private final PriorityQueue<Collapse> queue;
+        private final int[] marks;
+        private int markToken;
+        private final double penaltyUnit;
+        private double maxError;
+
+        Simplifier(final Mesh mesh) {
+            this.source = mesh;
+            final int vertexCount = mesh.getVertices().size();
+            this.hasNormals = mesh.getNormals().size() == vertexCount;
+            this.hasTexcoords = mesh.getTexcoords().size() == vertexCount;
+
+            //  Weld positions and wedges.
+            final Map<VertexKey, Integer> positionMap = new HashMap<>();
+            final Map<VertexKey, Integer> wedgeMap = new HashMap<>();
+            final int[] vertexToWedge = new int[vertexCount];
+            final int[] vertexToPosition = new int[vertexCount];
+            final List<Integer> wedgeSources = new ArrayList<>();
+            final List<Integer> wedgePositions = new ArrayList<>();
+            final List<Integer> positionSources = new ArrayList<>();
+            for (int i = 0; i < vertexCount; i++) {
+                final Vector3f vertex = mesh.getVertices().get(i);
+                final VertexKey positionKey = new VertexKey(new int[]{Float.floatToIntBits(vertex.x),
+                        Float.floatToIntBits(vertex.y), Float.floatToIntBits(vertex.z)});
+                Integer position = positionMap.get(positionKey);
+                if (position == null) {
+                    position = positionSources.size();
+                    positionMap.put(positionKey, position);
+                    positionSources.add(i);
+                }
+                vertexToPosition[i] = position;
+
+                final int[] wedgeBits = new int[6];
+                wedgeBits[0] = position;
+                if (this.hasNormals) {
+                    final Vector3f normal = mesh.getNormals().get(i);
+                    wedgeBits[1] = Float.floatToIntBits(normal.x);
+                    wedgeBits[2] = Float.floatToIntBits(normal.y);
+                    wedgeBits[3] = Float.floatToIntBits(normal.z);
+                }
+                if (this.hasTexcoords) {
+                    final Vector2f texcoord = mesh.getTexcoords().get(i);
+                    wedgeBits[4] = Float.floatToIntBits(texcoord.x);
+                    wedgeBits[5] = Float.floatToIntBits(texcoord.y);
+                }
+                final VertexKey wedgeKey = new VertexKey(wedgeBits);
+                Integer wedge = wedgeMap.get(wedgeKey);
+                if (wedge == null) {
+                    wedge = wedgeSources.size();
+                    wedgeMap.put(wedgeKey, wedge);
+                    wedgeSources.add(i);
+                    wedgePositions.add(position);
+                }
+                vertexToWedge[i] = wedge;
+            }
+
+            final int positionCount = positionSources.size();
+            final int wedgeCount = wedgeSources.size();
+            this.positions = new float[positionCount * 3];
+            for (int i = 0; i < positionCount; i++) {
+                final Vector3f vertex = mesh.getVertices().get(positionSources.get(i));
+                this.positions[i * 3] = vertex.x;
+                this.positions[i * 3 + 1] = vertex.y;
+                this.positions[i * 3 + 2] = vertex.z;
+            }
+
+            this.wedgePosition = new int[wedgeCount];
+            this.wedgeSource = new int[wedgeCount];
+            this.positionWedges = new int[positionCount][];
+            this.positionWedgeCounts = new int[positionCount];
+            for (int i = 0; i < wedgeCount; i++) {
+                this.wedgePosition[i] = wedgePositions.get(i);
+                this.wedgeSource[i] = wedgeSources.get(i);
+                this.positionWedges[this.wedgePosition[i]] = append(this.positionWedges[this.wedgePosition[i]],
+                        this.positionWedgeCounts[this.wedgePosition[i]]++, i);
+            }
+
+            //  Build triangles, dropping the ones that are degenerate after welding.
+            final int triangleCount = mesh.getTriangles().size() / 3;
+            this.corners = new int[triangleCount * 3];
+            this.deadTriangles = new boolean[triangleCount];
+            this.positionTriangles = new int[positionCount][];
+            this.positionTriangleCounts = new int[positionCount];
+            for (int t = 0; t < triangleCount; t++) {
+                for (int c = 0; c < 3; c++) {
+                    this.corners[t * 3 + c] = vertexToWedge[mesh.getTriangles().get(t * 3 + c)];
+                }
+
+                final int p0 = this.cornerPosition(t, 0);
+                final int p1 = this.cornerPosition(t, 1);
+                final int p2 = this.cornerPosition(t, 2);
+                if (p0 == p1 || p1 == p2 || p0 == p2) {
+                    this.deadTriangles[t] = true;
+                    continue;
+                }
+
+                this.liveTriangles++;
+                for (int c = 0; c < 3; c++) {
+                    this.addPositionTriangle(this.cornerPosition(t, c), t);
+                }
+            }
+
+            //  Gather skinning information for each position.
+            this.skinBones = new int[positionCount * MAX_INFLUENCES];
+            this.skinWeights = new float[positionCount * MAX_INFLUENCES];
+            this.skinMass = new float[positionCount];
+            Arrays.fill(this.skinBones, -1);
+            Arrays.fill(this.skinMass, 1.0f);
+            for (final Bone bone : mesh.getSkeleton().getBones()) {
+                for (final Map.Entry<Integer, Float> entry : bone.getVertexWeights().entrySet()) {
+                    final int vertex = entry.getKey();
+                    if (vertex < 0 || vertex >= vertexCount || entry.getValue() == 0.0f) {
+                        continue;
+                    }
+
+                    //  Skin weights belong to positions. Only the first vertex at a position is taken into account.
+                    final int position = vertexToPosition[vertex];
+                    if (positionSources.get(position) == vertex) {
+                        this.addInfluence(position, bone.getIndex(), entry.getValue());
+                    }
+                }
+            }
+
+            //  Compute quadrics.
+            this.quadrics = new double[positionCount * 10];
+            this.stamps = new int[positionCount];
+            this.removed = new boolean[positionCount];
+            this.marks = new int[positionCount];
+
+            final Map<Long, Integer> edgeUse = new HashMap<>();
+            double totalArea = 0.0;
+            final double[] normal = new double[3];
+            for (int t = 0; t < triangleCount; t++) {
+                if (this.deadTriangles[t]) {
+                    continue;
+                }
+
+                final int p0 = this.cornerPosition(t, 0);
+                final int p1 = this.cornerPosition(t, 1);
+                final int p2 = this.cornerPosition(t, 2);
+                final double area = this.triangleNormal(p0, p1, p2, -1, -1, normal);
+                totalArea += area;
+                if (area > 0.0) {
+                    final double d = -(normal[0] * this.positions[p0 * 3] + normal[1] * this.positions[p0 * 3 + 1] +
+                            normal[2] * this.positions[p0 * 3 + 2]);
+                    this.addPlane(p0, normal[0], normal[1], normal[2], d, area);
+                    this.addPlane(p1, normal[0], normal[1], normal[2], d, area);
+                    this.addPlane(p2, normal[0], normal[1], normal[2], d, area);
+                }
+
+                for (int c = 0; c < 3; c++) {
+                    final long key = edgeKey(this.cornerPosition(t, c), this.cornerPosition(t, (c + 1) % 3));
+                    final Integer uses = edgeUse.get(key);
+                    edgeUse.put(key, uses == null ? 1 : uses + 1);
+                }
+            }
+
+            //  Border edges get additional planes, perpendicular to their faces, so that the mesh's outline is kept.
+            for (int t = 0; t < triangleCount; t++) {
+                if (this.deadTriangles[t]) {
+                    continue;
+                }
+
+                this.triangleNormal(this.cornerPosition(t, 0), this.cornerPosition(t, 1), this.cornerPosition(t, 2),
+                        -1, -1, normal);
+                for (int c = 0; c < 3; c++) {
+                    final int a = this.cornerPosition(t, c);
+                    final int b = this.cornerPosition(t, (c + 1) % 3);
+                    if (edgeUse.get(edgeKey(a, b)) != 1) {
+                        continue;
+                    }
+
+                    final double ex = this.positions[b * 3] - this.positions[a * 3];
+                    final double ey = this.positions[b * 3 + 1] - this.positions[a * 3 + 1];
+                    final double ez = this.positions[b * 3 + 2] - this.positions[a * 3 + 2];
+                    double nx = ey * normal[2] - ez * normal[1];
+                    double ny = ez * normal[0] - ex * normal[2];
+                    double nz = ex * normal[1] - ey * normal[0];
+                    final double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+                    if (length == 0.0) {
+                        continue;
+                    }
+                    nx /= length;
+                    ny /= length;
+                    nz /= length;
+
+                    final double d = -(nx * this.positions[a * 3] + ny * this.positions[a * 3 + 1] +
+                            nz * this.positions[a * 3 + 2]);
+                    final double weight = MeshLODGenerator.this.borderWeight * (ex * ex + ey * ey + ez * ez);
+                    this.addPlane(a, nx, ny, nz, d, weight);
+                    this.addPlane(b, nx, ny, nz, d, weight);
+                }
+            }
+
+            //  Seam and bone boundary penalties are expressed in the same units as the quadric error.
+            final Vector3f min = new Vector3f(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+                    Float.POSITIVE_INFINITY);
+            final Vector3f max = new Vector3f(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY,
+                    Float.NEGATIVE_INFINITY);
+            for (int i = 0; i < positionCount; i++) {
+                min.set(Math.min(min.x, this.positions[i * 3]), Math.min(min.y, this.positions[i * 3 + 1]),
+                        Math.min(min.z, this.positions[i * 3 + 2]));
+                max.set(Math.max(max.x, this.positions[i * 3]), Math.max(max.y, this.positions[i * 3 + 1]),
+                        Math.max(max.z, this.positions[i * 3 + 2]));
+            }
+            final double diagonal = positionCount == 0 ? 0.0 : max.distance(min);
+            this.penaltyUnit = (this.liveTriangles == 0 ? 0.0 : totalArea / this.liveTriangles) * diagonal * diagonal;
+
+            //  Fill the queue with all possible collapses.
+            this.queue = new PriorityQueue<>();
+            for (int p = 0; p < positionCount; p++) {
+                this.pushCollapses(p);
+            }
+        }
+
+        private int[] append(int[] array, int count, int value) {
+            if (array == null) {
+                array = new int[4];
+            } else if (count == array.length) {
+                array = Arrays.copyOf(array, count * 2);
+            }
+            array[count] = value;
+            return array;
+        }
+
+        private long edgeKey(int a, int b) {
+            return a < b ? (((long) a) << 32) | b : (((long) b) << 32) | a;
+        }
+
+        private int cornerPosition(int triangle, int corner) {
+            return this.wedgePosition[this.corners[triangle * 3 + corner]];
+        }
+
+        private void addPositionTriangle(int position, int triangle) {
+            this.positionTriangles[position] = this.append(this.positionTriangles[position],
+                    this.positionTriangleCounts[position]++, triangle);
+        }
+
+        private void removePositionTriangle(int position, int triangle) {
+            final int[] triangles = this.positionTriangles[position];
+            final int count = this.positionTriangleCounts[position];
+            for (int i = 0; i < count; i++) {
+                if (triangles[i] == triangle) {
+                    //  Shift instead of swapping, so that the order stays stable.
+                    System.arraycopy(triangles, i + 1, triangles, i, count - i - 1);
+                    this.positionTriangleCounts[position]--;
+                    return;
+                }
+            }
+        }
+
+        private void addInfluence(int position, int bone, float weight) {
+            final int base = position * MAX_INFLUENCES;
+
+            //  Find a free slot or the weakest influence.
+            int slot = -1;
+            for (int i = 0; i < MAX_INFLUENCES; i++) {
+                if (this.skinBones[base + i] == -1) {
+                    slot = i;
+                    break;
+                }
+                if (slot == -1 || this.skinWeights[base + i] < this.skinWeights[base + slot]) {
+                    slot = i;
+                }
+            }
+
+            if (this.skinBones[base + slot] == -1 || this.skinWeights[base + slot] < weight) {
+                this.skinBones[base + slot] = bone;
+                this.skinWeights[base + slot] = weight;
+            }
+        }
+
+        private float getInfluence(int position, int bone) {
+            final int base = position * MAX_INFLUENCES;
+            for (int i = 0; i < MAX_INFLUENCES; i++) {
+                if (this.skinBones[base + i] == bone) {
+                    return this.skinWeights[base + i];
+                }
+            }
+            return 0.0f;
+        }
+
+        private void addPlane(int position, double a, double b, double c, double d, double weight) {
+            final int q = position * 10;
+            this.quadrics[q] += weight * a * a;
+            this.quadrics[q + 1] += weight * a * b;
+            this.quadrics[q + 2] += weight * a * c;
+            this.quadrics[q + 3] += weight * a * d;
+            this.quadrics[q + 4] += weight * b * b;
+            this.quadrics[q + 5] += weight * b * c;
+            this.quadrics[q + 6] += weight * b * d;
+            this.quadrics[q + 7] += weight * c * c;
+            this.quadrics[q + 8] += weight * c * d;
+            this.quadrics[q + 9] += weight * d * d;
+        }
+
+        private double evaluateQuadric(int qa, int qb, int position) {
+            final double x = this.positions[position * 3];
+            final double y = this.positions[position * 3 + 1];
+            final double z = this.positions[position * 3 + 2];
+
+            final int a = qa * 10;
+            final int b = qb * 10;
+            final double[] q = this.quadrics;
+            final double error = (q[a] + q[b]) * x * x + 2.0 * (q[a + 1] + q[b + 1]) * x * y +
+                    2.0 * (q[a + 2] + q[b + 2]) * x * z + 2.0 * (q[a + 3] + q[b + 3]) * x +
+                    (q[a + 4] + q[b + 4]) * y * y + 2.0 * (q[a + 5] + q[b + 5]) * y * z +
+                    2.0 * (q[a + 6] + q[b + 6]) * y + (q[a + 7] + q[b + 7]) * z * z +
+                    2.0 * (q[a + 8] + q[b + 8]) * z + (q[a + 9] + q[b + 9]);
+            return Math.max(error, 0.0);
+        }
+
+        /**
+         * Computes the unit normal of a triangle and returns its area. When {@code replaced} is not -1, the position
+         * {@code replaced} is substituted with {@code replacement}.
+         */
+        private double triangleNormal(int p0, int p1, int p2, int replaced, int replacement, double[] out) {
+            if (p0 == replaced) p0 = replacement;
+            if (p1 == replaced) p1 = replacement;
+            if (p2 == replaced) p2 = replacement;
+
+            final double ax = this.positions[p1 * 3] - this.positions[p0 * 3];
+            final double ay = this.positions[p1 * 3 + 1] - this.positions[p0 * 3 + 1];
+            final double az = this.positions[p1 * 3 + 2] - this.positions[p0 * 3 + 2];
+            final double bx = this.positions[p2 * 3] - this.positions[p0 * 3];
+            final double by = this.positions[p2 * 3 + 1] - this.positions[p0 * 3 + 1];
+            final double bz = this.positions[p2 * 3 + 2] - this.positions[p0 * 3 + 2];
+
+            out[0] = ay * bz - az * by;
+            out[1] = az * bx - ax * bz;
+            out[2] = ax * by - ay * bx;
+            final double length = Math.sqrt(out[0] * out[0] + out[1] * out[1] + out[2] * out[2]);
+            if (length > 0.0) {
+                out[0] /= length;
+                out[1] /= length;
+                out[2] /= length;
+            }
+            return length * 0.5;
+        }
+
+        private float texcoordDistanceSquared(int wedgeA, int wedgeB) {
+            if (!this.hasTexcoords) {
+                return 0.0f;
+            }
+            final Vector2f a = this.source.getTexcoords().get(this.wedgeSource[wedgeA]);
+            final Vector2f b = this.source.getTexcoords().get(this.wedgeSource[wedgeB]);
+            final float dx = a.x - b.x;
+            final float dy = a.y - b.y;
+            return dx * dx + dy * dy;
+        }
+
+        /**
+         * Maps a wedge of the collapsed position onto a wedge of the target position. Wedges that share an edge with
+         * the target are mapped onto the target's wedge on the same side of a seam. Returns -1 when there's no such
+         * wedge, which means that the collapse would drag the other side of a seam.
+         */
+        private int findAdjacentWedge(int from, int to, int wedge) {
+            for (int i = 0; i < this.positionTriangleCounts[from]; i++) {
+                final int t = this.positionTriangles[from][i];
+                int fromCorner = -1;
+                int toCorner = -1;
+                for (int c = 0; c < 3; c++) {
+                    final int position = this.cornerPosition(t, c);
+                    if (position == from) {
+                        fromCorner = this.corners[t * 3 + c];
+                    } else if (position == to) {
+                        toCorner = this.corners[t * 3 + c];
+                    }
+                }
+                if (fromCorner == wedge && toCorner != -1) {
+                    return toCorner;
+                }
+            }
+            return -1;
+        }
+
+        private int findClosestWedge(int to, int wedge) {
+            int closest = -1;
+            float closestDistance = Float.POSITIVE_INFINITY;
+            for (int i = 0; i < this.positionWedgeCounts[to]; i++) {
+                final int candidate = this.positionWedges[to][i];
+                final float distance = this.texcoordDistanceSquared(wedge, candidate);
+                if (distance < closestDistance) {
+                    closest = candidate;
+                    closestDistance = distance;
+                }
+            }
+            return closest;
+        }
+
+        private int mapWedge(int from, int to, int wedge) {
+            final int adjacent = this.findAdjacentWedge(from, to, wedge);
+            return adjacent != -1 ? adjacent : this.findClosestWedge(to, wedge);
+        }
+
+        private boolean isWedgeUsed(int from, int wedge) {
+            for (int i = 0; i < this.positionTriangleCounts[from]; i++) {
+                final int t = this.positionTriangles[from][i];
+                if (this.corners[t * 3] == wedge || this.corners[t * 3 + 1] == wedge ||
+                        this.corners[t * 3 + 2] == wedge) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int nextMarkToken() {
+            if (++this.markToken == Integer.MAX_VALUE) {
+                Arrays.fill(this.marks, 0);
+                this.markToken = 1;
+            }
+            return this.markToken;
+        }
+
+        /**
+         * Checks whether the collapse keeps the surface manifold (the link condition) and doesn't flip any triangles.
+         */
+        private boolean isCollapseValid(int from, int to) {
+            //  Mark the neighbours of the target position and count the triangles shared by both positions.
+            final int token = this.nextMarkToken();
+            for (int i = 0; i < this.positionTriangleCounts[to]; i++) {
+                final int t = this.positionTriangles[to][i];
+                for (int c = 0; c < 3; c++) {
+                    this.marks[this.cornerPosition(t, c)] = token;
+                }
+            }
+
+            int sharedTriangles = 0;
+            final double[] before = new double[3];
+            final double[] after = new double[3];
+            for (int i = 0; i < this.positionTriangleCounts[from]; i++) {
+                final int t = this.positionTriangles[from][i];
+                final int p0 = this.cornerPosition(t, 0);
+                final int p1 = this.cornerPosition(t, 1);
+                final int p2 = this.cornerPosition(t, 2);
+                if (p0 == to || p1 == to || p2 == to) {
+                    sharedTriangles++;
+                    continue;
+                }
+
+                //  Make sure that the triangle doesn't flip or degenerate.
+                this.triangleNormal(p0, p1, p2, -1, -1, before);
+                final double area = this.triangleNormal(p0, p1, p2, from, to, after);
+                if (area <= 0.0 || before[0] * after[0] + before[1] * after[1] + before[2] * after[2] < 0.2) {
+                    return false;
+                }
+            }
+            if (sharedTriangles == 0) {
+                return false;
+            }
+
+            //  Count the neighbours that both positions have in common.
+            final int commonToken = this.nextMarkToken();
+            int commonNeighbours = 0;
+            for (int i = 0; i < this.positionTriangleCounts[from]; i++) {
+                final int t = this.positionTriangles[from][i];
+                for (int c = 0; c < 3; c++) {
+                    final int position = this.cornerPosition(t, c);
+                    if (position != from && position != to && this.marks[position] == token) {
+                        this.marks[position] = commonToken;
+                        commonNeighbours++;
+                    }
+                }
+            }
+            return commonNeighbours == sharedTriangles;
+        }
+
+        private double computeCost(int from, int to) {
+            double cost = this.evaluateQuadric(from, to, to);
+
+            //  Seams. Each wedge of the collapsed position needs a counterpart on the same side of the seam.
+            double seamPenalty = 0.0;
+            for (int i = 0; i < this.positionWedgeCounts[from]; i++) {
+                final int wedge = this.positionWedges[from][i];
+                if (!this.isWedgeUsed(from, wedge)) {
+                    continue;
+                }
+                if (this.findAdjacentWedge(from, to, wedge) == -1) {
+                    final int closest = this.findClosestWedge(to, wedge);
+                    seamPenalty += 1.0 + (closest == -1 ? 0.0 : this.texcoordDistanceSquared(wedge, closest));
+                }
+            }
+            cost += seamPenalty * SEAM_PENALTY * MeshLODGenerator.this.seamWeight * this.penaltyUnit;
+
+            //  Bone influence boundaries.
+            double difference = 0.0;
+            final int fromBase = from * MAX_INFLUENCES;
+            final int toBase = to * MAX_INFLUENCES;
+            for (int i = 0; i < MAX_INFLUENCES; i++) {
+                final int fromBone = this.skinBones[fromBase + i];
+                if (fromBone != -1) {
+                    difference += Math.abs(this.skinWeights[fromBase + i] - this.getInfluence(to, fromBone));
+                }
+                final int toBone = this.skinBones[toBase + i];
+                if (toBone != -1 && this.getInfluence(from, toBone) == 0.0f) {
+                    difference += this.skinWeights[toBase + i];
+                }
+            }
+            cost += difference * difference * BONE_BOUNDARY_PENALTY * MeshLODGenerator.this.boneBoundaryWeight *
+                    this.penaltyUnit;
+
+            return cost;
+        }
+
+        private void pushCollapses(int position) {
+            final int token = this.nextMarkToken();
+            this.marks[position] = token;
+            for (int i = 0; i < this.positionTriangleCounts[position]; i++) {
+                final int t = this.positionTriangles[position][i];
+                for (int c = 0; c < 3; c++) {
+                    final int neighbour = this.cornerPosition(t, c);
+                    if (this.marks[neighbour] == token) {
+                        continue;
+                    }
+                    this.marks[neighbour] = token;
+
+                    this.queue.add(new Collapse(this.computeCost(position, neighbour), position, neighbour,
+                            this.stamps[position], this.stamps[neighbour]));
+                    this.queue.add(new Collapse(this.computeCost(neighbour, position), neighbour, position,
+                            this.stamps[neighbour], this.stamps[position]));
+                }
+            }
+        }
+
+        private void mergeSkin(int from, int to) {
+            final float fromMass = this.skinMass[from];
+            final float toMass = this.skinMass[to];
+            final float totalMass = fromMass + toMass;
+
+            //  Average the influences of both positions, weighted by the number of vertices that they represent.
+            final int[] bones = new int[MAX_INFLUENCES * 2];
+            final float[] weights = new float[MAX_INFLUENCES * 2];
+            int count = 0;
+            for (int side = 0; side < 2; side++) {
+                final int base = (side == 0 ? to : from) * MAX_INFLUENCES;
+                final float mass = (side == 0 ? toMass : fromMass) / totalMass;
+                for (int i = 0; i < MAX_INFLUENCES; i++) {
+                    final int bone = this.skinBones[base + i];
+                    if (bone == -1) {
+                        continue;
+                    }
+
+                    int slot = 0;
+                    while (slot < count && bones[slot] != bone) {
+                        slot++;
+                    }
+                    if (slot == count) {
+                        bones[count++] = bone;
+                    }
+                    weights[slot] += this.skinWeights[base + i] * mass;
+                }
+            }
+
+            //  Keep the strongest influences and renormalize them.
+            final int toBase = to * MAX_INFLUENCES;
+            Arrays.fill(this.skinBones, toBase, toBase + MAX_INFLUENCES, -1);
+            Arrays.fill(this.skinWeights, toBase, toBase + MAX_INFLUENCES, 0.0f);
+            float sum = 0.0f;
+            for (int i = 0; i < MAX_INFLUENCES; i++) {
+                int strongest = -1;
+                for (int j = 0; j < count; j++) {
+                    if (bones[j] != -1 && (strongest == -1 || weights[j] > weights[strongest])) {
+                        strongest = j;
+                    }
+                }
+                if (strongest == -1) {
+                    break;
+                }
+
+                this.skinBones[toBase + i] = bones[strongest];
+                this.skinWeights[toBase + i] = weights[strongest];
+                sum += weights[strongest];
+                bones[strongest] = -1;
+            }
+            if (sum > 0.0f) {
+                for (int i = 0; i < MAX_INFLUENCES; i++) {
+                    this.skinWeights[toBase + i] /= sum;
+                }
+            }
+            this.skinMass[to] = totalMass;
+        }
+
+        private void collapse(int from, int to) {
+            //  Remap wedges of triangles that survive and remove the ones that degenerate.
+            final int[] wedgeMap = new int[this.positionWedgeCounts[from]];
+            for (int i = 0; i < wedgeMap.length; i++) {
+                wedgeMap[i] = this.mapWedge(from, to, this.positionWedges[from][i]);
+            }
+
+            final int[] triangles = Arrays.copyOf(this.positionTriangles[from], this.positionTriangleCounts[from]);
+            for (final int t : triangles) {
+                boolean degenerate = false;
+                for (int c = 0; c < 3; c++) {
+                    degenerate |= this.cornerPosition(t, c) == to;
+                }
+
+                if (degenerate) {
+                    this.deadTriangles[t] = true;
+                    this.liveTriangles--;
+                    for (int c = 0; c < 3; c++) {
+                        final int position = this.cornerPosition(t, c);
+                        if (position != from) {
+                            this.removePositionTriangle(position, t);
+                        }
+                    }
+                    continue;
+                }
+
+                for (int c = 0; c < 3; c++) {
+                    final int corner = t * 3 + c;
+                    if (this.wedgePosition[this.corners[corner]] != from) {
+                        continue;
+                    }
+                    for (int i = 0; i < wedgeMap.length; i++) {
+                        if (this.positionWedges[from][i] == this.corners[corner]) {
+                            this.corners[corner] = wedgeMap[i];
+                            break;
+                        }
+                    }
+                }
+                this.addPositionTriangle(to, t);
+            }
+
+            //  Accumulate the error and the skin.
+            for (int i = 0; i < 10; i++) {
+                this.quadrics[to * 10 + i] += this.quadrics[from * 10 + i];
+            }
+            this.mergeSkin(from, to);
+
+            this.positionTriangleCounts[from] = 0;
+            this.positionWedgeCounts[from] = 0;
+            this.removed[from] = true;
+
+            //  Invalidate and recompute the collapses around the target position.
+            this.stamps[to]++;
+            final int token = this.nextMarkToken();
+            final List<Integer> neighbours = new ArrayList<>();
+            for (int i = 0; i < this.positionTriangleCounts[to]; i++) {
+                final int t = this.positionTriangles[to][i];
+                for (int c = 0; c < 3; c++) {
+                    final int neighbour = this.cornerPosition(t, c);
+                    if (neighbour != to && this.marks[neighbour] != token) {
+                        this.marks[neighbour] = token;
+                        this.stamps[neighbour]++;
+                        neighbours.add(neighbour);
+                    }
+                }
+            }
+
+            this.pushCollapses(to);
+            for (final int neighbour : neighbours) {
+                this.pushCollapses(neighbour);
+            }
+        }
+
+        void simplify(int targetTriangles) {
+            while (this.liveTriangles > targetTriangles && !this.queue.isEmpty()) {
+                final Collapse collapse = this.queue.poll();
+                if (this.removed[collapse.from] || this.removed[collapse.to] ||
+                        this.stamps[collapse.from] != collapse.fromStamp ||
+                        this.stamps[collapse.to] != collapse.toStamp) {
+                    continue;
+                }
+                if (!this.isCollapseValid(collapse.from, collapse.to)) {
+                    continue;
+                }
+
+                this.maxError = Math.max(this.maxError, collapse.cost);
+                this.collapse(collapse.from, collapse.to);
+            }
+        }
+
+        /**
+         * Builds a {@code Mesh} out of the current state. The skeleton is copied, because vertex weights are stored
+         * in bones.
+         */
+        Mesh buildMesh() {
+            final Mesh mesh = new Mesh();
+
+            //  Copy the skeleton.
+            final Skeleton sourceSkeleton = this.source.getSkeleton();
+            final Map<Integer, Bone> bones = new HashMap<>();
+            for (final Bone sourceBone : sourceSkeleton.getBones()) {
+                final Bone bone = new Bone(sourceBone.getName(), sourceBone.getIndex());
+                bone.getBindPosition().set(sourceBone.getBindPosition());
+                bone.getBindRotation().set(sourceBone.getBindRotation());
+                bone.getBindScale().set(sourceBone.getBindScale());
+                bones.put(bone.getIndex(), bone);
+                mesh.getSkeleton().getBones().add(bone);
+            }
+            for (final Bone sourceBone : sourceSkeleton.getBones()) {
+                if (sourceBone.getParent() != null) {
+                    final Bone bone = bones.get(sourceBone.getIndex());
+                    final Bone parent = bones.get(sourceBone.getParent().getIndex());
+                    bone.setParent(parent);
+                    parent.getChildren().add(bone);
+                }
+            }
+            mesh.getSkeleton().calculateBindMatrices();
+
+            //  Emit vertices in the order in which they're referenced.
+            final int[] wedgeToVertex = new int[this.wedgePosition.length];
+            Arrays.fill(wedgeToVertex, -1);
+            int vertexCount = 0;
+            for (int t = 0; t < this.deadTriangles.length; t++) {
+                if (this.deadTriangles[t]) {
+                    continue;
+                }
+
+                for (int c = 0; c < 3; c++) {
+                    final int wedge = this.corners[t * 3 + c];
+                    if (wedgeToVertex[wedge] == -1) {
+                        wedgeToVertex[wedge] = vertexCount++;
+
+                        final int sourceVertex = this.wedgeSource[wedge];
+                        final int position = this.wedgePosition[wedge];
+                        mesh.getVertices().add(new Vector3f(this.positions[position * 3],
+                                this.positions[position * 3 + 1], this.positions[position * 3 + 2]));
+                        if (this.hasNormals) {
+                            mesh.getNormals().add(new Vector3f(this.source.getNormals().get(sourceVertex)));
+                        }
+                        if (this.hasTexcoords) {
+                            mesh.getTexcoords().add(new Vector2f(this.source.getTexcoords().get(sourceVertex)));
+                        }
+
+                        for (int i = 0; i < MAX_INFLUENCES; i++) {
+                            final int bone = this.skinBones[position * MAX_INFLUENCES + i];
+                            if (bone != -1 && bones.containsKey(bone)) {
+                                bones.get(bone).addVertexWeight(wedgeToVertex[wedge],
+                                        this.skinWeights[position * MAX_INFLUENCES + i]);
+                            }
+                        }
+                    }
+                    mesh.getTriangles().add(wedgeToVertex[wedge]);
+                }
+            }
+
+            return mesh;
+        }
+    }
+}
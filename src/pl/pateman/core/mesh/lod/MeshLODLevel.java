@@ -0,0 +1,53 @@
+package pl.pateman.core.mesh.lod;
+
+import pl.pateman.core.mesh.Mesh;
+
+/**
+ * A single level of detail of a mesh.
+ *
+ * Created by pateman.
+ */
+public final class MeshLODLevel {
+    private final Mesh mesh;
+    private final int triangleCount;
+    private final double error;
+    private float screenSizeThreshold;
+
+    MeshLODLevel(Mesh mesh, double error, float screenSizeThreshold) {
+        this.mesh = mesh;
+        this.triangleCount = mesh.getTriangles().size() / 3;
+        this.error = error;
+        this.screenSizeThreshold = screenSizeThreshold;
+    }
+
+    public Mesh getMesh() {
+        return mesh;
+    }
+
+    public int getTriangleCount() {
+        return triangleCount;
+    }
+
+    /**
+     * Returns the highest collapse cost that has been accepted while generating this level.
+     *
+     * @return Simplification error.
+     */
+    public double getError() {
+        return error;
+    }
+
+    /**
+     * Returns the projected size below which this level is used. The size is the diameter of the mesh's bounding sphere
+     * as a fraction of the viewport's full height (see {@code MeshLOD.getProjectedSize}).
+     *
+     * @return Screen size threshold.
+     */
+    public float getScreenSizeThreshold() {
+        return screenSizeThreshold;
+    }
+
+    public void setScreenSizeThreshold(float screenSizeThreshold) {
+        this.screenSizeThreshold = screenSizeThreshold;
+    }
+}
@@ -6,5 +6,6 @@ package pl.pateman.core.physics.ragdoll;
 public enum BodyPartCollider {
     BOX,
     CAPSULE,
+    CONVEX_HULL,
     SPHERE
 }
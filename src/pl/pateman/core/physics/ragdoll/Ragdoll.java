@@ -3,9 +3,11 @@ package pl.pateman.core.physics.ragdoll;
 import com.bulletphysics.collision.dispatch.CollisionObject;
 import com.bulletphysics.collision.shapes.BoxShape;
 import com.bulletphysics.collision.shapes.CollisionShape;
+import com.bulletphysics.collision.shapes.ConvexHullShape;
 import com.bulletphysics.dynamics.DiscreteDynamicsWorld;
 import com.bulletphysics.dynamics.RigidBody;
 import com.bulletphysics.dynamics.constraintsolver.TypedConstraint;
+import com.bulletphysics.util.ObjectArrayList;
 import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
@@ -15,6 +17,8 @@ import pl.pateman.core.entity.AbstractEntity;
 import pl.pateman.core.entity.EntityData;
 import pl.pateman.core.mesh.Bone;
 import pl.pateman.core.mesh.Mesh;
+import pl.pateman.core.mesh.MeshBounds;
+import pl.pateman.core.quickhull3d.QuickHull;
 
 import java.util.*;
 
@@ -22,68 +26,162 @@ import java.util.*;
  * Created by pateman.
  */
 public final class Ragdoll {
+    //  Narrowphase cost of convex hulls grows with the number of their vertices.
+    private static final int MAX_HULL_VERTICES = 32;
+    //  Vertices which are influenced by the body part's bones less than this are left to the neighbouring parts.
+    private static final float MIN_COLLIDER_VERTEX_WEIGHT = 0.5f;
+    private static final float HULL_MARGIN_FACTOR = 0.1f;
+
     private final Mesh mesh;
+    private final MeshBounds meshBounds;
     private final Random random;
     private DiscreteDynamicsWorld dynamicsWorld;
     private boolean enabled;
     private RagdollStructure ragdollStructure;
     private final List<RagdollBody> partRigidBodies;
-    private final Map<Integer, Matrix4f> boneMatrices;
+    private final QuickHull quickHull;
+    private Matrix4f[] boneMatrices;
+    private long entityTransformationVersion;
+    private boolean poseWritebackForced;
     private final AbstractEntity entity;
 
     public Ragdoll(Mesh mesh, AbstractEntity entity) {
-        if (mesh == null || entity == null) {
-            throw new IllegalArgumentException("Valid mesh and owner entity are required");
+        this(mesh, entity, mesh == null ? null : new MeshBounds(mesh));
+    }
+
+    public Ragdoll(Mesh mesh, AbstractEntity entity, MeshBounds meshBounds) {
+        if (mesh == null || entity == null || meshBounds == null) {
+            throw new IllegalArgumentException("Valid mesh, its bounds and owner entity are required");
         }
         this.entity = entity;
         this.mesh = mesh;
+        this.meshBounds = meshBounds;
         this.enabled = false;
         this.random = new Random();
         this.partRigidBodies = new ArrayList<>();
-        this.boneMatrices = new TreeMap<>();
+        this.quickHull = new QuickHull();
+        this.boneMatrices = new Matrix4f[0];
+    }
+
+    /**
+     * Gathers the vertices which are mostly influenced by the bones of the given ragdoll part, and transforms them
+     * into the space of the part's rigid body.
+     *
+     * @param part Ragdoll part.
+     * @param bodyTransform Initial transformation of the part's rigid body.
+     * @return List of vertices.
+     */
+    private List<Vector3f> getColliderVertices(final RagdollStructure.Part part, final Matrix4f bodyTransform) {
+        final TempVars vars = TempVars.get();
+
+        //  Sum up the weights of each vertex over all the part's bones.
+        final float[] weights = new float[this.mesh.getVertices().size()];
+        for (final Bone bone : part.getColliderBones()) {
+            for (final Map.Entry<Integer, Float> vertexWeight : bone.getVertexWeights().entrySet()) {
+                weights[vertexWeight.getKey()] += vertexWeight.getValue();
+            }
+        }
+
+        final Matrix4f invBodyTransform = bodyTransform.invert(vars.tempMat4x42);
+        final List<Vector3f> vertices = new ArrayList<>();
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] >= MIN_COLLIDER_VERTEX_WEIGHT) {
+                vertices.add(invBodyTransform.transformPosition(this.mesh.getVertices().get(i), new Vector3f()));
+            }
+        }
+
+        vars.release();
+        return vertices;
+    }
+
+    /**
+     * Creates a convex hull for the given ragdoll part.
+     *
+     * @param part Ragdoll part.
+     * @param bodyTransform Initial transformation of the part's rigid body.
+     * @param partBounds Bounds of the part.
+     * @return {@code CollisionShape}.
+     */
+    private CollisionShape createConvexHull(final RagdollStructure.Part part, final Matrix4f bodyTransform,
+                                            final RagdollUtils.SimpleAABB partBounds) {
+        final List<Vector3f> vertices = this.getColliderVertices(part, bodyTransform);
+
+        final List<Vector3f> hullVertices;
+        try {
+            hullVertices = RagdollUtils.buildSimplifiedHull(this.quickHull, vertices, MAX_HULL_VERTICES);
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalStateException("Unable to build a convex hull for the body part '" + part.getName() +
+                    "'", e);
+        }
+
+        final ObjectArrayList<javax.vecmath.Vector3f> points = new ObjectArrayList<>(hullVertices.size());
+        for (final Vector3f hullVertex : hullVertices) {
+            points.add(Utils.convert(new javax.vecmath.Vector3f(), hullVertex));
+        }
+        final ConvexHullShape hullShape = new ConvexHullShape(points);
+
+        //  The margin inflates the hull, so it's kept small compared to the part. The hull's AABB includes the
+        //  margin, so it needs to be recalculated afterwards.
+        final TempVars vars = TempVars.get();
+        final Vector3f extents = partBounds.getExtents(vars.vect3d1);
+        hullShape.setMargin(Math.min(hullShape.getMargin(), HULL_MARGIN_FACTOR * Math.min(extents.x,
+                Math.min(extents.y, extents.z))));
+        hullShape.recalcLocalAabb();
+        vars.release();
+
+        return hullShape;
     }
 
     /**
      * Creates a collision shape for the given ragdoll part.
      *
      * @param part Ragdoll part to create a collision shape from.
+     * @param bodyTransform Initial transformation of the part's rigid body.
      * @return {@code CollisionShape}.
      */
-    private CollisionShape createColliderForBodyPart(final RagdollStructure.Part part) {
+    private CollisionShape createColliderForBodyPart(final RagdollStructure.Part part, final Matrix4f bodyTransform) {
         //  Start by computing AABBs for each bone that the body part consists of. When creating the AABBs, compute
         //  one big AABB which encloses all of them.
+        final TempVars vars = TempVars.get();
+
         final RagdollUtils.SimpleAABB result = new RagdollUtils.SimpleAABB();
-        final RagdollUtils.SimpleAABB boneAABB = new RagdollUtils.SimpleAABB();
         for (final Bone bone : part.getColliderBones()) {
-            //  If calculateAABBForBone() returns true, it means that the bone influences at least one vertex.
-            if (RagdollUtils.calculateAABBForBone(boneAABB, bone, this.mesh)) {
-                result.merge(boneAABB);
+            //  The bounds hold an AABB only for bones that influence at least one vertex.
+            if (this.meshBounds.getBoneBounds(bone, vars.vect3d1, vars.vect3d2)) {
+                result.expand(vars.vect3d1);
+                result.expand(vars.vect3d2);
             }
-
-            //  Don't forget to reset the bone's AABB so we get correct results.
-            boneAABB.reset();
         }
 
         if (result.isUndefined()) {
+            vars.release();
             throw new IllegalStateException("The body part '" + part.getName() +
                     "' consists of bones that do not influence any vertices");
         }
 
-        final TempVars vars = TempVars.get();
-
-        CollisionShape resultShape;
-
-        //  Check what kind of a collider we're dealing with.
-        if (part.getColliderType().equals(BodyPartCollider.BOX)) {
-            //  Using the AABB that we've just computed, create the part's rigid body.
-            final Vector3f halfExtents = result.getExtents(vars.vect3d1);
-            resultShape = new BoxShape(Utils.convert(vars.vecmathVect3d1, halfExtents));
-        } else {
-            throw new UnsupportedOperationException("Unsupported collider type");
+        //  Building the shape may throw (e.g. for a degenerate hull), so make sure that the vars are released.
+        try {
+            //  Check what kind of a collider we're dealing with.
+            switch (part.getColliderType()) {
+                case BOX:
+                    //  Using the AABB that we've just computed, create the part's rigid body.
+                    final Vector3f halfExtents = result.getExtents(vars.vect3d1);
+                    return new BoxShape(Utils.convert(vars.vecmathVect3d1, halfExtents));
+                case CONVEX_HULL:
+                    return this.createConvexHull(part, bodyTransform, result);
+                case CAPSULE:
+                    final List<Vector3f> vertices = this.getColliderVertices(part, bodyTransform);
+                    if (vertices.isEmpty()) {
+                        throw new IllegalStateException("The body part '" + part.getName() +
+                                "' has no vertices to fit a capsule to");
+                    }
+                    return RagdollUtils.createEnclosingCapsule(vertices);
+                default:
+                    throw new UnsupportedOperationException("Unsupported collider type");
+            }
+        } finally {
+            vars.release();
         }
-
-        vars.release();
-        return resultShape;
     }
 
     /**
@@ -132,7 +230,7 @@ public final class Ragdoll {
         rigidBody.setCenterOfMassTransform(vars.vecmathTransform);
         rigidBody.getMotionState().setWorldTransform(vars.vecmathTransform);
 
-        final List<Bone> allBones = new LinkedList<>(part.getColliderBones());
+        final List<Bone> allBones = new ArrayList<>(part.getColliderBones());
         allBones.addAll(part.getAttachedBones());
 
         this.partRigidBodies.add(new RagdollBody(part.getName(), rigidBody, allBones, vars.quat1));
@@ -228,7 +326,7 @@ public final class Ragdoll {
                 true, vars.tempMat4x41);
 
         //  Create the rigid body.
-        final CollisionShape collisionShape = this.createColliderForBodyPart(bodyPart);
+        final CollisionShape collisionShape = this.createColliderForBodyPart(bodyPart, vars.tempMat4x41);
         final RigidBody rigidBody = this.createRigidBody(bodyPart, collisionShape);
 
         //  Add it to the simulation.
@@ -287,9 +385,16 @@ public final class Ragdoll {
             this.createConstraint(link);
         }
 
-        //  Compose an ordered map of bone offset matrices.
-        this.mesh.getSkeleton().getBones().forEach(bone -> this.boneMatrices.put(bone.getIndex(),
-                bone.getOffsetMatrix()));
+        //  Compose an array of bone offset matrices, indexed by bone indices.
+        final List<Bone> bones = this.mesh.getSkeleton().getBones();
+        int boneSlots = 0;
+        for (int i = 0; i < bones.size(); i++) {
+            boneSlots = Math.max(boneSlots, bones.get(i).getIndex() + 1);
+        }
+        this.boneMatrices = new Matrix4f[boneSlots];
+        for (int i = 0; i < bones.size(); i++) {
+            this.boneMatrices[bones.get(i).getIndex()] = bones.get(i).getOffsetMatrix();
+        }
 
         //  Initialize the created ragdoll bodies.
         for (int i = 0; i < this.partRigidBodies.size(); i++) {
@@ -302,23 +407,21 @@ public final class Ragdoll {
     public void updateRagdoll() {
         final TempVars vars = TempVars.get();
 
+        //  Bodies which are asleep haven't moved since the last update, so their bones can be skipped. That is,
+        //  unless the entity has moved or the bones have been animated in the meantime.
+        final boolean writebackForced = this.poseWritebackForced ||
+                this.entityTransformationVersion != this.entity.getTransformationVersion();
+        this.entityTransformationVersion = this.entity.getTransformationVersion();
+        this.poseWritebackForced = false;
+
         final Matrix4f invEntityTM = this.entity.getTransformation().invert(vars.tempMat4x41);
 
         //  Transform each assigned bone.
         for (int i = 0; i < this.partRigidBodies.size(); i++) {
             final RagdollBody ragdollBody = this.partRigidBodies.get(i);
 
-            for (int j = 0; j < ragdollBody.getAssignedBones().size(); j++) {
-                final Bone bone = ragdollBody.getAssignedBones().get(j);
-
-                ragdollBody.getTransformedBone(bone, vars.vect3d1, vars.quat1, vars.vect3d2);
-
-                final Matrix4f boneMatrix = this.boneMatrices.get(bone.getIndex());
-                Utils.fromRotationTranslationScale(boneMatrix, vars.quat1, vars.vect3d1, vars.vect3d2);
-
-                //  Multiply the bone matrix by the inverse transformation of the entity in order to orient it
-                //  correctly.
-                invEntityTM.mul(boneMatrix, boneMatrix);
+            if (writebackForced || ragdollBody.getRigidBody().isActive()) {
+                ragdollBody.writeBoneMatrices(invEntityTM, this.boneMatrices);
             }
         }
 
@@ -336,6 +439,9 @@ public final class Ragdoll {
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
 
+        //  While the ragdoll was disabled, the bones were animated, so the whole pose needs to be written back.
+        this.poseWritebackForced = true;
+
         for (int i = 0; i < this.partRigidBodies.size(); i++) {
             final RagdollBody rb = this.partRigidBodies.get(i);
 
@@ -356,7 +462,13 @@ public final class Ragdoll {
         this.ragdollStructure = ragdollStructure;
     }
 
-    Map<Integer, Matrix4f> getBoneMatrices() {
+    /**
+     * Returns the bone matrices, indexed by bone indices. Slots of indices which aren't used by any bone are
+     * {@code null}.
+     *
+     * @return Bone matrices.
+     */
+    Matrix4f[] getBoneMatrices() {
         return this.boneMatrices;
     }
 }
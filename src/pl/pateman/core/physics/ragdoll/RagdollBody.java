@@ -9,8 +9,6 @@ import pl.pateman.core.Utils;
 import pl.pateman.core.mesh.Bone;
 
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 /**
  * Defines a single ragdoll body.
@@ -21,7 +19,7 @@ class RagdollBody {
     private final RigidBody rigidBody;
     private final Quaternionf initialRotation;
     private final Quaternionf inverseInitialRotation;
-    private final Map<Integer, TransformComponents> initialBoneTransforms;
+    private TransformComponents[] initialBoneTransforms;
     private final List<Bone> assignedBones;
     private final String partName;
 
@@ -31,11 +29,11 @@ class RagdollBody {
         this.initialRotation = new Quaternionf().set(initialRotation);
         this.inverseInitialRotation = initialRotation.invert(new Quaternionf());
 
-        this.initialBoneTransforms = new TreeMap<>();
+        this.initialBoneTransforms = new TransformComponents[0];
         this.assignedBones = bones;
     }
 
-    private void initializeBone(final Bone bone, final Matrix4f invRigidBodyTransform) {
+    private TransformComponents initializeBone(final Bone bone, final Matrix4f invRigidBodyTransform) {
         final TempVars vars = TempVars.get();
         final TransformComponents transformComponents = new TransformComponents();
 
@@ -53,9 +51,8 @@ class RagdollBody {
         invRigidBodyTransform.mul(vars.tempMat4x41, vars.tempMat4x41);
         vars.tempMat4x41.getTranslation(transformComponents.getTranslation());
 
-        this.initialBoneTransforms.put(bone.getIndex(), transformComponents);
-
         vars.release();
+        return transformComponents;
     }
 
     void initializeBody() {
@@ -65,32 +62,48 @@ class RagdollBody {
         Utils.transformToMatrix(vars.tempMat4x42, this.rigidBody.getCenterOfMassTransform(vars.vecmathTransform));
         vars.tempMat4x42.invert();
 
-        //  Initialize each assigned bone.
-        this.assignedBones.forEach(bone -> this.initializeBone(bone, vars.tempMat4x42));
+        //  Initialize each assigned bone. The initial transforms are stored in the same order as the bones.
+        this.initialBoneTransforms = new TransformComponents[this.assignedBones.size()];
+        for (int i = 0; i < this.initialBoneTransforms.length; i++) {
+            this.initialBoneTransforms[i] = this.initializeBone(this.assignedBones.get(i), vars.tempMat4x42);
+        }
 
         vars.release();
     }
 
-    void getTransformedBone(final Bone bone, final Vector3f outPos, final Quaternionf outRot,
-                            final Vector3f outScale) {
+    /**
+     * Writes the current transformations of the assigned bones into their matrices. The rigid body's transformation is
+     * converted only once for all the bones.
+     *
+     * @param invEntityTM Inverse transformation matrix of the entity.
+     * @param boneMatrices Bone matrices, indexed by bone indices.
+     */
+    void writeBoneMatrices(final Matrix4f invEntityTM, final Matrix4f[] boneMatrices) {
         final TempVars vars = TempVars.get();
-        final TransformComponents initialTrans = this.initialBoneTransforms.get(bone.getIndex());
 
         //  Start by getting the current rigid body's transformation matrix.
         Utils.transformToMatrix(vars.tempMat4x41, this.rigidBody.getCenterOfMassTransform(vars.vecmathTransform));
 
-        //  Transform the initial bone's position by the current rigid body's transformation matrix.
-        vars.tempMat4x41.transformPosition(initialTrans.getTranslation(), outPos);
-
-        //  In order to get the transformed rotation, we need to calculate the difference between the
-        //  ** rigid body's ** initial rotation and its current rotation, and then multiply it by the ** bone's **
-        //  initial rotation.
+        //  In order to get the transformed rotations, we need to calculate the difference between the
+        //  ** rigid body's ** initial rotation and its current rotation, and then multiply it by the ** bones' **
+        //  initial rotations.
         vars.tempMat4x41.getUnnormalizedRotation(vars.quat1);
-        final Quaternionf diff = this.inverseInitialRotation.mul(vars.quat1, vars.quat3);
-        diff.mul(initialTrans.getRotation(), outRot);
+        final Quaternionf diff = this.inverseInitialRotation.mul(vars.quat1, vars.quat2);
+
+        for (int i = 0; i < this.initialBoneTransforms.length; i++) {
+            final TransformComponents initialTrans = this.initialBoneTransforms[i];
 
-        //  Scale doesn't change.
-        outScale.set(initialTrans.getScale());
+            //  Transform the initial bone's position by the current rigid body's transformation matrix. Scale
+            //  doesn't change.
+            vars.tempMat4x41.transformPosition(initialTrans.getTranslation(), vars.vect3d1);
+            diff.mul(initialTrans.getRotation(), vars.quat3);
+
+            final Matrix4f boneMatrix = boneMatrices[this.assignedBones.get(i).getIndex()];
+            Utils.fromRotationTranslationScale(boneMatrix, vars.quat3, vars.vect3d1, initialTrans.getScale());
+
+            //  Multiply the bone matrix by the inverse transformation of the entity in order to orient it correctly.
+            invEntityTM.mul(boneMatrix, boneMatrix);
+        }
 
         vars.release();
     }
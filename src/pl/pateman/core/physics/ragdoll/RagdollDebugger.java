@@ -8,9 +8,6 @@ import pl.pateman.core.entity.CameraEntity;
 import pl.pateman.core.point.Point3D;
 import pl.pateman.core.point.Point3DRenderer;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import static org.lwjgl.opengl.GL11.GL_DEPTH_BUFFER_BIT;
 import static org.lwjgl.opengl.GL11.glClear;
 
@@ -21,7 +18,7 @@ public final class RagdollDebugger implements Clearable {
     private final Point3DRenderer point3DRenderer;
     private final Ragdoll ragdoll;
     private final Vector4f ragdollDebugBoneColor;
-    private final Map<Integer, Integer> boneToPointMap;
+    private int[] boneToPointMap;
 
     public RagdollDebugger(Ragdoll ragdoll) {
         if (ragdoll == null) {
@@ -31,18 +28,22 @@ public final class RagdollDebugger implements Clearable {
         this.ragdoll = ragdoll;
         this.point3DRenderer = new Point3DRenderer();
         this.ragdollDebugBoneColor = new Vector4f(0.0f, 1.0f, 0.0f, 1.0f);
-        this.boneToPointMap = new HashMap<>();
+        this.boneToPointMap = new int[0];
     }
 
     public void buildDebugInfo() {
         final TempVars vars = TempVars.get();
 
-        for (Map.Entry<Integer, Matrix4f> entry : this.ragdoll.getBoneMatrices().entrySet()) {
-            final int pointIdx = this.point3DRenderer.addPoint(entry.getValue().getTranslation(vars.vect3d1),
-                    this.ragdollDebugBoneColor, 5.0f);
+        final Matrix4f[] boneMatrices = this.ragdoll.getBoneMatrices();
+        this.boneToPointMap = new int[boneMatrices.length];
+        for (int i = 0; i < boneMatrices.length; i++) {
+            if (boneMatrices[i] == null) {
+                continue;
+            }
 
             //  Bone index -> point index.
-            this.boneToPointMap.put(entry.getKey(), pointIdx);
+            this.boneToPointMap[i] = this.point3DRenderer.addPoint(boneMatrices[i].getTranslation(vars.vect3d1),
+                    this.ragdollDebugBoneColor, 5.0f);
         }
 
         vars.release();
@@ -52,9 +53,14 @@ public final class RagdollDebugger implements Clearable {
         final TempVars vars = TempVars.get();
 
         final Matrix4f invEntityTM = this.ragdoll.getEntity().getTransformation().invert(vars.tempMat4x41);
-        for (Map.Entry<Integer, Matrix4f> entry : this.ragdoll.getBoneMatrices().entrySet()) {
-            final Point3D point = this.point3DRenderer.getPoint(this.boneToPointMap.get(entry.getKey()));
-            invEntityTM.mul(entry.getValue(), vars.tempMat4x42).getTranslation(point.getPosition());
+        final Matrix4f[] boneMatrices = this.ragdoll.getBoneMatrices();
+        for (int i = 0; i < boneMatrices.length; i++) {
+            if (boneMatrices[i] == null) {
+                continue;
+            }
+
+            final Point3D point = this.point3DRenderer.getPoint(this.boneToPointMap[i]);
+            invEntityTM.mul(boneMatrices[i], vars.tempMat4x42).getTranslation(point.getPosition());
         }
 
         vars.release();
@@ -1,6 +1,8 @@
 package pl.pateman.core.physics.ragdoll;
 
+import com.bulletphysics.collision.shapes.CapsuleShape;
 import com.bulletphysics.collision.shapes.CollisionShape;
+import com.bulletphysics.collision.shapes.CompoundShape;
 import com.bulletphysics.dynamics.RigidBody;
 import com.bulletphysics.dynamics.constraintsolver.ConeTwistConstraint;
 import com.bulletphysics.dynamics.constraintsolver.Generic6DofConstraint;
@@ -9,6 +11,7 @@ import com.bulletphysics.dynamics.constraintsolver.TypedConstraint;
 import com.bulletphysics.linearmath.DefaultMotionState;
 import com.bulletphysics.linearmath.MatrixUtil;
 import com.bulletphysics.linearmath.Transform;
+import org.joml.Matrix3f;
 import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
@@ -16,6 +19,7 @@ import pl.pateman.core.TempVars;
 import pl.pateman.core.Utils;
 import pl.pateman.core.mesh.Bone;
 import pl.pateman.core.mesh.Mesh;
+import pl.pateman.core.quickhull3d.QuickHull;
 
 import java.util.*;
 
@@ -23,6 +27,8 @@ import java.util.*;
  * Created by pateman.
  */
 final class RagdollUtils {
+    private static final float GOLDEN_ANGLE = Utils.PI * (3.0f - (float) Math.sqrt(5.0));
+    private static final int POWER_ITERATIONS = 32;
     private RagdollUtils() {
 
     }
@@ -62,42 +68,153 @@ final class RagdollUtils {
     }
 
     /**
-     * Returns a {@code Collection} of all unique vertices that are influenced by the given bone.
+     * Builds the convex hull of the given points and reduces it to at most {@code maxVertices} vertices. The reduced
+     * hull consists of the hull's supporting vertices in directions evenly distributed over the unit sphere, so it
+     * keeps the overall shape of the full hull.
      *
-     * @param bone Bone.
-     * @param mesh Mesh that holds the vertices.
-     * @return {@code Collection}.
+     * @param quickHull Hull builder.
+     * @param points Points.
+     * @param maxVertices Maximum number of the hull's vertices.
+     * @return Vertices of the hull.
      */
-    private static Collection<Vector3f> getInfluencingVerticesForBone(final Bone bone, final Mesh mesh) {
-        final Set<Map.Entry<Integer, Float>> vertexWeights = bone.getVertexWeights().entrySet();
-        final Set<Vector3f> vertices = new HashSet<>(vertexWeights.size());
+    static List<Vector3f> buildSimplifiedHull(final QuickHull quickHull, final Collection<Vector3f> points,
+                                              int maxVertices) {
+        final List<Vector3f> hull = new ArrayList<>(quickHull.buildHull(points));
+        if (hull.size() <= maxVertices) {
+            return hull;
+        }
 
-        for (Map.Entry<Integer, Float> vertexWeight : vertexWeights) {
-            if (vertexWeight.getValue() != 0.0f) {
-                vertices.add(mesh.getVertices().get(vertexWeight.getKey()));
+        final TempVars vars = TempVars.get();
+
+        //  Each supporting vertex is a vertex of the reduced hull as well, so there's no need to build it again.
+        final Set<Vector3f> supportingVertices = new LinkedHashSet<>(maxVertices);
+        for (int i = 0; i < maxVertices; i++) {
+            //  Directions are taken from a Fibonacci lattice on the unit sphere.
+            final float y = 1.0f - 2.0f * (i + 0.5f) / maxVertices;
+            final float r = (float) Math.sqrt(1.0f - y * y);
+            final float phi = GOLDEN_ANGLE * i;
+            final Vector3f direction = vars.vect3d1.set((float) Math.cos(phi) * r, y, (float) Math.sin(phi) * r);
+
+            Vector3f support = hull.get(0);
+            for (int j = 1; j < hull.size(); j++) {
+                if (hull.get(j).dot(direction) > support.dot(direction)) {
+                    support = hull.get(j);
+                }
             }
+            supportingVertices.add(support);
         }
 
-        return vertices;
+        vars.release();
+        return new ArrayList<>(supportingVertices);
     }
 
     /**
-     * Calculates an AABB of the given bone.
+     * Computes the principal axis of the given points, i.e. the direction in which they are spread the most.
      *
-     * @param out Result.
-     * @param bone Bone to calculate an AABB of.
-     * @param mesh Mesh which the bone belongs to.
-     * @return {@code true} if the bone influences at least one vertex (meaning that an AABB can be created),
-     * {@code false} otherwise.
+     * @param points Points.
+     * @param centroid Centroid of the points.
+     * @param out Principal axis.
+     * @return {@code out}.
      */
-    static boolean calculateAABBForBone(final RagdollUtils.SimpleAABB out, final Bone bone, final Mesh mesh) {
-        //  Get all vertices that are influenced by the given bone.
-        final Collection<Vector3f> influencingVerticesForBone = RagdollUtils.getInfluencingVerticesForBone(bone, mesh);
-        //  Calculate an AABB of the influencing vertices.
-        for (Vector3f boneVertex : influencingVerticesForBone) {
-            out.expand(boneVertex);
+    private static Vector3f getPrincipalAxis(final List<Vector3f> points, final Vector3f centroid,
+                                             final Vector3f out) {
+        final TempVars vars = TempVars.get();
+
+        //  Compute the covariance matrix of the points.
+        final Matrix3f covariance = vars.tempMat3x3.zero();
+        for (int i = 0; i < points.size(); i++) {
+            final Vector3f d = points.get(i).sub(centroid, vars.vect3d1);
+            covariance.m00 += d.x * d.x;
+            covariance.m01 += d.x * d.y;
+            covariance.m02 += d.x * d.z;
+            covariance.m11 += d.y * d.y;
+            covariance.m12 += d.y * d.z;
+            covariance.m22 += d.z * d.z;
+        }
+        covariance.m10 = covariance.m01;
+        covariance.m20 = covariance.m02;
+        covariance.m21 = covariance.m12;
+
+        //  The eigenvector with the largest eigenvalue is found by power iteration, starting from the coordinate axis
+        //  with the largest variance.
+        if (covariance.m00 >= covariance.m11 && covariance.m00 >= covariance.m22) {
+            out.set(Utils.AXIS_X);
+        } else {
+            out.set(covariance.m11 >= covariance.m22 ? Utils.AXIS_Y : Utils.AXIS_Z);
         }
-        return !influencingVerticesForBone.isEmpty();
+        for (int i = 0; i < POWER_ITERATIONS; i++) {
+            covariance.transform(out, vars.vect3d2);
+            if (vars.vect3d2.lengthSquared() < Utils.EPSILON) {
+                break;
+            }
+            out.set(vars.vect3d2).normalize();
+        }
+
+        vars.release();
+        return out;
+    }
+
+    /**
+     * Creates the smallest capsule which encloses the given points and whose axis is their principal axis. As
+     * capsules in JBullet are aligned to the Y axis, the capsule is wrapped in a compound shape which positions it.
+     *
+     * @param points Points.
+     * @return {@code CollisionShape}.
+     */
+    static CollisionShape createEnclosingCapsule(final List<Vector3f> points) {
+        if (points.isEmpty()) {
+            throw new IllegalArgumentException("At least one point is required");
+        }
+
+        final TempVars vars = TempVars.get();
+
+        final Vector3f centroid = vars.vect3d3.zero();
+        for (int i = 0; i < points.size(); i++) {
+            centroid.add(points.get(i));
+        }
+        centroid.div(points.size());
+        final Vector3f axis = getPrincipalAxis(points, centroid, vars.vect3d4);
+
+        //  The radius is the largest distance of a point from the axis.
+        float radiusSquared = 0.0f;
+        for (int i = 0; i < points.size(); i++) {
+            final Vector3f d = points.get(i).sub(centroid, vars.vect3d1);
+            final float t = d.dot(axis);
+            radiusSquared = Math.max(radiusSquared, d.lengthSquared() - t * t);
+        }
+        radiusSquared = Math.max(radiusSquared, Utils.EPSILON);
+
+        //  Find the shortest segment along the axis whose capsule still encloses every point. A point at the distance
+        //  d from the axis is enclosed when it's no further than sqrt(r^2 - d^2) from the segment along the axis.
+        float segmentStart = Float.POSITIVE_INFINITY;
+        float segmentEnd = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < points.size(); i++) {
+            final Vector3f d = points.get(i).sub(centroid, vars.vect3d1);
+            final float t = d.dot(axis);
+            final float reach = (float) Math.sqrt(Math.max(radiusSquared - (d.lengthSquared() - t * t), 0.0f));
+            segmentStart = Math.min(segmentStart, t + reach);
+            segmentEnd = Math.max(segmentEnd, t - reach);
+        }
+        if (segmentStart > segmentEnd) {
+            segmentStart = segmentEnd = 0.5f * (segmentStart + segmentEnd);
+        }
+
+        final float radius = (float) Math.sqrt(radiusSquared);
+        final CapsuleShape capsuleShape = new CapsuleShape(radius, segmentEnd - segmentStart);
+        //  The margin is a part of the capsule's radius, so it can't be larger than it.
+        capsuleShape.setMargin(Math.min(capsuleShape.getMargin(), radius));
+
+        //  Position the capsule at the middle of the segment and rotate its Y axis onto the principal axis.
+        final Vector3f center = axis.mul(0.5f * (segmentStart + segmentEnd), vars.vect3d2).add(centroid);
+        final Quaternionf rotation = vars.quat1.rotationTo(Utils.AXIS_Y, axis);
+        Utils.fromRotationTranslationScale(vars.tempMat4x41, rotation, center, Utils.IDENTITY_VECTOR);
+        Utils.matrixToTransform(vars.vecmathTransform, vars.tempMat4x41);
+
+        final CompoundShape compoundShape = new CompoundShape();
+        compoundShape.addChildShape(vars.vecmathTransform, capsuleShape);
+
+        vars.release();
+        return compoundShape;
     }
 
     /**
@@ -0,0 +1,326 @@
+package pl.pateman.core.scene;
+
+import org.joml.Matrix4f;
+import pl.pateman.core.TempVars;
+import pl.pateman.core.entity.AbstractEntity;
+import pl.pateman.core.entity.MeshEntity;
+import pl.pateman.core.mesh.Bone;
+
+import java.util.*;
+
+/**
+ * Hierarchy of entities. An entity's transformation is treated as relative to its parent, and the graph caches the
+ * resulting world matrices. Entities can also be attached to a bone of a mesh entity, in which case they follow the
+ * bone's current pose.
+ *
+ * The nodes are kept in a flat array, sorted breadth-first, so that every parent precedes its children. An update is
+ * a single sweep over that array, which only recomputes the subtrees whose transformations have changed since the
+ * previous update. Nodes attached to bones are recomputed on every update, as poses change every frame.
+ *
+ * Created by pateman.
+ */
+public final class SceneGraph {
+    private static final int MATRIX_SIZE = 16;
+
+    private final Map<AbstractEntity, Node> nodes;
+    private final List<Node> roots;
+
+    private AbstractEntity[] entities;
+    private int[] parents;
+    private Bone[] bones;
+    private long[] versions;
+    private boolean[] changed;
+    private float[] worldMatrices;
+    private int nodeCount;
+    private boolean structureChanged;
+    private int lastUpdatedCount;
+
+    public SceneGraph() {
+        this.nodes = new IdentityHashMap<>();
+        this.roots = new ArrayList<>();
+
+        this.entities = new AbstractEntity[0];
+        this.parents = new int[0];
+        this.bones = new Bone[0];
+        this.versions = new long[0];
+        this.changed = new boolean[0];
+        this.worldMatrices = new float[0];
+    }
+
+    private Node getNode(final AbstractEntity entity) {
+        final Node node = this.nodes.get(entity);
+        if (node == null) {
+            throw new IllegalArgumentException("The entity is not a part of this scene graph");
+        }
+        return node;
+    }
+
+    private Node getOrAddNode(final AbstractEntity entity) {
+        if (entity == null) {
+            throw new IllegalArgumentException("A valid entity needs to be provided");
+        }
+
+        Node node = this.nodes.get(entity);
+        if (node == null) {
+            node = new Node(entity);
+            this.nodes.put(entity, node);
+            this.roots.add(node);
+            this.structureChanged = true;
+        }
+        return node;
+    }
+
+    private void unlink(final Node node) {
+        if (node.parent == null) {
+            this.roots.remove(node);
+        } else {
+            node.parent.children.remove(node);
+        }
+        node.parent = null;
+        node.bone = null;
+    }
+
+    private void link(final Node node, final Node parent, final Bone bone) {
+        //  Make sure that we're not creating a cycle.
+        for (Node ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            if (ancestor == node) {
+                throw new IllegalArgumentException("An entity cannot be attached to its own descendant");
+            }
+        }
+
+        this.unlink(node);
+        node.parent = parent;
+        node.bone = bone;
+        parent.children.add(node);
+        this.structureChanged = true;
+    }
+
+    /**
+     * Adds an entity as a root of the graph. Does nothing if the entity is already in the graph.
+     *
+     * @param entity Entity to add.
+     */
+    public void addEntity(final AbstractEntity entity) {
+        this.getOrAddNode(entity);
+    }
+
+    /**
+     * Removes an entity from the graph. Its children become roots, keeping their local transformations.
+     *
+     * @param entity Entity to remove.
+     */
+    public void removeEntity(final AbstractEntity entity) {
+        final Node node = this.nodes.remove(entity);
+        if (node == null) {
+            return;
+        }
+
+        this.unlink(node);
+        for (final Node child : node.children) {
+            child.parent = null;
+            child.bone = null;
+            this.roots.add(child);
+        }
+        node.children.clear();
+        this.structureChanged = true;
+    }
+
+    /**
+     * Attaches an entity to another one. Entities which aren't in the graph yet are added to it.
+     *
+     * @param child Entity to attach.
+     * @param parent New parent of the entity.
+     */
+    public void attach(final AbstractEntity child, final AbstractEntity parent) {
+        this.link(this.getOrAddNode(child), this.getOrAddNode(parent), null);
+    }
+
+    /**
+     * Attaches an entity to a bone of the given mesh entity. The child's transformation is then relative to the
+     * bone's current pose.
+     *
+     * @param child Entity to attach.
+     * @param parent Mesh entity.
+     * @param bone Bone of the parent's skeleton.
+     */
+    public void attachToBone(final AbstractEntity child, final MeshEntity parent, final Bone bone) {
+        if (parent == null || parent.getMesh() == null) {
+            throw new IllegalArgumentException("A valid mesh entity needs to be provided");
+        }
+        if (bone == null || !parent.getMesh().getSkeleton().getBones().contains(bone)) {
+            throw new IllegalArgumentException("The bone does not belong to the mesh entity's skeleton");
+        }
+
+        this.link(this.getOrAddNode(child), this.getOrAddNode(parent), bone);
+    }
+
+    public void attachToBone(final AbstractEntity child, final MeshEntity parent, final String boneName) {
+        if (parent == null || parent.getMesh() == null) {
+            throw new IllegalArgumentException("A valid mesh entity needs to be provided");
+        }
+
+        final Bone bone = parent.getMesh().getSkeleton().getBoneByName(boneName);
+        if (bone == null) {
+            throw new IllegalArgumentException("Bone '" + boneName + "' does not exist");
+        }
+        this.attachToBone(child, parent, bone);
+    }
+
+    /**
+     * Detaches an entity from its parent, making it a root of the graph.
+     *
+     * @param entity Entity to detach.
+     */
+    public void detach(final AbstractEntity entity) {
+        final Node node = this.getNode(entity);
+        if (node.parent == null) {
+            return;
+        }
+
+        this.unlink(node);
+        this.roots.add(node);
+        this.structureChanged = true;
+    }
+
+    public boolean contains(final AbstractEntity entity) {
+        return this.nodes.containsKey(entity);
+    }
+
+    public AbstractEntity getParent(final AbstractEntity entity) {
+        final Node parent = this.getNode(entity).parent;
+        return parent == null ? null : parent.entity;
+    }
+
+    public Bone getParentBone(final AbstractEntity entity) {
+        return this.getNode(entity).bone;
+    }
+
+    public List<AbstractEntity> getChildren(final AbstractEntity entity, final List<AbstractEntity> out) {
+        out.clear();
+        for (final Node child : this.getNode(entity).children) {
+            out.add(child.entity);
+        }
+        return out;
+    }
+
+    /**
+     * Lays the nodes out breadth-first.
+     */
+    private void rebuildArrays() {
+        final int count = this.nodes.size();
+        if (this.entities.length < count) {
+            final int capacity = Math.max(count, this.entities.length * 2);
+            this.entities = new AbstractEntity[capacity];
+            this.parents = new int[capacity];
+            this.bones = new Bone[capacity];
+            this.versions = new long[capacity];
+            this.changed = new boolean[capacity];
+            this.worldMatrices = new float[capacity * MATRIX_SIZE];
+        }
+        Arrays.fill(this.entities, count, this.entities.length, null);
+        Arrays.fill(this.bones, count, this.bones.length, null);
+
+        final Deque<Node> queue = new ArrayDeque<>(this.roots);
+        int index = 0;
+        while (!queue.isEmpty()) {
+            final Node node = queue.poll();
+            node.index = index;
+            this.entities[index] = node.entity;
+            this.parents[index] = node.parent == null ? -1 : node.parent.index;
+            this.bones[index] = node.bone;
+            //  Force the node to be recomputed.
+            this.versions[index] = -1L;
+            queue.addAll(node.children);
+            index++;
+        }
+
+        this.nodeCount = index;
+        this.structureChanged = false;
+    }
+
+    /**
+     * Recomputes world matrices of the entities whose transformations, or whose ancestors' transformations, have
+     * changed since the last update.
+     *
+     * @return Number of recomputed world matrices.
+     */
+    public int update() {
+        if (this.structureChanged) {
+            this.rebuildArrays();
+        }
+
+        final TempVars vars = TempVars.get();
+        final Matrix4f world = vars.tempMat4x41;
+        int updated = 0;
+        for (int i = 0; i < this.nodeCount; i++) {
+            final AbstractEntity entity = this.entities[i];
+            final int parent = this.parents[i];
+            final long version = entity.getTransformationVersion();
+
+            final boolean nodeChanged = version != this.versions[i] || this.bones[i] != null ||
+                    (parent != -1 && this.changed[parent]);
+            this.changed[i] = nodeChanged;
+            if (!nodeChanged) {
+                continue;
+            }
+
+            this.versions[i] = version;
+            if (parent == -1) {
+                world.set(entity.getTransformation());
+            } else {
+                world.set(this.worldMatrices, parent * MATRIX_SIZE);
+                if (this.bones[i] != null) {
+                    world.mul(this.bones[i].getOffsetMatrix());
+                }
+                world.mul(entity.getTransformation());
+            }
+            world.get(this.worldMatrices, i * MATRIX_SIZE);
+            updated++;
+        }
+        vars.release();
+
+        this.lastUpdatedCount = updated;
+        return updated;
+    }
+
+    /**
+     * Returns the world transformation of the given entity, as of the last update.
+     *
+     * @param entity Entity.
+     * @param out Matrix that receives the world transformation.
+     * @return {@code out}.
+     */
+    public Matrix4f getWorldTransformation(final AbstractEntity entity, final Matrix4f out) {
+        final Node node = this.getNode(entity);
+        if (this.structureChanged) {
+            throw new IllegalStateException("The scene graph has changed since the last update");
+        }
+        return out.set(this.worldMatrices, node.index * MATRIX_SIZE);
+    }
+
+    public int getNodeCount() {
+        return this.nodes.size();
+    }
+
+    /**
+     * Returns the number of world matrices that have been recomputed during the last update.
+     *
+     * @return Number of recomputed world matrices.
+     */
+    public int getLastUpdatedCount() {
+        return lastUpdatedCount;
+    }
+
+    private static final class Node {
+        private final AbstractEntity entity;
+        private final List<Node> children;
+        private Node parent;
+        private Bone bone;
+        private int index;
+
+        private Node(final AbstractEntity entity) {
+            this.entity = entity;
+            this.children = new ArrayList<>();
+        }
+    }
+}
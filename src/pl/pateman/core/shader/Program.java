@@ -163,7 +163,7 @@ public class Program implements Clearable {
 
     private FloatBuffer getOrCreateBuffer(final String uniformName, final int bufferSize) {
         FloatBuffer floatBuffer = this.uniformBufferCache.get(uniformName);
-        if (floatBuffer == null) {
+        if (floatBuffer == null || floatBuffer.capacity() < bufferSize) {
             floatBuffer = BufferUtils.createFloatBuffer(bufferSize);
             this.uniformBufferCache.put(uniformName, floatBuffer);
         }
@@ -0,0 +1,683 @@
+package pl.pateman.core.spatial;
+
+import org.joml.Vector3f;
+import pl.pateman.core.culling.Frustum;
+
+import java.util.Arrays;
+
+/**
+ * Dynamic bounding volume tree. Every object is represented by a leaf (a proxy) holding a fattened AABB, i.e. the
+ * object's box enlarged by a margin, so that small movements don't require touching the tree at all. Internal nodes
+ * are kept balanced with tree rotations, and new leaves are inserted next to the sibling which minimizes the growth
+ * of the surface area.
+ *
+ * Nodes live in flat arrays and are referenced by indices. The tree doesn't depend on the physics engine, so it can
+ * index objects which don't have any rigid bodies.
+ *
+ * Created by pateman.
+ */
+public final class DynamicAABBTree<T> {
+    public static final float DEFAULT_MARGIN = 0.1f;
+
+    private static final int NULL_NODE = -1;
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final float margin;
+
+    private float[] boxes;
+    private int[] parents;
+    private int[] children1;
+    private int[] children2;
+    private int[] heights;
+    private Object[] userData;
+    private int root;
+    private int freeList;
+    private int nodeCapacity;
+    private int proxyCount;
+
+    //  Pending updates.
+    private float[] pendingBoxes;
+    private boolean[] pending;
+    private int[] pendingProxies;
+    private int pendingCount;
+
+    private int[] stack;
+
+    public DynamicAABBTree() {
+        this(DEFAULT_MARGIN);
+    }
+
+    public DynamicAABBTree(float margin) {
+        if (margin < 0.0f) {
+            throw new IllegalArgumentException("The margin cannot be negative");
+        }
+        this.margin = margin;
+
+        this.root = NULL_NODE;
+        this.freeList = NULL_NODE;
+        this.boxes = new float[0];
+        this.parents = new int[0];
+        this.children1 = new int[0];
+        this.children2 = new int[0];
+        this.heights = new int[0];
+        this.userData = new Object[0];
+        this.pendingBoxes = new float[0];
+        this.pending = new boolean[0];
+        this.pendingProxies = new int[DEFAULT_CAPACITY];
+        this.stack = new int[DEFAULT_CAPACITY];
+        this.growNodes(DEFAULT_CAPACITY);
+    }
+
+    private void growNodes(int capacity) {
+        final int oldCapacity = this.nodeCapacity;
+        this.boxes = Arrays.copyOf(this.boxes, capacity * 6);
+        this.parents = Arrays.copyOf(this.parents, capacity);
+        this.children1 = Arrays.copyOf(this.children1, capacity);
+        this.children2 = Arrays.copyOf(this.children2, capacity);
+        this.heights = Arrays.copyOf(this.heights, capacity);
+        this.userData = Arrays.copyOf(this.userData, capacity);
+        this.pendingBoxes = Arrays.copyOf(this.pendingBoxes, capacity * 6);
+        this.pending = Arrays.copyOf(this.pending, capacity);
+        this.nodeCapacity = capacity;
+
+        //  Chain the new nodes into the free list, through the parent indices.
+        for (int i = capacity - 1; i >= oldCapacity; i--) {
+            this.parents[i] = this.freeList;
+            this.heights[i] = -1;
+            this.freeList = i;
+        }
+    }
+
+    private int allocateNode() {
+        if (this.freeList == NULL_NODE) {
+            this.growNodes(this.nodeCapacity * 2);
+        }
+
+        final int node = this.freeList;
+        this.freeList = this.parents[node];
+        this.parents[node] = NULL_NODE;
+        this.children1[node] = NULL_NODE;
+        this.children2[node] = NULL_NODE;
+        this.heights[node] = 0;
+        this.userData[node] = null;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        this.parents[node] = this.freeList;
+        this.heights[node] = -1;
+        this.userData[node] = null;
+        this.freeList = node;
+    }
+
+    private boolean isLeaf(int node) {
+        return this.children1[node] == NULL_NODE;
+    }
+
+    private void checkProxy(int proxy) {
+        if (proxy < 0 || proxy >= this.nodeCapacity || this.heights[proxy] != 0) {
+            throw new IllegalArgumentException("Invalid proxy " + proxy);
+        }
+    }
+
+    private void setFatBox(int node, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        final int b = node * 6;
+        this.boxes[b] = minX - this.margin;
+        this.boxes[b + 1] = minY - this.margin;
+        this.boxes[b + 2] = minZ - this.margin;
+        this.boxes[b + 3] = maxX + this.margin;
+        this.boxes[b + 4] = maxY + this.margin;
+        this.boxes[b + 5] = maxZ + this.margin;
+    }
+
+    private void setUnion(int node, int a, int b) {
+        final float[] boxes = this.boxes;
+        final int n = node * 6, i = a * 6, j = b * 6;
+        boxes[n] = Math.min(boxes[i], boxes[j]);
+        boxes[n + 1] = Math.min(boxes[i + 1], boxes[j + 1]);
+        boxes[n + 2] = Math.min(boxes[i + 2], boxes[j + 2]);
+        boxes[n + 3] = Math.max(boxes[i + 3], boxes[j + 3]);
+        boxes[n + 4] = Math.max(boxes[i + 4], boxes[j + 4]);
+        boxes[n + 5] = Math.max(boxes[i + 5], boxes[j + 5]);
+    }
+
+    private static float area(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        final float dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        return dx * dy + dy * dz + dz * dx;
+    }
+
+    private float area(int node) {
+        final int n = node * 6;
+        return area(this.boxes[n], this.boxes[n + 1], this.boxes[n + 2], this.boxes[n + 3], this.boxes[n + 4],
+                this.boxes[n + 5]);
+    }
+
+    private float unionArea(int a, int b) {
+        final float[] boxes = this.boxes;
+        final int i = a * 6, j = b * 6;
+        return area(Math.min(boxes[i], boxes[j]), Math.min(boxes[i + 1], boxes[j + 1]),
+                Math.min(boxes[i + 2], boxes[j + 2]), Math.max(boxes[i + 3], boxes[j + 3]),
+                Math.max(boxes[i + 4], boxes[j + 4]), Math.max(boxes[i + 5], boxes[j + 5]));
+    }
+
+    private void insertLeaf(int leaf) {
+        if (this.root == NULL_NODE) {
+            this.root = leaf;
+            this.parents[leaf] = NULL_NODE;
+            return;
+        }
+
+        //  Find the best sibling for the new leaf.
+        int index = this.root;
+        while (!this.isLeaf(index)) {
+            final int child1 = this.children1[index];
+            final int child2 = this.children2[index];
+
+            final float area = this.area(index);
+            final float combinedArea = this.unionArea(index, leaf);
+
+            //  Cost of creating a new parent for this node and the new leaf.
+            final float cost = 2.0f * combinedArea;
+            //  Minimum cost of pushing the leaf further down the tree.
+            final float inheritanceCost = 2.0f * (combinedArea - area);
+
+            final float cost1 = this.descentCost(child1, leaf) + inheritanceCost;
+            final float cost2 = this.descentCost(child2, leaf) + inheritanceCost;
+            if (cost < cost1 && cost < cost2) {
+                break;
+            }
+            index = cost1 < cost2 ? child1 : child2;
+        }
+
+        //  Create a new parent.
+        final int sibling = index;
+        final int oldParent = this.parents[sibling];
+        final int newParent = this.allocateNode();
+        this.parents[newParent] = oldParent;
+        this.setUnion(newParent, leaf, sibling);
+        this.heights[newParent] = this.heights[sibling] + 1;
+
+        if (oldParent != NULL_NODE) {
+            if (this.children1[oldParent] == sibling) {
+                this.children1[oldParent] = newParent;
+            } else {
+                this.children2[oldParent] = newParent;
+            }
+        } else {
+            this.root = newParent;
+        }
+        this.children1[newParent] = sibling;
+        this.children2[newParent] = leaf;
+        this.parents[sibling] = newParent;
+        this.parents[leaf] = newParent;
+
+        this.refitAncestors(this.parents[leaf]);
+    }
+
+    private float descentCost(int child, int leaf) {
+        if (this.isLeaf(child)) {
+            return this.unionArea(child, leaf);
+        }
+        return this.unionArea(child, leaf) - this.area(child);
+    }
+
+    private void refitAncestors(int node) {
+        int index = node;
+        while (index != NULL_NODE) {
+            index = this.balance(index);
+
+            final int child1 = this.children1[index];
+            final int child2 = this.children2[index];
+            this.heights[index] = 1 + Math.max(this.heights[child1], this.heights[child2]);
+            this.setUnion(index, child1, child2);
+
+            index = this.parents[index];
+        }
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == this.root) {
+            this.root = NULL_NODE;
+            return;
+        }
+
+        final int parent = this.parents[leaf];
+        final int grandParent = this.parents[parent];
+        final int sibling = this.children1[parent] == leaf ? this.children2[parent] : this.children1[parent];
+
+        if (grandParent != NULL_NODE) {
+            //  Destroy the parent and connect the sibling to the grandparent.
+            if (this.children1[grandParent] == parent) {
+                this.children1[grandParent] = sibling;
+            } else {
+                this.children2[grandParent] = sibling;
+            }
+            this.parents[sibling] = grandParent;
+            this.freeNode(parent);
+
+            this.refitAncestors(grandParent);
+        } else {
+            this.root = sibling;
+            this.parents[sibling] = NULL_NODE;
+            this.freeNode(parent);
+        }
+        this.parents[leaf] = NULL_NODE;
+    }
+
+    private void replaceChild(int parent, int oldChild, int newChild) {
+        if (parent == NULL_NODE) {
+            this.root = newChild;
+        } else if (this.children1[parent] == oldChild) {
+            this.children1[parent] = newChild;
+        } else {
+            this.children2[parent] = newChild;
+        }
+    }
+
+    /**
+     * Performs a left or a right rotation if the subtree rooted at {@code a} is imbalanced.
+     *
+     * @param a Node.
+     * @return New root of the subtree.
+     */
+    private int balance(int a) {
+        if (this.isLeaf(a) || this.heights[a] < 2) {
+            return a;
+        }
+
+        final int b = this.children1[a];
+        final int c = this.children2[a];
+        final int balance = this.heights[c] - this.heights[b];
+
+        if (balance > 1) {
+            //  Rotate C up.
+            final int f = this.children1[c];
+            final int g = this.children2[c];
+
+            this.children1[c] = a;
+            this.parents[c] = this.parents[a];
+            this.parents[a] = c;
+            this.replaceChild(this.parents[c], a, c);
+
+            if (this.heights[f] > this.heights[g]) {
+                this.children2[c] = f;
+                this.children2[a] = g;
+                this.parents[g] = a;
+                this.setUnion(a, b, g);
+                this.setUnion(c, a, f);
+                this.heights[a] = 1 + Math.max(this.heights[b], this.heights[g]);
+                this.heights[c] = 1 + Math.max(this.heights[a], this.heights[f]);
+            } else {
+                this.children2[c] = g;
+                this.children2[a] = f;
+                this.parents[f] = a;
+                this.setUnion(a, b, f);
+                this.setUnion(c, a, g);
+                this.heights[a] = 1 + Math.max(this.heights[b], this.heights[f]);
+                this.heights[c] = 1 + Math.max(this.heights[a], this.heights[g]);
+            }
+            return c;
+        }
+
+        if (balance < -1) {
+            //  Rotate B up.
+            final int d = this.children1[b];
+            final int e = this.children2[b];
+
+            this.children1[b] = a;
+            this.parents[b] = this.parents[a];
+            this.parents[a] = b;
+            this.replaceChild(this.parents[b], a, b);
+
+            if (this.heights[d] > this.heights[e]) {
+                this.children2[b] = d;
+                this.children1[a] = e;
+                this.parents[e] = a;
+                this.setUnion(a, c, e);
+                this.setUnion(b, a, d);
+                this.heights[a] = 1 + Math.max(this.heights[c], this.heights[e]);
+                this.heights[b] = 1 + Math.max(this.heights[a], this.heights[d]);
+            } else {
+                this.children2[b] = e;
+                this.children1[a] = d;
+                this.parents[d] = a;
+                this.setUnion(a, c, d);
+                this.setUnion(b, a, e);
+                this.heights[a] = 1 + Math.max(this.heights[c], this.heights[d]);
+                this.heights[b] = 1 + Math.max(this.heights[a], this.heights[e]);
+            }
+            return b;
+        }
+
+        return a;
+    }
+
+    /**
+     * Adds an object to the tree.
+     *
+     * @param min Minimum of the object's AABB.
+     * @param max Maximum of the object's AABB.
+     * @param data Data associated with the object.
+     * @return Proxy of the object.
+     */
+    public int createProxy(final Vector3f min, final Vector3f max, final T data) {
+        final int proxy = this.allocateNode();
+        this.setFatBox(proxy, min.x, min.y, min.z, max.x, max.y, max.z);
+        this.userData[proxy] = data;
+        this.insertLeaf(proxy);
+        this.proxyCount++;
+        return proxy;
+    }
+
+    public void destroyProxy(int proxy) {
+        this.checkProxy(proxy);
+        this.pending[proxy] = false;
+        this.removeLeaf(proxy);
+        this.freeNode(proxy);
+        this.proxyCount--;
+    }
+
+    private boolean fatBoxContains(int proxy, float minX, float minY, float minZ, float maxX, float maxY,
+                                   float maxZ) {
+        final int b = proxy * 6;
+        return this.boxes[b] <= minX && this.boxes[b + 1] <= minY && this.boxes[b + 2] <= minZ &&
+                this.boxes[b + 3] >= maxX && this.boxes[b + 4] >= maxY && this.boxes[b + 5] >= maxZ;
+    }
+
+    /**
+     * Updates the object's AABB immediately. The tree is only modified if the new box doesn't fit in the proxy's fat
+     * AABB.
+     *
+     * @param proxy Proxy.
+     * @param min Minimum of the object's AABB.
+     * @param max Maximum of the object's AABB.
+     * @return {@code true} if the proxy has been re-inserted, {@code false} otherwise.
+     */
+    public boolean moveProxy(int proxy, final Vector3f min, final Vector3f max) {
+        this.checkProxy(proxy);
+        if (this.fatBoxContains(proxy, min.x, min.y, min.z, max.x, max.y, max.z)) {
+            return false;
+        }
+
+        this.removeLeaf(proxy);
+        this.setFatBox(proxy, min.x, min.y, min.z, max.x, max.y, max.z);
+        this.insertLeaf(proxy);
+        return true;
+    }
+
+    /**
+     * Records a new AABB of the object, to be applied during the next {@code commitUpdates}. Updating all objects
+     * this way, and committing once per frame, lets the tree remove all escaped proxies first and re-insert them
+     * afterwards, which is cheaper than moving them one by one.
+     *
+     * @param proxy Proxy.
+     * @param min Minimum of the object's AABB.
+     * @param max Maximum of the object's AABB.
+     */
+    public void updateProxy(int proxy, final Vector3f min, final Vector3f max) {
+        this.checkProxy(proxy);
+        if (this.fatBoxContains(proxy, min.x, min.y, min.z, max.x, max.y, max.z)) {
+            return;
+        }
+
+        final int b = proxy * 6;
+        this.pendingBoxes[b] = min.x;
+        this.pendingBoxes[b + 1] = min.y;
+        this.pendingBoxes[b + 2] = min.z;
+        this.pendingBoxes[b + 3] = max.x;
+        this.pendingBoxes[b + 4] = max.y;
+        this.pendingBoxes[b + 5] = max.z;
+        if (!this.pending[proxy]) {
+            this.pending[proxy] = true;
+            if (this.pendingCount == this.pendingProxies.length) {
+                this.pendingProxies = Arrays.copyOf(this.pendingProxies, this.pendingCount * 2);
+            }
+            this.pendingProxies[this.pendingCount++] = proxy;
+        }
+    }
+
+    /**
+     * Applies all updates recorded with {@code updateProxy}.
+     *
+     * @return Number of re-inserted proxies.
+     */
+    public int commitUpdates() {
+        int count = 0;
+        for (int i = 0; i < this.pendingCount; i++) {
+            final int proxy = this.pendingProxies[i];
+            //  Skip proxies which have been destroyed in the meantime, or listed twice.
+            if (this.pending[proxy]) {
+                this.pending[proxy] = false;
+                this.removeLeaf(proxy);
+                this.pendingProxies[count++] = proxy;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            final int proxy = this.pendingProxies[i];
+            final int b = proxy * 6;
+            final float[] p = this.pendingBoxes;
+            this.setFatBox(proxy, p[b], p[b + 1], p[b + 2], p[b + 3], p[b + 4], p[b + 5]);
+            this.insertLeaf(proxy);
+        }
+        this.pendingCount = 0;
+        return count;
+    }
+
+    private int push(int top, int node) {
+        if (top == this.stack.length) {
+            this.stack = Arrays.copyOf(this.stack, this.stack.length * 2);
+        }
+        this.stack[top] = node;
+        return top + 1;
+    }
+
+    private boolean overlaps(int node, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        final int b = node * 6;
+        return this.boxes[b] <= maxX && this.boxes[b + 3] >= minX && this.boxes[b + 1] <= maxY &&
+                this.boxes[b + 4] >= minY && this.boxes[b + 2] <= maxZ && this.boxes[b + 5] >= minZ;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean report(int proxy, final SpatialQueryCallback<T> callback) {
+        return callback.onProxy(proxy, (T) this.userData[proxy]);
+    }
+
+    /**
+     * Finds all proxies whose fat AABBs overlap the given box.
+     *
+     * @param min Minimum of the box.
+     * @param max Maximum of the box.
+     * @param callback Callback.
+     */
+    public void queryAABB(final Vector3f min, final Vector3f max, final SpatialQueryCallback<T> callback) {
+        if (this.root == NULL_NODE) {
+            return;
+        }
+
+        int top = this.push(0, this.root);
+        while (top > 0) {
+            final int node = this.stack[--top];
+            if (!this.overlaps(node, min.x, min.y, min.z, max.x, max.y, max.z)) {
+                continue;
+            }
+            if (this.isLeaf(node)) {
+                if (!this.report(node, callback)) {
+                    return;
+                }
+            } else {
+                top = this.push(top, this.children1[node]);
+                top = this.push(top, this.children2[node]);
+            }
+        }
+    }
+
+    /**
+     * Finds all proxies whose fat AABBs overlap the given sphere.
+     *
+     * @param center Center of the sphere.
+     * @param radius Radius of the sphere.
+     * @param callback Callback.
+     */
+    public void querySphere(final Vector3f center, float radius, final SpatialQueryCallback<T> callback) {
+        if (this.root == NULL_NODE) {
+            return;
+        }
+
+        final float radiusSquared = radius * radius;
+        int top = this.push(0, this.root);
+        while (top > 0) {
+            final int node = this.stack[--top];
+
+            //  Squared distance from the center to the box.
+            final int b = node * 6;
+            final float dx = Math.max(Math.max(this.boxes[b] - center.x, center.x - this.boxes[b + 3]), 0.0f);
+            final float dy = Math.max(Math.max(this.boxes[b + 1] - center.y, center.y - this.boxes[b + 4]), 0.0f);
+            final float dz = Math.max(Math.max(this.boxes[b + 2] - center.z, center.z - this.boxes[b + 5]), 0.0f);
+            if (dx * dx + dy * dy + dz * dz > radiusSquared) {
+                continue;
+            }
+
+            if (this.isLeaf(node)) {
+                if (!this.report(node, callback)) {
+                    return;
+                }
+            } else {
+                top = this.push(top, this.children1[node]);
+                top = this.push(top, this.children2[node]);
+            }
+        }
+    }
+
+    /**
+     * Finds all proxies whose fat AABBs intersect the given frustum. Subtrees which lie entirely inside the frustum
+     * are reported without testing their nodes.
+     *
+     * @param frustum Frustum.
+     * @param callback Callback.
+     */
+    public void queryFrustum(final Frustum frustum, final SpatialQueryCallback<T> callback) {
+        if (this.root == NULL_NODE) {
+            return;
+        }
+
+        int top = this.push(0, this.root);
+        while (top > 0) {
+            final int node = this.stack[--top];
+            final int b = node * 6;
+            final float[] boxes = this.boxes;
+            if (!frustum.intersectsAABB(boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3], boxes[b + 4],
+                    boxes[b + 5])) {
+                continue;
+            }
+
+            if (this.isLeaf(node)) {
+                if (!this.report(node, callback)) {
+                    return;
+                }
+            } else if (frustum.containsAABB(boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3], boxes[b + 4],
+                    boxes[b + 5])) {
+                if (!this.reportSubtree(node, top, callback)) {
+                    return;
+                }
+            } else {
+                top = this.push(top, this.children1[node]);
+                top = this.push(top, this.children2[node]);
+            }
+        }
+    }
+
+    private boolean reportSubtree(int subtree, int base, final SpatialQueryCallback<T> callback) {
+        //  Use the part of the stack above the caller's entries, so that they stay intact.
+        int top = this.push(base, subtree);
+        while (top > base) {
+            final int node = this.stack[--top];
+            if (this.isLeaf(node)) {
+                if (!this.report(node, callback)) {
+                    return false;
+                }
+            } else {
+                top = this.push(top, this.children1[node]);
+                top = this.push(top, this.children2[node]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Casts a ray through the tree.
+     *
+     * @param origin Origin of the ray.
+     * @param direction Direction of the ray. Does not need to be normalized, in which case distances are expressed
+     *                  in multiples of its length.
+     * @param maxDistance Maximum distance along the ray.
+     * @param callback Callback.
+     */
+    public void raycast(final Vector3f origin, final Vector3f direction, float maxDistance,
+                        final RaycastCallback<T> callback) {
+        if (this.root == NULL_NODE) {
+            return;
+        }
+
+        final float invX = 1.0f / direction.x, invY = 1.0f / direction.y, invZ = 1.0f / direction.z;
+        float maxT = maxDistance;
+        int top = this.push(0, this.root);
+        while (top > 0) {
+            final int node = this.stack[--top];
+
+            //  Slab test.
+            final int b = node * 6;
+            final float[] boxes = this.boxes;
+            final float tx1 = (boxes[b] - origin.x) * invX, tx2 = (boxes[b + 3] - origin.x) * invX;
+            final float ty1 = (boxes[b + 1] - origin.y) * invY, ty2 = (boxes[b + 4] - origin.y) * invY;
+            final float tz1 = (boxes[b + 2] - origin.z) * invZ, tz2 = (boxes[b + 5] - origin.z) * invZ;
+            final float tEnter = Math.max(Math.max(Math.min(tx1, tx2), Math.min(ty1, ty2)), Math.min(tz1, tz2));
+            final float tExit = Math.min(Math.min(Math.max(tx1, tx2), Math.max(ty1, ty2)), Math.max(tz1, tz2));
+            //  NaNs (a ray lying in one of the box's planes) are treated as hits.
+            if (tExit < Math.max(tEnter, 0.0f) || tEnter > maxT) {
+                continue;
+            }
+
+            if (this.isLeaf(node)) {
+                @SuppressWarnings("unchecked")
+                final T data = (T) this.userData[node];
+                maxT = Math.min(maxT, callback.onRayHit(node, data, Math.max(tEnter, 0.0f)));
+                if (maxT <= 0.0f) {
+                    return;
+                }
+            } else {
+                top = this.push(top, this.children1[node]);
+                top = this.push(top, this.children2[node]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getUserData(int proxy) {
+        this.checkProxy(proxy);
+        return (T) this.userData[proxy];
+    }
+
+    public void getFatAABB(int proxy, final Vector3f outMin, final Vector3f outMax) {
+        this.checkProxy(proxy);
+        final int b = proxy * 6;
+        outMin.set(this.boxes[b], this.boxes[b + 1], this.boxes[b + 2]);
+        outMax.set(this.boxes[b + 3], this.boxes[b + 4], this.boxes[b + 5]);
+    }
+
+    public int getProxyCount() {
+        return proxyCount;
+    }
+
+    /**
+     * Returns the height of the tree. A balanced tree with {@code n} proxies has a height close to {@code log2(n)}.
+     *
+     * @return Height of the tree.
+     */
+    public int getHeight() {
+        return this.root == NULL_NODE ? 0 : this.heights[this.root];
+    }
+
+    public float getMargin() {
+        return margin;
+    }
+}
@@ -0,0 +1,122 @@
+package pl.pateman.core.spatial;
+
+import org.joml.Vector3f;
+import pl.pateman.core.TempVars;
+import pl.pateman.core.culling.Frustum;
+import pl.pateman.core.entity.MeshEntity;
+
+import java.util.*;
+
+/**
+ * Spatial index of mesh entities, built on top of {@code DynamicAABBTree}. Entities are indexed by their animated
+ * world bounds, which are refreshed by {@code update}, once per frame. The bounds come from
+ * {@code MeshEntity.getWorldBounds} and enclose the skinned mesh, so the tree's fat AABBs do as well.
+ *
+ * Created by pateman.
+ */
+public final class EntitySpatialIndex {
+    private final DynamicAABBTree<MeshEntity> tree;
+    private final Map<MeshEntity, Integer> proxies;
+    private final CollectingCallback collector;
+
+    public EntitySpatialIndex() {
+        this(DynamicAABBTree.DEFAULT_MARGIN);
+    }
+
+    public EntitySpatialIndex(float margin) {
+        this.tree = new DynamicAABBTree<>(margin);
+        this.proxies = new IdentityHashMap<>();
+        this.collector = new CollectingCallback();
+    }
+
+    private static void getBounds(final MeshEntity entity, final Vector3f outMin, final Vector3f outMax) {
+        if (!entity.getWorldBounds(outMin, outMax)) {
+            //  Entities without vertices are indexed as points.
+            entity.getTransformation().getTranslation(outMin);
+            outMax.set(outMin);
+        }
+    }
+
+    public void addEntity(final MeshEntity entity) {
+        if (entity == null) {
+            throw new IllegalArgumentException("A valid entity needs to be provided");
+        }
+        if (this.proxies.containsKey(entity)) {
+            return;
+        }
+
+        final TempVars vars = TempVars.get();
+        getBounds(entity, vars.vect3d1, vars.vect3d2);
+        this.proxies.put(entity, this.tree.createProxy(vars.vect3d1, vars.vect3d2, entity));
+        vars.release();
+    }
+
+    public void removeEntity(final MeshEntity entity) {
+        final Integer proxy = this.proxies.remove(entity);
+        if (proxy != null) {
+            this.tree.destroyProxy(proxy);
+        }
+    }
+
+    public void clear() {
+        for (final Integer proxy : this.proxies.values()) {
+            this.tree.destroyProxy(proxy);
+        }
+        this.proxies.clear();
+    }
+
+    /**
+     * Refreshes the bounds of all entities and applies them to the tree as a single batch.
+     *
+     * @return Number of entities that had to be re-inserted into the tree.
+     */
+    public int update() {
+        final TempVars vars = TempVars.get();
+        for (final Map.Entry<MeshEntity, Integer> entry : this.proxies.entrySet()) {
+            getBounds(entry.getKey(), vars.vect3d1, vars.vect3d2);
+            this.tree.updateProxy(entry.getValue(), vars.vect3d1, vars.vect3d2);
+        }
+        vars.release();
+        return this.tree.commitUpdates();
+    }
+
+    public List<MeshEntity> queryAABB(final Vector3f min, final Vector3f max, final List<MeshEntity> out) {
+        this.tree.queryAABB(min, max, this.collector.begin(out));
+        return out;
+    }
+
+    public List<MeshEntity> querySphere(final Vector3f center, float radius, final List<MeshEntity> out) {
+        this.tree.querySphere(center, radius, this.collector.begin(out));
+        return out;
+    }
+
+    public List<MeshEntity> queryFrustum(final Frustum frustum, final List<MeshEntity> out) {
+        this.tree.queryFrustum(frustum, this.collector.begin(out));
+        return out;
+    }
+
+    public void raycast(final Vector3f origin, final Vector3f direction, float maxDistance,
+                        final RaycastCallback<MeshEntity> callback) {
+        this.tree.raycast(origin, direction, maxDistance, callback);
+    }
+
+    public DynamicAABBTree<MeshEntity> getTree() {
+        return tree;
+    }
+
+    private static final class CollectingCallback implements SpatialQueryCallback<MeshEntity> {
+        private List<MeshEntity> out;
+
+        private CollectingCallback begin(final List<MeshEntity> out) {
+            out.clear();
+            this.out = out;
+            return this;
+        }
+
+        @Override
+        public boolean onProxy(int proxy, MeshEntity userData) {
+            this.out.add(userData);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package pl.pateman.core.spatial;
+
+/**
+ * Receives proxies hit by a ray cast through {@code DynamicAABBTree}.
+ *
+ * Created by pateman.
+ */
+public interface RaycastCallback<T> {
+    /**
+     * Called for every proxy whose fat AABB is hit by the ray. Proxies are not reported in any particular order.
+     *
+     * @param proxy Proxy.
+     * @param userData Data associated with the proxy.
+     * @param distance Distance along the ray at which it enters the proxy's AABB.
+     * @return New maximum distance of the ray. Return the current maximum to ignore the hit, the distance of an
+     * actual hit to clip the ray, or {@code 0} to stop the ray cast.
+     */
+    float onRayHit(int proxy, T userData, float distance);
+}
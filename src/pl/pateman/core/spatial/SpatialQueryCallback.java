@@ -0,0 +1,17 @@
+package pl.pateman.core.spatial;
+
+/**
+ * Receives proxies found by a query of {@code DynamicAABBTree}.
+ *
+ * Created by pateman.
+ */
+public interface SpatialQueryCallback<T> {
+    /**
+     * Called for every proxy whose fat AABB overlaps the query.
+     *
+     * @param proxy Proxy.
+     * @param userData Data associated with the proxy.
+     * @return {@code true} to continue the query, {@code false} to stop it.
+     */
+    boolean onProxy(int proxy, T userData);
+}
@@ -136,6 +136,29 @@ public final class TextureLoader {
         }
     }
 
+    /**
+     * Decodes a texture without uploading it, so that it can be done on any thread. Use
+     * {@code load(TextureInformation, int)} on the thread which owns the GL context to create the texture.
+     *
+     * @param resourcePath Path to the resource.
+     * @return Decoded texture.
+     * @throws TextureLoaderException If the texture can't be read.
+     */
+    public TextureInformation decode(String resourcePath) throws TextureLoaderException {
+        try (InputStream is = Utils.getResourceStream(resourcePath)) {
+            return this.loadTextureInformation(is);
+        } catch (IOException e) {
+            throw new TextureLoaderException("Unable to load texture", e);
+        }
+    }
+
+    public Texture load(final TextureInformation textureInformation, int textureUnit) {
+        if (textureInformation == null || textureUnit < 0) {
+            throw new IllegalArgumentException();
+        }
+        return this.createTexture(textureUnit, textureInformation);
+    }
+
     public Texture load(final BufferedImage bufferedImage) {
         return this.load(bufferedImage, 0);
     }
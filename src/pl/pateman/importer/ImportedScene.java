@@ -0,0 +1,43 @@
+package pl.pateman.importer;
+
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import pl.pateman.core.mesh.Mesh;
+
+/**
+ * Result of an import - the mesh and the transformation of its scene node.
+ *
+ * Created by pateman.
+ */
+public final class ImportedScene {
+    private final Mesh mesh;
+    private final Vector3f translation;
+    private final Quaternionf rotation;
+    private final Vector3f scale;
+
+    public ImportedScene(Mesh mesh, Vector3f translation, Quaternionf rotation, Vector3f scale) {
+        if (mesh == null) {
+            throw new IllegalArgumentException("A valid mesh needs to be provided");
+        }
+        this.mesh = mesh;
+        this.translation = translation;
+        this.rotation = rotation;
+        this.scale = scale;
+    }
+
+    public Mesh getMesh() {
+        return mesh;
+    }
+
+    public Vector3f getTranslation() {
+        return translation;
+    }
+
+    public Quaternionf getRotation() {
+        return rotation;
+    }
+
+    public Vector3f getScale() {
+        return scale;
+    }
+}
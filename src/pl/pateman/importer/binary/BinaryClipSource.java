@@ -0,0 +1,142 @@
+package pl.pateman.importer.binary;
+
+import pl.pateman.core.mesh.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+import static pl.pateman.importer.binary.BinaryMeshFormat.CLIP_STRIDE;
+import static pl.pateman.importer.binary.BinaryMeshFormat.TRACK_STRIDE;
+
+/**
+ * Animation clips of a binary mesh container. The clips, tracks and keyframes sections form an index, which is
+ * validated up front, so that single clips can be read later on without touching the rest of them.
+ *
+ * Created by pateman.
+ */
+final class BinaryClipSource implements AnimationClipSource {
+    private final Skeleton skeleton;
+    private final ByteBuffer clips;
+    private final ByteBuffer tracks;
+    private final ByteBuffer keyframes;
+    private final String[] clipNames;
+    private final long[] clipSizes;
+    private final Map<String, Integer> clipIndices;
+    private final List<String> clipNameList;
+
+    BinaryClipSource(final Skeleton skeleton, final ByteBuffer strings, final ByteBuffer clips,
+                     final ByteBuffer tracks, final ByteBuffer keyframes) throws IOException {
+        this.skeleton = skeleton;
+        this.clips = clips;
+        this.tracks = tracks;
+        this.keyframes = keyframes;
+
+        final int clipCount = clips.limit() / CLIP_STRIDE;
+        final int trackCount = tracks.limit() / TRACK_STRIDE;
+        final int boneCount = skeleton.getBones().size();
+        this.clipNames = new String[clipCount];
+        this.clipSizes = new long[clipCount];
+        this.clipIndices = new HashMap<>(clipCount * 2);
+        for (int i = 0; i < clipCount; i++) {
+            final int base = i * CLIP_STRIDE;
+            final String name = BinaryMeshImporter.readString(strings, clips, base);
+            final int firstTrack = clips.getInt(base + 16);
+            final int clipTracks = clips.getInt(base + 20);
+            if (firstTrack < 0 || clipTracks < 0 || firstTrack > trackCount - clipTracks) {
+                throw new IOException("Animation '" + name + "' refers to invalid tracks");
+            }
+
+            long size = 0L;
+            for (int j = firstTrack; j < firstTrack + clipTracks; j++) {
+                final int trackBase = j * TRACK_STRIDE;
+                final int bone = tracks.getInt(trackBase);
+                final int keyframeCount = tracks.getInt(trackBase + 4);
+                final int keyframeOffset = tracks.getInt(trackBase + 8);
+                if (bone < 0 || bone >= boneCount) {
+                    throw new IOException("Animation '" + name + "' refers to an invalid bone " + bone);
+                }
+                if (keyframeCount < 0 || keyframeCount > keyframes.limit() / PackedKeyframes.STRIDE ||
+                        keyframeOffset < 0 ||
+                        keyframeOffset > keyframes.limit() - PackedKeyframes.getByteSize(keyframeCount)) {
+                    throw new IOException("Animation '" + name + "' refers to invalid keyframes");
+                }
+                size += PackedKeyframes.getByteSize(keyframeCount);
+            }
+
+            this.clipNames[i] = name;
+            this.clipSizes[i] = size;
+            this.clipIndices.put(name, i);
+        }
+        this.clipNameList = Collections.unmodifiableList(Arrays.asList(this.clipNames));
+    }
+
+    /**
+     * Reads the given clip.
+     *
+     * @param clip Index of the clip.
+     * @param copy Whether the keyframes should be copied into the heap, rather than sampled from the container.
+     * @return Clip.
+     */
+    Animation readClip(int clip, boolean copy) {
+        final int base = clip * CLIP_STRIDE;
+        final Animation animation = new Animation(this.clipNames[clip], this.clips.getFloat(base + 8));
+        animation.setFrameCount(this.clips.getInt(base + 12));
+
+        final int firstTrack = this.clips.getInt(base + 16);
+        final int clipTracks = this.clips.getInt(base + 20);
+        final ByteBuffer copiedKeyframes = copy ?
+                ByteBuffer.allocate((int) this.clipSizes[clip]).order(ByteOrder.LITTLE_ENDIAN) : null;
+        for (int j = firstTrack; j < firstTrack + clipTracks; j++) {
+            final int trackBase = j * TRACK_STRIDE;
+            final int keyframeCount = this.tracks.getInt(trackBase + 4);
+            final int keyframeOffset = this.tracks.getInt(trackBase + 8);
+
+            ByteBuffer trackKeyframes = this.keyframes.duplicate();
+            trackKeyframes.position(keyframeOffset).limit(keyframeOffset +
+                    PackedKeyframes.getByteSize(keyframeCount));
+            if (copiedKeyframes != null) {
+                final int copiedOffset = copiedKeyframes.position();
+                copiedKeyframes.put(trackKeyframes);
+                trackKeyframes = copiedKeyframes.duplicate();
+                trackKeyframes.position(copiedOffset);
+            }
+            animation.getTracks().add(new AnimationTrack(this.skeleton.getBone(this.tracks.getInt(trackBase)),
+                    new PackedKeyframes(trackKeyframes, keyframeCount)));
+        }
+        return animation;
+    }
+
+    int getClipCount() {
+        return this.clipNames.length;
+    }
+
+    private int getClipIndex(final String name) {
+        final Integer clip = this.clipIndices.get(name);
+        if (clip == null) {
+            throw new IllegalArgumentException("Unknown animation " + name);
+        }
+        return clip;
+    }
+
+    @Override
+    public List<String> getClipNames() {
+        return clipNameList;
+    }
+
+    @Override
+    public boolean hasClip(String name) {
+        return this.clipIndices.containsKey(name);
+    }
+
+    @Override
+    public long getClipSize(String name) {
+        return this.clipSizes[this.getClipIndex(name)];
+    }
+
+    @Override
+    public Animation loadClip(String name) throws IOException {
+        return this.readClip(this.getClipIndex(name), true);
+    }
+}
@@ -0,0 +1,127 @@
+package pl.pateman.importer.binary;
+
+/**
+ * Layout of binary mesh containers. All values are little-endian.
+ *
+ * A container starts with a {@code HEADER_SIZE} byte header:
+ *
+ * <ul>
+ *     <li>magic number - {@code MAGIC},</li>
+ *     <li>format version,</li>
+ *     <li>flags,</li>
+ *     <li>number of sections,</li>
+ *     <li>offset of the table of contents,</li>
+ *     <li>length of the whole file,</li>
+ *     <li>CRC32 of everything after the header,</li>
+ *     <li>reserved.</li>
+ * </ul>
+ *
+ * The table of contents describes each section with its id, offset, length in bytes and number of elements. Every
+ * section starts at a multiple of {@code SECTION_ALIGNMENT}, so it can be handed over to the GPU or read with aligned
+ * accesses straight from a memory mapping.
+ *
+ * Created by pateman.
+ */
+public final class BinaryMeshFormat {
+    public static final int MAGIC = 0x4D4B5350;
+    public static final int VERSION = 1;
+
+    public static final int HEADER_SIZE = 32;
+    public static final int TOC_ENTRY_SIZE = 16;
+    public static final int SECTION_ALIGNMENT = 16;
+
+    public static final int MAGIC_OFFSET = 0;
+    public static final int VERSION_OFFSET = 4;
+    public static final int FLAGS_OFFSET = 8;
+    public static final int SECTION_COUNT_OFFSET = 12;
+    public static final int TOC_OFFSET_OFFSET = 16;
+    public static final int FILE_LENGTH_OFFSET = 20;
+    public static final int CHECKSUM_OFFSET = 24;
+
+    /**
+     * Compact indices are unsigned shorts rather than unsigned ints.
+     */
+    public static final int FLAG_SHORT_INDICES = 1;
+
+    /**
+     * Transformation of the scene node - translation (3 floats), rotation (4 floats) and scale (3 floats).
+     */
+    public static final int SECTION_NODE = 1;
+    /**
+     * Vertex positions, 3 floats each.
+     */
+    public static final int SECTION_POSITIONS = 2;
+    /**
+     * Vertex normals, 3 floats each.
+     */
+    public static final int SECTION_NORMALS = 3;
+    /**
+     * Texture coordinates, 2 floats each.
+     */
+    public static final int SECTION_TEXCOORDS = 4;
+    /**
+     * Triangle indices, 1 int each.
+     */
+    public static final int SECTION_INDICES = 5;
+    /**
+     * Vertices encoded with {@code CompactVertexFormat}, ready to be uploaded.
+     */
+    public static final int SECTION_COMPACT_VERTICES = 6;
+    /**
+     * Indices of the compact vertices, either unsigned shorts or unsigned ints (see {@code FLAG_SHORT_INDICES}).
+     */
+    public static final int SECTION_COMPACT_INDICES = 7;
+    /**
+     * Bones, {@code BONE_STRIDE} bytes each - name (offset and length in the strings section), parent index (or -1),
+     * bind translation (3 floats), bind rotation (4 floats) and bind scale (3 floats).
+     */
+    public static final int SECTION_BONES = 8;
+    /**
+     * Vertex weights, {@code SKIN_STRIDE} bytes each - bone index, vertex index and weight.
+     */
+    public static final int SECTION_SKIN = 9;
+    /**
+     * Animation clips, {@code CLIP_STRIDE} bytes each - name (offset and length in the strings section), length,
+     * frame count, index of the first track and number of tracks.
+     */
+    public static final int SECTION_CLIPS = 10;
+    /**
+     * Animation tracks, {@code TRACK_STRIDE} bytes each - bone index, number of keyframes, offset of the keyframes
+     * in the keyframes section and a reserved int.
+     */
+    public static final int SECTION_TRACKS = 11;
+    /**
+     * Keyframes of all tracks, packed with {@code PackedKeyframes}.
+     */
+    public static final int SECTION_KEYFRAMES = 12;
+    /**
+     * UTF-8 encoded names.
+     */
+    public static final int SECTION_STRINGS = 13;
+    /**
+     * Precomputed bind matrices of the bones, {@code BIND_MATRICES_STRIDE} bytes each - local, world and inverse bind
+     * matrix, 16 floats each, in column-major order. Optional; importers calculate the matrices if it's missing.
+     */
+    public static final int SECTION_BIND_MATRICES = 14;
+    /**
+     * Precomputed skinning info (see {@code MeshSkinningInfo}), {@code SKINNING_INFO_STRIDE} bytes each - bone
+     * indices (3 floats) and bone weights (3 floats). Optional.
+     */
+    public static final int SECTION_SKINNING_INFO = 15;
+
+    public static final int NODE_SIZE = 40;
+    public static final int BONE_STRIDE = 52;
+    public static final int SKIN_STRIDE = 12;
+    public static final int CLIP_STRIDE = 24;
+    public static final int TRACK_STRIDE = 16;
+    public static final int BIND_MATRICES_STRIDE = 192;
+    public static final int SKINNING_INFO_STRIDE = 24;
+
+    private BinaryMeshFormat() {
+
+    }
+
+    static int align(int offset) {
+        return (offset + SECTION_ALIGNMENT - 1) & -SECTION_ALIGNMENT;
+    }
+}
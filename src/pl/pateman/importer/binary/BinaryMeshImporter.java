@@ -0,0 +1,319 @@
+package pl.pateman.importer.binary;
+
+import org.joml.Quaternionf;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import pl.pateman.core.MeshImporter;
+import pl.pateman.core.Utils;
+import pl.pateman.core.entity.MeshEntity;
+import pl.pateman.core.mesh.*;
+import pl.pateman.importer.ImportedScene;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import static pl.pateman.importer.binary.BinaryMeshFormat.*;
+
+/**
+ * Imports binary mesh containers (see {@code BinaryMeshFormat}). Files are memory-mapped, and the sections are used
+ * straight from the mapping wherever the engine can consume them as they are. The compact vertex data becomes the
+ * mesh's {@code CompactMeshData}, which is uploaded without copying, and animation tracks sample their keyframes
+ * from {@code PackedKeyframes} slices. The remaining data is turned into the regular mesh structures.
+ *
+ * Resources which aren't plain files (e.g. ones packed in a JAR) are read into a direct buffer instead.
+ *
+ * Created by pateman.
+ */
+public final class BinaryMeshImporter implements MeshImporter {
+    private boolean verifyChecksum = true;
+    private boolean streamAnimations;
+
+    @Override
+    public MeshEntity load(String meshFileResource) throws IOException {
+        return createEntity(this.read(Utils.mapResource(meshFileResource)));
+    }
+
+    static MeshEntity createEntity(final ImportedScene scene) {
+        final MeshEntity meshEntity = new MeshEntity();
+        meshEntity.setMesh(scene.getMesh());
+        meshEntity.setTransformation(scene.getRotation(), scene.getTranslation(), scene.getScale());
+        meshEntity.forceTransformationUpdate();
+        return meshEntity;
+    }
+
+    /**
+     * Imports only the mesh, without creating an entity for it.
+     *
+     * @param meshFileResource Path to the resource.
+     * @return Imported mesh.
+     * @throws IOException If the resource can't be read or is malformed.
+     */
+    public Mesh loadMesh(String meshFileResource) throws IOException {
+        return this.read(Utils.mapResource(meshFileResource)).getMesh();
+    }
+
+    /**
+     * Imports a container.
+     *
+     * @param meshFileResource Path to the resource.
+     * @return Imported scene.
+     * @throws IOException If the resource can't be read or is malformed.
+     */
+    public ImportedScene loadScene(String meshFileResource) throws IOException {
+        return this.read(Utils.mapResource(meshFileResource));
+    }
+
+    /**
+     * Imports a container from a file.
+     *
+     * @param path Path to the file.
+     * @return Imported scene.
+     * @throws IOException If the file can't be read or is malformed.
+     */
+    public ImportedScene loadScene(final Path path) throws IOException {
+        return this.read(Utils.mapFile(path));
+    }
+
+    private static ByteBuffer getSection(final ByteBuffer file, final int[] toc, int sectionId, int elementSize,
+                                         boolean required) throws IOException {
+        for (int i = 0; i < toc.length; i += 4) {
+            if (toc[i] != sectionId) {
+                continue;
+            }
+
+            final int offset = toc[i + 1];
+            final int length = toc[i + 2];
+            final int count = toc[i + 3];
+            if (offset < 0 || length < 0 || offset > file.limit() - length) {
+                throw new IOException("Section " + sectionId + " lies outside of the file");
+            }
+            if (elementSize > 0 && (long) count * elementSize != length) {
+                throw new IOException("Section " + sectionId + " has an invalid length");
+            }
+
+            final ByteBuffer section = file.duplicate();
+            section.position(offset).limit(offset + length);
+            return section.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        if (required) {
+            throw new IOException("Section " + sectionId + " is missing");
+        }
+        return null;
+    }
+
+    static String readString(final ByteBuffer strings, final ByteBuffer record, int position)
+            throws IOException {
+        final int offset = record.getInt(position);
+        final int length = record.getInt(position + 4);
+        if (offset < 0 || length < 0 || offset > strings.limit() - length) {
+            throw new IOException("Invalid string reference");
+        }
+
+        final byte[] bytes = new byte[length];
+        final ByteBuffer string = strings.duplicate();
+        string.position(offset);
+        string.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static float[] readMatrix(final ByteBuffer data, int position, final float[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = data.getFloat(position + i * 4);
+        }
+        return out;
+    }
+
+    ImportedScene read(final ByteBuffer mapping) throws IOException {
+        final ByteBuffer file = mapping.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (file.limit() < HEADER_SIZE || file.getInt(MAGIC_OFFSET) != MAGIC) {
+            throw new IOException("Not a binary mesh container");
+        }
+
+        final int version = file.getInt(VERSION_OFFSET);
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported binary mesh container version " + version);
+        }
+        if (file.getInt(FILE_LENGTH_OFFSET) != file.limit()) {
+            throw new IOException("The file is truncated");
+        }
+
+        if (this.verifyChecksum) {
+            final ByteBuffer payload = file.duplicate();
+            payload.position(HEADER_SIZE);
+            final CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != file.getInt(CHECKSUM_OFFSET)) {
+                throw new IOException("Checksum mismatch");
+            }
+        }
+
+        //  Read the table of contents.
+        final int flags = file.getInt(FLAGS_OFFSET);
+        final int sectionCount = file.getInt(SECTION_COUNT_OFFSET);
+        final int tocOffset = file.getInt(TOC_OFFSET_OFFSET);
+        if (sectionCount < 0 || tocOffset < HEADER_SIZE ||
+                tocOffset > file.limit() - (long) sectionCount * TOC_ENTRY_SIZE) {
+            throw new IOException("Invalid table of contents");
+        }
+        final int[] toc = new int[sectionCount * 4];
+        for (int i = 0; i < toc.length; i++) {
+            toc[i] = file.getInt(tocOffset + i * 4);
+        }
+
+        final Mesh mesh = new Mesh();
+
+        //  Vertex streams.
+        final ByteBuffer positions = getSection(file, toc, SECTION_POSITIONS, 12, true);
+        for (int i = 0; i < positions.limit(); i += 12) {
+            mesh.getVertices().add(new Vector3f(positions.getFloat(i), positions.getFloat(i + 4),
+                    positions.getFloat(i + 8)));
+        }
+        final ByteBuffer normals = getSection(file, toc, SECTION_NORMALS, 12, false);
+        for (int i = 0; normals != null && i < normals.limit(); i += 12) {
+            mesh.getNormals().add(new Vector3f(normals.getFloat(i), normals.getFloat(i + 4),
+                    normals.getFloat(i + 8)));
+        }
+        final ByteBuffer texcoords = getSection(file, toc, SECTION_TEXCOORDS, 8, false);
+        for (int i = 0; texcoords != null && i < texcoords.limit(); i += 8) {
+            mesh.getTexcoords().add(new Vector2f(texcoords.getFloat(i), texcoords.getFloat(i + 4)));
+        }
+        final ByteBuffer indices = getSection(file, toc, SECTION_INDICES, 4, true);
+        for (int i = 0; i < indices.limit(); i += 4) {
+            mesh.getTriangles().add(indices.getInt(i));
+        }
+
+        //  GPU-ready data is used as it is, if it's in the native order.
+        final ByteBuffer compactVertices = getSection(file, toc, SECTION_COMPACT_VERTICES,
+                CompactVertexFormat.STRIDE, false);
+        final boolean shortIndices = (flags & FLAG_SHORT_INDICES) != 0;
+        final ByteBuffer compactIndices = getSection(file, toc, SECTION_COMPACT_INDICES, shortIndices ? 2 : 4,
+                false);
+        if (compactVertices != null && compactIndices != null &&
+                ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) {
+            mesh.setCompactMeshData(CompactMeshData.wrap(compactVertices,
+                    compactVertices.limit() / CompactVertexFormat.STRIDE, compactIndices,
+                    compactIndices.limit() / (shortIndices ? 2 : 4), shortIndices));
+        }
+
+        //  Skeleton.
+        final ByteBuffer strings = getSection(file, toc, SECTION_STRINGS, 0, true);
+        final ByteBuffer boneData = getSection(file, toc, SECTION_BONES, BONE_STRIDE, true);
+        final int boneCount = boneData.limit() / BONE_STRIDE;
+        for (int i = 0; i < boneCount; i++) {
+            final int base = i * BONE_STRIDE;
+            final Bone bone = new Bone(readString(strings, boneData, base), i);
+            final int parent = boneData.getInt(base + 8);
+            if (parent != -1) {
+                if (parent < 0 || parent >= i) {
+                    throw new IOException("Bone '" + bone.getName() + "' refers to an invalid parent " + parent);
+                }
+                final Bone parentBone = mesh.getSkeleton().getBone(parent);
+                bone.setParent(parentBone);
+                parentBone.getChildren().add(bone);
+            }
+            bone.getBindPosition().set(boneData.getFloat(base + 12), boneData.getFloat(base + 16),
+                    boneData.getFloat(base + 20));
+            bone.getBindRotation().set(boneData.getFloat(base + 24), boneData.getFloat(base + 28),
+                    boneData.getFloat(base + 32), boneData.getFloat(base + 36));
+            bone.getBindScale().set(boneData.getFloat(base + 40), boneData.getFloat(base + 44),
+                    boneData.getFloat(base + 48));
+            mesh.getSkeleton().getBones().add(bone);
+        }
+
+        final ByteBuffer skin = getSection(file, toc, SECTION_SKIN, SKIN_STRIDE, true);
+        for (int i = 0; i < skin.limit(); i += SKIN_STRIDE) {
+            final int bone = skin.getInt(i);
+            if (bone < 0 || bone >= boneCount) {
+                throw new IOException("Vertex weight refers to an invalid bone " + bone);
+            }
+            mesh.getSkeleton().getBone(bone).addVertexWeight(skin.getInt(i + 4), skin.getFloat(i + 8));
+        }
+
+        //  Animations. Tracks keep slices of the keyframes section, unless the clips are streamed.
+        final BinaryClipSource clipSource = new BinaryClipSource(mesh.getSkeleton(), strings,
+                getSection(file, toc, SECTION_CLIPS, CLIP_STRIDE, true),
+                getSection(file, toc, SECTION_TRACKS, TRACK_STRIDE, true),
+                getSection(file, toc, SECTION_KEYFRAMES, PackedKeyframes.STRIDE, true));
+        if (this.streamAnimations) {
+            mesh.setClipSource(clipSource);
+        } else {
+            for (int i = 0; i < clipSource.getClipCount(); i++) {
+                mesh.getAnimations().add(clipSource.readClip(i, false));
+            }
+        }
+
+        //  Bind matrices and skinning info are optional, as they can be computed from the data read above.
+        final ByteBuffer bindMatrices = getSection(file, toc, SECTION_BIND_MATRICES, BIND_MATRICES_STRIDE, false);
+        if (bindMatrices != null && bindMatrices.limit() / BIND_MATRICES_STRIDE == boneCount) {
+            final float[] matrix = new float[16];
+            for (int i = 0; i < boneCount; i++) {
+                final Bone bone = mesh.getSkeleton().getBone(i);
+                final int base = i * BIND_MATRICES_STRIDE;
+                bone.getLocalBindMatrix().set(readMatrix(bindMatrices, base, matrix));
+                bone.getWorldBindMatrix().set(readMatrix(bindMatrices, base + 64, matrix));
+                bone.getInverseBindMatrix().set(readMatrix(bindMatrices, base + 128, matrix));
+            }
+        } else {
+            mesh.getSkeleton().calculateBindMatrices();
+        }
+        mesh.createBoneTracks();
+
+        final ByteBuffer skinningInfo = getSection(file, toc, SECTION_SKINNING_INFO, SKINNING_INFO_STRIDE, false);
+        if (skinningInfo != null) {
+            final MeshSkinningInfo meshSkinningInfo = new MeshSkinningInfo();
+            for (int i = 0; i < skinningInfo.limit(); i += SKINNING_INFO_STRIDE) {
+                meshSkinningInfo.getBoneIndices().add(new Vector3f(skinningInfo.getFloat(i),
+                        skinningInfo.getFloat(i + 4), skinningInfo.getFloat(i + 8)));
+                meshSkinningInfo.getBoneWeights().add(new Vector3f(skinningInfo.getFloat(i + 12),
+                        skinningInfo.getFloat(i + 16), skinningInfo.getFloat(i + 20)));
+            }
+            mesh.setSkinningInfo(meshSkinningInfo);
+        }
+
+        //  Scene node.
+        final ByteBuffer node = getSection(file, toc, SECTION_NODE, NODE_SIZE, false);
+        final Vector3f translation = new Vector3f();
+        final Quaternionf rotation = new Quaternionf();
+        final Vector3f scale = new Vector3f(Utils.IDENTITY_VECTOR);
+        if (node != null) {
+            translation.set(node.getFloat(0), node.getFloat(4), node.getFloat(8));
+            rotation.set(node.getFloat(12), node.getFloat(16), node.getFloat(20), node.getFloat(24));
+            scale.set(node.getFloat(28), node.getFloat(32), node.getFloat(36));
+        }
+
+        return new ImportedScene(mesh, translation, rotation, scale);
+    }
+
+    public boolean isVerifyChecksum() {
+        return verifyChecksum;
+    }
+
+    /**
+     * Enables or disables verification of checksums. Verification reads the whole file, so it can be disabled for
+     * trusted assets.
+     *
+     * @param verifyChecksum Whether checksums should be verified.
+     */
+    public void setVerifyChecksum(boolean verifyChecksum) {
+        this.verifyChecksum = verifyChecksum;
+    }
+
+    public boolean isStreamAnimations() {
+        return streamAnimations;
+    }
+
+    /**
+     * Enables or disables streaming of animations. Streamed animations aren't read with the mesh. Instead, the mesh
+     * gets a clip source, from which each clip is loaded into {@code AnimationClipCache} when it's first played.
+     *
+     * @param streamAnimations Whether animations should be streamed.
+     */
+    public void setStreamAnimations(boolean streamAnimations) {
+        this.streamAnimations = streamAnimations;
+    }
+}
@@ -0,0 +1,347 @@
+package pl.pateman.importer.binary;
+
+import org.joml.Quaternionf;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import pl.pateman.core.Utils;
+import pl.pateman.core.mesh.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import static pl.pateman.importer.binary.BinaryMeshFormat.*;
+
+/**
+ * Writes meshes into binary containers (see {@code BinaryMeshFormat}).
+ *
+ * Created by pateman.
+ */
+public final class BinaryMeshWriter {
+    private BinaryMeshWriter() {
+
+    }
+
+    private static final class Section {
+        private final int id;
+        private final ByteBuffer data;
+        private final int elementCount;
+
+        private Section(int id, ByteBuffer data, int elementCount) {
+            this.id = id;
+            this.data = data;
+            this.elementCount = elementCount;
+            this.data.flip();
+        }
+    }
+
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void addString(final ByteArrayOutputStream strings, final String value, final ByteBuffer out) {
+        final byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        out.putInt(strings.size()).putInt(bytes.length);
+        strings.write(bytes, 0, bytes.length);
+    }
+
+    private static void addBone(final Bone bone, final Set<Bone> skeletonBones, final Map<Bone, Integer> boneIndices,
+                                final List<Bone> out) {
+        final Integer index = boneIndices.get(bone);
+        if (index != null) {
+            if (index == -1) {
+                throw new IllegalStateException("Bone '" + bone.getName() + "' is its own ancestor");
+            }
+            return;
+        }
+        if (!skeletonBones.contains(bone)) {
+            throw new IllegalStateException("Bone '" + bone.getName() + "' is not in the skeleton");
+        }
+
+        boneIndices.put(bone, -1);
+        if (bone.getParent() != null) {
+            addBone(bone.getParent(), skeletonBones, boneIndices, out);
+        }
+        boneIndices.put(bone, out.size());
+        out.add(bone);
+    }
+
+    /**
+     * Orders the bones so that parents precede their children, as the reader requires. Bones which are already in such
+     * an order keep it.
+     */
+    private static List<Bone> orderBones(final List<Bone> bones, final Map<Bone, Integer> boneIndices) {
+        final Set<Bone> skeletonBones = new HashSet<>(bones);
+        final List<Bone> ordered = new ArrayList<>(bones.size());
+        for (final Bone bone : bones) {
+            addBone(bone, skeletonBones, boneIndices, ordered);
+        }
+        return ordered;
+    }
+
+    private static void putMatrix(final ByteBuffer out, final float[] matrix) {
+        for (final float value : matrix) {
+            out.putFloat(value);
+        }
+    }
+
+    /**
+     * Encodes the mesh with an identity transformation of its scene node.
+     *
+     * @param mesh Mesh to encode.
+     * @return Buffer with the whole container.
+     */
+    public static ByteBuffer encode(final Mesh mesh) {
+        return encode(mesh, null, null, null);
+    }
+
+    /**
+     * Encodes the mesh. Bind matrices of the bones are stored as they are, so they need to be calculated first. Bones
+     * are stored in an order in which parents precede their children, so their indices may differ from the ones in
+     * the mesh.
+     *
+     * @param mesh Mesh to encode.
+     * @param translation Translation of the scene node, or {@code null} for no translation.
+     * @param rotation Rotation of the scene node, or {@code null} for no rotation.
+     * @param scale Scale of the scene node, or {@code null} for no scaling.
+     * @return Buffer with the whole container, positioned at its start.
+     */
+    public static ByteBuffer encode(final Mesh mesh, final Vector3f translation, final Quaternionf rotation,
+                                    final Vector3f scale) {
+        if (mesh == null) {
+            throw new IllegalArgumentException("A valid mesh needs to be provided");
+        }
+
+        final List<Section> sections = new ArrayList<>();
+        final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+
+        //  Node transformation.
+        final ByteBuffer node = allocate(NODE_SIZE);
+        final Vector3f nodeTranslation = translation == null ? new Vector3f() : translation;
+        final Quaternionf nodeRotation = rotation == null ? new Quaternionf() : rotation;
+        final Vector3f nodeScale = scale == null ? Utils.IDENTITY_VECTOR : scale;
+        node.putFloat(nodeTranslation.x).putFloat(nodeTranslation.y).putFloat(nodeTranslation.z);
+        node.putFloat(nodeRotation.x).putFloat(nodeRotation.y).putFloat(nodeRotation.z).putFloat(nodeRotation.w);
+        node.putFloat(nodeScale.x).putFloat(nodeScale.y).putFloat(nodeScale.z);
+        sections.add(new Section(SECTION_NODE, node, 1));
+
+        //  Vertex streams.
+        final ByteBuffer positions = allocate(mesh.getVertices().size() * 12);
+        for (final Vector3f vertex : mesh.getVertices()) {
+            positions.putFloat(vertex.x).putFloat(vertex.y).putFloat(vertex.z);
+        }
+        sections.add(new Section(SECTION_POSITIONS, positions, mesh.getVertices().size()));
+
+        final ByteBuffer normals = allocate(mesh.getNormals().size() * 12);
+        for (final Vector3f normal : mesh.getNormals()) {
+            normals.putFloat(normal.x).putFloat(normal.y).putFloat(normal.z);
+        }
+        sections.add(new Section(SECTION_NORMALS, normals, mesh.getNormals().size()));
+
+        final ByteBuffer texcoords = allocate(mesh.getTexcoords().size() * 8);
+        for (final Vector2f texcoord : mesh.getTexcoords()) {
+            texcoords.putFloat(texcoord.x).putFloat(texcoord.y);
+        }
+        sections.add(new Section(SECTION_TEXCOORDS, texcoords, mesh.getTexcoords().size()));
+
+        final ByteBuffer indices = allocate(mesh.getTriangles().size() * 4);
+        for (int i = 0; i < mesh.getTriangles().size(); i++) {
+            indices.putInt(mesh.getTriangles().get(i));
+        }
+        sections.add(new Section(SECTION_INDICES, indices, mesh.getTriangles().size()));
+
+        //  Bones are written in hierarchy order. If that changes their order, the bone indices of vertices (which are
+        //  the bones' own indices) are remapped to the written ones.
+        final Map<Bone, Integer> boneIndices = new HashMap<>(mesh.getSkeleton().getBones().size() * 2);
+        final List<Bone> bones = orderBones(mesh.getSkeleton().getBones(), boneIndices);
+        int[] boneRemap = null;
+        if (!bones.equals(mesh.getSkeleton().getBones())) {
+            int maxBoneIndex = 0;
+            for (final Bone bone : bones) {
+                maxBoneIndex = Math.max(maxBoneIndex, bone.getIndex());
+            }
+            boneRemap = new int[maxBoneIndex + 1];
+            for (final Bone bone : bones) {
+                boneRemap[bone.getIndex()] = boneIndices.get(bone);
+            }
+        }
+
+        //  GPU-ready data. The encoder writes in the native order, so it's only stored on little-endian machines.
+        //  Skeletons with bone indices that don't fit in a byte can't be encoded.
+        int flags = 0;
+        if (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN &&
+                mesh.getSkeleton().getBones().size() <= CompactVertexFormat.MAX_BONE_INDEX + 1) {
+            final CompactMeshData compactData = CompactVertexFormat.encode(mesh);
+            final ByteBuffer compactVertices = allocate(compactData.getVertexData().capacity());
+            compactVertices.put(compactData.getVertexData().duplicate());
+            for (int i = 0; boneRemap != null && i < compactData.getVertexCount(); i++) {
+                for (int j = 0; j < MeshSkinningInfo.MAX_BONES_PER_VERTEX; j++) {
+                    final int offset = i * CompactVertexFormat.STRIDE + CompactVertexFormat.BONE_INDICES_OFFSET + j;
+                    compactVertices.put(offset, (byte) boneRemap[compactVertices.get(offset) & 0xFF]);
+                }
+            }
+            sections.add(new Section(SECTION_COMPACT_VERTICES, compactVertices, compactData.getVertexCount()));
+
+            final ByteBuffer compactIndices = allocate(compactData.getIndexData().capacity());
+            compactIndices.put(compactData.getIndexData().duplicate());
+            sections.add(new Section(SECTION_COMPACT_INDICES, compactIndices, compactData.getIndexCount()));
+            if (compactData.hasShortIndices()) {
+                flags |= FLAG_SHORT_INDICES;
+            }
+        }
+
+        //  Skeleton and skin.
+        final ByteBuffer boneData = allocate(bones.size() * BONE_STRIDE);
+        int weightCount = 0;
+        for (final Bone bone : bones) {
+            addString(strings, bone.getName(), boneData);
+            boneData.putInt(bone.getParent() == null ? -1 : boneIndices.get(bone.getParent()));
+            final Vector3f bindPosition = bone.getBindPosition();
+            final Quaternionf bindRotation = bone.getBindRotation();
+            final Vector3f bindScale = bone.getBindScale();
+            boneData.putFloat(bindPosition.x).putFloat(bindPosition.y).putFloat(bindPosition.z);
+            boneData.putFloat(bindRotation.x).putFloat(bindRotation.y).putFloat(bindRotation.z).
+                    putFloat(bindRotation.w);
+            boneData.putFloat(bindScale.x).putFloat(bindScale.y).putFloat(bindScale.z);
+            weightCount += bone.getVertexWeights().size();
+        }
+        sections.add(new Section(SECTION_BONES, boneData, bones.size()));
+
+        final ByteBuffer skin = allocate(weightCount * SKIN_STRIDE);
+        for (int i = 0; i < bones.size(); i++) {
+            for (final Map.Entry<Integer, Float> weight : bones.get(i).getVertexWeights().entrySet()) {
+                skin.putInt(i).putInt(weight.getKey()).putFloat(weight.getValue());
+            }
+        }
+        sections.add(new Section(SECTION_SKIN, skin, weightCount));
+
+        //  Precomputed data, so that importers don't need to calculate it.
+        final ByteBuffer bindMatrices = allocate(bones.size() * BIND_MATRICES_STRIDE);
+        final float[] matrix = new float[16];
+        for (final Bone bone : bones) {
+            putMatrix(bindMatrices, bone.getLocalBindMatrix().get(matrix));
+            putMatrix(bindMatrices, bone.getWorldBindMatrix().get(matrix));
+            putMatrix(bindMatrices, bone.getInverseBindMatrix().get(matrix));
+        }
+        sections.add(new Section(SECTION_BIND_MATRICES, bindMatrices, bones.size()));
+
+        if (mesh.hasSkeleton()) {
+            final MeshSkinningInfo skinningInfo = mesh.getSkinningInfo();
+            final int skinnedVertices = skinningInfo.getBoneIndices().size();
+            final ByteBuffer skinningData = allocate(skinnedVertices * SKINNING_INFO_STRIDE);
+            for (int i = 0; i < skinnedVertices; i++) {
+                final Vector3f vertexBones = skinningInfo.getBoneIndices().get(i);
+                final Vector3f boneWeights = skinningInfo.getBoneWeights().get(i);
+                if (boneRemap != null) {
+                    skinningData.putFloat(boneRemap[(int) vertexBones.x]).putFloat(boneRemap[(int) vertexBones.y]).
+                            putFloat(boneRemap[(int) vertexBones.z]);
+                } else {
+                    skinningData.putFloat(vertexBones.x).putFloat(vertexBones.y).putFloat(vertexBones.z);
+                }
+                skinningData.putFloat(boneWeights.x).putFloat(boneWeights.y).putFloat(boneWeights.z);
+            }
+            sections.add(new Section(SECTION_SKINNING_INFO, skinningData, skinnedVertices));
+        }
+
+        //  Animations.
+        final List<Animation> animations = mesh.getAnimations();
+        int trackCount = 0;
+        int keyframeCount = 0;
+        for (final Animation animation : animations) {
+            trackCount += animation.getTracks().size();
+            for (final AnimationTrack track : animation.getTracks()) {
+                keyframeCount += track.getKeyframeCount();
+            }
+        }
+
+        final ByteBuffer clips = allocate(animations.size() * CLIP_STRIDE);
+        final ByteBuffer tracks = allocate(trackCount * TRACK_STRIDE);
+        final ByteBuffer keyframes = allocate(PackedKeyframes.getByteSize(keyframeCount));
+        int firstTrack = 0;
+        for (final Animation animation : animations) {
+            addString(strings, animation.getName(), clips);
+            clips.putFloat(animation.getLength()).putInt(animation.getFrameCount());
+            clips.putInt(firstTrack).putInt(animation.getTracks().size());
+            firstTrack += animation.getTracks().size();
+
+            for (final AnimationTrack track : animation.getTracks()) {
+                final Integer boneIndex = boneIndices.get(track.getBone());
+                if (boneIndex == null) {
+                    throw new IllegalStateException("Animation '" + animation.getName() +
+                            "' has a track for a bone which is not in the skeleton");
+                }
+                tracks.putInt(boneIndex).putInt(track.getKeyframeCount()).putInt(keyframes.position()).putInt(0);
+                PackedKeyframes.encode(track.getKeyframes(), keyframes);
+            }
+        }
+        sections.add(new Section(SECTION_CLIPS, clips, animations.size()));
+        sections.add(new Section(SECTION_TRACKS, tracks, trackCount));
+        sections.add(new Section(SECTION_KEYFRAMES, keyframes, keyframeCount));
+
+        final ByteBuffer stringData = allocate(strings.size());
+        stringData.put(strings.toByteArray());
+        sections.add(new Section(SECTION_STRINGS, stringData, 1));
+
+        //  Lay the sections out.
+        int fileLength = align(HEADER_SIZE + sections.size() * TOC_ENTRY_SIZE);
+        final int[] offsets = new int[sections.size()];
+        for (int i = 0; i < sections.size(); i++) {
+            offsets[i] = fileLength;
+            fileLength = align(fileLength + sections.get(i).data.remaining());
+        }
+
+        final ByteBuffer container = allocate(fileLength);
+        container.putInt(MAGIC_OFFSET, MAGIC);
+        container.putInt(VERSION_OFFSET, VERSION);
+        container.putInt(FLAGS_OFFSET, flags);
+        container.putInt(SECTION_COUNT_OFFSET, sections.size());
+        container.putInt(TOC_OFFSET_OFFSET, HEADER_SIZE);
+        container.putInt(FILE_LENGTH_OFFSET, fileLength);
+
+        container.position(HEADER_SIZE);
+        for (int i = 0; i < sections.size(); i++) {
+            final Section section = sections.get(i);
+            container.putInt(section.id).putInt(offsets[i]).putInt(section.data.remaining()).
+                    putInt(section.elementCount);
+        }
+        for (int i = 0; i < sections.size(); i++) {
+            container.position(offsets[i]);
+            container.put(sections.get(i).data);
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(container.array(), HEADER_SIZE, fileLength - HEADER_SIZE);
+        container.putInt(CHECKSUM_OFFSET, (int) crc.getValue());
+
+        container.clear();
+        return container;
+    }
+
+    /**
+     * Encodes the mesh and writes it to a file.
+     *
+     * @param mesh Mesh to write.
+     * @param translation Translation of the scene node, or {@code null} for no translation.
+     * @param rotation Rotation of the scene node, or {@code null} for no rotation.
+     * @param scale Scale of the scene node, or {@code null} for no scaling.
+     * @param path Path to the file, which is overwritten if it exists.
+     * @throws IOException If the file can't be written.
+     */
+    public static void write(final Mesh mesh, final Vector3f translation, final Quaternionf rotation,
+                             final Vector3f scale, final Path path) throws IOException {
+        final ByteBuffer container = encode(mesh, translation, rotation, scale);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (container.hasRemaining()) {
+                channel.write(container);
+            }
+        }
+    }
+}
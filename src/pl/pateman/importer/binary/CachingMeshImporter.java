@@ -0,0 +1,306 @@
+package pl.pateman.importer.binary;
+
+import pl.pateman.core.MeshImporter;
+import pl.pateman.core.Utils;
+import pl.pateman.core.entity.MeshEntity;
+import pl.pateman.importer.ImportedScene;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decorates another importer with a cache of binary mesh containers (see {@code BinaryMeshFormat}), keyed by the
+ * hash of the resource's content. The first import of a resource goes through the decorated importer and stores the
+ * result in the cache directory. Subsequent imports of the same content are memory-mapped straight from the cache, so
+ * the source is only read to be hashed.
+ *
+ * Cache entries start with an {@code ENTRY_HEADER_SIZE} byte header - magic number ({@code ENTRY_MAGIC}), version
+ * and the time that the decorated importer took to import the resource, in nanoseconds - followed by the container.
+ * Entries are written atomically, so a cache directory can be shared by multiple processes. Once the size of the
+ * directory exceeds the limit, the least recently used entries are evicted.
+ *
+ * Only the resource itself is hashed, so importers which read further resources (e.g. skeletons of OgreXML meshes)
+ * don't notice when those change.
+ *
+ * Created by pateman.
+ */
+public final class CachingMeshImporter implements MeshImporter {
+    public static final String ENTRY_EXTENSION = ".cache";
+    public static final int ENTRY_MAGIC = 0x434B5350;
+    public static final int ENTRY_VERSION = 1;
+    public static final int ENTRY_HEADER_SIZE = 16;
+    public static final long DEFAULT_MAX_CACHE_SIZE = 256L * 1024L * 1024L;
+
+    private final MeshImporter importer;
+    private final Path cacheDirectory;
+    private final long maxCacheSize;
+    private final BinaryMeshImporter binaryImporter = new BinaryMeshImporter();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong importTime = new AtomicLong();
+    private final AtomicLong timeSaved = new AtomicLong();
+
+    public CachingMeshImporter(final MeshImporter importer, final Path cacheDirectory) {
+        this(importer, cacheDirectory, DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    public CachingMeshImporter(final MeshImporter importer, final Path cacheDirectory, long maxCacheSize) {
+        if (importer == null) {
+            throw new IllegalArgumentException("A valid importer needs to be provided");
+        }
+        if (cacheDirectory == null) {
+            throw new IllegalArgumentException("A valid cache directory needs to be provided");
+        }
+        if (maxCacheSize <= 0L) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.importer = importer;
+        this.cacheDirectory = cacheDirectory;
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    @Override
+    public MeshEntity load(String meshFileResource) throws IOException {
+        final byte[] content;
+        try (InputStream is = Utils.getResourceStream(meshFileResource)) {
+            content = Utils.readAllBytes(is);
+        }
+        final String key = this.getKey(content);
+
+        final ImportedScene cachedScene = this.lookup(key);
+        if (cachedScene != null) {
+            return BinaryMeshImporter.createEntity(cachedScene);
+        }
+
+        final long start = System.nanoTime();
+        final MeshEntity meshEntity = this.importer.load(meshFileResource);
+        final long time = System.nanoTime() - start;
+        this.missCount.incrementAndGet();
+        this.importTime.addAndGet(time);
+
+        //  A failure to cache the mesh shouldn't fail the import.
+        if (meshEntity != null && meshEntity.getMesh() != null) {
+            try {
+                this.store(key, new ImportedScene(meshEntity.getMesh(), meshEntity.getTranslation(),
+                        meshEntity.getRotation(), meshEntity.getScale()), time);
+            } catch (IOException | IllegalStateException e) {
+                System.out.printf("Unable to cache '%s': %s%n", meshFileResource, e.getMessage());
+            }
+        }
+        return meshEntity;
+    }
+
+    /**
+     * Computes the key of the given content. Keys depend on the decorated importer and on the version of the
+     * container format as well, so that entries are never shared by importers which could produce different meshes.
+     *
+     * @param content Content of a resource.
+     * @return Key.
+     */
+    String getKey(final byte[] content) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        digest.update((this.importer.getClass().getName() + "#" + ENTRY_VERSION + "." + BinaryMeshFormat.VERSION).
+                getBytes(StandardCharsets.UTF_8));
+        digest.update(content);
+
+        final byte[] hash = digest.digest();
+        final StringBuilder key = new StringBuilder(hash.length * 2);
+        for (final byte b : hash) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Reads the cache entry with the given key. Entries which can't be read are removed.
+     *
+     * @param key Key of the entry.
+     * @return Cached scene, or {@code null} if there's no such entry.
+     */
+    ImportedScene lookup(final String key) {
+        final Path entry = this.cacheDirectory.resolve(key + ENTRY_EXTENSION);
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+
+        final long start = System.nanoTime();
+        try {
+            final ByteBuffer mapping;
+            try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).
+                        order(ByteOrder.LITTLE_ENDIAN);
+            }
+            if (mapping.limit() < ENTRY_HEADER_SIZE || mapping.getInt(0) != ENTRY_MAGIC ||
+                    mapping.getInt(4) != ENTRY_VERSION) {
+                throw new IOException("Not a cache entry");
+            }
+
+            final long entryImportTime = mapping.getLong(8);
+            mapping.position(ENTRY_HEADER_SIZE);
+            final ImportedScene scene = this.binaryImporter.read(mapping.slice());
+
+            //  The modification time orders the entries for eviction.
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+
+            this.hitCount.incrementAndGet();
+            this.timeSaved.addAndGet(entryImportTime - (System.nanoTime() - start));
+            return scene;
+        } catch (IOException e) {
+            System.out.printf("Removing unreadable cache entry '%s': %s%n", entry.getFileName(), e.getMessage());
+            try {
+                Files.deleteIfExists(entry);
+            } catch (IOException ignored) {
+                //  Another process may hold the file. It'll be evicted eventually.
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Writes a cache entry and evicts old entries, if the cache has grown too large.
+     *
+     * @param key Key of the entry.
+     * @param scene Scene to cache.
+     * @param entryImportTime Time that the import of the scene took, in nanoseconds.
+     * @throws IOException If the entry can't be written.
+     */
+    void store(final String key, final ImportedScene scene, long entryImportTime) throws IOException {
+        final ByteBuffer container = BinaryMeshWriter.encode(scene.getMesh(), scene.getTranslation(),
+                scene.getRotation(), scene.getScale());
+        final ByteBuffer entry = ByteBuffer.allocate(ENTRY_HEADER_SIZE + container.remaining()).
+                order(ByteOrder.LITTLE_ENDIAN);
+        entry.putInt(ENTRY_MAGIC).putInt(ENTRY_VERSION).putLong(entryImportTime).put(container);
+        entry.flip();
+
+        Files.createDirectories(this.cacheDirectory);
+        Utils.writeAtomically(this.cacheDirectory.resolve(key + ENTRY_EXTENSION), entry);
+        this.evict();
+    }
+
+    private synchronized void evict() throws IOException {
+        final List<Path> entries = new ArrayList<>();
+        long cacheSize = 0L;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.cacheDirectory, "*" + ENTRY_EXTENSION)) {
+            for (final Path entry : stream) {
+                entries.add(entry);
+                cacheSize += Files.size(entry);
+            }
+        }
+        if (cacheSize <= this.maxCacheSize) {
+            return;
+        }
+
+        //  Remove the least recently used entries first.
+        final List<FileTime> times = new ArrayList<>(entries.size());
+        for (final Path entry : entries) {
+            times.add(Files.getLastModifiedTime(entry));
+        }
+        final List<Integer> order = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return times.get(o1).compareTo(times.get(o2));
+            }
+        });
+
+        for (int i = 0; i < order.size() && cacheSize > this.maxCacheSize; i++) {
+            final Path entry = entries.get(order.get(i));
+            final long size = Files.size(entry);
+            if (Files.deleteIfExists(entry)) {
+                this.evictionCount.incrementAndGet();
+            }
+            cacheSize -= size;
+        }
+    }
+
+    /**
+     * Removes all entries from the cache directory.
+     *
+     * @throws IOException If the entries can't be removed.
+     */
+    public synchronized void clear() throws IOException {
+        if (!Files.isDirectory(this.cacheDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.cacheDirectory, "*" + ENTRY_EXTENSION)) {
+            for (final Path entry : stream) {
+                Files.deleteIfExists(entry);
+            }
+        }
+    }
+
+    public void resetStatistics() {
+        this.hitCount.set(0L);
+        this.missCount.set(0L);
+        this.evictionCount.set(0L);
+        this.importTime.set(0L);
+        this.timeSaved.set(0L);
+    }
+
+    public MeshImporter getImporter() {
+        return importer;
+    }
+
+    public Path getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    public long getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Returns the time spent in the decorated importer on cache misses.
+     *
+     * @return Time in nanoseconds.
+     */
+    public long getImportTime() {
+        return importTime.get();
+    }
+
+    /**
+     * Returns the time saved by cache hits, i.e. the time that the decorated importer took to import the cached
+     * resources, less the time it took to read them from the cache.
+     *
+     * @return Time in nanoseconds.
+     */
+    public long getTimeSaved() {
+        return timeSaved.get();
+    }
+}
@@ -0,0 +1,172 @@
+package pl.pateman.importer.gltf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Typed view of a glTF accessor. Elements are read straight from the buffer (e.g. a memory-mapped GLB file), with
+ * absolute reads that honour the buffer view's stride, so no intermediate arrays are created.
+ *
+ * Created by pateman.
+ */
+final class GLTFAccessor {
+    static final int BYTE = 5120;
+    static final int UNSIGNED_BYTE = 5121;
+    static final int SHORT = 5122;
+    static final int UNSIGNED_SHORT = 5123;
+    static final int UNSIGNED_INT = 5125;
+    static final int FLOAT = 5126;
+
+    private final ByteBuffer data;
+    private final int componentType;
+    private final int componentSize;
+    private final int componentCount;
+    private final int count;
+    private final int stride;
+    private final boolean normalized;
+
+    /**
+     * Creates an accessor.
+     *
+     * @param data Content of the buffer view, starting at the accessor's offset, or {@code null} if the accessor has
+     *             no buffer view, in which case all of its elements are zeros.
+     * @param componentType Type of the components.
+     * @param componentCount Number of components per element.
+     * @param count Number of elements.
+     * @param byteStride Stride of the buffer view, or 0 if the elements are tightly packed.
+     * @param normalized Whether integer components are normalized.
+     * @throws IOException If the data doesn't fit the buffer view.
+     */
+    GLTFAccessor(final ByteBuffer data, int componentType, int componentCount, int count, int byteStride,
+                 boolean normalized) throws IOException {
+        this.componentType = componentType;
+        this.componentSize = getComponentSize(componentType);
+        this.componentCount = componentCount;
+        this.count = count;
+        this.normalized = normalized;
+
+        final int elementSize = this.componentSize * componentCount;
+        this.stride = byteStride > 0 ? byteStride : elementSize;
+        if (count < 0 || this.stride < elementSize) {
+            throw new IOException("Invalid accessor layout");
+        }
+        if (data != null && count > 0 && (long) this.stride * (count - 1) + elementSize > data.remaining()) {
+            throw new IOException("Accessor lies outside of its buffer view");
+        }
+        this.data = data == null ? null : data.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static int getComponentSize(int componentType) throws IOException {
+        switch (componentType) {
+            case BYTE:
+            case UNSIGNED_BYTE:
+                return 1;
+            case SHORT:
+            case UNSIGNED_SHORT:
+                return 2;
+            case UNSIGNED_INT:
+            case FLOAT:
+                return 4;
+            default:
+                throw new IOException("Unknown component type " + componentType);
+        }
+    }
+
+    static int getComponentCount(final String type) throws IOException {
+        switch (type) {
+            case "SCALAR":
+                return 1;
+            case "VEC2":
+                return 2;
+            case "VEC3":
+                return 3;
+            case "VEC4":
+            case "MAT2":
+                return 4;
+            case "MAT3":
+                return 9;
+            case "MAT4":
+                return 16;
+            default:
+                throw new IOException("Unknown accessor type " + type);
+        }
+    }
+
+    private int getPosition(int element, int component) {
+        if (element < 0 || element >= this.count || component < 0 || component >= this.componentCount) {
+            throw new IndexOutOfBoundsException("Invalid element " + element + ", component " + component);
+        }
+        return element * this.stride + component * this.componentSize;
+    }
+
+    /**
+     * Reads a component as a float. Normalized integers are mapped to [0, 1] or [-1, 1].
+     *
+     * @param element Index of the element.
+     * @param component Index of the component.
+     * @return Value of the component.
+     */
+    float getFloat(int element, int component) {
+        final int position = this.getPosition(element, component);
+        if (this.data == null) {
+            return 0.0f;
+        }
+
+        switch (this.componentType) {
+            case FLOAT:
+                return this.data.getFloat(position);
+            case UNSIGNED_BYTE:
+                final int ub = this.data.get(position) & 0xFF;
+                return this.normalized ? ub / 255.0f : ub;
+            case BYTE:
+                final byte b = this.data.get(position);
+                return this.normalized ? Math.max(b / 127.0f, -1.0f) : b;
+            case UNSIGNED_SHORT:
+                final int us = this.data.getShort(position) & 0xFFFF;
+                return this.normalized ? us / 65535.0f : us;
+            case SHORT:
+                final short s = this.data.getShort(position);
+                return this.normalized ? Math.max(s / 32767.0f, -1.0f) : s;
+            default:
+                return this.data.getInt(position) & 0xFFFFFFFFL;
+        }
+    }
+
+    /**
+     * Reads an integer component, e.g. an index.
+     *
+     * @param element Index of the element.
+     * @param component Index of the component.
+     * @return Value of the component.
+     */
+    int getInt(int element, int component) {
+        final int position = this.getPosition(element, component);
+        if (this.data == null) {
+            return 0;
+        }
+
+        switch (this.componentType) {
+            case UNSIGNED_BYTE:
+                return this.data.get(position) & 0xFF;
+            case BYTE:
+                return this.data.get(position);
+            case UNSIGNED_SHORT:
+                return this.data.getShort(position) & 0xFFFF;
+            case SHORT:
+                return this.data.getShort(position);
+            case UNSIGNED_INT:
+                return this.data.getInt(position);
+            default:
+                return (int) this.data.getFloat(position);
+        }
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int getComponentCount() {
+        return componentCount;
+    }
+}
@@ -0,0 +1,1030 @@
+package pl.pateman.importer.gltf;
+
+import com.google.gson.*;
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import pl.pateman.core.FloatArrayList;
+import pl.pateman.core.MeshImporter;
+import pl.pateman.core.Utils;
+import pl.pateman.core.entity.MeshEntity;
+import pl.pateman.core.mesh.*;
+import pl.pateman.importer.ImportedScene;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Imports glTF 2.0 assets, either binary ({@code .glb}) or JSON ({@code .gltf}) with external or embedded buffers.
+ * Files and external buffers are memory-mapped, and vertex streams are read straight from the buffer views. As they're
+ * read, vertices and indices are also encoded into {@code CompactVertexFormat}, so that the mesh is uploaded without
+ * encoding it again.
+ *
+ * A single mesh is imported - the first one in the scene that has a skin, or the first one at all. All of its
+ * primitives, which need to be triangle lists, are merged. Joints of the skin become the bones of the skeleton, and
+ * animations of the joints become animation tracks. The bind pose is derived from the skin's inverse bind matrices,
+ * or is the joints' rest pose if the skin has none. Inverse bind matrices which can't be decomposed into a
+ * translation, rotation and scale relative to the parent joint (e.g. sheared ones) are rejected. The engine's
+ * keyframes are relative to the bind pose, so the absolute transformations of glTF are converted on import. Scale
+ * animations, morph targets, materials and further texture coordinate sets aren't supported.
+ *
+ * Created by pateman.
+ */
+public final class GLTFImporter implements MeshImporter {
+    public static final int GLB_MAGIC = 0x46546C67;
+    public static final int GLB_VERSION = 2;
+    public static final int GLB_HEADER_SIZE = 12;
+    public static final int CHUNK_JSON = 0x4E4F534A;
+    public static final int CHUNK_BIN = 0x004E4942;
+
+    private static final int MODE_TRIANGLES = 4;
+    private static final String DATA_URI_PREFIX = "data:";
+    private static final float BIND_TOLERANCE = 1.0e-4f;
+
+    private float sampleRate;
+
+    private interface BufferSource {
+        ByteBuffer open(final String uri) throws IOException;
+    }
+
+    private static final class Sampler {
+        private final GLTFAccessor input;
+        private final GLTFAccessor output;
+        private final String interpolation;
+
+        private Sampler(GLTFAccessor input, GLTFAccessor output, String interpolation) {
+            this.input = input;
+            this.output = output;
+            this.interpolation = interpolation;
+        }
+    }
+
+    @Override
+    public MeshEntity load(String meshFileResource) throws IOException {
+        final ImportedScene scene = this.loadScene(meshFileResource);
+        final MeshEntity meshEntity = new MeshEntity();
+        meshEntity.setMesh(scene.getMesh());
+        meshEntity.setTransformation(scene.getRotation(), scene.getTranslation(), scene.getScale());
+        meshEntity.forceTransformationUpdate();
+        return meshEntity;
+    }
+
+    /**
+     * Imports only the mesh, without creating an entity for it.
+     *
+     * @param meshFileResource Path to the resource.
+     * @return Imported mesh.
+     * @throws IOException If the resource can't be read or is malformed.
+     */
+    public Mesh loadMesh(String meshFileResource) throws IOException {
+        return this.loadScene(meshFileResource).getMesh();
+    }
+
+    /**
+     * Imports the mesh and the transformation of its node. External buffers are resolved relative to the resource.
+     *
+     * @param meshFileResource Path to the resource.
+     * @return Imported scene.
+     * @throws IOException If the resource can't be read or is malformed.
+     */
+    public ImportedScene loadScene(final String meshFileResource) throws IOException {
+        final int separator = meshFileResource.lastIndexOf('/');
+        final String baseResource = separator == -1 ? "" : meshFileResource.substring(0, separator + 1);
+        return this.read(Utils.mapResource(meshFileResource), new BufferSource() {
+            @Override
+            public ByteBuffer open(String uri) throws IOException {
+                return Utils.mapResource(baseResource + uri);
+            }
+        });
+    }
+
+    /**
+     * Imports the mesh and the transformation of its node from a file. External buffers are resolved relative to the
+     * file's directory.
+     *
+     * @param path Path to the file.
+     * @return Imported scene.
+     * @throws IOException If the file can't be read or is malformed.
+     */
+    public ImportedScene loadScene(final Path path) throws IOException {
+        final Path baseDirectory = path.toAbsolutePath().getParent();
+        return this.read(Utils.mapFile(path), new BufferSource() {
+            @Override
+            public ByteBuffer open(String uri) throws IOException {
+                return Utils.mapFile(baseDirectory.resolve(uri));
+            }
+        });
+    }
+
+    private ImportedScene read(final ByteBuffer content, final BufferSource bufferSource) throws IOException {
+        final ByteBuffer file = content.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        //  Split GLB files into the JSON and the binary chunk. Anything else is treated as plain JSON.
+        final String json;
+        ByteBuffer binaryChunk = null;
+        if (file.remaining() >= GLB_HEADER_SIZE && file.getInt(0) == GLB_MAGIC) {
+            if (file.getInt(4) != GLB_VERSION) {
+                throw new IOException("Unsupported GLB version " + file.getInt(4));
+            }
+            final int length = file.getInt(8);
+            if (length < GLB_HEADER_SIZE || length > file.limit()) {
+                throw new IOException("The file is truncated");
+            }
+
+            String jsonChunk = null;
+            int position = GLB_HEADER_SIZE;
+            while (position <= length - 8) {
+                final int chunkLength = file.getInt(position);
+                final int chunkType = file.getInt(position + 4);
+                if (chunkLength < 0 || chunkLength > length - position - 8) {
+                    throw new IOException("Chunk lies outside of the file");
+                }
+
+                final ByteBuffer chunk = file.duplicate();
+                chunk.position(position + 8).limit(position + 8 + chunkLength);
+                if (chunkType == CHUNK_JSON && jsonChunk == null) {
+                    final byte[] bytes = new byte[chunkLength];
+                    chunk.get(bytes);
+                    jsonChunk = new String(bytes, StandardCharsets.UTF_8);
+                } else if (chunkType == CHUNK_BIN && binaryChunk == null) {
+                    binaryChunk = chunk.slice().order(ByteOrder.LITTLE_ENDIAN);
+                }
+                position += 8 + ((chunkLength + 3) & ~3);
+            }
+            if (jsonChunk == null) {
+                throw new IOException("The file has no JSON chunk");
+            }
+            json = jsonChunk;
+        } else {
+            final byte[] bytes = new byte[file.remaining()];
+            file.get(bytes);
+            json = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        final JsonObject gltf;
+        try {
+            gltf = new JsonParser().parse(json).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Malformed glTF JSON", e);
+        }
+        return new SceneReader(gltf, this.readBuffers(gltf, binaryChunk, bufferSource)).read();
+    }
+
+    private ByteBuffer[] readBuffers(final JsonObject gltf, final ByteBuffer binaryChunk,
+                                     final BufferSource bufferSource) throws IOException {
+        final JsonArray buffers = getArray(gltf, "buffers");
+        final ByteBuffer[] result = new ByteBuffer[buffers.size()];
+        for (int i = 0; i < result.length; i++) {
+            final JsonObject buffer = buffers.get(i).getAsJsonObject();
+            final int byteLength = getInt(buffer, "byteLength", -1);
+            ByteBuffer data;
+            if (!buffer.has("uri")) {
+                if (i != 0 || binaryChunk == null) {
+                    throw new IOException("Buffer " + i + " has no data");
+                }
+                data = binaryChunk;
+            } else {
+                final String uri = buffer.get("uri").getAsString();
+                if (uri.startsWith(DATA_URI_PREFIX)) {
+                    final int comma = uri.indexOf(',');
+                    if (comma == -1 || !uri.substring(0, comma).endsWith(";base64")) {
+                        throw new IOException("Buffer " + i + " has an unsupported data URI");
+                    }
+                    try {
+                        data = ByteBuffer.wrap(Base64.getDecoder().decode(uri.substring(comma + 1)));
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException("Buffer " + i + " has a malformed data URI", e);
+                    }
+                } else {
+                    data = bufferSource.open(decodeUri(uri));
+                }
+            }
+
+            if (byteLength < 0 || byteLength > data.remaining()) {
+                throw new IOException("Buffer " + i + " is shorter than declared");
+            }
+            data = data.duplicate();
+            data.limit(data.position() + byteLength);
+            result[i] = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return result;
+    }
+
+    private static String decodeUri(final String uri) throws IOException {
+        try {
+            return URLDecoder.decode(uri.replace("+", "%2B"), "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            throw new IOException("Malformed URI '" + uri + "'", e);
+        }
+    }
+
+    private static JsonArray getArray(final JsonObject object, final String name) {
+        final JsonElement element = object.get(name);
+        return element != null && element.isJsonArray() ? element.getAsJsonArray() : new JsonArray();
+    }
+
+    private static int getInt(final JsonObject object, final String name, int defaultValue) {
+        final JsonElement element = object.get(name);
+        return element != null && element.isJsonPrimitive() ? element.getAsInt() : defaultValue;
+    }
+
+    private static JsonObject getObject(final JsonArray array, int index, final String kind) throws IOException {
+        if (index < 0 || index >= array.size() || !array.get(index).isJsonObject()) {
+            throw new IOException("Invalid " + kind + " " + index);
+        }
+        return array.get(index).getAsJsonObject();
+    }
+
+    private final class SceneReader {
+        private final JsonObject gltf;
+        private final ByteBuffer[] buffers;
+        private final JsonArray nodes;
+        private final int[] parents;
+        private final Mesh mesh = new Mesh();
+        private int[] jointNodes = new int[0];
+        private final Map<Integer, Integer> nodeJoints = new HashMap<>();
+        private final Matrix4f rootParentMatrix = new Matrix4f();
+        private ByteBuffer vertexData;
+        private ByteBuffer indexData;
+        private boolean shortIndices;
+
+        private SceneReader(final JsonObject gltf, final ByteBuffer[] buffers) throws IOException {
+            this.gltf = gltf;
+            this.buffers = buffers;
+            this.nodes = getArray(gltf, "nodes");
+
+            this.parents = new int[this.nodes.size()];
+            Arrays.fill(this.parents, -1);
+            for (int i = 0; i < this.nodes.size(); i++) {
+                for (final JsonElement child : getArray(getObject(this.nodes, i, "node"), "children")) {
+                    final int childIndex = child.getAsInt();
+                    if (childIndex < 0 || childIndex >= this.parents.length || this.parents[childIndex] != -1) {
+                        throw new IOException("Node " + i + " has an invalid child " + childIndex);
+                    }
+                    this.parents[childIndex] = i;
+                }
+            }
+        }
+
+        private GLTFAccessor getAccessor(int index) throws IOException {
+            final JsonObject accessor = getObject(getArray(this.gltf, "accessors"), index, "accessor");
+            if (accessor.has("sparse")) {
+                throw new IOException("Sparse accessors are not supported");
+            }
+            final int componentType = getInt(accessor, "componentType", -1);
+            final int componentCount = GLTFAccessor.getComponentCount(accessor.get("type").getAsString());
+            final int count = getInt(accessor, "count", -1);
+            final boolean normalized = accessor.has("normalized") && accessor.get("normalized").getAsBoolean();
+            if (!accessor.has("bufferView")) {
+                return new GLTFAccessor(null, componentType, componentCount, count, 0, normalized);
+            }
+
+            final JsonObject bufferView = getObject(getArray(this.gltf, "bufferViews"),
+                    accessor.get("bufferView").getAsInt(), "buffer view");
+            final int bufferIndex = getInt(bufferView, "buffer", -1);
+            if (bufferIndex < 0 || bufferIndex >= this.buffers.length) {
+                throw new IOException("Buffer view refers to an invalid buffer " + bufferIndex);
+            }
+            final ByteBuffer buffer = this.buffers[bufferIndex];
+            final int viewOffset = getInt(bufferView, "byteOffset", 0);
+            final int viewLength = getInt(bufferView, "byteLength", -1);
+            final int accessorOffset = getInt(accessor, "byteOffset", 0);
+            if (viewOffset < 0 || viewLength < 0 || viewOffset > buffer.limit() - viewLength || accessorOffset < 0 ||
+                    accessorOffset > viewLength) {
+                throw new IOException("Buffer view lies outside of its buffer");
+            }
+
+            final ByteBuffer data = buffer.duplicate();
+            data.position(viewOffset + accessorOffset).limit(viewOffset + viewLength);
+            return new GLTFAccessor(data, componentType, componentCount, count, getInt(bufferView, "byteStride", 0),
+                    normalized);
+        }
+
+        private Matrix4f getLocalMatrix(int node, final Matrix4f out) throws IOException {
+            final JsonObject object = getObject(this.nodes, node, "node");
+            if (object.has("matrix")) {
+                final JsonArray matrix = object.getAsJsonArray("matrix");
+                final float[] values = new float[16];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = matrix.get(i).getAsFloat();
+                }
+                return out.set(values);
+            }
+
+            final Vector3f translation = new Vector3f();
+            final Quaternionf rotation = new Quaternionf();
+            final Vector3f scale = new Vector3f(1.0f);
+            this.getLocalTransformation(object, translation, rotation, scale);
+            return out.translationRotateScale(translation, rotation, scale);
+        }
+
+        private void getLocalTransformation(final JsonObject node, final Vector3f translation,
+                                            final Quaternionf rotation, final Vector3f scale) {
+            if (node.has("matrix")) {
+                final Matrix4f matrix = new Matrix4f();
+                final JsonArray values = node.getAsJsonArray("matrix");
+                final float[] array = new float[16];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = values.get(i).getAsFloat();
+                }
+                matrix.set(array);
+                matrix.getTranslation(translation);
+                matrix.getNormalizedRotation(rotation);
+                matrix.getScale(scale);
+                return;
+            }
+
+            final JsonArray t = getArray(node, "translation");
+            if (t.size() == 3) {
+                translation.set(t.get(0).getAsFloat(), t.get(1).getAsFloat(), t.get(2).getAsFloat());
+            }
+            final JsonArray r = getArray(node, "rotation");
+            if (r.size() == 4) {
+                rotation.set(r.get(0).getAsFloat(), r.get(1).getAsFloat(), r.get(2).getAsFloat(),
+                        r.get(3).getAsFloat());
+            }
+            final JsonArray s = getArray(node, "scale");
+            if (s.size() == 3) {
+                scale.set(s.get(0).getAsFloat(), s.get(1).getAsFloat(), s.get(2).getAsFloat());
+            }
+        }
+
+        private Matrix4f getGlobalMatrix(int node, final Matrix4f out) throws IOException {
+            this.getLocalMatrix(node, out);
+            final Matrix4f parentMatrix = new Matrix4f();
+            for (int parent = this.parents[node]; parent != -1; parent = this.parents[parent]) {
+                this.getLocalMatrix(parent, parentMatrix).mul(out, out);
+            }
+            return out;
+        }
+
+        private int findMeshNode() throws IOException {
+            //  Walk the scene's nodes depth-first, or all nodes if there's no scene.
+            final List<Integer> order = new ArrayList<>();
+            final JsonArray scenes = getArray(this.gltf, "scenes");
+            if (scenes.size() > 0) {
+                final JsonObject scene = getObject(scenes, getInt(this.gltf, "scene", 0), "scene");
+                final Deque<Integer> stack = new ArrayDeque<>();
+                final JsonArray roots = getArray(scene, "nodes");
+                for (int i = roots.size() - 1; i >= 0; i--) {
+                    stack.push(roots.get(i).getAsInt());
+                }
+                while (!stack.isEmpty()) {
+                    final int node = stack.pop();
+                    order.add(node);
+                    final JsonArray children = getArray(getObject(this.nodes, node, "node"), "children");
+                    for (int i = children.size() - 1; i >= 0; i--) {
+                        stack.push(children.get(i).getAsInt());
+                    }
+                }
+            } else {
+                for (int i = 0; i < this.nodes.size(); i++) {
+                    order.add(i);
+                }
+            }
+
+            int meshNode = -1;
+            for (final int node : order) {
+                final JsonObject object = getObject(this.nodes, node, "node");
+                if (object.has("mesh")) {
+                    if (object.has("skin")) {
+                        return node;
+                    }
+                    if (meshNode == -1) {
+                        meshNode = node;
+                    }
+                }
+            }
+            if (meshNode == -1) {
+                throw new IOException("The file doesn't contain any mesh");
+            }
+            return meshNode;
+        }
+
+        private void readSkeleton(final JsonObject skin) throws IOException {
+            final JsonArray joints = getArray(skin, "joints");
+            this.jointNodes = new int[joints.size()];
+            for (int i = 0; i < this.jointNodes.length; i++) {
+                this.jointNodes[i] = joints.get(i).getAsInt();
+                getObject(this.nodes, this.jointNodes[i], "joint");
+                this.nodeJoints.put(this.jointNodes[i], i);
+            }
+
+            final Skeleton skeleton = this.mesh.getSkeleton();
+            Bone rootBone = null;
+            for (int i = 0; i < this.jointNodes.length; i++) {
+                final JsonObject node = getObject(this.nodes, this.jointNodes[i], "joint");
+                final Bone bone = new Bone(node.has("name") ? node.get("name").getAsString() : "Joint" + i, i);
+                this.getLocalTransformation(node, bone.getBindPosition(), bone.getBindRotation(),
+                        bone.getBindScale());
+                skeleton.getBones().add(bone);
+            }
+            for (int i = 0; i < this.jointNodes.length; i++) {
+                final Bone bone = skeleton.getBone(i);
+                final Integer parentJoint = this.nodeJoints.get(this.parents[this.jointNodes[i]]);
+                if (parentJoint != null) {
+                    bone.setParent(skeleton.getBone(parentJoint));
+                    skeleton.getBone(parentJoint).getChildren().add(bone);
+                } else if (rootBone != null) {
+                    throw new IOException("Skins with more than one root joint are not supported");
+                } else {
+                    rootBone = bone;
+                }
+            }
+
+            //  Nodes above the root joint don't become bones, so their transformation is folded into the root's.
+            if (rootBone != null) {
+                final int rootParent = this.parents[this.jointNodes[rootBone.getIndex()]];
+                if (rootParent != -1) {
+                    this.getGlobalMatrix(rootParent, this.rootParentMatrix);
+                    this.toRootSpace(rootBone.getBindPosition(), rootBone.getBindRotation(), rootBone.getBindScale());
+                }
+            }
+
+            //  The mesh is bound to the pose given by the inverse bind matrices, which doesn't need to be the rest
+            //  pose of the joints' nodes. Skins without them are assumed to be bound to the rest pose.
+            if (skin.has("inverseBindMatrices")) {
+                this.readBindPose(this.getAccessor(skin.get("inverseBindMatrices").getAsInt()));
+            } else {
+                skeleton.calculateBindMatrices();
+            }
+        }
+
+        private void readBindPose(final GLTFAccessor inverseBindMatrices) throws IOException {
+            final int boneCount = this.jointNodes.length;
+            if (inverseBindMatrices.getComponentCount() != 16 || inverseBindMatrices.getCount() < boneCount) {
+                throw new IOException("Skin needs an inverse bind matrix for each of its " + boneCount + " joints");
+            }
+
+            final Skeleton skeleton = this.mesh.getSkeleton();
+            final Matrix4f[] expected = new Matrix4f[boneCount];
+            final float[] values = new float[16];
+            for (int i = 0; i < boneCount; i++) {
+                for (int j = 0; j < values.length; j++) {
+                    values[j] = inverseBindMatrices.getFloat(i, j);
+                }
+                expected[i] = new Matrix4f().set(values);
+            }
+
+            //  The bind transformation of a joint, relative to its parent, is the parent's inverse bind matrix
+            //  multiplied by the joint's bind matrix.
+            final Matrix4f local = new Matrix4f();
+            for (int i = 0; i < boneCount; i++) {
+                final Bone bone = skeleton.getBone(i);
+                expected[i].invert(local);
+                if (bone.getParent() != null) {
+                    expected[bone.getParent().getIndex()].mul(local, local);
+                }
+                local.getTranslation(bone.getBindPosition());
+                local.getNormalizedRotation(bone.getBindRotation());
+                local.getScale(bone.getBindScale());
+            }
+            skeleton.calculateBindMatrices();
+
+            //  Bones can't express shearing, so make sure that the decomposed bind pose reproduces the matrices.
+            for (int i = 0; i < boneCount; i++) {
+                final Bone bone = skeleton.getBone(i);
+                if (!isClose(bone.getInverseBindMatrix(), expected[i])) {
+                    throw new IOException("Inverse bind matrix of joint '" + bone.getName() + "' can't be " +
+                            "represented by a translation, rotation and scale relative to its parent");
+                }
+            }
+        }
+
+        private void toRootSpace(final Vector3f translation, final Quaternionf rotation, final Vector3f scale) {
+            final Matrix4f matrix = new Matrix4f().translationRotateScale(translation, rotation, scale);
+            this.rootParentMatrix.mul(matrix, matrix);
+            matrix.getTranslation(translation);
+            matrix.getNormalizedRotation(rotation);
+            matrix.getScale(scale);
+        }
+
+        private void readPrimitive(final JsonObject primitive, boolean skinned) throws IOException {
+            if (getInt(primitive, "mode", MODE_TRIANGLES) != MODE_TRIANGLES) {
+                throw new IOException("Only triangle lists are supported");
+            }
+            final JsonObject attributes = primitive.getAsJsonObject("attributes");
+            if (attributes == null || !attributes.has("POSITION")) {
+                throw new IOException("Primitive has no positions");
+            }
+
+            final GLTFAccessor positions = this.getAccessor(attributes.get("POSITION").getAsInt());
+            final int base = this.mesh.getVertices().size();
+            final int vertexCount = positions.getCount();
+            for (int i = 0; i < vertexCount; i++) {
+                final float x = positions.getFloat(i, 0);
+                final float y = positions.getFloat(i, 1);
+                final float z = positions.getFloat(i, 2);
+                this.mesh.getVertices().add(new Vector3f(x, y, z));
+                if (this.vertexData != null) {
+                    CompactVertexFormat.putPosition(this.vertexData, base + i, x, y, z);
+                }
+            }
+
+            if (attributes.has("NORMAL")) {
+                final GLTFAccessor normals = this.getAccessor(attributes.get("NORMAL").getAsInt());
+                this.checkCount(normals, vertexCount, "NORMAL");
+                padVector3(this.mesh.getNormals(), base);
+                for (int i = 0; i < vertexCount; i++) {
+                    final float x = normals.getFloat(i, 0);
+                    final float y = normals.getFloat(i, 1);
+                    final float z = normals.getFloat(i, 2);
+                    this.mesh.getNormals().add(new Vector3f(x, y, z));
+                    if (this.vertexData != null) {
+                        CompactVertexFormat.putNormal(this.vertexData, base + i, x, y, z);
+                    }
+                }
+            }
+            if (attributes.has("TEXCOORD_0")) {
+                final GLTFAccessor texcoords = this.getAccessor(attributes.get("TEXCOORD_0").getAsInt());
+                this.checkCount(texcoords, vertexCount, "TEXCOORD_0");
+                while (this.mesh.getTexcoords().size() < base) {
+                    this.mesh.getTexcoords().add(new Vector2f());
+                }
+                for (int i = 0; i < vertexCount; i++) {
+                    final float u = texcoords.getFloat(i, 0);
+                    final float v = texcoords.getFloat(i, 1);
+                    this.mesh.getTexcoords().add(new Vector2f(u, v));
+                    if (this.vertexData != null) {
+                        CompactVertexFormat.putTexcoord(this.vertexData, base + i, u, v);
+                    }
+                }
+            }
+
+            if (primitive.has("indices")) {
+                final GLTFAccessor indices = this.getAccessor(primitive.get("indices").getAsInt());
+                for (int i = 0; i < indices.getCount(); i++) {
+                    final int index = indices.getInt(i, 0);
+                    if (index < 0 || index >= vertexCount) {
+                        throw new IOException("Index " + index + " is out of range");
+                    }
+                    this.mesh.getTriangles().add(base + index);
+                    this.putIndex(base + index);
+                }
+            } else {
+                for (int i = 0; i < vertexCount; i++) {
+                    this.mesh.getTriangles().add(base + i);
+                    this.putIndex(base + i);
+                }
+            }
+
+            if (skinned && attributes.has("JOINTS_0") && attributes.has("WEIGHTS_0")) {
+                this.readSkin(this.getAccessor(attributes.get("JOINTS_0").getAsInt()),
+                        this.getAccessor(attributes.get("WEIGHTS_0").getAsInt()), base, vertexCount);
+            }
+        }
+
+        private void putIndex(int index) {
+            if (this.indexData == null) {
+                return;
+            }
+            if (this.shortIndices) {
+                this.indexData.putShort((short) index);
+            } else {
+                this.indexData.putInt(index);
+            }
+        }
+
+        /**
+         * Allocates the compact vertex and index data of all primitives, so that they can be written as the
+         * primitives are read. Malformed primitives are left for {@code readPrimitive} to report.
+         */
+        private void allocateCompactData(final JsonArray primitives) throws IOException {
+            int vertexCount = 0;
+            int indexCount = 0;
+            for (final JsonElement element : primitives) {
+                final JsonObject primitive = element.getAsJsonObject();
+                final JsonObject attributes = primitive.getAsJsonObject("attributes");
+                if (attributes == null || !attributes.has("POSITION")) {
+                    return;
+                }
+                final int primitiveVertices = this.getAccessor(attributes.get("POSITION").getAsInt()).getCount();
+                vertexCount += primitiveVertices;
+                indexCount += primitive.has("indices") ?
+                        this.getAccessor(primitive.get("indices").getAsInt()).getCount() : primitiveVertices;
+            }
+
+            this.shortIndices = vertexCount - 1 <= CompactVertexFormat.MAX_SHORT_INDEX;
+            this.vertexData = ByteBuffer.allocateDirect(vertexCount * CompactVertexFormat.STRIDE).
+                    order(ByteOrder.nativeOrder());
+            this.indexData = ByteBuffer.allocateDirect(indexCount * (this.shortIndices ? 2 : 4)).
+                    order(ByteOrder.nativeOrder());
+        }
+
+        private void checkCount(final GLTFAccessor accessor, int vertexCount, final String attribute)
+                throws IOException {
+            if (accessor.getCount() != vertexCount) {
+                throw new IOException("Attribute " + attribute + " has " + accessor.getCount() + " elements, " +
+                        vertexCount + " expected");
+            }
+        }
+
+        private void readSkin(final GLTFAccessor joints, final GLTFAccessor weights, int base, int vertexCount)
+                throws IOException {
+            this.checkCount(joints, vertexCount, "JOINTS_0");
+            this.checkCount(weights, vertexCount, "WEIGHTS_0");
+
+            final MeshSkinningInfo skinningInfo = this.mesh.getSkinningInfo();
+            final int[] vertexJoints = new int[joints.getComponentCount()];
+            final float[] vertexWeights = new float[joints.getComponentCount()];
+            for (int i = 0; i < vertexCount; i++) {
+                //  Gather the influences, merging repeated joints.
+                int influences = 0;
+                for (int j = 0; j < vertexJoints.length; j++) {
+                    final float weight = weights.getFloat(i, j);
+                    if (weight <= 0.0f) {
+                        continue;
+                    }
+                    final int joint = joints.getInt(i, j);
+                    if (joint < 0 || joint >= this.jointNodes.length) {
+                        throw new IOException("Vertex weight refers to an invalid joint " + joint);
+                    }
+
+                    int k = 0;
+                    while (k < influences && vertexJoints[k] != joint) {
+                        k++;
+                    }
+                    if (k == influences) {
+                        vertexJoints[influences] = joint;
+                        vertexWeights[influences++] = weight;
+                    } else {
+                        vertexWeights[k] += weight;
+                    }
+                }
+
+                //  The engine supports fewer influences per vertex than glTF, so keep the strongest ones.
+                for (int j = 1; j < influences; j++) {
+                    for (int k = j; k > 0 && vertexWeights[k] > vertexWeights[k - 1]; k--) {
+                        final float weight = vertexWeights[k];
+                        vertexWeights[k] = vertexWeights[k - 1];
+                        vertexWeights[k - 1] = weight;
+                        final int joint = vertexJoints[k];
+                        vertexJoints[k] = vertexJoints[k - 1];
+                        vertexJoints[k - 1] = joint;
+                    }
+                }
+                float scale = 1.0f;
+                if (influences > MeshSkinningInfo.MAX_BONES_PER_VERTEX) {
+                    float total = 0.0f;
+                    float kept = 0.0f;
+                    for (int j = 0; j < influences; j++) {
+                        total += vertexWeights[j];
+                        kept += j < MeshSkinningInfo.MAX_BONES_PER_VERTEX ? vertexWeights[j] : 0.0f;
+                    }
+                    scale = total / kept;
+                    influences = MeshSkinningInfo.MAX_BONES_PER_VERTEX;
+                }
+
+                final Vector3f boneIndices = new Vector3f();
+                final Vector3f boneWeights = new Vector3f();
+                for (int j = 0; j < influences; j++) {
+                    final float weight = vertexWeights[j] * scale;
+                    this.mesh.getSkeleton().getBone(vertexJoints[j]).addVertexWeight(base + i, weight);
+                    boneIndices.set(j, vertexJoints[j]);
+                    boneWeights.set(j, weight);
+                }
+                skinningInfo.getBoneIndices().add(boneIndices);
+                skinningInfo.getBoneWeights().add(boneWeights);
+                if (this.vertexData != null) {
+                    CompactVertexFormat.putSkinning(this.vertexData, base + i, boneIndices, boneWeights);
+                }
+            }
+        }
+
+        private void readAnimation(final JsonObject animation, int index) throws IOException {
+            final JsonArray samplerArray = getArray(animation, "samplers");
+            final Sampler[] samplers = new Sampler[samplerArray.size()];
+            for (int i = 0; i < samplers.length; i++) {
+                final JsonObject sampler = samplerArray.get(i).getAsJsonObject();
+                samplers[i] = new Sampler(this.getAccessor(getInt(sampler, "input", -1)),
+                        this.getAccessor(getInt(sampler, "output", -1)), sampler.has("interpolation") ?
+                        sampler.get("interpolation").getAsString() : "LINEAR");
+            }
+
+            //  Find the translation and rotation samplers of every joint.
+            final int boneCount = this.jointNodes.length;
+            final Sampler[] translations = new Sampler[boneCount];
+            final Sampler[] rotations = new Sampler[boneCount];
+            boolean animatesJoints = false;
+            for (final JsonElement element : getArray(animation, "channels")) {
+                final JsonObject channel = element.getAsJsonObject();
+                final JsonObject target = channel.getAsJsonObject("target");
+                final int sampler = getInt(channel, "sampler", -1);
+                if (target == null || !target.has("node") || sampler < 0 || sampler >= samplers.length) {
+                    continue;
+                }
+                final Integer joint = this.nodeJoints.get(target.get("node").getAsInt());
+                if (joint == null) {
+                    continue;
+                }
+
+                final String path = target.get("path").getAsString();
+                if ("translation".equals(path)) {
+                    translations[joint] = samplers[sampler];
+                    animatesJoints = true;
+                } else if ("rotation".equals(path)) {
+                    rotations[joint] = samplers[sampler];
+                    animatesJoints = true;
+                }
+            }
+            if (!animatesJoints) {
+                return;
+            }
+
+            //  Sample times - either a regular grid, or all keyframe times of the joints' samplers.
+            float length = 0.0f;
+            for (int i = 0; i < boneCount; i++) {
+                length = Math.max(length, getEndTime(translations[i]));
+                length = Math.max(length, getEndTime(rotations[i]));
+            }
+            final float[] animationTimes = GLTFImporter.this.sampleRate > 0.0f ?
+                    gridTimes(length, GLTFImporter.this.sampleRate) : null;
+
+            final String name = animation.has("name") ? animation.get("name").getAsString() : "Animation" + index;
+            final Animation result = new Animation(name, length);
+            final FloatArrayList allTimes = new FloatArrayList();
+            final Vector3f translation = new Vector3f();
+            final Quaternionf rotation = new Quaternionf();
+            final Vector3f scale = new Vector3f();
+            final Vector3f restTranslation = new Vector3f();
+            final Quaternionf restRotation = new Quaternionf();
+            final Vector3f restScale = new Vector3f();
+            final Quaternionf inverseBindRotation = new Quaternionf();
+            for (int i = 0; i < boneCount; i++) {
+                final Bone bone = this.mesh.getSkeleton().getBone(i);
+                final float[] times = animationTimes != null ? animationTimes :
+                        mergeTimes(translations[i], rotations[i]);
+                bone.getBindRotation().invert(inverseBindRotation);
+
+                //  Channels which aren't animated keep the rest transformation of the joint.
+                restTranslation.zero();
+                restRotation.identity();
+                restScale.set(1.0f);
+                this.getLocalTransformation(getObject(this.nodes, this.jointNodes[i], "joint"), restTranslation,
+                        restRotation, restScale);
+
+                final AnimationTrack track = new AnimationTrack(bone);
+                for (final float time : times) {
+                    //  Sample the absolute transformation and make it relative to the bind pose.
+                    scale.set(restScale);
+                    sample(translations[i], time, restTranslation, translation);
+                    sample(rotations[i], time, restRotation, rotation);
+                    if (bone.getParent() == null && this.parents[this.jointNodes[i]] != -1) {
+                        this.toRootSpace(translation, rotation, scale);
+                    }
+
+                    track.getKeyframes().add(new AnimationKeyframe(time,
+                            new Vector3f(translation).sub(bone.getBindPosition()),
+                            new Quaternionf(inverseBindRotation).mul(rotation).normalize()));
+                }
+                result.getTracks().add(track);
+                for (final float time : times) {
+                    allTimes.add(time);
+                }
+            }
+            result.setFrameCount(animationTimes != null ? animationTimes.length :
+                    countDistinct(allTimes.toArray()));
+            this.mesh.getAnimations().add(result);
+        }
+
+        private ImportedScene read() throws IOException {
+            final int meshNodeIndex = this.findMeshNode();
+            final JsonObject meshNode = getObject(this.nodes, meshNodeIndex, "node");
+            final boolean skinned = meshNode.has("skin");
+            if (skinned) {
+                this.readSkeleton(getObject(getArray(this.gltf, "skins"), meshNode.get("skin").getAsInt(), "skin"));
+                this.mesh.setSkinningInfo(new MeshSkinningInfo());
+            }
+
+            final JsonObject gltfMesh = getObject(getArray(this.gltf, "meshes"), meshNode.get("mesh").getAsInt(),
+                    "mesh");
+            //  Skeletons whose joint indices don't fit in a byte can't be encoded.
+            final JsonArray primitives = getArray(gltfMesh, "primitives");
+            if (this.jointNodes.length <= CompactVertexFormat.MAX_BONE_INDEX + 1) {
+                this.allocateCompactData(primitives);
+            }
+            for (final JsonElement primitive : primitives) {
+                this.readPrimitive(primitive.getAsJsonObject(), skinned);
+            }
+            if (this.vertexData != null) {
+                this.indexData.flip();
+                this.mesh.setCompactMeshData(CompactMeshData.wrap(this.vertexData,
+                        this.vertexData.capacity() / CompactVertexFormat.STRIDE, this.indexData,
+                        this.indexData.limit() / (this.shortIndices ? 2 : 4), this.shortIndices));
+            }
+
+            //  Pad streams that only some of the primitives had.
+            final int vertexCount = this.mesh.getVertices().size();
+            if (!this.mesh.getNormals().isEmpty()) {
+                padVector3(this.mesh.getNormals(), vertexCount);
+            }
+            while (!this.mesh.getTexcoords().isEmpty() && this.mesh.getTexcoords().size() < vertexCount) {
+                this.mesh.getTexcoords().add(new Vector2f());
+            }
+            if (skinned) {
+                final MeshSkinningInfo skinningInfo = this.mesh.getSkinningInfo();
+                if (skinningInfo.getBoneIndices().size() != vertexCount) {
+                    //  Not every primitive is skinned, so compute the info from the bones' weights instead.
+                    this.mesh.setSkinningInfo(null);
+                }
+
+                final JsonArray animations = getArray(this.gltf, "animations");
+                for (int i = 0; i < animations.size(); i++) {
+                    this.readAnimation(animations.get(i).getAsJsonObject(), i);
+                }
+                this.mesh.createBoneTracks();
+            }
+
+            //  glTF ignores the transformation of skinned meshes' nodes, as the joints place them.
+            final Vector3f translation = new Vector3f();
+            final Quaternionf rotation = new Quaternionf();
+            final Vector3f scale = new Vector3f(Utils.IDENTITY_VECTOR);
+            if (!skinned) {
+                final Matrix4f matrix = this.getGlobalMatrix(meshNodeIndex, new Matrix4f());
+                matrix.getTranslation(translation);
+                matrix.getNormalizedRotation(rotation);
+                matrix.getScale(scale);
+            }
+            return new ImportedScene(this.mesh, translation, rotation, scale);
+        }
+    }
+
+    private static boolean isClose(final Matrix4f a, final Matrix4f b) {
+        final float[] valuesA = a.get(new float[16]);
+        final float[] valuesB = b.get(new float[16]);
+        float magnitude = 1.0f;
+        for (final float value : valuesB) {
+            magnitude = Math.max(magnitude, Math.abs(value));
+        }
+        for (int i = 0; i < valuesA.length; i++) {
+            if (Math.abs(valuesA[i] - valuesB[i]) > BIND_TOLERANCE * magnitude) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void padVector3(final List<Vector3f> list, int size) {
+        while (list.size() < size) {
+            list.add(new Vector3f());
+        }
+    }
+
+    private static float getEndTime(final Sampler sampler) {
+        return sampler == null || sampler.input.getCount() == 0 ? 0.0f :
+                sampler.input.getFloat(sampler.input.getCount() - 1, 0);
+    }
+
+    private static float[] gridTimes(float length, float sampleRate) {
+        final int sampleCount = Math.max(1, (int) Math.ceil(length * sampleRate - 1.0e-4f) + 1);
+        final float[] times = new float[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            times[i] = Math.min(length, i / sampleRate);
+        }
+        return times;
+    }
+
+    private static float[] mergeTimes(final Sampler a, final Sampler b) {
+        final FloatArrayList times = new FloatArrayList();
+        for (final Sampler sampler : new Sampler[]{a, b}) {
+            for (int i = 0; sampler != null && i < sampler.input.getCount(); i++) {
+                times.add(sampler.input.getFloat(i, 0));
+            }
+        }
+        if (times.size() == 0) {
+            return new float[]{0.0f};
+        }
+
+        final float[] sorted = times.toArray();
+        Arrays.sort(sorted);
+        final int count = countDistinct(sorted);
+        final float[] result = new float[count];
+        int j = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                result[j++] = sorted[i];
+            }
+        }
+        return result;
+    }
+
+    private static int countDistinct(final float[] values) {
+        Arrays.sort(values);
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static float getOutput(final Sampler sampler, int keyframe, int component, boolean cubic) {
+        //  Cubic spline samplers store an in-tangent, a value and an out-tangent per keyframe.
+        return sampler.output.getFloat(cubic ? keyframe * 3 + 1 : keyframe, component);
+    }
+
+    private static void sample(final Sampler sampler, float time, final Vector3f rest, final Vector3f out) {
+        if (sampler == null) {
+            out.set(rest);
+            return;
+        }
+        final float[] result = new float[3];
+        sample(sampler, time, result);
+        out.set(result[0], result[1], result[2]);
+    }
+
+    private static void sample(final Sampler sampler, float time, final Quaternionf rest, final Quaternionf out) {
+        if (sampler == null) {
+            out.set(rest);
+            return;
+        }
+        final float[] result = new float[4];
+        sample(sampler, time, result);
+        out.set(result[0], result[1], result[2], result[3]).normalize();
+    }
+
+    private static void sample(final Sampler sampler, float time, final float[] out) {
+        final GLTFAccessor input = sampler.input;
+        final int keyframeCount = input.getCount();
+        final boolean cubic = "CUBICSPLINE".equals(sampler.interpolation);
+        if (keyframeCount == 0) {
+            return;
+        }
+
+        //  Find the keyframes around the given time.
+        int next = 0;
+        while (next < keyframeCount && input.getFloat(next, 0) <= time) {
+            next++;
+        }
+        if (next == 0 || next == keyframeCount) {
+            final int keyframe = next == 0 ? 0 : keyframeCount - 1;
+            for (int c = 0; c < out.length; c++) {
+                out[c] = getOutput(sampler, keyframe, c, cubic);
+            }
+            return;
+        }
+
+        final int previous = next - 1;
+        final float start = input.getFloat(previous, 0);
+        final float delta = input.getFloat(next, 0) - start;
+        final float t = delta > 0.0f ? (time - start) / delta : 0.0f;
+        if ("STEP".equals(sampler.interpolation) || t == 0.0f) {
+            for (int c = 0; c < out.length; c++) {
+                out[c] = getOutput(sampler, previous, c, cubic);
+            }
+        } else if (cubic) {
+            final float t2 = t * t;
+            final float t3 = t2 * t;
+            for (int c = 0; c < out.length; c++) {
+                final float outTangent = sampler.output.getFloat(previous * 3 + 2, c) * delta;
+                final float inTangent = sampler.output.getFloat(next * 3, c) * delta;
+                out[c] = (2.0f * t3 - 3.0f * t2 + 1.0f) * getOutput(sampler, previous, c, true) +
+                        (t3 - 2.0f * t2 + t) * outTangent + (-2.0f * t3 + 3.0f * t2) *
+                        getOutput(sampler, next, c, true) + (t3 - t2) * inTangent;
+            }
+        } else if (out.length == 4) {
+            final Quaternionf a = new Quaternionf(getOutput(sampler, previous, 0, false),
+                    getOutput(sampler, previous, 1, false), getOutput(sampler, previous, 2, false),
+                    getOutput(sampler, previous, 3, false));
+            final Quaternionf b = new Quaternionf(getOutput(sampler, next, 0, false),
+                    getOutput(sampler, next, 1, false), getOutput(sampler, next, 2, false),
+                    getOutput(sampler, next, 3, false));
+            a.slerp(b, t);
+            out[0] = a.x;
+            out[1] = a.y;
+            out[2] = a.z;
+            out[3] = a.w;
+        } else {
+            for (int c = 0; c < out.length; c++) {
+                final float a = getOutput(sampler, previous, c, false);
+                out[c] = a + (getOutput(sampler, next, c, false) - a) * t;
+            }
+        }
+    }
+
+    public float getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Sets the rate at which animations are resampled. The engine steps through keyframes rather than interpolating
+     * them over time, so sparsely keyed animations play more smoothly when they're resampled. With the default rate
+     * of 0, keyframes are placed at the times of the source keyframes.
+     *
+     * @param sampleRate Samples per second, or 0 to keep the source keyframes.
+     */
+    public void setSampleRate(float sampleRate) {
+        if (sampleRate < 0.0f) {
+            throw new IllegalArgumentException("Sample rate cannot be negative");
+        }
+        this.sampleRate = sampleRate;
+    }
+}
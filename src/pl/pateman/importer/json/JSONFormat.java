@@ -0,0 +1,34 @@
+package pl.pateman.importer.json;
+
+/**
+ * Versions of the JSON mesh format.
+ *
+ * Version 1 stores vectors and quaternions as objects ({@code {"x": .., "y": .., "z": ..}}), bone weights as maps
+ * keyed by the vertex index written as a string, and keyframes as objects.
+ *
+ * Version 2 stores each stream as a flat array of numbers. Vectors become {@code [x, y, z]}, quaternions
+ * {@code [x, y, z, w]}, the mesh's vertices, normals and texcoords are packed into a single array each, bone weights
+ * are split into two parallel arrays ({@code weightVertices} and {@code weights}), and each track's keyframes are
+ * packed into one array of {@code [time, tx, ty, tz, rx, ry, rz, rw]} records. Version 2 scene nodes carry a
+ * {@code version} field. Nodes without it are version 1.
+ *
+ * Created by pateman.
+ */
+public final class JSONFormat {
+    public static final String VERSION_FIELD = "version";
+    public static final String WEIGHT_VERTICES_FIELD = "weightVertices";
+
+    public static final int VERSION_1 = 1;
+    public static final int VERSION_2 = 2;
+    public static final int LATEST_VERSION = VERSION_2;
+
+    public static final int FLOATS_PER_KEYFRAME = 8;
+
+    private JSONFormat() {
+
+    }
+
+    public static boolean isSupportedVersion(int version) {
+        return version >= VERSION_1 && version <= LATEST_VERSION;
+    }
+}
@@ -2,7 +2,9 @@ package pl.pateman.importer.json;
 
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 import org.joml.Quaternionf;
+import org.joml.Vector2f;
 import org.joml.Vector3f;
 import pl.pateman.core.MeshImporter;
 import pl.pateman.core.TempVars;
@@ -11,42 +13,103 @@ import pl.pateman.core.entity.MeshEntity;
 import pl.pateman.core.mesh.*;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
+ * Imports files in any version of the JSON mesh format (see {@code JSONFormat}). The version is read from the scene
+ * node before the node is deserialized.
+ *
  * Created by pateman.
  */
 public final class JSONImporter implements MeshImporter {
     private final Gson gson;
+    private final Gson compactGson;
     private final Map<Integer, Bone> boneMap;
 
     public JSONImporter() {
-        this.gson = new GsonBuilder().
-                registerTypeAdapter(Bone.class, new BoneDeserializer()).
-                registerTypeAdapter(AnimationTrack.class, new AnimationTrackDeserializer()).
-                create();
+        this.gson = this.createGson(JSONFormat.VERSION_1);
+        this.compactGson = this.createGson(JSONFormat.VERSION_2);
         this.boneMap = new HashMap<>(MeshSkinningInfo.MAX_BONES);
     }
 
-    @Override
-    public MeshEntity load(String meshFileResource) throws IOException {
-        final Map<String, JSONSceneData> importResult = this.gson.fromJson(Utils.readResource(meshFileResource),
-                new TypeToken<Map<String, JSONSceneData>>(){}.getType());
+    private Gson createGson(int formatVersion) {
+        final GsonBuilder gsonBuilder = new GsonBuilder().
+                registerTypeAdapter(Bone.class, new BoneDeserializer(formatVersion)).
+                registerTypeAdapter(AnimationTrack.class, new AnimationTrackDeserializer(formatVersion));
+        if (formatVersion != JSONFormat.VERSION_1) {
+            //  Vectors and quaternions are flat arrays, and so are the mesh's streams.
+            gsonBuilder.
+                    registerTypeAdapter(Vector3f.class, new Vector3fDeserializer()).
+                    registerTypeAdapter(Quaternionf.class, new QuaternionfDeserializer()).
+                    registerTypeAdapter(Mesh.class, new MeshDeserializer());
+        }
+        return gsonBuilder.create();
+    }
+
+    /**
+     * Looks up the format version of the first scene in the given JSON, without deserializing anything. The exporter
+     * writes the version as the node's first field, so usually only the beginning of the text is scanned.
+     *
+     * @param json JSON text.
+     * @return Format version. Scenes without the version field come from the first version.
+     * @throws IOException If the text is malformed.
+     */
+    static int readFormatVersion(final String json) throws IOException {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            if (!reader.hasNext()) {
+                return JSONFormat.VERSION_1;
+            }
+
+            reader.nextName();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals(JSONFormat.VERSION_FIELD)) {
+                    return reader.nextInt();
+                }
+                reader.skipValue();
+            }
+            return JSONFormat.VERSION_1;
+        }
+    }
+
+    private JSONSceneData loadSceneData(String meshFileResource) throws IOException {
+        final String json = Utils.readResource(meshFileResource);
+        final int version = readFormatVersion(json);
+        if (!JSONFormat.isSupportedVersion(version)) {
+            throw new IOException("Unsupported JSON mesh format version " + version);
+        }
 
-        //  After import, clear the bones map.
-        this.boneMap.clear();
+        final Gson versionGson = version == JSONFormat.VERSION_1 ? this.gson : this.compactGson;
+        final Map<String, JSONSceneData> importResult;
+        try {
+            importResult = versionGson.fromJson(json, new TypeToken<Map<String, JSONSceneData>>(){}.getType());
+        } finally {
+            //  After import, clear the bones map.
+            this.boneMap.clear();
+        }
 
         if (importResult.isEmpty()) {
             return null;
         }
 
         final JSONSceneData sceneData = importResult.entrySet().iterator().next().getValue();
+        prepareMesh(sceneData.getMesh());
+        return sceneData;
+    }
 
+    /**
+     * Finishes a freshly imported mesh, i.e. computes the skeleton's bind matrices and the frame counts of
+     * animations.
+     *
+     * @param mesh Imported mesh.
+     */
+    static void prepareMesh(final Mesh mesh) {
         //  Now that the skeleton is fully processed, calculate the bind matrices and arrange the bones.
-        final Mesh mesh = sceneData.getMesh();
         mesh.getSkeleton().calculateBindMatrices();
         mesh.getSkeleton().arrangeBones();
         mesh.createBoneTracks();
@@ -60,42 +123,173 @@ public final class JSONImporter implements MeshImporter {
                 animation.setFrameCount(Math.max(animation.getFrameCount(), track.getKeyframes().size()));
             }
         }
+    }
 
+    static MeshEntity createEntity(final Mesh mesh, final Vector3f translation, final Quaternionf rotation,
+                                   final Vector3f scale) {
         //  Prepare data from transformation.
         final TempVars vars = TempVars.get();
 
-        final Vector3f translation = vars.vect3d1;
-        final Quaternionf rotation = vars.quat1;
-        final Vector3f scale = vars.vect3d2.set(Utils.IDENTITY_VECTOR);
-        if (sceneData.getTranslation() != null) {
-            translation.set(sceneData.getTranslation());
+        final Vector3f entityTranslation = vars.vect3d1.zero();
+        final Quaternionf entityRotation = vars.quat1.identity();
+        final Vector3f entityScale = vars.vect3d2.set(Utils.IDENTITY_VECTOR);
+        if (translation != null) {
+            entityTranslation.set(translation);
         }
-        if (sceneData.getRotation() != null) {
-            rotation.set(sceneData.getRotation());
+        if (rotation != null) {
+            entityRotation.set(rotation);
         }
-        if (sceneData.getScale() != null) {
-            scale.set(sceneData.getScale());
+        if (scale != null) {
+            entityScale.set(scale);
         }
 
-        vars.release();
-
         //  Create the entity.
         final MeshEntity meshEntity = new MeshEntity();
         meshEntity.setMesh(mesh);
-        meshEntity.setTransformation(rotation, translation, scale);
+        meshEntity.setTransformation(entityRotation, entityTranslation, entityScale);
         meshEntity.forceTransformationUpdate();
 
+        vars.release();
+        return meshEntity;
+    }
+
+    @Override
+    public MeshEntity load(String meshFileResource) throws IOException {
+        final JSONSceneData sceneData = this.loadSceneData(meshFileResource);
+        if (sceneData == null) {
+            return null;
+        }
+
+        final MeshEntity meshEntity = createEntity(sceneData.getMesh(), sceneData.getTranslation(),
+                sceneData.getRotation(), sceneData.getScale());
+
         System.gc();
 
         return meshEntity;
     }
 
+    /**
+     * Imports only the mesh, without creating an entity for it.
+     *
+     * @param meshFileResource Path to the resource.
+     * @return Imported mesh, or {@code null} if the file doesn't contain any scene.
+     * @throws IOException If the resource can't be read.
+     */
+    public Mesh loadMesh(String meshFileResource) throws IOException {
+        final JSONSceneData sceneData = this.loadSceneData(meshFileResource);
+        return sceneData == null ? null : sceneData.getMesh();
+    }
+
+    private static float[] toFloatArray(final JsonElement jsonElement) {
+        final JsonArray jsonArray = jsonElement.getAsJsonArray();
+        final float[] array = new float[jsonArray.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = jsonArray.get(i).getAsFloat();
+        }
+        return array;
+    }
+
+    private static float[] toFloatArray(final JsonElement jsonElement, int expectedLength) {
+        final float[] array = toFloatArray(jsonElement);
+        if (array.length != expectedLength) {
+            throw new JsonParseException("Expected " + expectedLength + " numbers, got " + array.length);
+        }
+        return array;
+    }
+
+    private static float[] toPackedArray(final JsonElement jsonElement, int componentCount) {
+        final float[] array = toFloatArray(jsonElement);
+        if (array.length % componentCount != 0) {
+            throw new JsonParseException("Packed stream's length is not a multiple of " + componentCount);
+        }
+        return array;
+    }
+
+    private static class Vector3fDeserializer implements JsonDeserializer<Vector3f> {
+        @Override
+        public Vector3f deserialize(JsonElement jsonElement, Type type,
+                                    JsonDeserializationContext context) throws JsonParseException {
+            final float[] components = toFloatArray(jsonElement, 3);
+            return new Vector3f(components[0], components[1], components[2]);
+        }
+    }
+
+    private static class QuaternionfDeserializer implements JsonDeserializer<Quaternionf> {
+        @Override
+        public Quaternionf deserialize(JsonElement jsonElement, Type type,
+                                       JsonDeserializationContext context) throws JsonParseException {
+            final float[] components = toFloatArray(jsonElement, 4);
+            return new Quaternionf(components[0], components[1], components[2], components[3]);
+        }
+    }
+
+    private static class MeshDeserializer implements JsonDeserializer<Mesh> {
+        @Override
+        public Mesh deserialize(JsonElement jsonElement, Type type,
+                                JsonDeserializationContext context) throws JsonParseException {
+            final JsonObject jsonObject = jsonElement.getAsJsonObject();
+            final Mesh mesh = new Mesh();
+
+            if (jsonObject.has("vertices")) {
+                final float[] vertices = toPackedArray(jsonObject.get("vertices"), 3);
+                for (int i = 0; i < vertices.length; i += 3) {
+                    mesh.getVertices().add(new Vector3f(vertices[i], vertices[i + 1], vertices[i + 2]));
+                }
+            }
+            if (jsonObject.has("normals")) {
+                final float[] normals = toPackedArray(jsonObject.get("normals"), 3);
+                for (int i = 0; i < normals.length; i += 3) {
+                    mesh.getNormals().add(new Vector3f(normals[i], normals[i + 1], normals[i + 2]));
+                }
+            }
+            if (jsonObject.has("texcoords")) {
+                final float[] texcoords = toPackedArray(jsonObject.get("texcoords"), 2);
+                for (int i = 0; i < texcoords.length; i += 2) {
+                    mesh.getTexcoords().add(new Vector2f(texcoords[i], texcoords[i + 1]));
+                }
+            }
+            if (jsonObject.has("triangles")) {
+                for (final JsonElement index : jsonObject.getAsJsonArray("triangles")) {
+                    mesh.getTriangles().add(index.getAsInt());
+                }
+            }
+
+            //  Bones need to be read before animations, as tracks refer to them.
+            final JsonObject skeleton = jsonObject.getAsJsonObject("skeleton");
+            if (skeleton != null && skeleton.has("bones")) {
+                for (final JsonElement bone : skeleton.getAsJsonArray("bones")) {
+                    mesh.getSkeleton().getBones().add((Bone) context.deserialize(bone, Bone.class));
+                }
+            }
+
+            if (jsonObject.has("animations")) {
+                for (final JsonElement animationElement : jsonObject.getAsJsonArray("animations")) {
+                    final JsonObject animationObject = animationElement.getAsJsonObject();
+                    final Animation animation = new Animation(animationObject.get("name").getAsString(),
+                            animationObject.get("length").getAsFloat());
+                    if (animationObject.has("frameCount")) {
+                        animation.setFrameCount(animationObject.get("frameCount").getAsInt());
+                    }
+                    for (final JsonElement track : animationObject.getAsJsonArray("tracks")) {
+                        animation.getTracks().add((AnimationTrack) context.deserialize(track,
+                                AnimationTrack.class));
+                    }
+                    mesh.getAnimations().add(animation);
+                }
+            }
+
+            return mesh;
+        }
+    }
+
     private class BoneDeserializer implements JsonDeserializer<Bone> {
+        private final int formatVersion;
         private final Type vector3fType;
         private final Type quaternionfType;
         private final Type weightsMapType;
 
-        public BoneDeserializer() {
+        public BoneDeserializer(int formatVersion) {
+            this.formatVersion = formatVersion;
             this.vector3fType = new TypeToken<Vector3f>(){}.getType();
             this.quaternionfType = new TypeToken<Quaternionf>(){}.getType();
             this.weightsMapType = new TypeToken<Map<Integer, Float>>(){ }.getType();
@@ -124,8 +318,21 @@ public final class JSONImporter implements MeshImporter {
                     this.quaternionfType));
             bone.getBindScale().set((Vector3f) context.deserialize(jsonObject.get("bindScale"), this.vector3fType));
 
-            final Map<Integer, Float> weights = context.deserialize(jsonObject.get("weights"), this.weightsMapType);
-            bone.getVertexWeights().putAll(weights);
+            if (this.formatVersion == JSONFormat.VERSION_1) {
+                final Map<Integer, Float> weights = context.deserialize(jsonObject.get("weights"),
+                        this.weightsMapType);
+                bone.getVertexWeights().putAll(weights);
+            } else {
+                final JsonArray vertices = jsonObject.getAsJsonArray(JSONFormat.WEIGHT_VERTICES_FIELD);
+                final JsonArray weights = jsonObject.getAsJsonArray("weights");
+                if (vertices.size() != weights.size()) {
+                    throw new JsonParseException("Bone '" + boneName + "' has " + vertices.size() +
+                            " weighted vertices, but " + weights.size() + " weights");
+                }
+                for (int i = 0; i < vertices.size(); i++) {
+                    bone.getVertexWeights().put(vertices.get(i).getAsInt(), weights.get(i).getAsFloat());
+                }
+            }
 
             JSONImporter.this.boneMap.put(origBoneIndex, bone);
 
@@ -134,9 +341,11 @@ public final class JSONImporter implements MeshImporter {
     }
 
     private class AnimationTrackDeserializer implements JsonDeserializer<AnimationTrack> {
+        private final int formatVersion;
         private final Type keyframesListType;
 
-        public AnimationTrackDeserializer() {
+        public AnimationTrackDeserializer(int formatVersion) {
+            this.formatVersion = formatVersion;
             this.keyframesListType = new TypeToken<List<AnimationKeyframe>>(){}.getType();;
         }
 
@@ -148,9 +357,18 @@ public final class JSONImporter implements MeshImporter {
 
             final AnimationTrack animationTrack = new AnimationTrack(JSONImporter.this.boneMap.get(trackBoneIndex));
 
-            final List<AnimationKeyframe> keyframes = context.deserialize(jsonObject.get("keyframes"),
-                    this.keyframesListType);
-            animationTrack.getKeyframes().addAll(keyframes);
+            if (this.formatVersion == JSONFormat.VERSION_1) {
+                final List<AnimationKeyframe> keyframes = context.deserialize(jsonObject.get("keyframes"),
+                        this.keyframesListType);
+                animationTrack.getKeyframes().addAll(keyframes);
+            } else {
+                final float[] k = toPackedArray(jsonObject.get("keyframes"), JSONFormat.FLOATS_PER_KEYFRAME);
+                for (int i = 0; i < k.length; i += JSONFormat.FLOATS_PER_KEYFRAME) {
+                    animationTrack.getKeyframes().add(new AnimationKeyframe(k[i],
+                            new Vector3f(k[i + 1], k[i + 2], k[i + 3]),
+                            new Quaternionf(k[i + 4], k[i + 5], k[i + 6], k[i + 7])));
+                }
+            }
 
             return animationTrack;
         }
@@ -0,0 +1,581 @@
+package pl.pateman.importer.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.joml.Quaternionf;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import pl.pateman.core.FloatArrayList;
+import pl.pateman.core.IntArrayList;
+import pl.pateman.core.MeshImporter;
+import pl.pateman.core.Utils;
+import pl.pateman.core.entity.MeshEntity;
+import pl.pateman.core.mesh.*;
+import pl.pateman.importer.ImportedScene;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports the same files as {@code JSONImporter}, but reads them with a pull parser, token by token, straight from
+ * the resource's stream. Vertex data and keyframes are gathered in packed primitive arrays and turned into the mesh
+ * at the end, so neither the file's text nor an intermediate object tree is ever held in memory.
+ *
+ * Both versions of the format are read by the same code. Each value is read according to its shape, i.e. vectors
+ * may be objects or arrays, and streams may be arrays of objects or flat arrays of numbers.
+ *
+ * Created by pateman.
+ */
+public final class JSONStreamingImporter implements MeshImporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FLOATS_PER_KEYFRAME = JSONFormat.FLOATS_PER_KEYFRAME;
+
+    @Override
+    public MeshEntity load(String meshFileResource) throws IOException {
+        final SceneReader sceneReader = this.readScene(meshFileResource);
+        if (sceneReader == null) {
+            return null;
+        }
+
+        return JSONImporter.createEntity(sceneReader.mesh, sceneReader.translation, sceneReader.rotation,
+                sceneReader.scale);
+    }
+
+    /**
+     * Imports only the mesh, without creating an entity for it.
+     *
+     * @param meshFileResource Path to the resource.
+     * @return Imported mesh, or {@code null} if the file doesn't contain any scene.
+     * @throws IOException If the resource can't be read.
+     */
+    public Mesh loadMesh(String meshFileResource) throws IOException {
+        final SceneReader sceneReader = this.readScene(meshFileResource);
+        return sceneReader == null ? null : sceneReader.mesh;
+    }
+
+    /**
+     * Imports the mesh and the transformation of its scene node.
+     *
+     * @param meshFileResource Path to the resource.
+     * @return Imported scene, or {@code null} if the file doesn't contain any scene.
+     * @throws IOException If the resource can't be read or is malformed.
+     */
+    public ImportedScene loadScene(String meshFileResource) throws IOException {
+        return toImportedScene(this.readScene(meshFileResource));
+    }
+
+    /**
+     * Imports the mesh and the transformation of its scene node from a file.
+     *
+     * @param path Path to the file.
+     * @return Imported scene, or {@code null} if the file doesn't contain any scene.
+     * @throws IOException If the file can't be read or is malformed.
+     */
+    public ImportedScene loadScene(final Path path) throws IOException {
+        return toImportedScene(this.readScene(Files.newInputStream(path)));
+    }
+
+    private static ImportedScene toImportedScene(final SceneReader sceneReader) {
+        return sceneReader == null ? null : new ImportedScene(sceneReader.mesh, sceneReader.translation,
+                sceneReader.rotation, sceneReader.scale);
+    }
+
+    private SceneReader readScene(String meshFileResource) throws IOException {
+        return this.readScene(Utils.getResourceStream(meshFileResource));
+    }
+
+    private SceneReader readScene(final InputStream inputStream) throws IOException {
+        try (JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(inputStream,
+                StandardCharsets.UTF_8), BUFFER_SIZE))) {
+            return this.readScene(reader);
+        }
+    }
+
+    /**
+     * Reads the first scene from the given reader.
+     *
+     * @param reader JSON reader.
+     * @return Scene, or {@code null} if there are no scenes.
+     * @throws IOException If the reader fails or the data is malformed.
+     */
+    SceneReader readScene(final JsonReader reader) throws IOException {
+        SceneReader sceneReader = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            reader.nextName();
+            //  Only the first scene is imported.
+            if (sceneReader == null) {
+                sceneReader = new SceneReader();
+                sceneReader.readSceneNode(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (sceneReader != null) {
+            sceneReader.buildMesh();
+            JSONImporter.prepareMesh(sceneReader.mesh);
+        }
+        return sceneReader;
+    }
+
+    /**
+     * Reads an object with the fields {@code x}, {@code y}, {@code z} and {@code w}, in any order, or an array of
+     * numbers in that order.
+     *
+     * @param reader JSON reader.
+     * @param out Receives the components. Components which are missing from the value keep their values.
+     * @throws IOException If the reader fails or the data is malformed.
+     */
+    static void readComponents(final JsonReader reader, final float[] out) throws IOException {
+        if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+            reader.beginArray();
+            int component = 0;
+            while (reader.hasNext()) {
+                if (component == out.length) {
+                    throw new IOException("Expected at most " + out.length + " components");
+                }
+                out[component++] = (float) reader.nextDouble();
+            }
+            reader.endArray();
+            return;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            final int component = name.length() == 1 ? "xyzw".indexOf(name.charAt(0)) : -1;
+            if (component != -1 && component < out.length && reader.peek() != JsonToken.NULL) {
+                out[component] = (float) reader.nextDouble();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    static final class SceneReader {
+        private final float[] components = new float[4];
+
+        private final FloatArrayList vertices = new FloatArrayList(1024);
+        private final FloatArrayList normals = new FloatArrayList(1024);
+        private final FloatArrayList texcoords = new FloatArrayList(1024);
+        private final IntArrayList triangles = new IntArrayList(1024);
+
+        private final List<Bone> bones = new ArrayList<>();
+        private final Map<Integer, Bone> boneMap = new HashMap<>(MeshSkinningInfo.MAX_BONES);
+        private final List<Animation> animations = new ArrayList<>();
+        private final List<List<PendingTrack>> animationTracks = new ArrayList<>();
+
+        private Vector3f translation;
+        private Quaternionf rotation;
+        private Vector3f scale;
+        private Mesh mesh;
+
+        private Vector3f readVector(final JsonReader reader) throws IOException {
+            this.components[0] = this.components[1] = this.components[2] = 0.0f;
+            readComponents(reader, this.components);
+            return new Vector3f(this.components[0], this.components[1], this.components[2]);
+        }
+
+        private Quaternionf readQuaternion(final JsonReader reader) throws IOException {
+            this.components[0] = this.components[1] = this.components[2] = 0.0f;
+            this.components[3] = 1.0f;
+            readComponents(reader, this.components);
+            return new Quaternionf(this.components[0], this.components[1], this.components[2], this.components[3]);
+        }
+
+        private void readVectorArray(final JsonReader reader, final FloatArrayList out, int componentCount)
+                throws IOException {
+            reader.beginArray();
+            if (reader.hasNext() && reader.peek() == JsonToken.NUMBER) {
+                //  Packed stream.
+                final int start = out.size();
+                while (reader.hasNext()) {
+                    out.add((float) reader.nextDouble());
+                }
+                reader.endArray();
+                if ((out.size() - start) % componentCount != 0) {
+                    throw new IOException("Packed stream's length is not a multiple of " + componentCount);
+                }
+                return;
+            }
+            while (reader.hasNext()) {
+                this.components[0] = this.components[1] = this.components[2] = 0.0f;
+                readComponents(reader, this.components);
+                for (int i = 0; i < componentCount; i++) {
+                    out.add(this.components[i]);
+                }
+            }
+            reader.endArray();
+        }
+
+        void readSceneNode(final JsonReader reader) throws IOException {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case JSONFormat.VERSION_FIELD:
+                        final int version = reader.nextInt();
+                        if (!JSONFormat.isSupportedVersion(version)) {
+                            throw new IOException("Unsupported JSON mesh format version " + version);
+                        }
+                        break;
+                    case "mesh":
+                        this.readMesh(reader);
+                        break;
+                    case "translation":
+                        this.translation = this.readVector(reader);
+                        break;
+                    case "rotation":
+                        this.rotation = this.readQuaternion(reader);
+                        break;
+                    case "scale":
+                        this.scale = this.readVector(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        }
+
+        private void readMesh(final JsonReader reader) throws IOException {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "vertices":
+                        this.readVectorArray(reader, this.vertices, 3);
+                        break;
+                    case "normals":
+                        this.readVectorArray(reader, this.normals, 3);
+                        break;
+                    case "texcoords":
+                        this.readVectorArray(reader, this.texcoords, 2);
+                        break;
+                    case "triangles":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            this.triangles.add(reader.nextInt());
+                        }
+                        reader.endArray();
+                        break;
+                    case "skeleton":
+                        this.readSkeleton(reader);
+                        break;
+                    case "animations":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            this.readAnimation(reader);
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        }
+
+        private void readSkeleton(final JsonReader reader) throws IOException {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("bones")) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        this.readBone(reader);
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+
+        private void readBone(final JsonReader reader) throws IOException {
+            String name = null;
+            int originalIndex = -1;
+            int parent = -1;
+            Vector3f bindTranslation = null;
+            Quaternionf bindRotation = null;
+            Vector3f bindScale = null;
+            final Map<Integer, Float> weights = new HashMap<>();
+            //  Packed weights come in two parallel arrays, which may appear in any order.
+            IntArrayList packedVertices = null;
+            FloatArrayList packedWeights = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "name":
+                        name = reader.nextString();
+                        break;
+                    case "index":
+                        originalIndex = reader.nextInt();
+                        break;
+                    case "parent":
+                        parent = reader.nextInt();
+                        break;
+                    case "bindTranslation":
+                        bindTranslation = this.readVector(reader);
+                        break;
+                    case "bindRotation":
+                        bindRotation = this.readQuaternion(reader);
+                        break;
+                    case "bindScale":
+                        bindScale = this.readVector(reader);
+                        break;
+                    case "weights":
+                        if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                            packedWeights = new FloatArrayList(256);
+                            reader.beginArray();
+                            while (reader.hasNext()) {
+                                packedWeights.add((float) reader.nextDouble());
+                            }
+                            reader.endArray();
+                        } else {
+                            reader.beginObject();
+                            while (reader.hasNext()) {
+                                final int vertex = Integer.parseInt(reader.nextName());
+                                weights.put(vertex, (float) reader.nextDouble());
+                            }
+                            reader.endObject();
+                        }
+                        break;
+                    case JSONFormat.WEIGHT_VERTICES_FIELD:
+                        packedVertices = new IntArrayList(256);
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            packedVertices.add(reader.nextInt());
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            if (name == null) {
+                throw new IOException("Bone " + originalIndex + " does not have a name");
+            }
+            if (packedVertices != null || packedWeights != null) {
+                final int vertexCount = packedVertices == null ? 0 : packedVertices.size();
+                final int weightCount = packedWeights == null ? 0 : packedWeights.size();
+                if (vertexCount != weightCount) {
+                    throw new IOException("Bone '" + name + "' has " + vertexCount + " weighted vertices, but " +
+                            weightCount + " weights");
+                }
+                for (int i = 0; i < vertexCount; i++) {
+                    weights.put(packedVertices.get(i), packedWeights.get(i));
+                }
+            }
+
+            final Bone bone = new Bone(name, this.bones.size());
+            if (parent != -1) {
+                final Bone parentBone = this.boneMap.get(parent);
+                if (parentBone == null) {
+                    throw new IOException("Bone '" + name + "' refers to an unknown parent " + parent);
+                }
+                bone.setParent(parentBone);
+                parentBone.getChildren().add(bone);
+            }
+            if (bindTranslation != null) {
+                bone.getBindPosition().set(bindTranslation);
+            }
+            if (bindRotation != null) {
+                bone.getBindRotation().set(bindRotation);
+            }
+            if (bindScale != null) {
+                bone.getBindScale().set(bindScale);
+            }
+            //  Weights end up in the bone's map anyway, so they're put there directly.
+            bone.getVertexWeights().putAll(weights);
+
+            this.bones.add(bone);
+            this.boneMap.put(originalIndex, bone);
+        }
+
+        private void readAnimation(final JsonReader reader) throws IOException {
+            String name = null;
+            float length = 0.0f;
+            int frameCount = 0;
+            final List<PendingTrack> tracks = new ArrayList<>();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "name":
+                        name = reader.nextString();
+                        break;
+                    case "length":
+                        length = (float) reader.nextDouble();
+                        break;
+                    case "frameCount":
+                        frameCount = reader.nextInt();
+                        break;
+                    case "tracks":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            tracks.add(this.readTrack(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            final Animation animation = new Animation(name, length);
+            animation.setFrameCount(frameCount);
+            this.animations.add(animation);
+            this.animationTracks.add(tracks);
+        }
+
+        private PendingTrack readTrack(final JsonReader reader) throws IOException {
+            final PendingTrack track = new PendingTrack();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "bone":
+                        track.bone = reader.nextInt();
+                        break;
+                    case "keyframes":
+                        reader.beginArray();
+                        if (reader.hasNext() && reader.peek() == JsonToken.NUMBER) {
+                            //  Packed keyframes.
+                            while (reader.hasNext()) {
+                                track.keyframes.add((float) reader.nextDouble());
+                            }
+                            if (track.keyframes.size() % FLOATS_PER_KEYFRAME != 0) {
+                                throw new IOException("Keyframes of bone " + track.bone + " are incomplete");
+                            }
+                        } else {
+                            while (reader.hasNext()) {
+                                this.readKeyframe(reader, track.keyframes);
+                            }
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            return track;
+        }
+
+        private void readKeyframe(final JsonReader reader, final FloatArrayList out) throws IOException {
+            //  Time, translation and rotation.
+            float time = 0.0f;
+            float tx = 0.0f, ty = 0.0f, tz = 0.0f;
+            float rx = 0.0f, ry = 0.0f, rz = 0.0f, rw = 1.0f;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "time":
+                        time = (float) reader.nextDouble();
+                        break;
+                    case "translation":
+                        this.components[0] = this.components[1] = this.components[2] = 0.0f;
+                        readComponents(reader, this.components);
+                        tx = this.components[0];
+                        ty = this.components[1];
+                        tz = this.components[2];
+                        break;
+                    case "rotation":
+                        this.components[0] = this.components[1] = this.components[2] = 0.0f;
+                        this.components[3] = 1.0f;
+                        readComponents(reader, this.components);
+                        rx = this.components[0];
+                        ry = this.components[1];
+                        rz = this.components[2];
+                        rw = this.components[3];
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            out.add(time);
+            out.add(tx, ty, tz);
+            out.add(rx, ry);
+            out.add(rz, rw);
+        }
+
+        /**
+         * Turns the packed arrays into the mesh.
+         */
+        void buildMesh() throws IOException {
+            this.mesh = new Mesh();
+
+            final float[] v = this.vertices.getArray();
+            for (int i = 0; i < this.vertices.size(); i += 3) {
+                this.mesh.getVertices().add(new Vector3f(v[i], v[i + 1], v[i + 2]));
+            }
+            final float[] n = this.normals.getArray();
+            for (int i = 0; i < this.normals.size(); i += 3) {
+                this.mesh.getNormals().add(new Vector3f(n[i], n[i + 1], n[i + 2]));
+            }
+            final float[] t = this.texcoords.getArray();
+            for (int i = 0; i < this.texcoords.size(); i += 2) {
+                this.mesh.getTexcoords().add(new Vector2f(t[i], t[i + 1]));
+            }
+            final int[] triangles = this.triangles.getArray();
+            for (int i = 0; i < this.triangles.size(); i++) {
+                this.mesh.getTriangles().add(triangles[i]);
+            }
+            this.mesh.getSkeleton().getBones().addAll(this.bones);
+
+            //  Tracks are resolved now, as the skeleton is complete.
+            for (int i = 0; i < this.animations.size(); i++) {
+                final Animation animation = this.animations.get(i);
+                for (final PendingTrack pendingTrack : this.animationTracks.get(i)) {
+                    final Bone bone = this.boneMap.get(pendingTrack.bone);
+                    if (bone == null) {
+                        throw new IOException("Animation '" + animation.getName() + "' refers to an unknown bone " +
+                                pendingTrack.bone);
+                    }
+
+                    final AnimationTrack track = new AnimationTrack(bone);
+                    final float[] k = pendingTrack.keyframes.getArray();
+                    for (int j = 0; j < pendingTrack.keyframes.size(); j += FLOATS_PER_KEYFRAME) {
+                        track.getKeyframes().add(new AnimationKeyframe(k[j],
+                                new Vector3f(k[j + 1], k[j + 2], k[j + 3]),
+                                new Quaternionf(k[j + 4], k[j + 5], k[j + 6], k[j + 7])));
+                    }
+                    animation.getTracks().add(track);
+                }
+                this.mesh.getAnimations().add(animation);
+            }
+        }
+
+        Mesh getMesh() {
+            return mesh;
+        }
+    }
+
+    private static final class PendingTrack {
+        private int bone = -1;
+        private final FloatArrayList keyframes = new FloatArrayList(FLOATS_PER_KEYFRAME * 32);
+    }
+}
@@ -13,6 +13,9 @@ import pl.pateman.core.entity.MeshEntity;
 import pl.pateman.core.mesh.*;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * Created by pateman on 2016-03-17.
@@ -34,10 +37,38 @@ public final class OgreXMLImporter implements MeshImporter {
 
     @Override
     public MeshEntity load(final String meshFileResource) throws IOException {
+        final MeshEntity meshEntity = new MeshEntity();
+        meshEntity.setMesh(this.loadMesh(meshFileResource));
+        return meshEntity;
+    }
+
+    /**
+     * Imports only the mesh, without creating an entity for it.
+     *
+     * @param meshFileResource Path to the resource.
+     * @return Imported mesh.
+     * @throws IOException If the resource can't be read or is malformed.
+     */
+    public Mesh loadMesh(final String meshFileResource) throws IOException {
+        return this.readMesh(Utils.readResource(meshFileResource), null);
+    }
+
+    /**
+     * Imports a mesh from a file. The linked skeleton is read from the file's directory.
+     *
+     * @param meshFile Path to the file.
+     * @return Imported mesh.
+     * @throws IOException If the file can't be read or is malformed.
+     */
+    public Mesh loadMesh(final Path meshFile) throws IOException {
+        return this.readMesh(new String(Files.readAllBytes(meshFile), StandardCharsets.UTF_8),
+                meshFile.toAbsolutePath().getParent());
+    }
+
+    private Mesh readMesh(final String meshFileContent, final Path baseDirectory) throws IOException {
         final Mesh mesh = new Mesh();
 
         //  Load the mesh first.
-        final String meshFileContent = Utils.readResource(meshFileResource);
         final OgreXMLMesh ogreXMLMesh = (OgreXMLMesh) this.xStream.fromXML(meshFileContent);
 
         final OgreXMLSubmesh submesh = ogreXMLMesh.submeshes.isEmpty() ? null : ogreXMLMesh.submeshes.get(0);
@@ -68,7 +99,9 @@ public final class OgreXMLImporter implements MeshImporter {
 
         //  If there's a skeleton file linked in the mesh, load it as well.
         if (ogreXMLMesh.skeletonResource != null) {
-            final String skeletonFileContent = Utils.readResource(ogreXMLMesh.skeletonResource + ".xml");
+            final String skeletonFile = ogreXMLMesh.skeletonResource + ".xml";
+            final String skeletonFileContent = baseDirectory == null ? Utils.readResource(skeletonFile) :
+                    new String(Files.readAllBytes(baseDirectory.resolve(skeletonFile)), StandardCharsets.UTF_8);
             final OgreXMLSkeleton skeleton = (OgreXMLSkeleton) this.xStream.fromXML(skeletonFileContent);
 
             //  Add bones.
@@ -102,11 +135,6 @@ public final class OgreXMLImporter implements MeshImporter {
                 throw new IOException("Multiple roots not supported");
             }
 
-            //  Check if the number of bones is acceptable.
-            if (skeleton.boneList.size() > MeshSkinningInfo.MAX_BONES) {
-                throw new IOException("Too many bones in the skeleton");
-            }
-
             for (OgreXMLSkeleton.BoneHierarchyInfo boneHierarchyInfo : skeleton.hierarchyInfo) {
                 final Bone bone = mesh.getSkeleton().getBoneByName(boneHierarchyInfo.boneName);
                 final Bone parent = mesh.getSkeleton().getBoneByName(boneHierarchyInfo.parentBoneName);
@@ -158,8 +186,6 @@ public final class OgreXMLImporter implements MeshImporter {
             mesh.createBoneTracks();
         }
 
-        final MeshEntity meshEntity = new MeshEntity();
-        meshEntity.setMesh(mesh);
-        return meshEntity;
+        return mesh;
     }
 }
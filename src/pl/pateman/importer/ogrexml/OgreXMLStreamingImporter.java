@@ -0,0 +1,483 @@
+package pl.pateman.importer.ogrexml;
+
+import org.joml.AxisAngle4f;
+import org.joml.Quaternionf;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import pl.pateman.core.FloatArrayList;
+import pl.pateman.core.IntArrayList;
+import pl.pateman.core.MeshImporter;
+import pl.pateman.core.Utils;
+import pl.pateman.core.entity.MeshEntity;
+import pl.pateman.core.mesh.*;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports the same files as {@code OgreXMLImporter}, but reads them with a StAX pull parser, element by element, so
+ * that no object graph of the document is ever built. Bones are looked up by name in a hash map, and vertex bone
+ * assignments are distributed among the bones in a single pass.
+ *
+ * All submeshes are imported into the mesh, including the ones which use the shared geometry. Vertices of each
+ * geometry are appended to the mesh, and indices and bone assignments are offset accordingly. Only the first set of
+ * texture coordinates of each vertex is imported.
+ *
+ * Created by pateman.
+ */
+public final class OgreXMLStreamingImporter implements MeshImporter {
+    private final XMLInputFactory inputFactory;
+
+    private interface SkeletonSource {
+        InputStream open(final String skeletonFile) throws IOException;
+    }
+
+    public OgreXMLStreamingImporter() {
+        this.inputFactory = XMLInputFactory.newInstance();
+        this.inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    @Override
+    public MeshEntity load(final String meshFileResource) throws IOException {
+        final MeshEntity meshEntity = new MeshEntity();
+        meshEntity.setMesh(this.loadMesh(meshFileResource));
+        return meshEntity;
+    }
+
+    /**
+     * Imports only the mesh, without creating an entity for it.
+     *
+     * @param meshFileResource Path to the resource.
+     * @return Imported mesh.
+     * @throws IOException If the resource can't be read or is malformed.
+     */
+    public Mesh loadMesh(final String meshFileResource) throws IOException {
+        return this.readMesh(Utils.getResourceStream(meshFileResource), new SkeletonSource() {
+            @Override
+            public InputStream open(String skeletonFile) throws IOException {
+                return Utils.getResourceStream(skeletonFile);
+            }
+        });
+    }
+
+    /**
+     * Imports a mesh from a file. The linked skeleton is read from the file's directory.
+     *
+     * @param meshFile Path to the file.
+     * @return Imported mesh.
+     * @throws IOException If the file can't be read or is malformed.
+     */
+    public Mesh loadMesh(final Path meshFile) throws IOException {
+        final Path baseDirectory = meshFile.toAbsolutePath().getParent();
+        return this.readMesh(Files.newInputStream(meshFile), new SkeletonSource() {
+            @Override
+            public InputStream open(String skeletonFile) throws IOException {
+                return Files.newInputStream(baseDirectory.resolve(skeletonFile));
+            }
+        });
+    }
+
+    private Mesh readMesh(final InputStream meshStream, final SkeletonSource skeletonSource) throws IOException {
+        final MeshReader meshReader = new MeshReader();
+        this.parse(meshStream, meshReader);
+
+        final Mesh mesh = meshReader.buildMesh();
+        if (meshReader.skeletonLink != null) {
+            final SkeletonReader skeletonReader = new SkeletonReader(mesh);
+            this.parse(skeletonSource.open(meshReader.skeletonLink + ".xml"), skeletonReader);
+            skeletonReader.finish(meshReader);
+        }
+        return mesh;
+    }
+
+    private void parse(final InputStream inputStream, final ElementHandler handler) throws IOException {
+        try (InputStream is = new BufferedInputStream(inputStream, 64 * 1024)) {
+            final XMLStreamReader reader = this.inputFactory.createXMLStreamReader(is);
+            try {
+                while (reader.hasNext()) {
+                    final int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        handler.startElement(reader.getLocalName(), reader);
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        handler.endElement(reader.getLocalName());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static float floatAttribute(final XMLStreamReader reader, final String name, float defaultValue)
+            throws IOException {
+        final String value = reader.getAttributeValue(null, name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid value of attribute '" + name + "': " + value);
+        }
+    }
+
+    private static int intAttribute(final XMLStreamReader reader, final String name) throws IOException {
+        final String value = reader.getAttributeValue(null, name);
+        if (value == null) {
+            throw new IOException("Missing attribute '" + name + "' of element '" + reader.getLocalName() + "'");
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid value of attribute '" + name + "': " + value);
+        }
+    }
+
+    private static String stringAttribute(final XMLStreamReader reader, final String name) throws IOException {
+        final String value = reader.getAttributeValue(null, name);
+        if (value == null) {
+            throw new IOException("Missing attribute '" + name + "' of element '" + reader.getLocalName() + "'");
+        }
+        return value;
+    }
+
+    private interface ElementHandler {
+        void startElement(final String name, final XMLStreamReader reader) throws IOException;
+
+        void endElement(final String name) throws IOException;
+    }
+
+    /**
+     * Gathers the geometry of all submeshes. Faces and bone assignments of a submesh refer to the vertices of its
+     * geometry, which may come after them, so they're offset when the submesh ends.
+     */
+    private static final class MeshReader implements ElementHandler {
+        private final FloatArrayList positions = new FloatArrayList(1024);
+        private final FloatArrayList normals = new FloatArrayList(1024);
+        private final FloatArrayList texcoords = new FloatArrayList(1024);
+        private final IntArrayList triangles = new IntArrayList(1024);
+
+        //  Bone assignments of all geometries - vertex index (already offset), bone id and weight.
+        private final IntArrayList assignmentVertices = new IntArrayList(1024);
+        private final IntArrayList assignmentBones = new IntArrayList(1024);
+        private final FloatArrayList assignmentWeights = new FloatArrayList(1024);
+
+        //  Faces and bone assignments of the current submesh, and of the shared geometry.
+        private final IntArrayList submeshFaces = new IntArrayList(1024);
+        private final IntArrayList submeshAssignments = new IntArrayList(1024);
+        private final IntArrayList sharedAssignments = new IntArrayList();
+        private final FloatArrayList submeshWeights = new FloatArrayList(1024);
+        private final FloatArrayList sharedWeights = new FloatArrayList();
+
+        private boolean hasNormals;
+        private boolean hasTexcoords;
+        private boolean texcoordRead;
+        private boolean inSubmesh;
+        private boolean usesSharedVertices;
+        private int sharedBase = -1;
+        private int submeshBase = -1;
+        private int submeshCount;
+        private String skeletonLink;
+
+        private int getVertexCount() {
+            return this.positions.size() / 3;
+        }
+
+        @Override
+        public void startElement(String name, XMLStreamReader reader) throws IOException {
+            switch (name) {
+                case "sharedgeometry":
+                    this.sharedBase = this.getVertexCount();
+                    break;
+                case "geometry":
+                    this.submeshBase = this.getVertexCount();
+                    break;
+                case "submesh":
+                    this.inSubmesh = true;
+                    this.usesSharedVertices = "true".equals(reader.getAttributeValue(null, "usesharedvertices"));
+                    this.submeshBase = -1;
+                    this.submeshFaces.clear();
+                    this.submeshAssignments.clear();
+                    this.submeshWeights.clear();
+                    break;
+                case "vertex":
+                    this.texcoordRead = false;
+                    break;
+                case "position":
+                    this.positions.add(floatAttribute(reader, "x", 0.0f), floatAttribute(reader, "y", 0.0f),
+                            floatAttribute(reader, "z", 0.0f));
+                    break;
+                case "normal":
+                    this.hasNormals = true;
+                    this.normals.add(floatAttribute(reader, "x", 0.0f), floatAttribute(reader, "y", 0.0f),
+                            floatAttribute(reader, "z", 0.0f));
+                    break;
+                case "texcoord":
+                    if (!this.texcoordRead) {
+                        this.hasTexcoords = true;
+                        this.texcoordRead = true;
+                        this.texcoords.add(floatAttribute(reader, "u", 0.0f), floatAttribute(reader, "v", 0.0f));
+                    }
+                    break;
+                case "face":
+                    this.submeshFaces.add(intAttribute(reader, "v1"));
+                    this.submeshFaces.add(intAttribute(reader, "v2"));
+                    this.submeshFaces.add(intAttribute(reader, "v3"));
+                    break;
+                case "vertexboneassignment":
+                    final IntArrayList assignments = this.inSubmesh ? this.submeshAssignments :
+                            this.sharedAssignments;
+                    assignments.add(intAttribute(reader, "vertexindex"));
+                    assignments.add(intAttribute(reader, "boneindex"));
+                    (this.inSubmesh ? this.submeshWeights : this.sharedWeights).add(
+                            floatAttribute(reader, "weight", 1.0f));
+                    break;
+                case "skeletonlink":
+                    this.skeletonLink = stringAttribute(reader, "name");
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String name) throws IOException {
+            switch (name) {
+                case "sharedgeometry":
+                case "geometry":
+                    //  Attributes missing from the geometry are filled with zeros, to keep the streams aligned.
+                    while (this.normals.size() < this.positions.size()) {
+                        this.normals.add(0.0f);
+                    }
+                    while (this.texcoords.size() / 2 < this.getVertexCount()) {
+                        this.texcoords.add(0.0f, 0.0f);
+                    }
+                    break;
+                case "submesh":
+                    final int base = this.usesSharedVertices ? this.sharedBase : this.submeshBase;
+                    if (base == -1) {
+                        throw new IOException("Submesh " + this.submeshCount + " has no geometry");
+                    }
+                    for (int i = 0; i < this.submeshFaces.size(); i++) {
+                        this.triangles.add(base + this.submeshFaces.get(i));
+                    }
+                    this.addAssignments(this.submeshAssignments, this.submeshWeights, base);
+                    this.inSubmesh = false;
+                    this.submeshCount++;
+                    break;
+            }
+        }
+
+        private void addAssignments(final IntArrayList assignments, final FloatArrayList weights, int base) {
+            for (int i = 0; i < weights.size(); i++) {
+                this.assignmentVertices.add(base + assignments.get(i * 2));
+                this.assignmentBones.add(assignments.get(i * 2 + 1));
+                this.assignmentWeights.add(weights.get(i));
+            }
+        }
+
+        private Mesh buildMesh() throws IOException {
+            if (this.submeshCount == 0) {
+                throw new IOException("No submeshes in the file");
+            }
+            if (this.sharedBase != -1) {
+                this.addAssignments(this.sharedAssignments, this.sharedWeights, this.sharedBase);
+            }
+
+            final Mesh mesh = new Mesh();
+            final int vertexCount = this.getVertexCount();
+            for (int i = 0; i < vertexCount; i++) {
+                mesh.getVertices().add(new Vector3f(this.positions.get(i * 3), this.positions.get(i * 3 + 1),
+                        this.positions.get(i * 3 + 2)));
+                if (this.hasNormals) {
+                    mesh.getNormals().add(new Vector3f(this.normals.get(i * 3), this.normals.get(i * 3 + 1),
+                            this.normals.get(i * 3 + 2)));
+                }
+                if (this.hasTexcoords) {
+                    mesh.getTexcoords().add(new Vector2f(this.texcoords.get(i * 2), this.texcoords.get(i * 2 + 1)));
+                }
+            }
+            for (int i = 0; i < this.triangles.size(); i++) {
+                final int index = this.triangles.get(i);
+                if (index < 0 || index >= vertexCount) {
+                    throw new IOException("Face refers to an invalid vertex " + index);
+                }
+                mesh.getTriangles().add(index);
+            }
+            return mesh;
+        }
+    }
+
+    /**
+     * Reads the skeleton and the animations into the mesh.
+     */
+    private static final class SkeletonReader implements ElementHandler {
+        private final Mesh mesh;
+        private final Map<String, Bone> bonesByName = new HashMap<>();
+        private final List<Bone> bonesById = new ArrayList<>();
+        private final AxisAngle4f axisAngle = new AxisAngle4f();
+        private int hierarchyEntries;
+
+        private Bone currentBone;
+        private Animation currentAnimation;
+        private AnimationTrack currentTrack;
+        private float keyframeTime;
+        private final Vector3f keyframeTranslation = new Vector3f();
+        private final Quaternionf keyframeRotation = new Quaternionf();
+        private boolean inKeyframe;
+        private float angle;
+
+        private SkeletonReader(Mesh mesh) {
+            this.mesh = mesh;
+        }
+
+        private Bone getBone(final String name, final String role) throws IOException {
+            final Bone bone = this.bonesByName.get(name);
+            if (bone == null) {
+                throw new IOException("Missing " + role + " " + name);
+            }
+            return bone;
+        }
+
+        private void setRotation(final XMLStreamReader reader, final Quaternionf out) throws IOException {
+            //  Same conversion as in OgreXMLImporter, so that both importers produce the same rotations.
+            this.axisAngle.set(this.angle, floatAttribute(reader, "x", 0.0f), floatAttribute(reader, "y", 0.0f),
+                    floatAttribute(reader, "z", 0.0f));
+            out.set(this.axisAngle.normalize());
+        }
+
+        @Override
+        public void startElement(String name, XMLStreamReader reader) throws IOException {
+            switch (name) {
+                case "bone":
+                    if (this.currentAnimation == null && reader.getAttributeValue(null, "id") != null) {
+                        final int id = intAttribute(reader, "id");
+                        if (id < 0) {
+                            throw new IOException("Invalid bone id " + id);
+                        }
+                        this.currentBone = new Bone(stringAttribute(reader, "name"), id);
+                        this.bonesByName.put(this.currentBone.getName(), this.currentBone);
+                        while (this.bonesById.size() <= id) {
+                            this.bonesById.add(null);
+                        }
+                        this.bonesById.set(id, this.currentBone);
+                        this.mesh.getSkeleton().getBones().add(this.currentBone);
+                    }
+                    break;
+                case "position":
+                    if (this.currentBone != null) {
+                        this.currentBone.getBindPosition().set(floatAttribute(reader, "x", 0.0f),
+                                floatAttribute(reader, "y", 0.0f), floatAttribute(reader, "z", 0.0f));
+                    }
+                    break;
+                case "rotation":
+                case "rotate":
+                    this.angle = floatAttribute(reader, "angle", 0.0f);
+                    break;
+                case "axis":
+                    if (this.inKeyframe) {
+                        this.setRotation(reader, this.keyframeRotation);
+                    } else if (this.currentBone != null) {
+                        this.setRotation(reader, this.currentBone.getBindRotation());
+                    }
+                    break;
+                case "scale":
+                    if (this.currentBone != null) {
+                        this.currentBone.getBindScale().set(floatAttribute(reader, "x", 1.0f),
+                                floatAttribute(reader, "y", 1.0f), floatAttribute(reader, "z", 1.0f));
+                    }
+                    break;
+                case "boneparent":
+                    final Bone bone = this.getBone(stringAttribute(reader, "bone"), "bone");
+                    final Bone parent = this.getBone(stringAttribute(reader, "parent"), "parent bone");
+                    if (bone.getParent() != null) {
+                        throw new IOException("Bone " + bone.getName() + " has multiple parents");
+                    }
+                    bone.setParent(parent);
+                    parent.getChildren().add(bone);
+                    this.hierarchyEntries++;
+                    break;
+                case "animation":
+                    this.currentAnimation = new Animation(stringAttribute(reader, "name"),
+                            floatAttribute(reader, "length", 0.0f));
+                    break;
+                case "track":
+                    if (this.currentAnimation != null) {
+                        this.currentTrack = new AnimationTrack(this.getBone(stringAttribute(reader, "bone"),
+                                "animation bone"));
+                    }
+                    break;
+                case "keyframe":
+                    this.inKeyframe = true;
+                    this.keyframeTime = floatAttribute(reader, "time", 0.0f);
+                    this.keyframeTranslation.zero();
+                    this.keyframeRotation.identity();
+                    break;
+                case "translate":
+                    this.keyframeTranslation.set(floatAttribute(reader, "x", 0.0f), floatAttribute(reader, "y", 0.0f),
+                            floatAttribute(reader, "z", 0.0f));
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String name) throws IOException {
+            switch (name) {
+                case "bone":
+                    this.currentBone = null;
+                    break;
+                case "keyframe":
+                    if (this.currentTrack != null) {
+                        this.currentTrack.getKeyframes().add(new AnimationKeyframe(this.keyframeTime,
+                                new Vector3f(this.keyframeTranslation), new Quaternionf(this.keyframeRotation)));
+                    }
+                    this.inKeyframe = false;
+                    break;
+                case "track":
+                    if (this.currentTrack != null) {
+                        this.currentAnimation.setFrameCount(Math.max(this.currentAnimation.getFrameCount(),
+                                this.currentTrack.getKeyframeCount()));
+                        this.currentAnimation.getTracks().add(this.currentTrack);
+                        this.currentTrack = null;
+                    }
+                    break;
+                case "animation":
+                    this.mesh.getAnimations().add(this.currentAnimation);
+                    this.currentAnimation = null;
+                    break;
+            }
+        }
+
+        private void finish(final MeshReader meshReader) throws IOException {
+            if (this.mesh.getSkeleton().getBones().size() - this.hierarchyEntries > 1) {
+                throw new IOException("Multiple roots not supported");
+            }
+
+            //  Distribute the bone assignments. Assignments to bones which aren't in the skeleton are ignored.
+            for (int i = 0; i < meshReader.assignmentWeights.size(); i++) {
+                final int boneId = meshReader.assignmentBones.get(i);
+                final Bone bone = boneId >= 0 && boneId < this.bonesById.size() ? this.bonesById.get(boneId) : null;
+                if (bone != null) {
+                    bone.addVertexWeight(meshReader.assignmentVertices.get(i), meshReader.assignmentWeights.get(i));
+                }
+            }
+
+            //  Now that the skeleton is fully processed, calculate the bind matrices and arrange the bones.
+            this.mesh.getSkeleton().calculateBindMatrices();
+            this.mesh.getSkeleton().arrangeBones();
+            this.mesh.createBoneTracks();
+        }
+    }
+}
@@ -17,13 +17,14 @@ import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL20;
 import pl.pateman.core.TempVars;
 import pl.pateman.core.Utils;
+import pl.pateman.core.culling.EntityCuller;
 import pl.pateman.core.entity.*;
 import pl.pateman.core.entity.mesh.MeshRenderer;
 import pl.pateman.core.mesh.Mesh;
 import pl.pateman.core.physics.raycast.PhysicsRaycastResult;
 import pl.pateman.core.shader.Program;
 import pl.pateman.core.shader.Shader;
-import pl.pateman.importer.json.JSONImporter;
+import pl.pateman.importer.json.JSONStreamingImporter;
 
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -58,6 +59,7 @@ public class JBulletHelloWorld {
     private boolean drawDebug;
 
     private JBulletHelloWorldScene scene;
+    private EntityCuller entityCuller;
 
     private void run() {
         try {
@@ -213,8 +215,14 @@ public class JBulletHelloWorld {
     }
 
     private void renderScene() {
+        this.entityCuller.cull(this.camera);
+
         final TempVars tempVars = TempVars.get();
         for (final AbstractEntity meshEntity : this.scene) {
+            if (!this.entityCuller.isVisible((MeshEntity) meshEntity)) {
+                continue;
+            }
+
             //  Prepare the model-view matrix.
             final Matrix4f modelViewMatrix = this.camera.getViewMatrix().mul(meshEntity.getTransformation(),
                     tempVars.tempMat4x41);
@@ -329,7 +337,7 @@ public class JBulletHelloWorld {
             this.setEntityLightingParams(ground, new Vector4f(0.8f, 0.8f, 0.8f, 1.0f));
 
             //  A banana mesh :)
-            final MeshEntity bananaMesh = new JSONImporter().load("banana.json");
+            final MeshEntity bananaMesh = new JSONStreamingImporter().load("banana.json");
             bananaMesh.setName(BANANA_ENTITY_NAME);
             bananaMesh.setScale(new Vector3f(15.0f, 15.0f, 15.0f));
             bananaMesh.setTranslation(new Vector3f(0.0f, 8.0f, 0.0f));
@@ -405,6 +413,12 @@ public class JBulletHelloWorld {
             this.camera.rotate(0.0f, (float) Math.toRadians(35.0f), 0.0f);
             this.camera.getCameraProjection().setViewport(WINDOW_WIDTH, WINDOW_HEIGHT);
             this.camera.updateProjectionMatrix();
+
+            //  Register all entities for frustum culling.
+            this.entityCuller = new EntityCuller();
+            for (final AbstractEntity entity : this.scene) {
+                this.entityCuller.addEntity((MeshEntity) entity);
+            }
         } catch (Exception ex) {
             throw new RuntimeException(ex);
         }
@@ -96,6 +96,10 @@ public final class JBulletHelloWorldScene implements Iterable<AbstractEntity>, C
     }
 
     public void updateScene(float deltaTime) {
+        //  Push all transformation changes made since the last frame to jBullet at once.
+        for (final String physicsBody : this.physicsBodies) {
+            this.entities.get(physicsBody).synchronizeRigidBody();
+        }
         this.dynamicsWorld.stepSimulation(deltaTime, 10);
 
         final TempVars tempVars = TempVars.get();
@@ -0,0 +1,254 @@
+package pl.pateman.my3dsmaxexporterclient;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static pl.pateman.my3dsmaxexporterclient.Constants.*;
+
+/**
+ * Reads commands of the exporter's binary protocol from a stream. Bulk frames are exposed as a series of single
+ * commands, so command handlers don't need to know which protocol is used. Parameters are read straight from the
+ * frame's payload when they're requested.
+ *
+ * Created by pateman.
+ */
+public final class BinaryCommandDecoder implements CommandReader {
+    private static final int HEADER_SIZE = 5;
+
+    private final InputStream input;
+    private final OutputStream log;
+    private byte[] frame = new byte[4096];
+    private ByteBuffer frameBuffer = ByteBuffer.wrap(this.frame).order(ByteOrder.LITTLE_ENDIAN);
+    private int opcode;
+    private int frameLength;
+    private int commandId = UNKNOWN_COMMAND_ID;
+    private String layout = "";
+    private boolean stringParameter;
+    private int stringLength;
+    private int commandOffset;
+    private int commandSize;
+    private int remainingCommands;
+    private long commandCount;
+
+    /**
+     * Creates a decoder and reads the header of the stream.
+     *
+     * @param input Stream of commands.
+     * @param log Stream which every frame is copied to, or {@code null}.
+     * @throws IOException If the stream doesn't start with a header of the supported version.
+     */
+    public BinaryCommandDecoder(final InputStream input, final OutputStream log) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException("Input stream cannot be null");
+        }
+        this.input = input;
+        this.log = log;
+
+        final int headerSize = BINARY_MAGIC.length + 4;
+        if (!this.readFully(0, headerSize, true)) {
+            throw new EOFException("The command stream is empty");
+        }
+        for (int i = 0; i < BINARY_MAGIC.length; i++) {
+            if (this.frame[i] != BINARY_MAGIC[i]) {
+                throw new IOException("Not a binary command stream");
+            }
+        }
+        final int version = this.frameBuffer.getInt(BINARY_MAGIC.length);
+        if (version != BINARY_VERSION) {
+            throw new IOException("Unsupported binary protocol version " + version);
+        }
+        if (this.log != null) {
+            this.log.write(this.frame, 0, headerSize);
+        }
+    }
+
+    private boolean readFully(int offset, int length, boolean allowEndOfStream) throws IOException {
+        int read = 0;
+        while (read < length) {
+            final int count = this.input.read(this.frame, offset + read, length - read);
+            if (count < 0) {
+                if (read == 0 && allowEndOfStream) {
+                    return false;
+                }
+                throw new EOFException("The command stream has ended in the middle of a frame");
+            }
+            read += count;
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int size) {
+        if (this.frame.length < size) {
+            final byte[] newFrame = new byte[Math.max(size, this.frame.length * 2)];
+            System.arraycopy(this.frame, 0, newFrame, 0, HEADER_SIZE);
+            this.frame = newFrame;
+            this.frameBuffer = ByteBuffer.wrap(this.frame).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private static boolean isBulkLayout(final String layout) {
+        return !layout.isEmpty() && layout.indexOf('s') < 0;
+    }
+
+    private void readFrame() throws IOException {
+        this.opcode = this.frame[0] & 0xFF;
+        this.frameLength = this.frameBuffer.getInt(1);
+        if (this.frameLength < 0 || this.frameLength > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid length " + this.frameLength + " of frame " + this.opcode);
+        }
+        this.ensureCapacity(HEADER_SIZE + this.frameLength);
+        this.readFully(HEADER_SIZE, this.frameLength, false);
+        if (this.log != null) {
+            this.log.write(this.frame, 0, HEADER_SIZE + this.frameLength);
+        }
+    }
+
+    private void prepareCommands() throws IOException {
+        final boolean bulk = (this.opcode & BULK_FRAME_FLAG) != 0;
+        final int id = this.opcode & ~BULK_FRAME_FLAG;
+        if (id >= COMMAND_LAYOUTS.length || (bulk && !isBulkLayout(COMMAND_LAYOUTS[id]))) {
+            //  Frames of unknown commands are skipped, just like unknown text commands.
+            this.commandId = UNKNOWN_COMMAND_ID;
+            this.layout = "";
+            this.stringParameter = false;
+            this.remainingCommands = 1;
+            return;
+        }
+
+        this.commandId = id;
+        this.layout = COMMAND_LAYOUTS[id];
+        this.stringParameter = !this.layout.isEmpty() && this.layout.charAt(0) == 's';
+        this.commandOffset = HEADER_SIZE;
+        if (bulk) {
+            this.commandSize = 4 * this.layout.length();
+            this.remainingCommands = this.frameLength >= 4 ? this.frameBuffer.getInt(HEADER_SIZE) : -1;
+            this.commandOffset += 4;
+            if (this.remainingCommands < 0 ||
+                    this.frameLength - 4 != (long) this.remainingCommands * this.commandSize) {
+                throw new IOException("Invalid bulk frame of " + COMMAND_NAMES[id]);
+            }
+            this.commandOffset -= this.commandSize;
+            return;
+        }
+
+        this.stringLength = 0;
+        int expectedLength = 4 * this.layout.length();
+        if (this.stringParameter) {
+            if (this.frameLength < 2) {
+                throw new IOException("Invalid frame of " + COMMAND_NAMES[id]);
+            }
+            this.stringLength = this.frameBuffer.getShort(HEADER_SIZE) & 0xFFFF;
+            expectedLength += this.stringLength - 2;
+        }
+        if (this.frameLength != expectedLength) {
+            throw new IOException("Invalid frame of " + COMMAND_NAMES[id]);
+        }
+        this.commandSize = this.frameLength;
+        this.commandOffset -= this.commandSize;
+        this.remainingCommands = 1;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (this.remainingCommands == 0) {
+            if (!this.readFully(0, HEADER_SIZE, true)) {
+                this.commandId = UNKNOWN_COMMAND_ID;
+                this.layout = "";
+                return false;
+            }
+            this.readFrame();
+            this.prepareCommands();
+        }
+
+        this.remainingCommands--;
+        this.commandOffset += this.commandSize;
+        this.commandCount++;
+        return true;
+    }
+
+    private char getType(int index) {
+        if (index < 1 || index > this.layout.length()) {
+            throw new IndexOutOfBoundsException("Command '" + this.getLine() + "' has no parameter " + index);
+        }
+        return this.layout.charAt(index - 1);
+    }
+
+    private int getOffset(int index) {
+        //  Every parameter after the string takes 4 bytes.
+        int offset = this.commandOffset + 4 * (index - 1);
+        if (this.stringParameter && index > 1) {
+            offset += this.stringLength - 2;
+        }
+        return offset;
+    }
+
+    @Override
+    public int getCommandId() {
+        return commandId;
+    }
+
+    @Override
+    public int getParameterCount() {
+        return this.layout.length() + 1;
+    }
+
+    @Override
+    public String getString(int index) {
+        if (index == 0) {
+            return this.commandId == UNKNOWN_COMMAND_ID ? "#" + this.opcode : COMMAND_NAMES[this.commandId];
+        }
+
+        switch (this.getType(index)) {
+            case 's':
+                return new String(this.frame, this.commandOffset + 2, this.stringLength, StandardCharsets.UTF_8);
+            case 'i':
+                return Integer.toString(this.getInt(index));
+            default:
+                return Float.toString(this.getFloat(index));
+        }
+    }
+
+    @Override
+    public int getInt(int index) {
+        switch (this.getType(index)) {
+            case 'i':
+                return this.frameBuffer.getInt(this.getOffset(index));
+            case 's':
+                return Integer.parseInt(this.getString(index));
+            default:
+                throw new NumberFormatException("Parameter " + index + " of command '" + this.getLine() +
+                        "' is not an integer");
+        }
+    }
+
+    @Override
+    public float getFloat(int index) {
+        switch (this.getType(index)) {
+            case 'f':
+                return this.frameBuffer.getFloat(this.getOffset(index));
+            case 'i':
+                return this.frameBuffer.getInt(this.getOffset(index));
+            default:
+                return Float.parseFloat(this.getString(index));
+        }
+    }
+
+    @Override
+    public String getLine() {
+        final StringBuilder line = new StringBuilder(this.getString(0));
+        for (int i = 1; i <= this.layout.length(); i++) {
+            line.append(' ').append(this.getString(i));
+        }
+        return line.toString();
+    }
+
+    @Override
+    public long getCommandCount() {
+        return commandCount;
+    }
+}
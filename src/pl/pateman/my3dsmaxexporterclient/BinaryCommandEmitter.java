@@ -0,0 +1,169 @@
+package pl.pateman.my3dsmaxexporterclient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static pl.pateman.my3dsmaxexporterclient.Constants.*;
+
+/**
+ * Reference writer of the exporter's binary protocol, e.g. for converting captured text sessions and for testing.
+ * Commands which can be sent in bulk are gathered per type and written in bulk frames as soon as any other command
+ * arrives, or once a frame reaches {@code MAX_BULK_COMMANDS}. Either way, all gathered frames are written, in the order
+ * in which their types first arrived, so a command never gets ahead of a command of another type that arrived before
+ * its frame was started (e.g. keyframes never get ahead of their {@code BEGIN_TRACK}). Commands of different types that
+ * arrive interleaved, like the vertices, normals and texture coordinates of consecutive vertices, do get reordered,
+ * which the receiver doesn't mind, as it keeps them in separate lists.
+ *
+ * Created by pateman.
+ */
+public final class BinaryCommandEmitter implements Closeable {
+    public static final int MAX_BULK_COMMANDS = 16384;
+
+    private final OutputStream output;
+    private final ByteBuffer[] bulkFrames = new ByteBuffer[COMMAND_LAYOUTS.length];
+    private final int[] bulkCounts = new int[COMMAND_LAYOUTS.length];
+    private final int[] pendingTypes = new int[COMMAND_LAYOUTS.length];
+    private int pendingTypeCount;
+    private ByteBuffer frame = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Creates an emitter and writes the header of the stream.
+     *
+     * @param output Stream to write to.
+     * @throws IOException If the header can't be written.
+     */
+    public BinaryCommandEmitter(final OutputStream output) throws IOException {
+        if (output == null) {
+            throw new IllegalArgumentException("Output stream cannot be null");
+        }
+        this.output = output;
+
+        final ByteBuffer header = ByteBuffer.allocate(BINARY_MAGIC.length + 4).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(BINARY_MAGIC).putInt(BINARY_VERSION);
+        this.output.write(header.array());
+    }
+
+    private static boolean isBulkLayout(final String layout) {
+        return !layout.isEmpty() && layout.indexOf('s') < 0;
+    }
+
+    private static ByteBuffer ensureRemaining(final ByteBuffer buffer, int size) {
+        if (buffer.remaining() >= size) {
+            return buffer;
+        }
+        final ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size)).
+                order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        return newBuffer.put(buffer);
+    }
+
+    private static void putParameters(final ByteBuffer buffer, final String layout, final CommandParameters command) {
+        for (int i = 0; i < layout.length(); i++) {
+            switch (layout.charAt(i)) {
+                case 's':
+                    final byte[] string = command.getString(i + 1).getBytes(StandardCharsets.UTF_8);
+                    if (string.length > 0xFFFF) {
+                        throw new IllegalArgumentException("String parameter is too long");
+                    }
+                    buffer.putShort((short) string.length).put(string);
+                    break;
+                case 'i':
+                    buffer.putInt(command.getInt(i + 1));
+                    break;
+                default:
+                    buffer.putFloat(command.getFloat(i + 1));
+                    break;
+            }
+        }
+    }
+
+    private static int getPayloadSize(final String layout, final CommandParameters command) {
+        int size = 4 * layout.length();
+        if (!layout.isEmpty() && layout.charAt(0) == 's') {
+            size += command.getString(1).getBytes(StandardCharsets.UTF_8).length - 2;
+        }
+        return size;
+    }
+
+    private void writeBulkFrame(int commandId) throws IOException {
+        final ByteBuffer bulkFrame = this.bulkFrames[commandId];
+        bulkFrame.put(0, (byte) (commandId | BULK_FRAME_FLAG)).putInt(1, bulkFrame.position() - 5).
+                putInt(5, this.bulkCounts[commandId]);
+        this.output.write(bulkFrame.array(), 0, bulkFrame.position());
+
+        bulkFrame.position(9);
+        this.bulkCounts[commandId] = 0;
+    }
+
+    private void flushBulkFrames() throws IOException {
+        for (int i = 0; i < this.pendingTypeCount; i++) {
+            this.writeBulkFrame(this.pendingTypes[i]);
+        }
+        this.pendingTypeCount = 0;
+    }
+
+    /**
+     * Writes the given command.
+     *
+     * @param command Command, e.g. one read by {@code CommandTokenizer}.
+     * @throws IOException If the command can't be written.
+     */
+    public void writeCommand(final CommandParameters command) throws IOException {
+        final int commandId = command.getCommandId();
+        if (commandId < 0 || commandId >= COMMAND_LAYOUTS.length) {
+            throw new IllegalArgumentException("Unknown command " + command.getString(0));
+        }
+
+        final String layout = COMMAND_LAYOUTS[commandId];
+        if (isBulkLayout(layout)) {
+            ByteBuffer bulkFrame = this.bulkFrames[commandId];
+            if (bulkFrame == null) {
+                bulkFrame = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+                bulkFrame.position(9);
+            }
+            bulkFrame = ensureRemaining(bulkFrame, 4 * layout.length());
+            putParameters(bulkFrame, layout, command);
+            this.bulkFrames[commandId] = bulkFrame;
+            if (this.bulkCounts[commandId] == 0) {
+                this.pendingTypes[this.pendingTypeCount++] = commandId;
+            }
+
+            //  Writing only the full frame could put it ahead of the frames that it depends on.
+            if (++this.bulkCounts[commandId] == MAX_BULK_COMMANDS) {
+                this.flushBulkFrames();
+            }
+            return;
+        }
+
+        this.flushBulkFrames();
+        final int payloadSize = getPayloadSize(layout, command);
+        this.frame.clear();
+        this.frame = ensureRemaining(this.frame, 5 + payloadSize);
+        this.frame.put((byte) commandId).putInt(payloadSize);
+        putParameters(this.frame, layout, command);
+        this.output.write(this.frame.array(), 0, this.frame.position());
+    }
+
+    /**
+     * Writes the gathered commands and flushes the stream.
+     *
+     * @throws IOException If the stream can't be written.
+     */
+    public void flush() throws IOException {
+        this.flushBulkFrames();
+        this.output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.flush();
+        } finally {
+            this.output.close();
+        }
+    }
+}
@@ -12,14 +12,16 @@ import java.util.Map;
  */
 public final class CommandContext {
     public Mesh mesh;
-    public String[] commandParameters;
+    public CommandParameters commandParameters;
     public String outputFile;
     public final Map<String, Object> stateVariables;
     public final Map<String, NodeData> nodes;
+    public final SkeletonBuilder skeletonBuilder;
 
     public CommandContext() {
         this.stateVariables = new HashMap<>();
         this.nodes = new HashMap<>();
+        this.skeletonBuilder = new SkeletonBuilder();
     }
 
     public static class NodeData {
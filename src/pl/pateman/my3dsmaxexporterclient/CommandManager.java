@@ -1,20 +1,39 @@
 package pl.pateman.my3dsmaxexporterclient;
 
-import java.util.HashMap;
-import java.util.Map;
+import static pl.pateman.my3dsmaxexporterclient.Constants.COMMAND_NAMES;
+import static pl.pateman.my3dsmaxexporterclient.Constants.UNKNOWN_COMMAND_ID;
 
 /**
  * Created by pateman.
  */
 public final class CommandManager {
-    private final Map<String, ClientCommand> commands;
+    private final ClientCommand[] commands;
 
     public CommandManager() {
-        this.commands = new HashMap<>();
+        this.commands = new ClientCommand[COMMAND_NAMES.length];
+    }
+
+    /**
+     * Returns the identifier of the given command.
+     *
+     * @param commandName Name of the command.
+     * @return Identifier of the command, or {@code UNKNOWN_COMMAND_ID} if the command doesn't exist.
+     */
+    public static int getCommandId(final String commandName) {
+        for (int i = 0; i < COMMAND_NAMES.length; i++) {
+            if (COMMAND_NAMES[i].equals(commandName)) {
+                return i;
+            }
+        }
+        return UNKNOWN_COMMAND_ID;
     }
 
     public void registerCommandHandler(final String commandName, final ClientCommand command) {
-        this.commands.put(commandName, command);
+        final int commandId = getCommandId(commandName);
+        if (commandId == UNKNOWN_COMMAND_ID) {
+            throw new IllegalArgumentException("Unknown command " + commandName);
+        }
+        this.commands[commandId] = command;
     }
 
     public void registerCommandHandler(final ClientCommand command, final String... commandNames) {
@@ -23,7 +42,14 @@ public final class CommandManager {
         }
     }
 
+    public ClientCommand getCommandHandler(int commandId) {
+        if (commandId < 0 || commandId >= this.commands.length) {
+            return null;
+        }
+        return this.commands[commandId];
+    }
+
     public ClientCommand getCommandHandler(final String commandName) {
-        return this.commands.get(commandName);
+        return this.getCommandHandler(getCommandId(commandName));
     }
 }
@@ -0,0 +1,24 @@
+package pl.pateman.my3dsmaxexporterclient;
+
+/**
+ * The command which is currently being executed, together with its parameters. Parameter 0 is the name of the command,
+ * so the indices match the tokens of the text protocol's command line.
+ *
+ * Created by pateman.
+ */
+public interface CommandParameters {
+    /**
+     * Returns the identifier of the command.
+     *
+     * @return One of the command identifiers from {@code Constants}, or {@code UNKNOWN_COMMAND_ID}.
+     */
+    int getCommandId();
+
+    int getParameterCount();
+
+    String getString(int index);
+
+    int getInt(int index);
+
+    float getFloat(int index);
+}
@@ -0,0 +1,27 @@
+package pl.pateman.my3dsmaxexporterclient;
+
+import java.io.IOException;
+
+/**
+ * Source of commands, which exposes the current command's parameters.
+ *
+ * Created by pateman.
+ */
+public interface CommandReader extends CommandParameters {
+    /**
+     * Reads the next command. Parameters of the previous command become invalid.
+     *
+     * @return {@code false} if the stream has ended.
+     * @throws IOException If the stream can't be read or is malformed.
+     */
+    boolean next() throws IOException;
+
+    /**
+     * Returns the current command as a line of the text protocol, e.g. for error messages.
+     *
+     * @return Command line.
+     */
+    String getLine();
+
+    long getCommandCount();
+}
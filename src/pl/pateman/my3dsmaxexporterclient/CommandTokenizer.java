@@ -0,0 +1,340 @@
+package pl.pateman.my3dsmaxexporterclient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static pl.pateman.my3dsmaxexporterclient.Constants.COMMAND_NAMES;
+import static pl.pateman.my3dsmaxexporterclient.Constants.UNKNOWN_COMMAND_ID;
+
+/**
+ * Reads commands of the exporter's text protocol from a stream. Every command is a line of tokens separated by
+ * whitespace. Lines are split in the read buffer and parameters are parsed from the buffer only when they're
+ * requested, so reading a command doesn't create any strings.
+ *
+ * Created by pateman.
+ */
+public final class CommandTokenizer implements CommandReader {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final long MAX_FAST_MANTISSA = 1L << 24;
+    private static final int MAX_FAST_EXPONENT = 10;
+    private static final float[] POWERS_OF_TEN = {
+            1.0e0f, 1.0e1f, 1.0e2f, 1.0e3f, 1.0e4f, 1.0e5f, 1.0e6f, 1.0e7f, 1.0e8f, 1.0e9f, 1.0e10f
+    };
+    private static final byte[][] COMMAND_BYTES = new byte[COMMAND_NAMES.length][];
+
+    static {
+        for (int i = 0; i < COMMAND_NAMES.length; i++) {
+            COMMAND_BYTES[i] = COMMAND_NAMES[i].getBytes(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private final InputStream input;
+    private final OutputStream log;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfStream;
+    private int lineStart;
+    private int lineEnd;
+    private int[] tokenStarts = new int[16];
+    private int[] tokenEnds = new int[16];
+    private int tokenCount;
+    private int commandId = UNKNOWN_COMMAND_ID;
+    private long commandCount;
+
+    public CommandTokenizer(final InputStream input) {
+        this(input, null);
+    }
+
+    /**
+     * Creates a tokenizer.
+     *
+     * @param input Stream of commands.
+     * @param log Stream which every command line is copied to, or {@code null}.
+     */
+    public CommandTokenizer(final InputStream input, final OutputStream log) {
+        this(input, log, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CommandTokenizer(final InputStream input, final OutputStream log, int bufferSize) {
+        if (input == null) {
+            throw new IllegalArgumentException("Input stream cannot be null");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.input = input;
+        this.log = log;
+        this.buffer = new byte[bufferSize];
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private void fill() throws IOException {
+        //  Move the unread bytes to the beginning of the buffer, and grow it if a single line doesn't fit.
+        if (this.position > 0) {
+            System.arraycopy(this.buffer, this.position, this.buffer, 0, this.limit - this.position);
+            this.limit -= this.position;
+            this.position = 0;
+        }
+        if (this.limit == this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+        }
+
+        final int read = this.input.read(this.buffer, this.limit, this.buffer.length - this.limit);
+        if (read < 0) {
+            this.endOfStream = true;
+        } else {
+            this.limit += read;
+        }
+    }
+
+    private void addToken(int start, int end) {
+        if (this.tokenCount == this.tokenStarts.length) {
+            this.tokenStarts = Arrays.copyOf(this.tokenStarts, this.tokenCount * 2);
+            this.tokenEnds = Arrays.copyOf(this.tokenEnds, this.tokenCount * 2);
+        }
+        this.tokenStarts[this.tokenCount] = start;
+        this.tokenEnds[this.tokenCount] = end;
+        this.tokenCount++;
+    }
+
+    private void tokenize() {
+        this.tokenCount = 0;
+        int i = this.lineStart;
+        while (i < this.lineEnd) {
+            while (i < this.lineEnd && isSeparator(this.buffer[i])) {
+                i++;
+            }
+            final int start = i;
+            while (i < this.lineEnd && !isSeparator(this.buffer[i])) {
+                i++;
+            }
+            if (i > start) {
+                this.addToken(start, i);
+            }
+        }
+    }
+
+    private int findCommandId() {
+        final int start = this.tokenStarts[0];
+        final int length = this.tokenEnds[0] - start;
+        for (int i = 0; i < COMMAND_BYTES.length; i++) {
+            final byte[] name = COMMAND_BYTES[i];
+            if (name.length != length) {
+                continue;
+            }
+
+            int j = 0;
+            while (j < length && name[j] == this.buffer[start + j]) {
+                j++;
+            }
+            if (j == length) {
+                return i;
+            }
+        }
+        return UNKNOWN_COMMAND_ID;
+    }
+
+    /**
+     * Reads the next command. Empty lines are skipped.
+     */
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            int scan = this.position;
+            int nextLine;
+            while (true) {
+                while (scan < this.limit && this.buffer[scan] != '\n') {
+                    scan++;
+                }
+                if (scan < this.limit) {
+                    nextLine = scan + 1;
+                    break;
+                }
+                if (this.endOfStream) {
+                    if (this.position == this.limit) {
+                        this.tokenCount = 0;
+                        this.commandId = UNKNOWN_COMMAND_ID;
+                        return false;
+                    }
+                    nextLine = scan;
+                    break;
+                }
+
+                scan -= this.position;
+                this.fill();
+                scan += this.position;
+            }
+
+            this.lineStart = this.position;
+            this.lineEnd = scan;
+            if (this.lineEnd > this.lineStart && this.buffer[this.lineEnd - 1] == '\r') {
+                this.lineEnd--;
+            }
+            this.position = nextLine;
+
+            if (this.log != null) {
+                this.log.write(this.buffer, this.lineStart, this.lineEnd - this.lineStart);
+                this.log.write('\n');
+            }
+
+            this.tokenize();
+            if (this.tokenCount > 0) {
+                this.commandId = this.findCommandId();
+                this.commandCount++;
+                return true;
+            }
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= this.tokenCount) {
+            throw new IndexOutOfBoundsException("Command '" + this.getLine() + "' has no parameter " + index);
+        }
+    }
+
+    private String getToken(int start, int end) {
+        return new String(this.buffer, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    private NumberFormatException createNumberFormatException(int index) {
+        return new NumberFormatException("Invalid number '" + this.getString(index) + "' in command '" +
+                this.getLine() + "'");
+    }
+
+    @Override
+    public int getCommandId() {
+        return commandId;
+    }
+
+    @Override
+    public int getParameterCount() {
+        return tokenCount;
+    }
+
+    @Override
+    public String getString(int index) {
+        this.checkIndex(index);
+        return this.getToken(this.tokenStarts[index], this.tokenEnds[index]);
+    }
+
+    @Override
+    public int getInt(int index) {
+        this.checkIndex(index);
+        final int end = this.tokenEnds[index];
+        int i = this.tokenStarts[index];
+
+        final boolean negative = this.buffer[i] == '-';
+        if (negative || this.buffer[i] == '+') {
+            i++;
+        }
+        if (i == end) {
+            throw this.createNumberFormatException(index);
+        }
+
+        long value = 0L;
+        for (; i < end; i++) {
+            final byte b = this.buffer[i];
+            if (!isDigit(b)) {
+                throw this.createNumberFormatException(index);
+            }
+            value = value * 10L + (b - '0');
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw this.createNumberFormatException(index);
+            }
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw this.createNumberFormatException(index);
+        }
+        return (int) value;
+    }
+
+    @Override
+    public float getFloat(int index) {
+        this.checkIndex(index);
+        final int start = this.tokenStarts[index];
+        final int end = this.tokenEnds[index];
+        int i = start;
+
+        //  If the digits form an integer of at most 2^24 and the decimal exponent is at most 10 in magnitude, both the
+        //  integer and the power of ten are exact in a float. A single float multiplication or division of two exact
+        //  operands is rounded once, so the result matches Float.parseFloat. Going through a double instead would
+        //  round twice and could be off by one ulp. Everything else goes through Float.parseFloat.
+        final boolean negative = this.buffer[i] == '-';
+        if (negative || this.buffer[i] == '+') {
+            i++;
+        }
+
+        long mantissa = 0L;
+        int scale = 0;
+        boolean hasDigits = false;
+        boolean exact = true;
+        for (; i < end && isDigit(this.buffer[i]); i++) {
+            if (exact) {
+                mantissa = mantissa * 10L + (this.buffer[i] - '0');
+                exact = mantissa <= MAX_FAST_MANTISSA;
+            }
+            hasDigits = true;
+        }
+        if (i < end && this.buffer[i] == '.') {
+            for (i++; i < end && isDigit(this.buffer[i]); i++) {
+                if (exact) {
+                    mantissa = mantissa * 10L + (this.buffer[i] - '0');
+                    exact = mantissa <= MAX_FAST_MANTISSA;
+                    scale--;
+                }
+                hasDigits = true;
+            }
+        }
+        if (hasDigits && i < end && (this.buffer[i] == 'e' || this.buffer[i] == 'E')) {
+            i++;
+            final boolean negativeExponent = i < end && this.buffer[i] == '-';
+            if (i < end && (this.buffer[i] == '-' || this.buffer[i] == '+')) {
+                i++;
+            }
+            int exponent = 0;
+            final int exponentStart = i;
+            for (; i < end && isDigit(this.buffer[i]) && exponent < 1000; i++) {
+                exponent = exponent * 10 + (this.buffer[i] - '0');
+            }
+            if (i == exponentStart) {
+                hasDigits = false;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+
+        if (!hasDigits || i != end || !exact || scale < -MAX_FAST_EXPONENT || scale > MAX_FAST_EXPONENT) {
+            try {
+                return Float.parseFloat(this.getToken(start, end));
+            } catch (NumberFormatException e) {
+                throw this.createNumberFormatException(index);
+            }
+        }
+
+        final float value = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    @Override
+    public String getLine() {
+        return this.getToken(this.lineStart, this.lineEnd);
+    }
+
+    @Override
+    public long getCommandCount() {
+        return commandCount;
+    }
+}
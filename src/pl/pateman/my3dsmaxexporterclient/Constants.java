@@ -33,4 +33,41 @@ public interface Constants {
     String KEYFRAME = "KEYFRAME";
 
     String END = "END";
+
+    //  Numeric identifiers of the commands, used for dispatching them without comparing strings.
+    int BEGIN_NODE_ID = 0;
+    int FINISH_NODE_ID = 1;
+    int VERTEX_ID = 2;
+    int NORMAL_ID = 3;
+    int FACE_ID = 4;
+    int TEXCOORD_ID = 5;
+    int BONE_ID = 6;
+    int SKIN_ID = 7;
+    int BEGIN_ANIMATION_ID = 8;
+    int FINISH_ANIMATION_ID = 9;
+    int BEGIN_TRACK_ID = 10;
+    int FINISH_TRACK_ID = 11;
+    int KEYFRAME_ID = 12;
+    int END_ID = 13;
+    int UNKNOWN_COMMAND_ID = -1;
+
+    //  Names of the commands, indexed by their identifiers.
+    String[] COMMAND_NAMES = {BEGIN_NODE, FINISH_NODE, VERTEX, NORMAL, FACE, TEXCOORD, BONE, SKIN, BEGIN_ANIMATION,
+            FINISH_ANIMATION, BEGIN_TRACK, FINISH_TRACK, KEYFRAME, END};
+
+    //  Parameters of the commands, indexed by their identifiers: 's' - string, 'i' - integer, 'f' - float. A string
+    //  can only be the first parameter.
+    String[] COMMAND_LAYOUTS = {"siiffffffffff", "", "fff", "fff", "iii", "ff", "siiffffffffff", "iifififif", "siif",
+            "", "i", "", "fffffffffff", ""};
+
+    //  Binary protocol. The stream starts with BINARY_MAGIC and the protocol version (int), followed by frames. A frame
+    //  is an opcode (byte), the length of the payload in bytes (int) and the payload. The opcode of a single command is
+    //  its identifier, and its payload holds the parameters laid out as in COMMAND_LAYOUTS. Commands without a string
+    //  parameter can also be sent in bulk, with the opcode being the identifier combined with BULK_FRAME_FLAG, and the
+    //  payload being the number of commands (int) followed by their parameters. Numbers are little-endian 32-bit
+    //  values, strings are UTF-8 prefixed with their length in bytes (unsigned short).
+    byte[] BINARY_MAGIC = {0, 'M', 'X', 'B'};
+    int BINARY_VERSION = 1;
+    int BULK_FRAME_FLAG = 0x40;
+    int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
 }
@@ -2,14 +2,22 @@ package pl.pateman.my3dsmaxexporterclient;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
 import pl.pateman.my3dsmaxexporterclient.command.*;
 import pl.pateman.my3dsmaxexporterclient.serializer.AnimationTrackSerializer;
 import pl.pateman.my3dsmaxexporterclient.serializer.BoneSerializer;
+import pl.pateman.my3dsmaxexporterclient.serializer.MeshSerializer;
+import pl.pateman.my3dsmaxexporterclient.serializer.NodeDataSerializer;
+import pl.pateman.my3dsmaxexporterclient.serializer.NodeDataWriter;
 import pl.pateman.core.mesh.AnimationTrack;
 import pl.pateman.core.mesh.Bone;
+import pl.pateman.core.mesh.Mesh;
+import pl.pateman.importer.json.JSONFormat;
 
-import java.io.PrintWriter;
-import java.io.RandomAccessFile;
+import java.io.*;
+import java.lang.reflect.Type;
+import java.util.Map;
 
 import static pl.pateman.my3dsmaxexporterclient.Constants.*;
 
@@ -18,6 +26,7 @@ import static pl.pateman.my3dsmaxexporterclient.Constants.*;
  */
 public class My3dsMaxExporterClient {
     private static final CommandManager commandManager = new CommandManager();
+    private static final Type NODES_TYPE = new TypeToken<Map<String, CommandContext.NodeData>>(){}.getType();
 
     static {
         commandManager.registerCommandHandler(BEGIN_NODE, new BeginNodeCommand());
@@ -29,54 +38,150 @@ public class My3dsMaxExporterClient {
         commandManager.registerCommandHandler(FINISH_ANIMATION, new FinishAnimationCommand());
     }
 
-    public static void main(String[] args) {
-        final StringBuilder commandLog = new StringBuilder();
-        try (final RandomAccessFile pipe = new RandomAccessFile("\\\\.\\pipe\\" + args[0], "r")) {
-            //  Create an instance of the context.
-            final CommandContext commandContext = new CommandContext();
-            commandContext.outputFile = args[1];
-
-            while (true) {
-                //  Read a command from the pipe.
-                final String commandLine = pipe.readLine();
-
-                commandLog.append(commandLine).append("\n");
-
-                //  Split the command by whitespace. The first part contains the name of the command. Before we look up
-                //  the command though, check if the 3dsmax plugin hasn't issued the "END" command.
-                final String[] split = commandLine.split(" ");
-
-                if (split[0].equals(END)) {
-                    //  If we're ending, serialize the context's node information to JSON and bail out.
-                    final Gson gson = new GsonBuilder().
-                            registerTypeAdapter(Bone.class, new BoneSerializer()).
-                            registerTypeAdapter(AnimationTrack.class, new AnimationTrackSerializer()).
-                            create();
-                    final String json = gson.toJson(commandContext.nodes);
-
-                    try (PrintWriter writer = new PrintWriter(commandContext.outputFile)) {
-                        writer.print(json);
-                    }
-
-                    try (PrintWriter writer = new PrintWriter(commandContext.outputFile + ".log")) {
-                        writer.print(commandLog.toString());
-                    }
-
-                    break;
-                }
-
-                final ClientCommand clientCommand = commandManager.getCommandHandler(split[0]);
-                if (clientCommand == null) {
-                    System.out.printf("Unrecognized command line '%s'\n", commandLine);
-                    continue;
-                }
-
-                //  Pass parameters to the context if there are any.
-                commandContext.commandParameters = split;
-
-                //  Execute the command.
-                clientCommand.execute(commandContext);
+    /**
+     * Creates a Gson instance which writes scene nodes in the given version of the JSON mesh format.
+     *
+     * @param formatVersion Version of the format, one of the versions from {@code JSONFormat}.
+     * @return Gson instance.
+     */
+    public static Gson createGson(int formatVersion) {
+        if (!JSONFormat.isSupportedVersion(formatVersion)) {
+            throw new IllegalArgumentException("Unsupported format version " + formatVersion);
+        }
+
+        final GsonBuilder gsonBuilder = new GsonBuilder().
+                registerTypeAdapter(Bone.class, new BoneSerializer(formatVersion)).
+                registerTypeAdapter(AnimationTrack.class, new AnimationTrackSerializer(formatVersion));
+        if (formatVersion != JSONFormat.VERSION_1) {
+            gsonBuilder.
+                    registerTypeAdapter(Mesh.class, new MeshSerializer()).
+                    registerTypeAdapter(CommandContext.NodeData.class, new NodeDataSerializer());
+        }
+        return gsonBuilder.create();
+    }
+
+    /**
+     * Opens the stream of commands. A regular file or a FIFO can stand in for the named pipe of the 3ds Max plugin,
+     * e.g. when replaying a captured session.
+     *
+     * @param name Name of the named pipe, or path to a file.
+     * @return Stream of commands.
+     * @throws IOException If the stream can't be opened.
+     */
+    public static InputStream openCommandStream(final String name) throws IOException {
+        final File file = new File(name);
+        if (file.exists()) {
+            return new FileInputStream(file);
+        }
+        return new FileInputStream("\\\\.\\pipe\\" + name);
+    }
+
+    /**
+     * Creates a reader of the given stream of commands. Binary streams are recognized by their header, and anything
+     * else is read as text, so that plugins which only speak the text protocol keep working.
+     *
+     * @param input Stream of commands.
+     * @param log Stream which the commands are copied to, or {@code null}.
+     * @return Command reader.
+     * @throws IOException If the stream can't be read.
+     */
+    public static CommandReader createCommandReader(final InputStream input, final OutputStream log)
+            throws IOException {
+        final PushbackInputStream pushbackInput = new PushbackInputStream(input, 1);
+        final int firstByte = pushbackInput.read();
+        if (firstByte >= 0) {
+            pushbackInput.unread(firstByte);
+        }
+
+        if (firstByte == BINARY_MAGIC[0]) {
+            return new BinaryCommandDecoder(pushbackInput, log);
+        }
+        return new CommandTokenizer(pushbackInput, log);
+    }
+
+    /**
+     * Writes the exported nodes to the context's output file. The JSON is streamed to the file, node by node and
+     * track by track, rather than built as a single string first.
+     *
+     * @param commandContext Context.
+     * @param gson Gson instance created for the format version.
+     * @param formatVersion Version of the JSON mesh format.
+     * @throws IOException If the file can't be written.
+     */
+    static void writeNodes(final CommandContext commandContext, final Gson gson, int formatVersion)
+            throws IOException {
+        try (JsonWriter writer = gson.newJsonWriter(new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(commandContext.outputFile)), 0x10000))) {
+            //  Gson writes documents leniently, so do the same.
+            writer.setLenient(true);
+            if (formatVersion == JSONFormat.VERSION_1) {
+                gson.toJson(commandContext.nodes, NODES_TYPE, writer);
+            } else {
+                NodeDataWriter.writeNodes(writer, commandContext.nodes);
+            }
+        }
+    }
+
+    /**
+     * Executes the given commands until the "END" command, and then writes the exported nodes to the output file.
+     *
+     * @param commandReader Source of commands.
+     * @param outputFile Path to the output file.
+     * @param formatVersion Version of the JSON mesh format.
+     * @throws Exception If a command fails or the commands end before the "END" command.
+     */
+    public static void export(final CommandReader commandReader, final String outputFile, int formatVersion)
+            throws Exception {
+        //  Create an instance of the context.
+        final CommandContext commandContext = new CommandContext();
+        commandContext.outputFile = outputFile;
+        commandContext.commandParameters = commandReader;
+        final Gson gson = createGson(formatVersion);
+
+        while (true) {
+            //  Read a command from the stream. The parameters are parsed only when the command asks for them.
+            if (!commandReader.next()) {
+                throw new EOFException("The command stream has ended before the END command");
+            }
+
+            final int commandId = commandReader.getCommandId();
+            if (commandId == END_ID) {
+                //  If we're ending, serialize the context's node information to JSON and bail out.
+                writeNodes(commandContext, gson, formatVersion);
+                break;
+            }
+
+            final ClientCommand clientCommand = commandManager.getCommandHandler(commandId);
+            if (clientCommand == null) {
+                System.out.printf("Unrecognized command line '%s'\n", commandReader.getLine());
+                continue;
             }
+
+            //  Execute the command.
+            clientCommand.execute(commandContext);
+        }
+    }
+
+    /**
+     * Exports the commands read from the given stream. Every command is copied to the log file ({@code outputFile} +
+     * ".log") as it arrives, so the log can be replayed later on.
+     *
+     * @param input Stream of commands.
+     * @param outputFile Path to the output file.
+     * @param formatVersion Version of the JSON mesh format.
+     * @throws Exception If a command fails or the stream ends before the "END" command.
+     */
+    public static void export(final InputStream input, final String outputFile, int formatVersion) throws Exception {
+        try (final OutputStream commandLog = new BufferedOutputStream(new FileOutputStream(outputFile + ".log"))) {
+            export(createCommandReader(input, commandLog), outputFile, formatVersion);
+        }
+    }
+
+    public static void main(String[] args) {
+        try (final InputStream input = openCommandStream(args[0])) {
+            //  The format version is optional and defaults to the latest one.
+            final int formatVersion = args.length > 2 ? Integer.parseInt(args[2]) : JSONFormat.LATEST_VERSION;
+            export(input, args[1], formatVersion);
         } catch (Exception ex) {
             ex.printStackTrace();
             new java.util.Scanner(System.in).nextLine();
@@ -0,0 +1,108 @@
+package pl.pateman.my3dsmaxexporterclient;
+
+import pl.pateman.core.mesh.Bone;
+
+import java.util.Arrays;
+
+/**
+ * Gathers the skeleton and the skinning data of the node which is being exported. Bones are looked up by their
+ * indices (3ds Max node IDs) through an array, and the influences of vertices are kept in primitive per-vertex arrays
+ * until the node is finished, when they're converted into the bones' vertex weights in one go.
+ *
+ * Created by pateman.
+ */
+public final class SkeletonBuilder {
+    public static final int MAX_INFLUENCES = 4;
+
+    private Bone[] bones = new Bone[64];
+    private int[] influenceBones = new int[0];
+    private float[] influenceWeights = new float[0];
+    private int vertexCount;
+
+    /**
+     * Forgets all bones and influences, e.g. when a new node begins.
+     */
+    public void clear() {
+        Arrays.fill(this.bones, null);
+        this.vertexCount = 0;
+    }
+
+    public void addBone(final Bone bone) {
+        final int index = bone.getIndex();
+        if (index < 0) {
+            throw new IllegalArgumentException("Invalid bone index " + index);
+        }
+        if (index >= this.bones.length) {
+            this.bones = Arrays.copyOf(this.bones, Math.max(index + 1, this.bones.length * 2));
+        }
+        this.bones[index] = bone;
+    }
+
+    /**
+     * Returns the bone with the given index.
+     *
+     * @param index Index of the bone.
+     * @return Bone, or {@code null} if there's no such bone.
+     */
+    public Bone getBone(int index) {
+        return index >= 0 && index < this.bones.length ? this.bones[index] : null;
+    }
+
+    private void ensureVertexCapacity(int vertexCount) {
+        if (vertexCount * MAX_INFLUENCES > this.influenceBones.length) {
+            final int capacity = Math.max(vertexCount, this.influenceBones.length / MAX_INFLUENCES * 2) *
+                    MAX_INFLUENCES;
+            this.influenceBones = Arrays.copyOf(this.influenceBones, capacity);
+            this.influenceWeights = Arrays.copyOf(this.influenceWeights, capacity);
+        }
+    }
+
+    /**
+     * Sets the influences of a vertex, replacing the previous ones.
+     *
+     * @param vertex Index of the vertex.
+     * @param bones Indices of the influencing bones, or -1 for unused influences.
+     * @param weights Weights of the influences.
+     * @param count Number of influences, up to {@code MAX_INFLUENCES}.
+     */
+    public void setInfluences(int vertex, final int[] bones, final float[] weights, int count) {
+        if (vertex < 0) {
+            throw new IllegalArgumentException("Invalid vertex index " + vertex);
+        }
+        if (count > MAX_INFLUENCES) {
+            throw new IllegalArgumentException("Too many influences");
+        }
+
+        if (vertex >= this.vertexCount) {
+            this.ensureVertexCapacity(vertex + 1);
+            //  Vertices without a SKIN command aren't influenced by any bone.
+            Arrays.fill(this.influenceBones, this.vertexCount * MAX_INFLUENCES, (vertex + 1) * MAX_INFLUENCES, -1);
+            this.vertexCount = vertex + 1;
+        }
+
+        final int base = vertex * MAX_INFLUENCES;
+        for (int i = 0; i < MAX_INFLUENCES; i++) {
+            final int bone = i < count ? bones[i] : -1;
+            if (bone != -1 && this.getBone(bone) == null) {
+                throw new IllegalArgumentException("Vertex " + vertex + " refers to an unknown bone " + bone);
+            }
+            this.influenceBones[base + i] = bone;
+            this.influenceWeights[base + i] = i < count ? weights[i] : 0.0f;
+        }
+    }
+
+    /**
+     * Adds the gathered influences to the bones' vertex weights.
+     */
+    public void applyInfluences() {
+        for (int vertex = 0; vertex < this.vertexCount; vertex++) {
+            final int base = vertex * MAX_INFLUENCES;
+            for (int i = base; i < base + MAX_INFLUENCES; i++) {
+                if (this.influenceBones[i] != -1) {
+                    this.bones[this.influenceBones[i]].addVertexWeight(vertex, this.influenceWeights[i]);
+                }
+            }
+        }
+        this.vertexCount = 0;
+    }
+}
@@ -0,0 +1,245 @@
+package pl.pateman.my3dsmaxexporterclient;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static pl.pateman.my3dsmaxexporterclient.Constants.*;
+
+/**
+ * Generates the command stream of a synthetic skinned and animated node, in the same order as the 3ds Max plugin
+ * sends it: bones first, then three vertices with their normals, texture coordinates and skinning data per face,
+ * followed by the face, and finally the animations. The stream can be written in the text or the binary protocol, so
+ * the exporter client can be exercised without 3ds Max.
+ *
+ * Created by pateman.
+ */
+public final class SyntheticCommandGenerator {
+    //  Node IDs in 3ds Max are unique in the whole scene, so the bones' IDs don't start at 0.
+    private static final int FIRST_BONE_ID = 3;
+
+    private final int vertexCount;
+    private final int boneCount;
+    private final int keyframeCount;
+    private int animationCount = 1;
+    private long seed = 42L;
+
+    private interface CommandSink {
+        void write(CommandParameters command) throws IOException;
+    }
+
+    /**
+     * Mutable command whose parameters are laid out as in {@code COMMAND_LAYOUTS}.
+     */
+    private static final class GeneratedCommand implements CommandParameters {
+        private int commandId;
+        private String string;
+        private final double[] values = new double[16];
+
+        private GeneratedCommand set(int commandId, final String string, double... values) {
+            if (values.length + (string != null ? 1 : 0) != COMMAND_LAYOUTS[commandId].length()) {
+                throw new IllegalArgumentException("Invalid parameters of " + COMMAND_NAMES[commandId]);
+            }
+            this.commandId = commandId;
+            this.string = string;
+            System.arraycopy(values, 0, this.values, 0, values.length);
+            return this;
+        }
+
+        private int getValueIndex(int index) {
+            if (index < 1 || index > COMMAND_LAYOUTS[this.commandId].length()) {
+                throw new IndexOutOfBoundsException("No parameter " + index);
+            }
+            return this.string != null ? index - 2 : index - 1;
+        }
+
+        @Override
+        public int getCommandId() {
+            return commandId;
+        }
+
+        @Override
+        public int getParameterCount() {
+            return COMMAND_LAYOUTS[this.commandId].length() + 1;
+        }
+
+        @Override
+        public String getString(int index) {
+            if (index == 0) {
+                return COMMAND_NAMES[this.commandId];
+            }
+            if (index == 1 && this.string != null) {
+                return this.string;
+            }
+            if (COMMAND_LAYOUTS[this.commandId].charAt(index - 1) == 'i') {
+                return Integer.toString(this.getInt(index));
+            }
+            return String.format(Locale.ROOT, "%.6f", this.getFloat(index));
+        }
+
+        @Override
+        public int getInt(int index) {
+            return (int) this.values[this.getValueIndex(index)];
+        }
+
+        @Override
+        public float getFloat(int index) {
+            return (float) this.values[this.getValueIndex(index)];
+        }
+    }
+
+    /**
+     * Creates a generator.
+     *
+     * @param vertexCount Number of vertices, rounded down to whole faces.
+     * @param boneCount Number of bones.
+     * @param keyframeCount Number of keyframes per track.
+     */
+    public SyntheticCommandGenerator(int vertexCount, int boneCount, int keyframeCount) {
+        if (vertexCount < 0 || boneCount < 0 || keyframeCount < 0) {
+            throw new IllegalArgumentException("Counts cannot be negative");
+        }
+        this.vertexCount = vertexCount - vertexCount % 3;
+        this.boneCount = boneCount;
+        this.keyframeCount = keyframeCount;
+    }
+
+    private static float nextSigned(final Random random) {
+        return random.nextFloat() * 2.0f - 1.0f;
+    }
+
+    private void writeSkin(final CommandSink sink, final GeneratedCommand command, final Random random, int vertex)
+            throws IOException {
+        //  Between 1 and 4 bones influence the vertex, with weights summing up to 1.
+        final int influences = Math.min(1 + random.nextInt(4), this.boneCount);
+        final double[] values = {vertex, -1.0, 0.0, -1.0, 0.0, -1.0, 0.0, -1.0, 0.0};
+        double weightSum = 0.0;
+        for (int i = 0; i < influences; i++) {
+            values[1 + i * 2] = FIRST_BONE_ID + (vertex / 3 + i) % this.boneCount;
+            values[2 + i * 2] = 0.1f + random.nextFloat();
+            weightSum += values[2 + i * 2];
+        }
+        for (int i = 0; i < influences; i++) {
+            values[2 + i * 2] /= weightSum;
+        }
+        sink.write(command.set(SKIN_ID, null, values));
+    }
+
+    private void generate(final CommandSink sink) throws IOException {
+        final Random random = new Random(this.seed);
+        final GeneratedCommand command = new GeneratedCommand();
+
+        sink.write(command.set(BEGIN_NODE_ID, "Synthetic%%20node", 0.0f, -1.0f, 0.0f, 0.0f, 0.0f, 0.0f, 0.0f, 0.0f,
+                1.0f, 1.0f, 1.0f, 1.0f));
+        for (int i = 0; i < this.boneCount; i++) {
+            final int parent = i == 0 ? -1 : FIRST_BONE_ID + (i - 1) / 2;
+            sink.write(command.set(BONE_ID, "Bone%%20" + i, FIRST_BONE_ID + i, parent, nextSigned(random),
+                    nextSigned(random), nextSigned(random), 0.0f, 0.0f, 0.0f, 1.0f, 1.0f, 1.0f, 1.0f));
+        }
+
+        for (int i = 0; i < this.vertexCount; i += 3) {
+            for (int j = i; j < i + 3; j++) {
+                sink.write(command.set(VERTEX_ID, null, nextSigned(random) * 100.0f, nextSigned(random) * 100.0f,
+                        nextSigned(random) * 100.0f));
+                sink.write(command.set(NORMAL_ID, null, nextSigned(random), nextSigned(random), nextSigned(random)));
+                sink.write(command.set(TEXCOORD_ID, null, random.nextFloat(), -random.nextFloat()));
+                if (this.boneCount > 0) {
+                    this.writeSkin(sink, command, random, j);
+                }
+            }
+            sink.write(command.set(FACE_ID, null, i, i + 1, i + 2));
+        }
+
+        if (this.boneCount > 0) {
+            for (int i = 0; i < this.animationCount; i++) {
+                final float length = Math.max(this.keyframeCount - 1, 0) / 30.0f;
+                sink.write(command.set(BEGIN_ANIMATION_ID, "Clip%%20" + i, i * 4800.0f,
+                        i * 4800.0f + this.keyframeCount * 160.0f, length));
+                for (int j = 0; j < this.boneCount; j++) {
+                    sink.write(command.set(BEGIN_TRACK_ID, null, FIRST_BONE_ID + j));
+                    for (int k = 0; k < this.keyframeCount; k++) {
+                        sink.write(command.set(KEYFRAME_ID, null, k / 30.0f, nextSigned(random), nextSigned(random),
+                                nextSigned(random), 0.0f, 0.0f, 0.0f, 1.0f, 1.0f, 1.0f, 1.0f));
+                    }
+                    sink.write(command.set(FINISH_TRACK_ID, null));
+                }
+                sink.write(command.set(FINISH_ANIMATION_ID, null));
+            }
+        }
+
+        sink.write(command.set(FINISH_NODE_ID, null));
+        sink.write(command.set(END_ID, null));
+    }
+
+    /**
+     * Writes the stream in the text protocol, formatting numbers like the 3ds Max plugin does.
+     *
+     * @param output Stream to write to. It's not closed.
+     * @throws IOException If the stream can't be written.
+     */
+    public void writeText(final OutputStream output) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.ISO_8859_1),
+                0x10000);
+        final StringBuilder line = new StringBuilder(128);
+        this.generate(new CommandSink() {
+            @Override
+            public void write(CommandParameters command) throws IOException {
+                line.setLength(0);
+                for (int i = 0; i < command.getParameterCount(); i++) {
+                    line.append(i == 0 ? "" : " ").append(command.getString(i));
+                }
+                writer.append(line).append('\n');
+            }
+        });
+        writer.flush();
+    }
+
+    /**
+     * Writes the stream in the binary protocol.
+     *
+     * @param output Stream to write to. It's not closed.
+     * @throws IOException If the stream can't be written.
+     */
+    public void writeBinary(final OutputStream output) throws IOException {
+        final BinaryCommandEmitter emitter = new BinaryCommandEmitter(output);
+        this.generate(new CommandSink() {
+            @Override
+            public void write(CommandParameters command) throws IOException {
+                emitter.writeCommand(command);
+            }
+        });
+        emitter.flush();
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getBoneCount() {
+        return boneCount;
+    }
+
+    public int getKeyframeCount() {
+        return keyframeCount;
+    }
+
+    public int getAnimationCount() {
+        return animationCount;
+    }
+
+    public void setAnimationCount(int animationCount) {
+        if (animationCount < 0) {
+            throw new IllegalArgumentException("Animation count cannot be negative");
+        }
+        this.animationCount = animationCount;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
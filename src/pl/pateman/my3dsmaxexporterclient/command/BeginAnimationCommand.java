@@ -13,8 +13,8 @@ public class BeginAnimationCommand implements ClientCommand {
 
     @Override
     public void execute(CommandContext context) throws Exception {
-        final Animation animation = new Animation(ExporterUtils.decodeString(context.commandParameters[1]),
-                Float.parseFloat(context.commandParameters[4]));
+        final Animation animation = new Animation(ExporterUtils.decodeString(context.commandParameters.getString(1)),
+                context.commandParameters.getFloat(4));
         context.stateVariables.put(Constants.CURRENT_ANIMATION, animation);
     }
 }
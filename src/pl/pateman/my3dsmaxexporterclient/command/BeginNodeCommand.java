@@ -4,6 +4,7 @@ import org.joml.Quaternionf;
 import org.joml.Vector3f;
 import pl.pateman.my3dsmaxexporterclient.ClientCommand;
 import pl.pateman.my3dsmaxexporterclient.CommandContext;
+import pl.pateman.my3dsmaxexporterclient.CommandParameters;
 import pl.pateman.my3dsmaxexporterclient.ExporterUtils;
 import pl.pateman.core.mesh.Mesh;
 
@@ -15,30 +16,32 @@ import static pl.pateman.my3dsmaxexporterclient.Constants.*;
 public final class BeginNodeCommand implements ClientCommand {
     @Override
     public void execute(final CommandContext context) throws Exception {
+        final CommandParameters parameters = context.commandParameters;
         context.mesh = new Mesh();
+        context.skeletonBuilder.clear();
 
-        context.stateVariables.put(CURRENT_NODE_NAME, ExporterUtils.decodeString(context.commandParameters[1]));
-        context.stateVariables.put(CURRENT_NODE_INDEX, context.commandParameters[2]);
-        context.stateVariables.put(CURRENT_NODE_PARENT, context.commandParameters[3]);
+        context.stateVariables.put(CURRENT_NODE_NAME, ExporterUtils.decodeString(parameters.getString(1)));
+        context.stateVariables.put(CURRENT_NODE_INDEX, parameters.getInt(2));
+        context.stateVariables.put(CURRENT_NODE_PARENT, parameters.getInt(3));
 
-        context.stateVariables.put(CURRENT_NODE_TRANSFORM, context.commandParameters[2]);
+        context.stateVariables.put(CURRENT_NODE_TRANSFORM, parameters.getInt(2));
         final Vector3f translation = new Vector3f();
-        translation.x = Float.parseFloat(context.commandParameters[4]);
-        translation.y = Float.parseFloat(context.commandParameters[5]);
-        translation.z = Float.parseFloat(context.commandParameters[6]);
+        translation.x = parameters.getFloat(4);
+        translation.y = parameters.getFloat(5);
+        translation.z = parameters.getFloat(6);
         context.stateVariables.put(CURRENT_NODE_TRANSFORM_TRANSLATION, translation);
 
         final Quaternionf rotation = new Quaternionf();
-        rotation.x = Float.parseFloat(context.commandParameters[7]);
-        rotation.y = Float.parseFloat(context.commandParameters[8]);
-        rotation.z = Float.parseFloat(context.commandParameters[9]);
-        rotation.w = Float.parseFloat(context.commandParameters[10]);
+        rotation.x = parameters.getFloat(7);
+        rotation.y = parameters.getFloat(8);
+        rotation.z = parameters.getFloat(9);
+        rotation.w = parameters.getFloat(10);
         context.stateVariables.put(CURRENT_NODE_TRANSFORM_ROTATION, rotation);
 
         final Vector3f scale = new Vector3f();
-        scale.x = Float.parseFloat(context.commandParameters[11]);
-        scale.y = Float.parseFloat(context.commandParameters[12]);
-        scale.z = Float.parseFloat(context.commandParameters[13]);
+        scale.x = parameters.getFloat(11);
+        scale.y = parameters.getFloat(12);
+        scale.z = parameters.getFloat(13);
         context.stateVariables.put(CURRENT_NODE_TRANSFORM_SCALE, scale);
     }
 
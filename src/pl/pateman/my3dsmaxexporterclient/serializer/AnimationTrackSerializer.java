@@ -1,10 +1,13 @@
 package pl.pateman.my3dsmaxexporterclient.serializer;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import pl.pateman.core.mesh.AnimationKeyframe;
 import pl.pateman.core.mesh.AnimationTrack;
+import pl.pateman.importer.json.JSONFormat;
 
 import java.lang.reflect.Type;
 
@@ -12,12 +15,36 @@ import java.lang.reflect.Type;
  * Created by pateman.
  */
 public class AnimationTrackSerializer implements JsonSerializer<AnimationTrack> {
+    private final int formatVersion;
+
+    public AnimationTrackSerializer() {
+        this(JSONFormat.VERSION_1);
+    }
+
+    public AnimationTrackSerializer(int formatVersion) {
+        if (!JSONFormat.isSupportedVersion(formatVersion)) {
+            throw new IllegalArgumentException("Unsupported format version " + formatVersion);
+        }
+        this.formatVersion = formatVersion;
+    }
+
     @Override
     public JsonElement serialize(AnimationTrack src, Type typeOfSrc, JsonSerializationContext context) {
         final JsonObject jsonObject = new JsonObject();
 
         jsonObject.addProperty("bone", src.getBone().getIndex());
-        jsonObject.add("keyframes", context.serialize(src.getKeyframes()));
+        if (this.formatVersion == JSONFormat.VERSION_1) {
+            jsonObject.add("keyframes", context.serialize(src.getKeyframes()));
+        } else {
+            //  Keyframes are packed into a single array of [time, tx, ty, tz, rx, ry, rz, rw] records.
+            final JsonArray keyframes = new JsonArray();
+            for (final AnimationKeyframe keyframe : src.getKeyframes()) {
+                keyframes.add(keyframe.getTime());
+                FlatArrays.addVector(keyframes, keyframe.getTranslation());
+                FlatArrays.addQuaternion(keyframes, keyframe.getRotation());
+            }
+            jsonObject.add("keyframes", keyframes);
+        }
 
         return jsonObject;
     }
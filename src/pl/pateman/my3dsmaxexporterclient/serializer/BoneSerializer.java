@@ -1,17 +1,33 @@
 package pl.pateman.my3dsmaxexporterclient.serializer;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
 import pl.pateman.core.mesh.Bone;
+import pl.pateman.importer.json.JSONFormat;
 
 import java.lang.reflect.Type;
+import java.util.Map;
 
 /**
  * Created by pateman.
  */
 public class BoneSerializer implements JsonSerializer<Bone> {
+    private final int formatVersion;
+
+    public BoneSerializer() {
+        this(JSONFormat.VERSION_1);
+    }
+
+    public BoneSerializer(int formatVersion) {
+        if (!JSONFormat.isSupportedVersion(formatVersion)) {
+            throw new IllegalArgumentException("Unsupported format version " + formatVersion);
+        }
+        this.formatVersion = formatVersion;
+    }
+
     @Override
     public JsonElement serialize(final Bone src, final Type typeOfSrc, final JsonSerializationContext context) {
         final JsonObject jsonElement = new JsonObject();
@@ -22,11 +38,27 @@ public class BoneSerializer implements JsonSerializer<Bone> {
         final int parentIndex = src.getParent() == null ? -1 : src.getParent().getIndex();
         jsonElement.addProperty("parent", parentIndex);
 
-        jsonElement.add("bindTranslation", context.serialize(src.getBindPosition()));
-        jsonElement.add("bindRotation", context.serialize(src.getBindRotation()));
-        jsonElement.add("bindScale", context.serialize(src.getBindScale()));
+        if (this.formatVersion == JSONFormat.VERSION_1) {
+            jsonElement.add("bindTranslation", context.serialize(src.getBindPosition()));
+            jsonElement.add("bindRotation", context.serialize(src.getBindRotation()));
+            jsonElement.add("bindScale", context.serialize(src.getBindScale()));
+
+            jsonElement.add("weights", context.serialize(src.getVertexWeights()));
+        } else {
+            jsonElement.add("bindTranslation", FlatArrays.vector(src.getBindPosition()));
+            jsonElement.add("bindRotation", FlatArrays.quaternion(src.getBindRotation()));
+            jsonElement.add("bindScale", FlatArrays.vector(src.getBindScale()));
 
-        jsonElement.add("weights", context.serialize(src.getVertexWeights()));
+            //  Weights are split into two parallel arrays.
+            final JsonArray vertices = new JsonArray();
+            final JsonArray weights = new JsonArray();
+            for (final Map.Entry<Integer, Float> weight : src.getVertexWeights().entrySet()) {
+                vertices.add(weight.getKey());
+                weights.add(weight.getValue());
+            }
+            jsonElement.add(JSONFormat.WEIGHT_VERTICES_FIELD, vertices);
+            jsonElement.add("weights", weights);
+        }
 
         return jsonElement;
     }
@@ -0,0 +1,63 @@
+package pl.pateman.my3dsmaxexporterclient.serializer;
+
+import com.google.gson.JsonArray;
+import org.joml.Quaternionf;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+
+import java.util.List;
+
+/**
+ * Helpers which write vectors and quaternions as flat arrays of numbers, as used by version 2 of the JSON mesh
+ * format.
+ *
+ * Created by pateman.
+ */
+final class FlatArrays {
+    private FlatArrays() {
+
+    }
+
+    static void addVector(final JsonArray out, final Vector3f vector) {
+        out.add(vector.x);
+        out.add(vector.y);
+        out.add(vector.z);
+    }
+
+    static void addQuaternion(final JsonArray out, final Quaternionf quaternion) {
+        out.add(quaternion.x);
+        out.add(quaternion.y);
+        out.add(quaternion.z);
+        out.add(quaternion.w);
+    }
+
+    static JsonArray vector(final Vector3f vector) {
+        final JsonArray array = new JsonArray();
+        addVector(array, vector);
+        return array;
+    }
+
+    static JsonArray quaternion(final Quaternionf quaternion) {
+        final JsonArray array = new JsonArray();
+        addQuaternion(array, quaternion);
+        return array;
+    }
+
+    static JsonArray vectors3(final List<Vector3f> vectors) {
+        final JsonArray array = new JsonArray();
+        for (int i = 0; i < vectors.size(); i++) {
+            addVector(array, vectors.get(i));
+        }
+        return array;
+    }
+
+    static JsonArray vectors2(final List<Vector2f> vectors) {
+        final JsonArray array = new JsonArray();
+        for (int i = 0; i < vectors.size(); i++) {
+            final Vector2f vector = vectors.get(i);
+            array.add(vector.x);
+            array.add(vector.y);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,62 @@
+package pl.pateman.my3dsmaxexporterclient.serializer;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import pl.pateman.core.mesh.Animation;
+import pl.pateman.core.mesh.AnimationTrack;
+import pl.pateman.core.mesh.Bone;
+import pl.pateman.core.mesh.Mesh;
+
+import java.lang.reflect.Type;
+
+/**
+ * Writes meshes in version 2 of the JSON mesh format. Bones and animation tracks are handed over to the context, so
+ * {@code BoneSerializer} and {@code AnimationTrackSerializer} need to be registered for the same version.
+ *
+ * Created by pateman.
+ */
+public class MeshSerializer implements JsonSerializer<Mesh> {
+    @Override
+    public JsonElement serialize(final Mesh src, final Type typeOfSrc, final JsonSerializationContext context) {
+        final JsonObject jsonObject = new JsonObject();
+
+        jsonObject.add("vertices", FlatArrays.vectors3(src.getVertices()));
+        jsonObject.add("normals", FlatArrays.vectors3(src.getNormals()));
+        jsonObject.add("texcoords", FlatArrays.vectors2(src.getTexcoords()));
+
+        final JsonArray triangles = new JsonArray();
+        for (int i = 0; i < src.getTriangles().size(); i++) {
+            triangles.add(src.getTriangles().get(i));
+        }
+        jsonObject.add("triangles", triangles);
+
+        final JsonArray bones = new JsonArray();
+        for (final Bone bone : src.getSkeleton().getBones()) {
+            bones.add(context.serialize(bone, Bone.class));
+        }
+        final JsonObject skeleton = new JsonObject();
+        skeleton.add("bones", bones);
+        jsonObject.add("skeleton", skeleton);
+
+        final JsonArray animations = new JsonArray();
+        for (final Animation animation : src.getAnimations()) {
+            final JsonObject animationObject = new JsonObject();
+            animationObject.addProperty("name", animation.getName());
+            animationObject.addProperty("length", animation.getLength());
+            animationObject.addProperty("frameCount", animation.getFrameCount());
+
+            final JsonArray tracks = new JsonArray();
+            for (final AnimationTrack track : animation.getTracks()) {
+                tracks.add(context.serialize(track, AnimationTrack.class));
+            }
+            animationObject.add("tracks", tracks);
+            animations.add(animationObject);
+        }
+        jsonObject.add("animations", animations);
+
+        return jsonObject;
+    }
+}
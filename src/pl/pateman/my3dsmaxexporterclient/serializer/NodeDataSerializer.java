@@ -0,0 +1,49 @@
+package pl.pateman.my3dsmaxexporterclient.serializer;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import pl.pateman.core.mesh.Mesh;
+import pl.pateman.importer.json.JSONFormat;
+import pl.pateman.my3dsmaxexporterclient.CommandContext;
+
+import java.lang.reflect.Type;
+
+/**
+ * Writes scene nodes in version 2 of the JSON mesh format.
+ *
+ * Created by pateman.
+ */
+public class NodeDataSerializer implements JsonSerializer<CommandContext.NodeData> {
+    @Override
+    public JsonElement serialize(final CommandContext.NodeData src, final Type typeOfSrc,
+                                 final JsonSerializationContext context) {
+        final JsonObject jsonObject = new JsonObject();
+
+        jsonObject.addProperty(JSONFormat.VERSION_FIELD, JSONFormat.VERSION_2);
+        if (src.nodeType != null) {
+            jsonObject.addProperty("nodeType", src.nodeType);
+        }
+        if (src.index != null) {
+            jsonObject.addProperty("index", src.index);
+        }
+        if (src.parentIndex != null) {
+            jsonObject.addProperty("parentIndex", src.parentIndex);
+        }
+        if (src.translation != null) {
+            jsonObject.add("translation", FlatArrays.vector(src.translation));
+        }
+        if (src.rotation != null) {
+            jsonObject.add("rotation", FlatArrays.quaternion(src.rotation));
+        }
+        if (src.scale != null) {
+            jsonObject.add("scale", FlatArrays.vector(src.scale));
+        }
+        if (src.mesh != null) {
+            jsonObject.add("mesh", context.serialize(src.mesh, Mesh.class));
+        }
+
+        return jsonObject;
+    }
+}
@@ -0,0 +1,199 @@
+package pl.pateman.my3dsmaxexporterclient.serializer;
+
+import com.google.gson.stream.JsonWriter;
+import org.joml.Quaternionf;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import pl.pateman.core.mesh.*;
+import pl.pateman.importer.json.JSONFormat;
+import pl.pateman.my3dsmaxexporterclient.CommandContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes scene nodes in version 2 of the JSON mesh format straight to a {@code JsonWriter}, node by node and track by
+ * track, without building the document in memory. The output is the same as the one of {@code NodeDataSerializer}.
+ *
+ * Created by pateman.
+ */
+public final class NodeDataWriter {
+    private NodeDataWriter() {
+
+    }
+
+    //  Gson writes floats of JSON trees with Float.toString, so they're boxed here as well.
+    private static void writeFloat(final JsonWriter writer, float value) throws IOException {
+        writer.value(Float.valueOf(value));
+    }
+
+    private static void writeVector(final JsonWriter writer, final Vector3f vector) throws IOException {
+        writeFloat(writer, vector.x);
+        writeFloat(writer, vector.y);
+        writeFloat(writer, vector.z);
+    }
+
+    private static void writeQuaternion(final JsonWriter writer, final Quaternionf quaternion) throws IOException {
+        writeFloat(writer, quaternion.x);
+        writeFloat(writer, quaternion.y);
+        writeFloat(writer, quaternion.z);
+        writeFloat(writer, quaternion.w);
+    }
+
+    private static void writeVectorArray(final JsonWriter writer, final String name, final Vector3f vector)
+            throws IOException {
+        writer.name(name).beginArray();
+        writeVector(writer, vector);
+        writer.endArray();
+    }
+
+    private static void writeBone(final JsonWriter writer, final Bone bone) throws IOException {
+        writer.beginObject();
+        writer.name("name").value(bone.getName());
+        writer.name("index").value(bone.getIndex());
+        writer.name("parent").value(bone.getParent() == null ? -1 : bone.getParent().getIndex());
+
+        writeVectorArray(writer, "bindTranslation", bone.getBindPosition());
+        writer.name("bindRotation").beginArray();
+        writeQuaternion(writer, bone.getBindRotation());
+        writer.endArray();
+        writeVectorArray(writer, "bindScale", bone.getBindScale());
+
+        //  Weights are split into two parallel arrays.
+        final Map<Integer, Float> vertexWeights = bone.getVertexWeights();
+        writer.name(JSONFormat.WEIGHT_VERTICES_FIELD).beginArray();
+        for (final Integer vertex : vertexWeights.keySet()) {
+            writer.value(vertex);
+        }
+        writer.endArray();
+        writer.name("weights").beginArray();
+        for (final Float weight : vertexWeights.values()) {
+            writer.value(weight);
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    private static void writeTrack(final JsonWriter writer, final AnimationTrack track) throws IOException {
+        writer.beginObject();
+        writer.name("bone").value(track.getBone().getIndex());
+
+        //  Keyframes are packed into a single array of [time, tx, ty, tz, rx, ry, rz, rw] records.
+        writer.name("keyframes").beginArray();
+        final List<AnimationKeyframe> keyframes = track.getKeyframes();
+        for (int i = 0; i < keyframes.size(); i++) {
+            final AnimationKeyframe keyframe = keyframes.get(i);
+            writeFloat(writer, keyframe.getTime());
+            writeVector(writer, keyframe.getTranslation());
+            writeQuaternion(writer, keyframe.getRotation());
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    private static void writeMesh(final JsonWriter writer, final Mesh mesh) throws IOException {
+        writer.beginObject();
+
+        writer.name("vertices").beginArray();
+        for (int i = 0; i < mesh.getVertices().size(); i++) {
+            writeVector(writer, mesh.getVertices().get(i));
+        }
+        writer.endArray();
+        writer.name("normals").beginArray();
+        for (int i = 0; i < mesh.getNormals().size(); i++) {
+            writeVector(writer, mesh.getNormals().get(i));
+        }
+        writer.endArray();
+        writer.name("texcoords").beginArray();
+        for (int i = 0; i < mesh.getTexcoords().size(); i++) {
+            final Vector2f texcoord = mesh.getTexcoords().get(i);
+            writeFloat(writer, texcoord.x);
+            writeFloat(writer, texcoord.y);
+        }
+        writer.endArray();
+        writer.name("triangles").beginArray();
+        for (int i = 0; i < mesh.getTriangles().size(); i++) {
+            writer.value(mesh.getTriangles().get(i));
+        }
+        writer.endArray();
+
+        writer.name("skeleton").beginObject().name("bones").beginArray();
+        for (final Bone bone : mesh.getSkeleton().getBones()) {
+            writeBone(writer, bone);
+        }
+        writer.endArray().endObject();
+
+        writer.name("animations").beginArray();
+        for (final Animation animation : mesh.getAnimations()) {
+            writer.beginObject();
+            writer.name("name").value(animation.getName());
+            writer.name("length").value(Float.valueOf(animation.getLength()));
+            writer.name("frameCount").value(animation.getFrameCount());
+
+            writer.name("tracks").beginArray();
+            for (final AnimationTrack track : animation.getTracks()) {
+                writeTrack(writer, track);
+            }
+            writer.endArray();
+            writer.endObject();
+        }
+        writer.endArray();
+
+        writer.endObject();
+    }
+
+    /**
+     * Writes a single node.
+     *
+     * @param writer Writer.
+     * @param node Node.
+     * @throws IOException If the node can't be written.
+     */
+    public static void writeNode(final JsonWriter writer, final CommandContext.NodeData node) throws IOException {
+        writer.beginObject();
+        writer.name(JSONFormat.VERSION_FIELD).value(JSONFormat.VERSION_2);
+        if (node.nodeType != null) {
+            writer.name("nodeType").value(node.nodeType);
+        }
+        if (node.index != null) {
+            writer.name("index").value(node.index);
+        }
+        if (node.parentIndex != null) {
+            writer.name("parentIndex").value(node.parentIndex);
+        }
+        if (node.translation != null) {
+            writeVectorArray(writer, "translation", node.translation);
+        }
+        if (node.rotation != null) {
+            writer.name("rotation").beginArray();
+            writeQuaternion(writer, node.rotation);
+            writer.endArray();
+        }
+        if (node.scale != null) {
+            writeVectorArray(writer, "scale", node.scale);
+        }
+        if (node.mesh != null) {
+            writer.name("mesh");
+            writeMesh(writer, node.mesh);
+        }
+        writer.endObject();
+    }
+
+    /**
+     * Writes the given nodes as an object keyed by the nodes' names.
+     *
+     * @param writer Writer.
+     * @param nodes Nodes.
+     * @throws IOException If the nodes can't be written.
+     */
+    public static void writeNodes(final JsonWriter writer, final Map<String, CommandContext.NodeData> nodes)
+            throws IOException {
+        writer.beginObject();
+        for (final Map.Entry<String, CommandContext.NodeData> node : nodes.entrySet()) {
+            writer.name(node.getKey());
+            writeNode(writer, node.getValue());
+        }
+        writer.endObject();
+    }
+}
@@ -20,17 +20,21 @@ import org.lwjgl.glfw.GLFWKeyCallback;
 import org.lwjgl.glfw.GLFWVidMode;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL20;
+import pl.pateman.assetcooker.AssetCooker;
 import pl.pateman.core.MeshImporter;
 import pl.pateman.core.TempVars;
 import pl.pateman.core.Utils;
+import pl.pateman.core.culling.EntityCuller;
 import pl.pateman.core.entity.AbstractEntity;
 import pl.pateman.core.entity.CameraEntity;
+import pl.pateman.core.entity.EntityData;
 import pl.pateman.core.entity.MeshEntity;
 import pl.pateman.core.entity.SkeletonMeshEntity;
 import pl.pateman.core.entity.mesh.MeshRenderer;
 import pl.pateman.core.entity.mesh.animation.AnimationPlaybackMode;
 import pl.pateman.core.entity.mesh.animation.BoneAnimationChannel;
 import pl.pateman.core.mesh.Animation;
+import pl.pateman.core.mesh.AnimationClipCache;
 import pl.pateman.core.mesh.Bone;
 import pl.pateman.core.mesh.BoneManualControlType;
 import pl.pateman.core.physics.debug.PhysicsDebugger;
@@ -43,8 +47,11 @@ import pl.pateman.core.text.Text2DRenderer;
 import pl.pateman.core.text.impl.TrueTypeTextFont;
 import pl.pateman.core.texture.Texture;
 import pl.pateman.core.texture.TextureLoader;
-import pl.pateman.importer.json.JSONImporter;
+import pl.pateman.importer.binary.BinaryMeshImporter;
+import pl.pateman.importer.binary.CachingMeshImporter;
+import pl.pateman.importer.json.JSONStreamingImporter;
 
+import java.nio.file.Paths;
 import java.util.List;
 
 import static org.lwjgl.glfw.GLFW.*;
@@ -87,6 +94,7 @@ public class Main {
     private Program meshProgram;
     private MeshEntity meshEntity;
     private SkeletonMeshEntity skeletonMeshEntity;
+    private EntityCuller entityCuller;
     private Texture meshTexture;
 
     private BoneAnimationChannel upperBodyChannel;
@@ -117,6 +125,10 @@ public class Main {
             this.keyCallback.release();
         } finally {
             if (this.meshEntity != null) {
+                //  The shared clip cache would otherwise keep the streamed clips and the mapped container.
+                if (this.meshEntity.getMesh().getClipSource() != null) {
+                    AnimationClipCache.getDefault().evictSource(this.meshEntity.getMesh().getClipSource());
+                }
                 this.meshEntity.clearAndDestroy();
             }
             if (this.meshTexture != null) {
@@ -288,6 +300,13 @@ public class Main {
         glfwShowWindow(this.window);
     }
 
+    private static BinaryMeshImporter createBinaryImporter() {
+        //  Cooked assets can load their animations on demand.
+        final BinaryMeshImporter importer = new BinaryMeshImporter();
+        importer.setStreamAnimations(true);
+        return importer;
+    }
+
     private void initScene() {
         final Shader vertexShader = new Shader(GL20.GL_VERTEX_SHADER);
         final Shader fragmentShader = new Shader(GL20.GL_FRAGMENT_SHADER);
@@ -316,9 +335,14 @@ public class Main {
             final TextureLoader textureLoader = new TextureLoader();
             this.meshTexture = textureLoader.load("test_m.jpg");
 
-            //  Load the mesh.
-            final MeshImporter importer = new JSONImporter();
-            this.meshEntity = importer.load("test.json");
+            //  Load the mesh. Prefer the cooked asset, if it's been built with AssetCooker, and cache the imported
+            //  source otherwise.
+            final boolean cooked = Utils.class.getClassLoader().getResource("test" +
+                    AssetCooker.COOKED_EXTENSION) != null;
+            final MeshImporter importer = cooked ? createBinaryImporter() :
+                    new CachingMeshImporter(new JSONStreamingImporter(),
+                            Paths.get(System.getProperty("java.io.tmpdir"), "java-skeletal-animation-cache"));
+            this.meshEntity = importer.load(cooked ? "test" + AssetCooker.COOKED_EXTENSION : "test.json");
             this.meshEntity.setShaderProgram(this.meshProgram);
             this.meshEntity.buildMesh();
             this.meshEntity.translate(0.25f, 0.0f, 0.0f);
@@ -326,12 +350,22 @@ public class Main {
             this.meshEntity.setScale(new Vector3f(1f, 1f, 1f));
             this.manualBone = this.meshEntity.getMesh().getSkeleton().getBoneByName("Bip01 Head");
 
+            //  Animate the mesh only when it's visible.
+            this.entityCuller = new EntityCuller();
+            this.entityCuller.setSkipInvisibleAnimations(true);
+            this.entityCuller.addEntity(this.meshEntity);
+
             //  Print information about the mesh.
             System.out.println("*** ANIMATIONS ***");
             for (Animation animation : this.meshEntity.getMesh().getAnimations()) {
                 System.out.printf("%s (%d frames, %.4f length)\n", animation.getName(), animation.getFrameCount(),
                         animation.getLength());
             }
+            if (this.meshEntity.getMesh().getClipSource() != null) {
+                for (String animation : this.meshEntity.getMesh().getClipSource().getClipNames()) {
+                    System.out.printf("%s (streamed)\n", animation);
+                }
+            }
             System.out.println("*** SKELETON ***");
             System.out.println(this.meshEntity.getMesh().getSkeleton());
 
@@ -424,42 +458,64 @@ public class Main {
         this.lastTime = currentTime;
 
         if (this.physicsSimulation) {
+            //  Push all transformation changes made to physics entities since the last frame to jBullet at once.
+            for (CollisionObject collisionObject : this.dynamicsWorld.getCollisionObjectArray()) {
+                final AbstractEntity abstractEntity = getPhysicsEntity(collisionObject);
+                if (abstractEntity != null) {
+                    abstractEntity.synchronizeRigidBody();
+                }
+            }
             this.dynamicsWorld.stepSimulation(this.deltaTime, 10);
 
             //  After stepping the physics simulation, update graphical representations of objects.
             final TempVars tempVars = TempVars.get();
             for (CollisionObject collisionObject : this.dynamicsWorld.getCollisionObjectArray()) {
-                if (collisionObject.getUserPointer() == null) {
+                final AbstractEntity abstractEntity = getPhysicsEntity(collisionObject);
+                if (abstractEntity == null) {
                     continue;
                 }
 
-                if (collisionObject.getUserPointer() instanceof AbstractEntity) {
-                    //  Get the collision object's world transformation.
-                    if (collisionObject instanceof RigidBody) {
-                        ((RigidBody) collisionObject).getMotionState().getWorldTransform(tempVars.vecmathTransform);
-                    } else {
-                        collisionObject.getWorldTransform(tempVars.vecmathTransform);
-                    }
+                //  Get the collision object's world transformation.
+                if (collisionObject instanceof RigidBody) {
+                    ((RigidBody) collisionObject).getMotionState().getWorldTransform(tempVars.vecmathTransform);
+                } else {
+                    collisionObject.getWorldTransform(tempVars.vecmathTransform);
+                }
 
-                    //  Convert between different math libraries.
-                    tempVars.vecmathTransform.getRotation(tempVars.vecmathQuat);
-                    Utils.convert(tempVars.quat1, tempVars.vecmathQuat);
-                    Utils.convert(tempVars.vect3d1, tempVars.vecmathTransform.origin);
+                //  Convert between different math libraries.
+                tempVars.vecmathTransform.getRotation(tempVars.vecmathQuat);
+                Utils.convert(tempVars.quat1, tempVars.vecmathQuat);
+                Utils.convert(tempVars.vect3d1, tempVars.vecmathTransform.origin);
 
-                    //  Assign transformation computed by jBullet to the entity.
-                    final AbstractEntity abstractEntity = (AbstractEntity) collisionObject.getUserPointer();
-                    abstractEntity.setTransformation(tempVars.quat1, tempVars.vect3d1, abstractEntity.getScale());
-                }
+                //  Assign transformation computed by jBullet to the entity, without pushing it back to the body.
+                abstractEntity.setTransformation(tempVars.quat1, tempVars.vect3d1, abstractEntity.getScale(), false);
             }
             tempVars.release();
 
             this.physicsDebugger.updateDebugEntities();
             this.ragdollDebugger.updateDebug();
         }
-        this.meshEntity.getAnimationController().stepAnimation(this.deltaTime);
+        //  Step the animations of entities that were visible during the last pass first, so that the bounds that the
+        //  mesh is culled with are the ones of the pose that gets drawn.
+        this.entityCuller.stepAnimations(this.deltaTime);
+        this.entityCuller.cull(this.camera);
         this.skeletonMeshEntity.applyAnimation(this.meshEntity.getMeshRenderer().getBoneMatrices());
     }
 
+    /**
+     * Returns the entity that owns the given collision object, if any. Ragdoll colliders don't have one.
+     *
+     * @param collisionObject Collision object.
+     * @return Owning entity or {@code null}.
+     */
+    private static AbstractEntity getPhysicsEntity(final CollisionObject collisionObject) {
+        final Object userPointer = collisionObject.getUserPointer();
+        if (userPointer instanceof EntityData) {
+            return ((EntityData) userPointer).getEntity();
+        }
+        return userPointer instanceof AbstractEntity ? (AbstractEntity) userPointer : null;
+    }
+
     private void drawMeshEntity(final MeshEntity meshEntity, final Program program, final CameraEntity camera,
                                 final Texture texture, final Vector4f diffuseColor) {
         final TempVars tempVars = TempVars.get();
@@ -520,7 +576,9 @@ public class Main {
         this.skeletonMeshEntity.drawSkeletonMesh(this.camera);
 
         //  Draw the skinned mesh.
-        this.drawMeshEntity(this.meshEntity, this.meshProgram, this.camera, this.meshTexture, DIFFUSE_COLOR);
+        if (this.entityCuller.isVisible(this.meshEntity)) {
+            this.drawMeshEntity(this.meshEntity, this.meshProgram, this.camera, this.meshTexture, DIFFUSE_COLOR);
+        }
 
         //  Draw the physics debug.
         if (this.physicsDebug) {
@@ -543,6 +601,9 @@ public class Main {
 
         this.wholeBodyCurrentAnimation = "run";
         this.meshEntity.getAnimationController().switchToAnimation(this.wholeBodyCurrentAnimation);
+        //  The other animations are played only on request, so they can be loaded in the background.
+        this.meshEntity.getAnimationController().prefetchAnimation("Idle");
+        this.meshEntity.getAnimationController().prefetchAnimation("alert");
         if (this.meshEntity.getMesh().hasSkeleton()) {
             this.upperBodyChannel.setSpeed(1.5f);
             this.lowerBodyChannel.setSpeed(1.5f);